@@ -36,6 +36,8 @@
 
 package net.imglib2.algorithm;
 
+import net.imglib2.multithreading.SharedThreadPool;
+
 /**
  * This is a convenience implementation of an algorithm that implements {@link MultiThreaded}
  * and {@link Algorithm} so that less code has to be re-implemented.
@@ -53,7 +55,7 @@ public abstract class MultiThreadedAlgorithm implements MultiThreaded, Algorithm
 	public MultiThreadedAlgorithm() { setNumThreads(); }
 	
 	@Override
-	public void setNumThreads() { this.numThreads = Runtime.getRuntime().availableProcessors(); }
+	public void setNumThreads() { this.numThreads = SharedThreadPool.getParallelism(); }
 
 	@Override
 	public void setNumThreads( final int numThreads ) { this.numThreads = numThreads; }
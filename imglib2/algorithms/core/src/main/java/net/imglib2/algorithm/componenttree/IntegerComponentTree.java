@@ -0,0 +1,458 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.componenttree;
+
+import java.util.Arrays;
+
+import net.imglib2.Cursor;
+import net.imglib2.Point;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.view.Views;
+
+/**
+ * Build the component tree of an image of {@link IntegerType} values. This is
+ * the same algorithm as {@link ComponentTree} (D. Nister and H. Stewenius,
+ * "Linear Time Maximally Stable Extremal Regions", ECCV 2008), but working on
+ * primitive arrays instead of generic pixel types.
+ *
+ * <p>
+ * The input values are copied to an <code>int[]</code> of threshold levels,
+ * indexed by the flat (linear) index of a pixel. Boundary pixels are kept in a
+ * bucket queue with one stack of pixel indices per threshold level, which
+ * replaces the {@link java.util.PriorityQueue} of {@link ComponentTree} and
+ * makes the algorithm linear in the number of pixels. Pixels are marked
+ * visited by overwriting their level in the level array, such that no
+ * separate visited image is required. No objects are created per pixel.
+ * </p>
+ *
+ * <p>
+ * Components are created and emitted through the same
+ * {@link Component.Generator} and {@link Component.Handler} interfaces as in
+ * {@link ComponentTree}, and the resulting tree is the same. (Only the order
+ * in which pixels of equal value are visited may differ.) If the input has more than {@link Integer#MAX_VALUE} pixels or its
+ * value range exceeds {@link #MAX_LEVELS}, the generic {@link ComponentTree}
+ * is used instead.
+ * </p>
+ *
+ * <p>
+ * <strong>TODO</strong> Add support for non-zero-min RandomAccessibleIntervals.
+ * (Currently, we assume that the input image is a <em>zero-min</em> interval.)
+ * </p>
+ *
+ * @param <T>
+ *            value type of the input image.
+ * @param <C>
+ *            component type.
+ *
+ * @author ImgLib2 developers
+ */
+public final class IntegerComponentTree< T extends IntegerType< T >, C extends Component< T > >
+{
+	/**
+	 * Maximum number of distinct threshold levels (max - min + 1 of the input
+	 * values) that are processed with a bucket queue.
+	 */
+	public static final int MAX_LEVELS = 1 << 20;
+
+	/**
+	 * Run the algorithm. Completed components are emitted to the
+	 * {@link Component.Handler} which is responsible for building up the tree
+	 * structure.
+	 *
+	 * @param input
+	 *            input image.
+	 * @param componentGenerator
+	 *            provides new {@link Component} instances.
+	 * @param componentHandler
+	 *            receives completed {@link Component}s.
+	 * @param darkToBright
+	 *            determines ordering of threshold values. If it is true, then
+	 *            thresholds are applied from low to high values. Note that the
+	 *            {@link Component.Generator#createMaxComponent()} needs to
+	 *            match this ordering.
+	 */
+	public static < T extends IntegerType< T >, C extends Component< T > > void buildComponentTree( final RandomAccessibleInterval< T > input, final Component.Generator< T, C > componentGenerator, final Component.Handler< C > componentHandler, final boolean darkToBright )
+	{
+		final int n = input.numDimensions();
+		long size = 1;
+		for ( int d = 0; d < n; ++d )
+			size *= input.dimension( d );
+
+		if ( size <= Integer.MAX_VALUE )
+		{
+			final int[] levels = new int[ ( int ) size ];
+			final Cursor< T > c = Views.flatIterable( input ).cursor();
+			final T value = c.next().createVariable();
+			c.reset();
+
+			long min = Long.MAX_VALUE;
+			long max = Long.MIN_VALUE;
+			while ( c.hasNext() )
+			{
+				final long v = c.next().getIntegerLong();
+				if ( v < min )
+					min = v;
+				if ( v > max )
+					max = v;
+			}
+
+			final double numLevels = ( double ) max - min + 1;
+			if ( numLevels <= MAX_LEVELS )
+			{
+				c.reset();
+				for ( int i = 0; i < levels.length; ++i )
+				{
+					final long v = c.next().getIntegerLong();
+					levels[ i ] = ( int ) ( darkToBright ? v - min : max - v );
+				}
+				new IntegerComponentTree< T, C >( input, levels, ( int ) numLevels, darkToBright ? min : max, darkToBright, value, componentGenerator, componentHandler );
+				return;
+			}
+		}
+
+		ComponentTree.buildComponentTree( input, componentGenerator, componentHandler, darkToBright );
+	}
+
+	/**
+	 * Stacks of boundary pixels, one for each threshold level. Each entry is a
+	 * pair of the flat pixel index and the index of the next neighbor to visit.
+	 */
+	private static final class BucketQueue
+	{
+		private final int[][] buckets;
+
+		private final int[] sizes;
+
+		/**
+		 * lower bound of the lowest non-empty level.
+		 */
+		private int minLevel;
+
+		/**
+		 * index and next neighbor index of the last polled pixel.
+		 */
+		int polledIndex;
+
+		int polledNextNeighborIndex;
+
+		int polledLevel;
+
+		public BucketQueue( final int numLevels )
+		{
+			buckets = new int[ numLevels ][];
+			sizes = new int[ numLevels ];
+			minLevel = numLevels;
+		}
+
+		public void add( final int level, final int index, final int nextNeighborIndex )
+		{
+			int[] bucket = buckets[ level ];
+			final int s = sizes[ level ];
+			if ( bucket == null )
+			{
+				bucket = new int[ 32 ];
+				buckets[ level ] = bucket;
+			}
+			else if ( s == bucket.length )
+			{
+				final int[] grown = new int[ 2 * s ];
+				System.arraycopy( bucket, 0, grown, 0, s );
+				bucket = grown;
+				buckets[ level ] = bucket;
+			}
+			bucket[ s ] = index;
+			bucket[ s + 1 ] = nextNeighborIndex;
+			sizes[ level ] = s + 2;
+			if ( level < minLevel )
+				minLevel = level;
+		}
+
+		/**
+		 * Remove a pixel of the lowest level. Its index, next neighbor index,
+		 * and level are stored in {@link #polledIndex},
+		 * {@link #polledNextNeighborIndex}, and {@link #polledLevel}.
+		 *
+		 * @return false if the queue was empty.
+		 */
+		public boolean poll()
+		{
+			while ( minLevel < sizes.length && sizes[ minLevel ] == 0 )
+				++minLevel;
+			if ( minLevel == sizes.length )
+				return false;
+			final int s = sizes[ minLevel ] - 2;
+			final int[] bucket = buckets[ minLevel ];
+			polledIndex = bucket[ s ];
+			polledNextNeighborIndex = bucket[ s + 1 ];
+			polledLevel = minLevel;
+			sizes[ minLevel ] = s;
+			return true;
+		}
+	}
+
+	/**
+	 * Marks a pixel as visited in the level array.
+	 */
+	private static final int VISITED = -1;
+
+	private final Component.Generator< T, C > componentGenerator;
+
+	private final Component.Handler< C > componentOutput;
+
+	/**
+	 * Threshold level of every pixel, or {@link #VISITED}.
+	 */
+	private final int[] levels;
+
+	private final long[] dimensions;
+
+	/**
+	 * Offset in the flat index array for a step in each dimension.
+	 */
+	private final long[] steps;
+
+	/**
+	 * Value of threshold level 0.
+	 */
+	private final long level0Value;
+
+	private final boolean darkToBright;
+
+	/**
+	 * Used to pass threshold values to components.
+	 */
+	private final T value;
+
+	private final BucketQueue boundaryPixels;
+
+	private C[] componentStack;
+
+	private int[] componentLevels;
+
+	private int componentStackSize;
+
+	/**
+	 * Set up data structures and run the algorithm. Completed components are
+	 * emitted to the provided {@link Component.Handler}.
+	 */
+	private IntegerComponentTree( final RandomAccessibleInterval< T > input, final int[] levels, final int numLevels, final long level0Value, final boolean darkToBright, final T value, final Component.Generator< T, C > componentGenerator, final Component.Handler< C > componentOutput )
+	{
+		this.componentGenerator = componentGenerator;
+		this.componentOutput = componentOutput;
+		this.levels = levels;
+		this.level0Value = level0Value;
+		this.darkToBright = darkToBright;
+		this.value = value;
+
+		final int n = input.numDimensions();
+		dimensions = new long[ n ];
+		input.dimensions( dimensions );
+		steps = new long[ n ];
+		long step = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			steps[ d ] = step;
+			step *= dimensions[ d ];
+		}
+
+		boundaryPixels = new BucketQueue( numLevels );
+
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final C[] stack = ( C[] ) new Component[ 16 ];
+		componentStack = stack;
+		componentLevels = new int[ 16 ];
+		componentStackSize = 0;
+		pushComponent( componentGenerator.createMaxComponent(), numLevels );
+
+		run();
+	}
+
+	private T valueOf( final int level )
+	{
+		value.setInteger( darkToBright ? level0Value + level : level0Value - level );
+		return value;
+	}
+
+	private void pushComponent( final C component, final int level )
+	{
+		if ( componentStackSize == componentStack.length )
+		{
+			final int s = 2 * componentStackSize;
+			componentStack = Arrays.copyOf( componentStack, s );
+			componentLevels = Arrays.copyOf( componentLevels, s );
+		}
+		componentStack[ componentStackSize ] = component;
+		componentLevels[ componentStackSize ] = level;
+		++componentStackSize;
+	}
+
+	/**
+	 * Main loop of the algorithm. This follows exactly along steps of the
+	 * algorithm as described in the paper, see {@link ComponentTree}.
+	 */
+	private void run()
+	{
+		final int n = dimensions.length;
+		final int nBound = 2 * n;
+		final long[] position = new long[ n ];
+		final Point point = new Point( n );
+
+		int current = 0;
+		int neighborIndex = 0;
+
+		// Note that step numbers in the comments below refer to steps in the
+		// Nister & Stewenius paper.
+
+		// step 2
+		int currentLevel = levels[ current ];
+		levels[ current ] = VISITED;
+
+		// step 3
+		pushComponent( componentGenerator.createComponent( valueOf( currentLevel ) ), currentLevel );
+
+		// step 4
+		while ( true )
+		{
+			while ( neighborIndex < nBound )
+			{
+				final int d = neighborIndex / 2;
+				final boolean bck = ( neighborIndex & 1 ) == 0;
+				++neighborIndex;
+
+				final int neighbor;
+				if ( bck )
+				{
+					if ( position[ d ] == 0 )
+						continue;
+					neighbor = ( int ) ( current - steps[ d ] );
+				}
+				else
+				{
+					if ( position[ d ] + 1 >= dimensions[ d ] )
+						continue;
+					neighbor = ( int ) ( current + steps[ d ] );
+				}
+
+				final int neighborLevel = levels[ neighbor ];
+				if ( neighborLevel == VISITED )
+					continue;
+				levels[ neighbor ] = VISITED;
+
+				if ( neighborLevel >= currentLevel )
+				{
+					boundaryPixels.add( neighborLevel, neighbor, 0 );
+				}
+				else
+				{
+					boundaryPixels.add( currentLevel, current, neighborIndex );
+					current = neighbor;
+					position[ d ] += bck ? -1 : 1;
+					currentLevel = neighborLevel;
+
+					// go to 3, i.e.:
+					pushComponent( componentGenerator.createComponent( valueOf( currentLevel ) ), currentLevel );
+					neighborIndex = 0;
+				}
+			}
+
+			// step 5
+			point.setPosition( position );
+			componentStack[ componentStackSize - 1 ].addPosition( point );
+
+			// step 6
+			if ( !boundaryPixels.poll() )
+			{
+				processStack( currentLevel );
+				return;
+			}
+
+			final int level = boundaryPixels.polledLevel;
+			if ( level != currentLevel )
+			{
+				// step 7
+				processStack( level );
+			}
+			current = boundaryPixels.polledIndex;
+			currentLevel = level;
+			neighborIndex = boundaryPixels.polledNextNeighborIndex;
+			long index = current;
+			for ( int d = 0; d < n; ++d )
+			{
+				position[ d ] = index % dimensions[ d ];
+				index /= dimensions[ d ];
+			}
+		}
+	}
+
+	/**
+	 * This is called whenever the current level is raised.
+	 *
+	 * @param level
+	 */
+	private void processStack( final int level )
+	{
+		while ( true )
+		{
+			// process component on top of stack
+			final C component = componentStack[ --componentStackSize ];
+			componentStack[ componentStackSize ] = null;
+			componentOutput.emit( component );
+
+			// get level of second component on stack
+			if ( componentStackSize == 0 )
+			{
+				pushComponent( component, componentLevels[ componentStackSize ] );
+				return;
+			}
+			final C secondComponent = componentStack[ componentStackSize - 1 ];
+			final int secondLevel = componentLevels[ componentStackSize - 1 ];
+			if ( level < secondLevel )
+			{
+				component.setValue( valueOf( level ) );
+				pushComponent( component, level );
+			}
+			else
+			{
+				secondComponent.merge( component );
+				if ( level > secondLevel )
+					continue;
+			}
+			return;
+		}
+	}
+}
@@ -71,6 +71,13 @@ final class MserComponentGenerator< T extends Type< T > > implements Component.G
 	 */
 	final Img< LongType > linkedList;
 
+	/**
+	 * Offset of the input image in the (larger) image for which MSER are
+	 * computed. Added to pixel positions when computing mean and covariance and
+	 * when iterating {@link PixelList}s.
+	 */
+	final long[] offset;
+
 	/**
 	 * According to the dimensions of the input image, create a {@link LongType}
 	 * {@link Img} to store the {@link PixelList} used in the components
@@ -85,11 +92,33 @@ final class MserComponentGenerator< T extends Type< T > > implements Component.G
 	 *            used to create PixelList image.
 	 */
 	public MserComponentGenerator( final T maxValue, final RandomAccessibleInterval< T > input, final ImgFactory< LongType > imgFactory )
+	{
+		this( maxValue, input, imgFactory, new long[ input.numDimensions() ] );
+	}
+
+	/**
+	 * According to the dimensions of the input image, create a {@link LongType}
+	 * {@link Img} to store the {@link PixelList} used in the components
+	 * generated {@link #createComponent(Type)}.
+	 *
+	 * @param maxValue
+	 *            a value (e.g., grey-level) greater than any occurring in the
+	 *            input image.
+	 * @param input
+	 *            input image.
+	 * @param imgFactory
+	 *            used to create PixelList image.
+	 * @param offset
+	 *            position of the input image in the image for which MSER are
+	 *            computed.
+	 */
+	public MserComponentGenerator( final T maxValue, final RandomAccessibleInterval< T > input, final ImgFactory< LongType > imgFactory, final long[] offset )
 	{
 		this.maxValue = maxValue;
 		dimensions = new long[ input.numDimensions() ];
 		input.dimensions( dimensions );
 		linkedList = imgFactory.create( dimensions, new LongType() );
+		this.offset = offset;
 	}
 
 	@Override
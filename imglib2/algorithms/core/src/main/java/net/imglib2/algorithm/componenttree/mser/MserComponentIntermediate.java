@@ -82,6 +82,8 @@ final class MserComponentIntermediate< T extends Type< T > > implements Componen
 	 */
 	final double[] sumSquPos;
 
+	private final long[] offset;
+
 	private final long[] tmp;
 
 	/**
@@ -107,13 +109,14 @@ final class MserComponentIntermediate< T extends Type< T > > implements Componen
 	 */
 	MserComponentIntermediate( final T value, final MserComponentGenerator< T > generator )
 	{
-		pixelList = new PixelList( generator.linkedList.randomAccess(), generator.dimensions );
+		pixelList = new PixelList( generator.linkedList.randomAccess(), generator.dimensions, generator.offset );
 		n = generator.dimensions.length;
 		sumPos = new double[ n ];
 		sumSquPos = new double[ ( n * (n+1) ) / 2 ];
 		this.value = value.copy();
 		this.children = new ArrayList< MserComponentIntermediate< T > >();
 		this.evaluationNode = null;
+		offset = generator.offset;
 		tmp = new long[ n ];
 	}
 	
@@ -122,6 +125,8 @@ final class MserComponentIntermediate< T extends Type< T > > implements Componen
 	{
 		pixelList.addPosition( position );
 		position.localize( tmp );
+		for ( int i = 0; i < n; ++i )
+			tmp[ i ] += offset[ i ];
 		int k = 0;
 		for ( int i = 0; i < n; ++i )
 		{
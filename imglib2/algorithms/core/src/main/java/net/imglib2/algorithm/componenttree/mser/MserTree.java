@@ -41,18 +41,25 @@ import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 
+import net.imglib2.Interval;
+import net.imglib2.Localizable;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.algorithm.componenttree.Component;
 import net.imglib2.algorithm.componenttree.ComponentTree;
+import net.imglib2.algorithm.componenttree.IntegerComponentTree;
 import net.imglib2.algorithm.componenttree.pixellist.PixelList;
 import net.imglib2.algorithm.componenttree.pixellist.PixelListComponent;
 import net.imglib2.img.ImgFactory;
 import net.imglib2.img.array.ArrayImgFactory;
 import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.multithreading.SharedThreadPool;
 import net.imglib2.type.Type;
+import net.imglib2.type.numeric.IntegerType;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.view.Views;
 
 /**
  * MSER tree of an image stored as a tree of {@link PixelListComponent}s. This
@@ -150,19 +157,12 @@ public final class MserTree< T extends Type< T > > implements Component.Handler<
 	 */
 	public static < T extends RealType< T > > MserTree< T > buildMserTree( final RandomAccessibleInterval< T > input, final T delta, final long minSize, final long maxSize, final double maxVar, final double minDiversity, boolean darkToBright )
 	{
-		final int numDimensions = input.numDimensions();
-		long size = 1;
-		for ( int d = 0; d < numDimensions; ++d )
-			size *= input.dimension( d );
-		if( size > Integer.MAX_VALUE ) {
-			int cellSize = ( int ) Math.pow( Integer.MAX_VALUE / new LongType().getEntitiesPerPixel(), 1.0 / numDimensions );
-			return buildMserTree( input, delta, minSize, maxSize, maxVar, minDiversity, new CellImgFactory< LongType >( cellSize ), darkToBright );
-		}
-		return buildMserTree( input, delta, minSize, maxSize, maxVar, minDiversity, new ArrayImgFactory< LongType >(), darkToBright );
+		return buildMserTree( input, delta, minSize, maxSize, maxVar, minDiversity, createLinkedListFactory( input ), darkToBright );
 	}
 
 	/**
-	 * Build a MSER tree from an input image.
+	 * Build a MSER tree from an input image. For {@link IntegerType} images
+	 * the component tree is built by {@link IntegerComponentTree}.
 	 *
 	 * @param input
 	 *            the input image.
@@ -185,18 +185,171 @@ public final class MserTree< T extends Type< T > > implements Component.Handler<
 	 * @see MserComponentGenerator
 	 */
 	public static < T extends RealType< T > > MserTree< T > buildMserTree( final RandomAccessibleInterval< T > input, final T delta, final long minSize, final long maxSize, final double maxVar, final double minDiversity, final ImgFactory< LongType > imgFactory, boolean darkToBright )
+	{
+		return buildMserTree( input, delta, minSize, maxSize, maxVar, minDiversity, imgFactory, darkToBright, new long[ input.numDimensions() ] );
+	}
+
+	/**
+	 * Build a MSER tree from an input image which is located at
+	 * <em>offset</em> in a larger image. If the input image is of
+	 * {@link IntegerType}, the component tree is built by
+	 * {@link IntegerComponentTree}, otherwise by {@link ComponentTree}.
+	 */
+	private static < T extends RealType< T > > MserTree< T > buildMserTree( final RandomAccessibleInterval< T > input, final T delta, final long minSize, final long maxSize, final double maxVar, final double minDiversity, final ImgFactory< LongType > imgFactory, boolean darkToBright, final long[] offset )
 	{
 		final T max = delta.createVariable();
 		max.setReal( darkToBright ? delta.getMaxValue() : delta.getMinValue() );
-		final MserComponentGenerator< T > generator = new MserComponentGenerator< T >( max, input, imgFactory );
+		final MserComponentGenerator< T > generator = new MserComponentGenerator< T >( max, input, imgFactory, offset );
 		final Comparator< T > comparator = darkToBright ? new ComponentTree.DarkToBright< T >() : new ComponentTree.BrightToDark< T >();
 		final ComputeDelta< T > computeDelta = darkToBright ? new ComputeDeltaDarkToBright< T >( delta ) : new ComputeDeltaBrightToDark< T >( delta ); 
 		final MserTree< T > tree = new MserTree< T >( comparator, computeDelta, minSize, maxSize, maxVar, minDiversity );
-		ComponentTree.buildComponentTree( input, generator, tree, comparator );
+		if ( delta instanceof IntegerType )
+			buildIntegerComponentTree( input, generator, tree, darkToBright );
+		else
+			ComponentTree.buildComponentTree( input, generator, tree, comparator );
 		tree.pruneDuplicates();
 		return tree;
 	}
 
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	private static void buildIntegerComponentTree( final RandomAccessibleInterval input, final MserComponentGenerator generator, final MserTree tree, final boolean darkToBright )
+	{
+		IntegerComponentTree.buildComponentTree( input, generator, tree, darkToBright );
+	}
+
+	/**
+	 * Build MSER of an input image by splitting it into blocks and computing
+	 * the MSER tree of each block in parallel. This is an approximation of
+	 * {@link #buildMserTree(RandomAccessibleInterval, double, long, long, double, double, boolean)}
+	 * for large images containing many small regions (e.g., spots or cells).
+	 *
+	 * <p>
+	 * Each block is extended by a halo on every side and the MSER tree of the
+	 * extended block is computed. A region is kept if it does not touch the
+	 * border of the extended block (except where it coincides with the border
+	 * of the input image) and if the center of its bounding box lies in the
+	 * block. Thus every region is reported at most once, and regions that
+	 * cross a block border are found if they extend less than the halo beyond
+	 * it. Larger regions are not found. Regions may also differ from the
+	 * result for the whole image, if the components they are compared with
+	 * when evaluating instability reach the border of the extended block. The
+	 * halo should be chosen larger than the expected regions.
+	 * </p>
+	 *
+	 * <p>
+	 * The MSER of the blocks are combined into one tree. Nesting is recorded
+	 * only between MSER found in the same block, all others are roots. Pixel
+	 * positions and means of the resulting MSER are in the coordinates of the
+	 * input image, which does not need to be zero-min.
+	 * </p>
+	 *
+	 * @param input
+	 *            the input image.
+	 * @param delta
+	 *            delta for computing instability score.
+	 * @param minSize
+	 *            minimum size (in pixels) of accepted MSER.
+	 * @param maxSize
+	 *            maximum size (in pixels) of accepted MSER.
+	 * @param maxVar
+	 *            maximum instability score of accepted MSER.
+	 * @param minDiversity
+	 *            minimal diversity of adjacent accepted MSER.
+	 * @param darkToBright
+	 *            whether to apply thresholds from dark to bright (true) or
+	 *            bright to dark (false)
+	 * @param blockSize
+	 *            size of the blocks in every dimension.
+	 * @param halo
+	 *            by how many pixels the blocks are extended on every side in
+	 *            every dimension.
+	 * @param numThreads
+	 *            how many blocks to process in parallel.
+	 * @return MSER tree of the image.
+	 */
+	public static < T extends RealType< T > > MserTree< T > buildMserTreeInBlocks( final RandomAccessibleInterval< T > input, final double delta, final long minSize, final long maxSize, final double maxVar, final double minDiversity, final boolean darkToBright, final long[] blockSize, final long[] halo, final int numThreads )
+	{
+		final int n = input.numDimensions();
+		if ( blockSize.length != n || halo.length != n )
+			throw new IllegalArgumentException( "blockSize and halo must have " + n + " dimensions" );
+
+		final long[] inputMin = new long[ n ];
+		final long[] inputMax = new long[ n ];
+		input.min( inputMin );
+		input.max( inputMax );
+		final long[] numBlocksPerDimension = new long[ n ];
+		long numBlocks = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			if ( blockSize[ d ] <= 0 )
+				throw new IllegalArgumentException( "blockSize must be positive" );
+			if ( halo[ d ] < 0 )
+				throw new IllegalArgumentException( "halo must not be negative" );
+			numBlocksPerDimension[ d ] = ( input.dimension( d ) + blockSize[ d ] - 1 ) / blockSize[ d ];
+			numBlocks *= numBlocksPerDimension[ d ];
+		}
+
+		final T deltaT = getDeltaVariable( input, delta );
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final MserTree< T >[] blockTrees = new MserTree[ ( int ) numBlocks ];
+		final long[][] blockMins = new long[ ( int ) numBlocks ][ n ];
+		final long[][] blockMaxs = new long[ ( int ) numBlocks ][ n ];
+		final long[][] extendedMins = new long[ ( int ) numBlocks ][ n ];
+		final long[][] extendedMaxs = new long[ ( int ) numBlocks ][ n ];
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >();
+		for ( int b = 0; b < numBlocks; ++b )
+		{
+			final int block = b;
+			IntervalIndexer.indexToPosition( b, numBlocksPerDimension, blockMins[ b ] );
+			for ( int d = 0; d < n; ++d )
+			{
+				blockMins[ b ][ d ] = inputMin[ d ] + blockMins[ b ][ d ] * blockSize[ d ];
+				blockMaxs[ b ][ d ] = Math.min( blockMins[ b ][ d ] + blockSize[ d ] - 1, inputMax[ d ] );
+				extendedMins[ b ][ d ] = Math.max( blockMins[ b ][ d ] - halo[ d ], inputMin[ d ] );
+				extendedMaxs[ b ][ d ] = Math.min( blockMaxs[ b ][ d ] + halo[ d ], inputMax[ d ] );
+			}
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					final RandomAccessibleInterval< T > blockInput = Views.zeroMin( Views.interval( input, extendedMins[ block ], extendedMaxs[ block ] ) );
+					blockTrees[ block ] = buildMserTree( blockInput, deltaT.copy(), minSize, maxSize, maxVar, minDiversity, createLinkedListFactory( blockInput ), darkToBright, extendedMins[ block ] );
+				}
+			} );
+		}
+		SharedThreadPool.invokeAll( tasks, numThreads );
+
+		final MserTree< T > tree = new MserTree< T >( blockTrees[ 0 ].comparator, blockTrees[ 0 ].delta, minSize, maxSize, maxVar, minDiversity );
+		final long[] regionMin = new long[ n ];
+		final long[] regionMax = new long[ n ];
+		for ( int b = 0; b < numBlocks; ++b )
+		{
+			final BlockBounds bounds = new BlockBounds( blockMins[ b ], blockMaxs[ b ], extendedMins[ b ], extendedMaxs[ b ], inputMin, inputMax, regionMin, regionMax );
+			for ( final Mser< T > mser : new ArrayList< Mser< T > >( blockTrees[ b ].roots ) )
+				tree.addOwnedRegions( mser, null, bounds );
+		}
+		return tree;
+	}
+
+	/**
+	 * Create an {@link ImgFactory} for the {@link PixelList} image of the
+	 * given input image. This is an {@link ArrayImgFactory} or a
+	 * {@link CellImgFactory} depending on input image size.
+	 */
+	private static ImgFactory< LongType > createLinkedListFactory( final Interval input )
+	{
+		final int numDimensions = input.numDimensions();
+		long size = 1;
+		for ( int d = 0; d < numDimensions; ++d )
+			size *= input.dimension( d );
+		if( size > Integer.MAX_VALUE ) {
+			int cellSize = ( int ) Math.pow( Integer.MAX_VALUE / new LongType().getEntitiesPerPixel(), 1.0 / numDimensions );
+			return new CellImgFactory< LongType >( cellSize );
+		}
+		return new ArrayImgFactory< LongType >();
+	}
+
 	/**
 	 * Build a MSER tree from an input image. Calls
 	 * {@link #buildMserTree(RandomAccessibleInterval, ComputeDelta, long, long, double, double, ImgFactory, Type, Comparator)}
@@ -224,15 +377,7 @@ public final class MserTree< T extends Type< T > > implements Component.Handler<
 	 */
 	public static < T extends Type< T > > MserTree< T > buildMserTree( final RandomAccessibleInterval< T > input, final ComputeDelta< T > computeDelta, final long minSize, final long maxSize, final double maxVar, final double minDiversity, final T maxValue, final Comparator< T > comparator )
 	{
-		final int numDimensions = input.numDimensions();
-		long size = 1;
-		for ( int d = 0; d < numDimensions; ++d )
-			size *= input.dimension( d );
-		if( size > Integer.MAX_VALUE ) {
-			int cellSize = ( int ) Math.pow( Integer.MAX_VALUE / new LongType().getEntitiesPerPixel(), 1.0 / numDimensions );
-			return buildMserTree( input, computeDelta, minSize, maxSize, maxVar, minDiversity, new CellImgFactory< LongType >( cellSize ), maxValue, comparator );
-		}
-		return buildMserTree( input, computeDelta, minSize, maxSize, maxVar, minDiversity, new ArrayImgFactory< LongType >(), maxValue, comparator );
+		return buildMserTree( input, computeDelta, minSize, maxSize, maxVar, minDiversity, createLinkedListFactory( input ), maxValue, comparator );
 	}
 
 	/**
@@ -369,6 +514,95 @@ public final class MserTree< T extends Type< T > > implements Component.Handler<
 		nodes.addAll( validChildren );
 	}
 
+	/**
+	 * Intervals of a block, its extension by the halo, and the input image,
+	 * used to decide which MSER of a block are kept in
+	 * {@link MserTree#buildMserTreeInBlocks(RandomAccessibleInterval, double, long, long, double, double, boolean, long[], long[], int)}.
+	 */
+	private static final class BlockBounds
+	{
+		final long[] blockMin, blockMax, extendedMin, extendedMax, imageMin, imageMax;
+
+		// bounding box of the region being tested
+		final long[] regionMin, regionMax;
+
+		BlockBounds( final long[] blockMin, final long[] blockMax, final long[] extendedMin, final long[] extendedMax, final long[] imageMin, final long[] imageMax, final long[] regionMin, final long[] regionMax )
+		{
+			this.blockMin = blockMin;
+			this.blockMax = blockMax;
+			this.extendedMin = extendedMin;
+			this.extendedMax = extendedMax;
+			this.imageMin = imageMin;
+			this.imageMax = imageMax;
+			this.regionMin = regionMin;
+			this.regionMax = regionMax;
+		}
+
+		/**
+		 * Whether the region does not touch the border of the extended block
+		 * (except where it coincides with the border of the image) and the
+		 * center of its bounding box lies in the block.
+		 */
+		boolean owns( final Mser< ? > mser )
+		{
+			final int n = blockMin.length;
+			for ( int d = 0; d < n; ++d )
+			{
+				regionMin[ d ] = Long.MAX_VALUE;
+				regionMax[ d ] = Long.MIN_VALUE;
+			}
+			for ( final Localizable l : mser )
+			{
+				for ( int d = 0; d < n; ++d )
+				{
+					final long p = l.getLongPosition( d );
+					if ( p < regionMin[ d ] )
+						regionMin[ d ] = p;
+					if ( p > regionMax[ d ] )
+						regionMax[ d ] = p;
+				}
+			}
+			for ( int d = 0; d < n; ++d )
+			{
+				if ( ( regionMin[ d ] == extendedMin[ d ] && extendedMin[ d ] != imageMin[ d ] ) || ( regionMax[ d ] == extendedMax[ d ] && extendedMax[ d ] != imageMax[ d ] ) )
+					return false;
+				final long center = ( regionMin[ d ] + regionMax[ d ] ) >> 1;
+				if ( center < blockMin[ d ] || center > blockMax[ d ] )
+					return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Add the MSER of a block that are owned by the block (see
+	 * {@link BlockBounds#owns(Mser)}) to this tree.
+	 *
+	 * @param mser
+	 *            node of a MSER tree of the block.
+	 * @param ancestor
+	 *            the closest ancestor of {@code mser} that was added to this
+	 *            tree, or null.
+	 */
+	private void addOwnedRegions( final Mser< T > mser, final Mser< T > ancestor, final BlockBounds bounds )
+	{
+		final ArrayList< Mser< T > > children = new ArrayList< Mser< T > >( mser.children );
+		Mser< T > childAncestor = ancestor;
+		if ( bounds.owns( mser ) )
+		{
+			mser.children.clear();
+			mser.parent = ancestor;
+			if ( ancestor == null )
+				roots.add( mser );
+			else
+				ancestor.children.add( mser );
+			nodes.add( mser );
+			childAncestor = mser;
+		}
+		for ( final Mser< T > m : children )
+			addOwnedRegions( m, childAncestor, bounds );
+	}
+
 	@Override
 	public void emit( MserComponentIntermediate< T > component )
 	{
@@ -65,6 +65,11 @@ public final class PixelList implements Iterable< Localizable >
 	 */
 	private final long[] dimensions;
 
+	/**
+	 * Offset added to the locations of the list when iterating, or null.
+	 */
+	private final long[] offset;
+
 	/**
 	 * Index of first location in the list.
 	 */
@@ -87,9 +92,28 @@ public final class PixelList implements Iterable< Localizable >
 	 *            Dimensions of the index image.
 	 */
 	public PixelList( final RandomAccess< LongType > locationsAccess, final long[] dimensions )
+	{
+		this( locationsAccess, dimensions, null );
+	}
+
+	/**
+	 * Create a list whose locations are stored relative to <em>offset</em>.
+	 * Positions passed to {@link #addPosition(Localizable)} are relative to the
+	 * index image, while the iterator returns positions with <em>offset</em>
+	 * added. This is used for lists of sub-images of a larger image.
+	 *
+	 * @param locationsAccess
+	 *            RandomAccess into the index image to store the linked list.
+	 * @param dimensions
+	 *            Dimensions of the index image.
+	 * @param offset
+	 *            added to the locations when iterating, may be null.
+	 */
+	public PixelList( final RandomAccess< LongType > locationsAccess, final long[] dimensions, final long[] offset )
 	{
 		this.locationsAccess = locationsAccess;
 		this.dimensions = dimensions;
+		this.offset = offset;
 		headIndex = 0;
 		tailPos = new long[ dimensions.length ];
 		size = 0;
@@ -99,6 +123,7 @@ public final class PixelList implements Iterable< Localizable >
 	{
 		this.locationsAccess = l.locationsAccess;
 		this.dimensions = l.dimensions;
+		this.offset = l.offset;
 		this.headIndex = l.headIndex;
 		this.tailPos = null;
 		this.size = l.size;
@@ -172,9 +197,12 @@ public final class PixelList implements Iterable< Localizable >
 		{
 			++i;
 			IntervalIndexer.indexToPosition( nextIndex, dimensions, tmp );
-			pos.setPosition( tmp );
 			locationsAccess.setPosition( tmp );
 			nextIndex = locationsAccess.get().get();
+			if ( offset != null )
+				for ( int d = 0; d < tmp.length; ++d )
+					tmp[ d ] += offset[ d ];
+			pos.setPosition( tmp );
 			return pos;
 		}
 
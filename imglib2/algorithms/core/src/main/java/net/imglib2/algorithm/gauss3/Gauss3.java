@@ -36,9 +36,12 @@
 
 package net.imglib2.algorithm.gauss3;
 
+import java.util.concurrent.ExecutorService;
+
 import net.imglib2.RandomAccessible;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.multithreading.SharedThreadPool;
 import net.imglib2.type.numeric.NumericType;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.real.DoubleType;
@@ -119,10 +122,69 @@ public final class Gauss3
 	public static < S extends NumericType< S >, T extends NumericType< T > > void gauss( final double[] sigma, final RandomAccessible< S > source, final RandomAccessibleInterval< T > target ) throws IncompatibleTypeException
 	{
 		final double[][] halfkernels = halfkernels( sigma );
-		final int numthreads = Runtime.getRuntime().availableProcessors();
+		final int numthreads = SharedThreadPool.getParallelism();
 		SeparableSymmetricConvolution.convolve( halfkernels, source, target, numthreads );
 	}
 
+	/**
+	 * Apply Gaussian convolution to source and write the result to output,
+	 * running the computation on the given {@link ExecutorService}. In-place
+	 * operation (source==target) is supported.
+	 *
+	 * @param sigma
+	 *            standard deviation in every dimension.
+	 * @param source
+	 *            source image, must be sufficiently padded (e.g.
+	 *            {@link Views#extendMirrorSingle(RandomAccessibleInterval)}) to
+	 *            provide values for the target interval plus a border of half
+	 *            the kernel size.
+	 * @param target
+	 *            target image
+	 * @param service
+	 *            executor on which the parallel tasks are run.
+	 * @throws IncompatibleTypeException
+	 *             if source and target type are not compatible (they must be
+	 *             either both {@link RealType RealTypes} or the same type).
+	 * @see #gauss(double[], RandomAccessible, RandomAccessibleInterval)
+	 */
+	public static < S extends NumericType< S >, T extends NumericType< T > > void gauss( final double[] sigma, final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final ExecutorService service ) throws IncompatibleTypeException
+	{
+		final double[][] halfkernels = halfkernels( sigma );
+		final int numthreads = SharedThreadPool.getParallelism();
+		SeparableSymmetricConvolution.convolve( halfkernels, source, target, numthreads, service );
+	}
+
+	/**
+	 * Apply Gaussian convolution to source and write the result to output,
+	 * processing the target block by block. Temporary memory is bounded by the
+	 * block size instead of the target size, see
+	 * {@link SeparableSymmetricConvolution#convolveTiled(double[][], RandomAccessible, RandomAccessibleInterval, int[], int, ExecutorService)}.
+	 * In-place operation (source==target) is <em>not</em> supported.
+	 *
+	 * @param sigma
+	 *            standard deviation in every dimension.
+	 * @param source
+	 *            source image, must be sufficiently padded (e.g.
+	 *            {@link Views#extendMirrorSingle(RandomAccessibleInterval)}) to
+	 *            provide values for the target interval plus a border of half
+	 *            the kernel size.
+	 * @param target
+	 *            target image
+	 * @param blockSize
+	 *            size of the blocks in every dimension.
+	 * @param service
+	 *            executor on which the parallel tasks are run.
+	 * @throws IncompatibleTypeException
+	 *             if source and target type are not compatible (they must be
+	 *             either both {@link RealType RealTypes} or the same type).
+	 */
+	public static < S extends NumericType< S >, T extends NumericType< T > > void gaussTiled( final double[] sigma, final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final int[] blockSize, final ExecutorService service ) throws IncompatibleTypeException
+	{
+		final double[][] halfkernels = halfkernels( sigma );
+		final int numthreads = SharedThreadPool.getParallelism();
+		SeparableSymmetricConvolution.convolveTiled( halfkernels, source, target, blockSize, numthreads, service );
+	}
+
 	public static double[][] halfkernels( final double[] sigma )
 	{
 		final int n = sigma.length;
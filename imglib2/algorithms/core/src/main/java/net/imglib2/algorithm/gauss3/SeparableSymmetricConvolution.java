@@ -36,9 +36,9 @@
 
 package net.imglib2.algorithm.gauss3;
 
+import java.util.ArrayList;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import net.imglib2.Dimensions;
 import net.imglib2.FinalInterval;
@@ -52,6 +52,7 @@ import net.imglib2.img.ImgFactory;
 import net.imglib2.img.array.ArrayImgFactory;
 import net.imglib2.img.cell.CellImgFactory;
 import net.imglib2.img.list.ListImgFactory;
+import net.imglib2.multithreading.SharedThreadPool;
 import net.imglib2.type.NativeType;
 import net.imglib2.type.numeric.NumericType;
 import net.imglib2.type.numeric.RealType;
@@ -100,8 +101,82 @@ public final class SeparableSymmetricConvolution
 	 *             if source and target type are not compatible (they must be
 	 *             either both {@link RealType RealTypes} or the same type).
 	 */
-	@SuppressWarnings( { "rawtypes", "unchecked" } )
 	public static < S extends NumericType< S >, T extends NumericType< T > > void convolve( final double[][] halfkernels, final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final int numThreads ) throws IncompatibleTypeException
+	{
+		convolve( halfkernels, source, target, numThreads, SharedThreadPool.getExecutorService() );
+	}
+
+	/**
+	 * Convolve source with a separable symmetric kernel and write the result to
+	 * output. In-place operation (source==target) is supported. This is the
+	 * same as {@link #convolve(double[][], RandomAccessible, RandomAccessibleInterval, int)},
+	 * but the computation runs on the given {@link ExecutorService}.
+	 *
+	 * @param halfkernels
+	 *            an array containing half-kernels for every dimension.
+	 * @param source
+	 *            source image, must be sufficiently padded.
+	 * @param target
+	 *            target image.
+	 * @param numThreads
+	 *            how many tasks to run in parallel (one of them in the calling
+	 *            thread).
+	 * @param service
+	 *            executor on which the parallel tasks are run.
+	 * @throws IncompatibleTypeException
+	 *             if source and target type are not compatible.
+	 */
+	public static < S extends NumericType< S >, T extends NumericType< T > > void convolve( final double[][] halfkernels, final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final int numThreads, final ExecutorService service ) throws IncompatibleTypeException
+	{
+		convolve( halfkernels, source, target, null, numThreads, service );
+	}
+
+	/**
+	 * Convolve source with a separable symmetric kernel and write the result to
+	 * output, processing the target in blocks. Each block is convolved
+	 * completely (in all dimensions) before the next one is started, using
+	 * temporary images of the size of a block plus border. The temporary
+	 * images are allocated once per thread and re-used for all blocks, so
+	 * temporary memory is bounded by the block size instead of the target
+	 * size. This is intended for targets that are larger than the available
+	 * memory, e.g., disk-backed {@link net.imglib2.img.cell.CellImg CellImgs}.
+	 * Choosing blocks that are aligned with the cells of the target is
+	 * recommended.
+	 *
+	 * <p>
+	 * Because the source is read around each block, in-place operation
+	 * (source==target) is <em>not</em> supported.
+	 *
+	 * @param halfkernels
+	 *            an array containing half-kernels for every dimension.
+	 * @param source
+	 *            source image, must be sufficiently padded.
+	 * @param target
+	 *            target image.
+	 * @param blockSize
+	 *            size of the blocks in every dimension.
+	 * @param numThreads
+	 *            how many blocks to process in parallel (one of them in the
+	 *            calling thread).
+	 * @param service
+	 *            executor on which the parallel tasks are run.
+	 * @throws IncompatibleTypeException
+	 *             if source and target type are not compatible.
+	 */
+	public static < S extends NumericType< S >, T extends NumericType< T > > void convolveTiled( final double[][] halfkernels, final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final int[] blockSize, final int numThreads, final ExecutorService service ) throws IncompatibleTypeException
+	{
+		convolve( halfkernels, source, target, blockSize, numThreads, service );
+	}
+
+	/**
+	 * Select convolvers and temporary type for source and target type.
+	 *
+	 * @param blockSize
+	 *            size of the blocks in tiled mode, or null to convolve the
+	 *            whole target at once.
+	 */
+	@SuppressWarnings( { "rawtypes", "unchecked" } )
+	private static < S extends NumericType< S >, T extends NumericType< T > > void convolve( final double[][] halfkernels, final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final int[] blockSize, final int numThreads, final ExecutorService service ) throws IncompatibleTypeException
 	{
 		final T targetType = Util.getTypeFromInterval( target );
 		final S sourceType = getType( source, target );
@@ -114,61 +189,61 @@ public final class SeparableSymmetricConvolution
 			// TODO: remove casting madness as soon as the bug is fixed
 			final Object oTargetType = targetType;
 			if ( oTargetType instanceof DoubleType )
-				convolveRealTypeDouble( halfkernels, ( RandomAccessible ) source, ( RandomAccessibleInterval ) target, numThreads );
+				convolveRealTypeDouble( halfkernels, ( RandomAccessible ) source, ( RandomAccessibleInterval ) target, blockSize, numThreads, service );
 			else
-				convolveRealTypeFloat( halfkernels, ( RandomAccessible ) source, ( RandomAccessibleInterval ) target, numThreads );
+				convolveRealTypeFloat( halfkernels, ( RandomAccessible ) source, ( RandomAccessibleInterval ) target, blockSize, numThreads, service );
 		}
 		else
 		{
 			if ( ! targetType.getClass().isInstance( sourceType ) )
 				throw new IncompatibleTypeException( sourceType, targetType.getClass().getCanonicalName() + " source required for convolving into a " + targetType.getClass().getCanonicalName() + " target" );
 			if ( targetType instanceof NativeType )
-				convolveNativeType( halfkernels, ( RandomAccessible ) source, ( RandomAccessibleInterval ) target, numThreads );
+				convolveNativeType( halfkernels, ( RandomAccessible ) source, ( RandomAccessibleInterval ) target, blockSize, numThreads, service );
 			else
-				convolveNumericType( halfkernels, ( RandomAccessible ) source, ( RandomAccessibleInterval ) target, numThreads );
+				convolveNumericType( halfkernels, ( RandomAccessible ) source, ( RandomAccessibleInterval ) target, blockSize, numThreads, service );
 		}
 	}
 
 	private static < S extends RealType< S >, T extends RealType< T > > void convolveRealTypeFloat( final double[][] halfkernels,
-			final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final int numThreads )
+			final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final int[] blockSize, final int numThreads, final ExecutorService service )
 	{
 		final FloatType type = new FloatType();
-		final ImgFactory< FloatType > imgfac = getImgFactory( target, halfkernels, type );
+		final ImgFactory< FloatType > imgfac = getImgFactory( tempImageSize( target, blockSize ), halfkernels, type );
 		if ( canUseBufferedConvolver( target, halfkernels ) )
 			convolve( halfkernels, source, target,
 					FloatConvolverRealTypeBuffered.< S, FloatType >factory(),
 					FloatConvolverRealTypeBuffered.< FloatType, FloatType >factory(),
 					FloatConvolverRealTypeBuffered.< FloatType, T >factory(),
-					FloatConvolverRealTypeBuffered.< S, T >factory(), imgfac, type, numThreads );
+					FloatConvolverRealTypeBuffered.< S, T >factory(), imgfac, type, blockSize, numThreads, service );
 		else
 			convolve( halfkernels, source, target,
 					FloatConvolverRealType.< S, FloatType >factory(),
 					FloatConvolverRealType.< FloatType, FloatType >factory(),
 					FloatConvolverRealType.< FloatType, T >factory(),
-					FloatConvolverRealType.< S, T >factory(), imgfac, type, numThreads );
+					FloatConvolverRealType.< S, T >factory(), imgfac, type, blockSize, numThreads, service );
 	}
 
 	private static < S extends RealType< S >, T extends RealType< T > > void convolveRealTypeDouble( final double[][] halfkernels,
-			final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final int numThreads )
+			final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final int[] blockSize, final int numThreads, final ExecutorService service )
 	{
 		final DoubleType type = new DoubleType();
-		final ImgFactory< DoubleType > imgfac = getImgFactory( target, halfkernels, type );
+		final ImgFactory< DoubleType > imgfac = getImgFactory( tempImageSize( target, blockSize ), halfkernels, type );
 		if ( canUseBufferedConvolver( target, halfkernels ) )
 			convolve( halfkernels, source, target,
 					DoubleConvolverRealTypeBuffered.< S, DoubleType >factory(),
 					DoubleConvolverRealTypeBuffered.< DoubleType, DoubleType >factory(),
 					DoubleConvolverRealTypeBuffered.< DoubleType, T >factory(),
-					DoubleConvolverRealTypeBuffered.< S, T >factory(), imgfac, type, numThreads );
+					DoubleConvolverRealTypeBuffered.< S, T >factory(), imgfac, type, blockSize, numThreads, service );
 		else
 			convolve( halfkernels, source, target,
 					DoubleConvolverRealType.< S, DoubleType >factory(),
 					DoubleConvolverRealType.< DoubleType, DoubleType >factory(),
 					DoubleConvolverRealType.< DoubleType, T >factory(),
-					DoubleConvolverRealType.< S, T >factory(), imgfac, type, numThreads );
+					DoubleConvolverRealType.< S, T >factory(), imgfac, type, blockSize, numThreads, service );
 	}
 
 	private static < T extends NumericType< T > & NativeType< T > > void convolveNativeType( final double[][] halfkernels,
-			final RandomAccessible< T > source, final RandomAccessibleInterval< T > target, final int numThreads )
+			final RandomAccessible< T > source, final RandomAccessibleInterval< T > target, final int[] blockSize, final int numThreads, final ExecutorService service )
 	{
 		final T type = Util.getTypeFromInterval( target );
 		final ConvolverFactory< T, T > convfac;
@@ -176,16 +251,16 @@ public final class SeparableSymmetricConvolution
 			convfac = ConvolverNativeTypeBuffered.factory( type );
 		else
 			convfac = ConvolverNativeType.factory( type );
-		final ImgFactory< T > imgfac = getImgFactory( target, halfkernels, type );
-		convolve( halfkernels, source, target, convfac, convfac, convfac, convfac, imgfac, type, numThreads );
+		final ImgFactory< T > imgfac = getImgFactory( tempImageSize( target, blockSize ), halfkernels, type );
+		convolve( halfkernels, source, target, convfac, convfac, convfac, convfac, imgfac, type, blockSize, numThreads, service );
 	}
 
 	private static < T extends NumericType< T > > void convolveNumericType( final double[][] halfkernels,
-			final RandomAccessible< T > source, final RandomAccessibleInterval< T > target, final int numThreads )
+			final RandomAccessible< T > source, final RandomAccessibleInterval< T > target, final int[] blockSize, final int numThreads, final ExecutorService service )
 	{
 		final T type = Util.getTypeFromInterval( target );
 		final ConvolverFactory< T, T > convfac = ConvolverNumericType.factory( type );
-		convolve( halfkernels, source, target, convfac, convfac, convfac, convfac, new ListImgFactory< T >(), type, numThreads );
+		convolve( halfkernels, source, target, convfac, convfac, convfac, convfac, new ListImgFactory< T >(), type, blockSize, numThreads, service );
 	}
 
 	/**
@@ -208,7 +283,7 @@ public final class SeparableSymmetricConvolution
 			final ConvolverFactory< S, T > convolverFactoryST )
 	{
 	    final long[] sourceOffset = new long[] { 1 - halfkernel.length };
-	    convolveOffset( halfkernel, source, sourceOffset, target, target, 0, convolverFactoryST, 1, 1 );
+	    convolveOffset( halfkernel, source, sourceOffset, target, target, 0, convolverFactoryST, 1, 1, SharedThreadPool.getExecutorService() );
 	}
 
 	/**
@@ -254,15 +329,135 @@ public final class SeparableSymmetricConvolution
 			final ConvolverFactory< S, T > convolverFactoryST,
 			final ImgFactory< I > imgFactory, final I type,
 			final int numThreads )
+	{
+		convolve( halfkernels, source, target, convolverFactorySI, convolverFactoryII, convolverFactoryIT, convolverFactoryST, imgFactory, type, numThreads, SharedThreadPool.getExecutorService() );
+	}
+
+	/**
+	 * Convolve source with a separable symmetric kernel and write the result to
+	 * output. In-place operation (source==target) is supported. Calculations are
+	 * done in the intermediate type determined by the {@link ConvolverFactory ConvolverFactories}.
+	 * The computation runs on the given {@link ExecutorService}.
+	 *
+	 * @param numThreads
+	 *            how many tasks to run in parallel (one of them in the calling
+	 *            thread).
+	 * @param service
+	 *            executor on which the parallel tasks are run.
+	 * @see #convolve(double[][], RandomAccessible, RandomAccessibleInterval, ConvolverFactory, ConvolverFactory, ConvolverFactory, ConvolverFactory, ImgFactory, Object, int)
+	 */
+	public static < S, I, T > void convolve( final double[][] halfkernels,
+			final RandomAccessible< S > source, final RandomAccessibleInterval< T > target,
+			final ConvolverFactory< S, I > convolverFactorySI,
+			final ConvolverFactory< I, I > convolverFactoryII,
+			final ConvolverFactory< I, T > convolverFactoryIT,
+			final ConvolverFactory< S, T > convolverFactoryST,
+			final ImgFactory< I > imgFactory, final I type,
+			final int numThreads, final ExecutorService service )
+	{
+		final int n = source.numDimensions();
+		final long[][] tmpdims = getTempImageDimensions( target, halfkernels );
+		final Img< I > tmp1 = ( n > 1 ) ? imgFactory.create( tmpdims[ 0 ], type ) : null;
+		final Img< I > tmp2 = ( n > 2 ) ? imgFactory.create( tmpdims[ 1 ], type ) : null;
+		final int numTasks = numThreads > 1 ? numThreads * 4 : 1;
+		convolve( halfkernels, source, target, convolverFactorySI, convolverFactoryII, convolverFactoryIT, convolverFactoryST, tmp1, tmp2, numThreads, numTasks, service );
+	}
+
+	/**
+	 * Convolve source with a separable symmetric kernel and write the result to
+	 * output, processing the target in blocks. Calculations are done in the
+	 * intermediate type determined by the {@link ConvolverFactory
+	 * ConvolverFactories}. Temporary images of the size of a block plus border
+	 * are created once per thread and re-used for all blocks. In-place
+	 * operation (source==target) is <em>not</em> supported.
+	 *
+	 * @param imgFactory
+	 *            factory to create temporary images of the size of a block.
+	 * @param type
+	 *            instance of the temporary image type.
+	 * @param blockSize
+	 *            size of the blocks in every dimension.
+	 * @param numThreads
+	 *            how many blocks to process in parallel (one of them in the
+	 *            calling thread).
+	 * @param service
+	 *            executor on which the parallel tasks are run.
+	 * @see #convolveTiled(double[][], RandomAccessible, RandomAccessibleInterval, int[], int, ExecutorService)
+	 */
+	public static < S, I, T > void convolveTiled( final double[][] halfkernels,
+			final RandomAccessible< S > source, final RandomAccessibleInterval< T > target,
+			final ConvolverFactory< S, I > convolverFactorySI,
+			final ConvolverFactory< I, I > convolverFactoryII,
+			final ConvolverFactory< I, T > convolverFactoryIT,
+			final ConvolverFactory< S, T > convolverFactoryST,
+			final ImgFactory< I > imgFactory, final I type,
+			final int[] blockSize, final int numThreads, final ExecutorService service )
+	{
+		final int n = source.numDimensions();
+		final long[] numBlocks = new long[ n ];
+		long numBlocksTotal = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			numBlocks[ d ] = ( target.dimension( d ) + blockSize[ d ] - 1 ) / blockSize[ d ];
+			numBlocksTotal *= numBlocks[ d ];
+		}
+		final long lastBlock = numBlocksTotal;
+		final long[][] tmpdims = getTempImageDimensions( tempImageSize( target, blockSize ), halfkernels );
+		final AtomicLong nextBlock = new AtomicLong( 0 );
+
+		final int numTasks = ( int ) Math.max( 1, Math.min( numThreads, numBlocksTotal ) );
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >( numTasks );
+		for ( int taskNum = 0; taskNum < numTasks; ++taskNum )
+		{
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					final Img< I > tmp1 = ( n > 1 ) ? imgFactory.create( tmpdims[ 0 ], type ) : null;
+					final Img< I > tmp2 = ( n > 2 ) ? imgFactory.create( tmpdims[ 1 ], type ) : null;
+					final long[] blockPos = new long[ n ];
+					final long[] min = new long[ n ];
+					final long[] max = new long[ n ];
+					for ( long b = nextBlock.getAndIncrement(); b < lastBlock; b = nextBlock.getAndIncrement() )
+					{
+						IntervalIndexer.indexToPosition( b, numBlocks, blockPos );
+						for ( int d = 0; d < n; ++d )
+						{
+							min[ d ] = target.min( d ) + blockPos[ d ] * blockSize[ d ];
+							max[ d ] = Math.min( min[ d ] + blockSize[ d ] - 1, target.max( d ) );
+						}
+						final RandomAccessibleInterval< T > block = Views.interval( target, min, max );
+						convolve( halfkernels, source, block, convolverFactorySI, convolverFactoryII, convolverFactoryIT, convolverFactoryST, tmp1, tmp2, 1, 1, service );
+					}
+				}
+			} );
+		}
+		SharedThreadPool.invokeAll( tasks, numThreads, service );
+	}
+
+	/**
+	 * Convolve target using the given temporary images. The temporary images
+	 * must be at least as large as {@link #getTempImageDimensions(Dimensions, double[][])}
+	 * for the target.
+	 */
+	private static < S, I, T > void convolve( final double[][] halfkernels,
+			final RandomAccessible< S > source, final RandomAccessibleInterval< T > target,
+			final ConvolverFactory< S, I > convolverFactorySI,
+			final ConvolverFactory< I, I > convolverFactoryII,
+			final ConvolverFactory< I, T > convolverFactoryIT,
+			final ConvolverFactory< S, T > convolverFactoryST,
+			final Img< I > tmpImg1, final Img< I > tmpImg2,
+			final int numThreads, final int numTasks, final ExecutorService service )
 	{
 		final int n = source.numDimensions();
 		if ( n == 1 )
 		{
-			convolve1d( halfkernels[ 0 ], source, target, convolverFactoryST );
+			final long[] sourceOffset = new long[] { 1 - halfkernels[ 0 ].length };
+			convolveOffset( halfkernels[ 0 ], source, sourceOffset, target, target, 0, convolverFactoryST, numThreads, numTasks, service );
 		}
 		else
 		{
-			final int numTasks = numThreads > 1 ? numThreads * 4 : 1;
 		    final long[] sourceOffset = new long[ n ];
 		    final long[] targetOffset = new long[ n ];
 		    target.min( sourceOffset );
@@ -273,33 +468,68 @@ public final class SeparableSymmetricConvolution
 		    }
 
 			final long[][] tmpdims = getTempImageDimensions( target, halfkernels );
-			Img< I > tmp1 = imgFactory.create( tmpdims[ 0 ], type );
+			Img< I > tmp1 = tmpImg1;
 		    if ( n == 2 )
 		    {
-			    convolveOffset( halfkernels[ 0 ], source, sourceOffset, tmp1, tmp1, 0, convolverFactorySI, numThreads, numTasks );
-			    convolveOffset( halfkernels[ 1 ], tmp1, targetOffset, target, target, 1, convolverFactoryIT, numThreads, numTasks );
+			    convolveOffset( halfkernels[ 0 ], source, sourceOffset, tmp1, new FinalInterval( tmpdims[ 0 ] ), 0, convolverFactorySI, numThreads, numTasks, service );
+			    convolveOffset( halfkernels[ 1 ], tmp1, targetOffset, target, target, 1, convolverFactoryIT, numThreads, numTasks, service );
 		    }
 		    else
 		    {
-				Img< I > tmp2 = imgFactory.create( tmpdims[ 1 ], type );
+				Img< I > tmp2 = tmpImg2;
 			    final long[] zeroOffset = new long[ n ];
-			    convolveOffset( halfkernels[ 0 ], source, sourceOffset, tmp1, new FinalInterval( tmpdims[ 0 ] ), 0, convolverFactorySI, numThreads, numTasks );
+			    convolveOffset( halfkernels[ 0 ], source, sourceOffset, tmp1, new FinalInterval( tmpdims[ 0 ] ), 0, convolverFactorySI, numThreads, numTasks, service );
 				for( int d = 1; d < n - 1; ++d )
 				{
-				    convolveOffset( halfkernels[ d ], tmp1, zeroOffset, tmp2, new FinalInterval( tmpdims[ d ] ), d, convolverFactoryII, numThreads, numTasks );
+				    convolveOffset( halfkernels[ d ], tmp1, zeroOffset, tmp2, new FinalInterval( tmpdims[ d ] ), d, convolverFactoryII, numThreads, numTasks, service );
 				    final Img< I > tmp = tmp2;
 				    tmp2 = tmp1;
 				    tmp1 = tmp;
 				}
-			    convolveOffset( halfkernels[ n - 1 ], tmp1, targetOffset, target, target, n - 1, convolverFactoryIT, numThreads, numTasks );
+			    convolveOffset( halfkernels[ n - 1 ], tmp1, targetOffset, target, target, n - 1, convolverFactoryIT, numThreads, numTasks, service );
 		    }
 		}
 	}
 
+	/**
+	 * Select the {@link #convolve(double[][], RandomAccessible, RandomAccessibleInterval, ConvolverFactory, ConvolverFactory, ConvolverFactory, ConvolverFactory, ImgFactory, Object, int, ExecutorService) untiled}
+	 * or {@link #convolveTiled(double[][], RandomAccessible, RandomAccessibleInterval, ConvolverFactory, ConvolverFactory, ConvolverFactory, ConvolverFactory, ImgFactory, Object, int[], int, ExecutorService) tiled}
+	 * convolution depending on whether blockSize is null.
+	 */
+	private static < S, I, T > void convolve( final double[][] halfkernels,
+			final RandomAccessible< S > source, final RandomAccessibleInterval< T > target,
+			final ConvolverFactory< S, I > convolverFactorySI,
+			final ConvolverFactory< I, I > convolverFactoryII,
+			final ConvolverFactory< I, T > convolverFactoryIT,
+			final ConvolverFactory< S, T > convolverFactoryST,
+			final ImgFactory< I > imgFactory, final I type,
+			final int[] blockSize, final int numThreads, final ExecutorService service )
+	{
+		if ( blockSize == null )
+			convolve( halfkernels, source, target, convolverFactorySI, convolverFactoryII, convolverFactoryIT, convolverFactoryST, imgFactory, type, numThreads, service );
+		else
+			convolveTiled( halfkernels, source, target, convolverFactorySI, convolverFactoryII, convolverFactoryIT, convolverFactoryST, imgFactory, type, blockSize, numThreads, service );
+	}
+
+	/**
+	 * Get the size of the part of the target that is convolved at once: the
+	 * target itself, or, if blockSize is not null, a block.
+	 */
+	static Dimensions tempImageSize( final Dimensions targetsize, final int[] blockSize )
+	{
+		if ( blockSize == null )
+			return targetsize;
+		final int n = targetsize.numDimensions();
+		final long[] dim = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+			dim[ d ] = Math.min( blockSize[ d ], targetsize.dimension( d ) );
+		return new FinalInterval( dim );
+	}
+
 	/**
 	 * 1D convolution in dimension d.
 	 */
-	static < S, T > void convolveOffset( final double[] halfkernel, final RandomAccessible< S > source, final long[] sourceOffset, final RandomAccessible< T > target, final Interval targetInterval, final int d, final ConvolverFactory< S, T > factory, final int numThreads, final int numTasks )
+	static < S, T > void convolveOffset( final double[] halfkernel, final RandomAccessible< S > source, final long[] sourceOffset, final RandomAccessible< T > target, final Interval targetInterval, final int d, final ConvolverFactory< S, T > factory, final int numThreads, final int numTasks, final ExecutorService service )
 	{
 		final int n = source.numDimensions();
 		final int k1 = halfkernel.length - 1;
@@ -325,7 +555,7 @@ public final class SeparableSymmetricConvolution
 			srcmax[ i ] = max[ i ] + sourceOffset[ i ] + 2 * k1;
 		}
 
-		final ExecutorService ex = Executors.newFixedThreadPool( numThreads );
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >( numTasks );
 		for ( int taskNum = 0; taskNum < numTasks; ++taskNum )
 		{
 			final long myStartIndex = taskNum * ( ( endIndex + 1 ) / numTasks );
@@ -374,17 +604,9 @@ public final class SeparableSymmetricConvolution
 					}
 				}
 			};
-			ex.execute( r );
-		}
-		ex.shutdown();
-		try
-		{
-			ex.awaitTermination( 1000, TimeUnit.DAYS );
-		}
-		catch ( final InterruptedException e )
-		{
-			e.printStackTrace();
+			tasks.add( r );
 		}
+		SharedThreadPool.invokeAll( tasks, numThreads, service );
 	}
 
 	static long[][] getTempImageDimensions( final Dimensions targetsize, final double[][] halfkernels )
@@ -0,0 +1,311 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+
+package net.imglib2.algorithm.integral;
+
+import java.util.ArrayList;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converter;
+import net.imglib2.img.Img;
+import net.imglib2.multithreading.SharedThreadPool;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.util.IntervalIndexer;
+
+/**
+ * n-dimensional box mean and variance filters that are computed from
+ * {@link IntegralImg integral images} in constant time per pixel, independent
+ * of the size of the box.
+ *
+ * <p>
+ * The box around each pixel extends by radius[d] to both sides in dimension d
+ * and is cropped at the image borders, i.e., the mean and variance close to
+ * the border are computed from fewer pixels. The integral images have to be
+ * one pixel larger in each dimension than the image they were computed from,
+ * as created by {@link IntegralImg}. The target coordinates are coordinates of
+ * the original image, the target must be contained in it.
+ * </p>
+ *
+ * <p>
+ * The sum of a box is computed from its 2<sup>n</sup> corners in the integral
+ * image. The target is processed in lines along dimension 0, which are
+ * distributed over parallel tasks.
+ * </p>
+ *
+ * @author ImgLib2 developers
+ */
+public class IntegralBoxFilter
+{
+	/**
+	 * Compute the box mean of an image into target, using the integral image
+	 * and as many threads as available processors.
+	 *
+	 * @param integral
+	 *            the integral image of the input.
+	 * @param radius
+	 *            the radius of the box in every dimension.
+	 * @param target
+	 *            receives the mean of the box around each pixel.
+	 */
+	public static < I extends RealType< I >, T extends RealType< T > > void mean( final RandomAccessibleInterval< I > integral, final long[] radius, final RandomAccessibleInterval< T > target )
+	{
+		mean( integral, radius, target, SharedThreadPool.getParallelism() );
+	}
+
+	/**
+	 * Compute the box mean of an image into target, using the integral image.
+	 *
+	 * @param integral
+	 *            the integral image of the input.
+	 * @param radius
+	 *            the radius of the box in every dimension.
+	 * @param target
+	 *            receives the mean of the box around each pixel.
+	 * @param numThreads
+	 *            how many threads to use for the computation.
+	 */
+	public static < I extends RealType< I >, T extends RealType< T > > void mean( final RandomAccessibleInterval< I > integral, final long[] radius, final RandomAccessibleInterval< T > target, final int numThreads )
+	{
+		process( integral, null, radius, target, null, numThreads );
+	}
+
+	/**
+	 * Compute the box variance of an image into target, using the integral
+	 * images of the values and of the squared values and as many threads as
+	 * available processors.
+	 *
+	 * @param integral
+	 *            the integral image of the input.
+	 * @param integralSquared
+	 *            the integral image of the squared input.
+	 * @param radius
+	 *            the radius of the box in every dimension.
+	 * @param target
+	 *            receives the variance of the box around each pixel.
+	 */
+	public static < I extends RealType< I >, T extends RealType< T > > void variance( final RandomAccessibleInterval< I > integral, final RandomAccessibleInterval< I > integralSquared, final long[] radius, final RandomAccessibleInterval< T > target )
+	{
+		variance( integral, integralSquared, radius, target, SharedThreadPool.getParallelism() );
+	}
+
+	/**
+	 * Compute the box variance of an image into target, using the integral
+	 * images of the values and of the squared values. The variance is the
+	 * population variance, i.e., the mean squared deviation from the box mean.
+	 *
+	 * @param integral
+	 *            the integral image of the input.
+	 * @param integralSquared
+	 *            the integral image of the squared input.
+	 * @param radius
+	 *            the radius of the box in every dimension.
+	 * @param target
+	 *            receives the variance of the box around each pixel.
+	 * @param numThreads
+	 *            how many threads to use for the computation.
+	 */
+	public static < I extends RealType< I >, T extends RealType< T > > void variance( final RandomAccessibleInterval< I > integral, final RandomAccessibleInterval< I > integralSquared, final long[] radius, final RandomAccessibleInterval< T > target, final int numThreads )
+	{
+		process( integral, integralSquared, radius, null, target, numThreads );
+	}
+
+	/**
+	 * Compute the box mean and variance of an image. The integral images of
+	 * the values and the squared values are computed in double precision in a
+	 * single pass.
+	 *
+	 * @param source
+	 *            the input image.
+	 * @param radius
+	 *            the radius of the box in every dimension.
+	 * @param mean
+	 *            receives the mean of the box around each pixel, may be null.
+	 * @param variance
+	 *            receives the variance of the box around each pixel, may be
+	 *            null.
+	 * @param numThreads
+	 *            how many threads to use for the computation.
+	 */
+	public static < R extends RealType< R >, T extends RealType< T > > void meanAndVariance( final Img< R > source, final long[] radius, final RandomAccessibleInterval< T > mean, final RandomAccessibleInterval< T > variance, final int numThreads )
+	{
+		final Converter< R, DoubleType > converter = new Converter< R, DoubleType >()
+		{
+			@Override
+			public void convert( final R input, final DoubleType output )
+			{
+				output.set( input.getRealDouble() );
+			}
+		};
+		final IntegralImgDouble< R > integralImg = new IntegralImgDouble< R >( source, new DoubleType(), converter, variance != null );
+		integralImg.setNumThreads( numThreads );
+		integralImg.process();
+
+		process( integralImg.getResult(), integralImg.getSquaredResult(), radius, mean, variance, numThreads );
+	}
+
+	private static < I extends RealType< I >, T extends RealType< T > > void process( final RandomAccessibleInterval< I > integral, final RandomAccessibleInterval< I > integralSquared, final long[] radius, final RandomAccessibleInterval< T > mean, final RandomAccessibleInterval< T > variance, final int numThreads )
+	{
+		final RandomAccessibleInterval< T > target = mean != null ? mean : variance;
+		if ( target == null )
+			return;
+
+		final int n = integral.numDimensions();
+		if ( radius.length != n || target.numDimensions() != n )
+			throw new IllegalArgumentException( "integral image, radius and target must have the same number of dimensions" );
+		if ( variance != null && integralSquared == null )
+			throw new IllegalArgumentException( "the variance requires the integral image of the squared values" );
+
+		// the image the integral images were computed from
+		final long[] imageMin = new long[ n ];
+		final long[] imageMax = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			imageMin[ d ] = integral.min( d );
+			imageMax[ d ] = integral.max( d ) - 1;
+			if ( target.min( d ) < imageMin[ d ] || target.max( d ) > imageMax[ d ] )
+				throw new IllegalArgumentException( "target must be contained in the image the integral image was computed from" );
+		}
+
+		// the target lines along dimension 0
+		final long[] lineMin = new long[ n ];
+		final long[] lineDimensions = new long[ n ];
+		long numLines = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			lineMin[ d ] = target.min( d );
+			lineDimensions[ d ] = d == 0 ? 1 : target.dimension( d );
+			numLines *= lineDimensions[ d ];
+		}
+		final long lineLength = target.dimension( 0 );
+
+		final int numCorners = 1 << n;
+		final int numTasks = ( int ) Math.max( 1, Math.min( numLines, numThreads ) );
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >( numTasks );
+		for ( int t = 0; t < numTasks; ++t )
+		{
+			final long firstLine = numLines * t / numTasks;
+			final long lastLine = numLines * ( t + 1 ) / numTasks;
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					final RandomAccess< I > sumAccess = integral.randomAccess();
+					final RandomAccess< I > sumSquaredAccess = variance == null ? null : integralSquared.randomAccess();
+					final RandomAccess< T > meanAccess = mean == null ? null : mean.randomAccess();
+					final RandomAccess< T > varianceAccess = variance == null ? null : variance.randomAccess();
+
+					final long[] position = new long[ n ];
+					final long[] lower = new long[ n ];
+					final long[] upper = new long[ n ];
+					final long[] corner = new long[ n ];
+
+					for ( long line = firstLine; line < lastLine; ++line )
+					{
+						IntervalIndexer.indexToPositionWithOffset( line, lineDimensions, lineMin, position );
+
+						// the box in dimensions > 0 is the same for the whole line
+						long lineArea = 1;
+						for ( int d = 1; d < n; ++d )
+						{
+							lower[ d ] = Math.max( position[ d ] - radius[ d ], imageMin[ d ] );
+							upper[ d ] = Math.min( position[ d ] + radius[ d ], imageMax[ d ] ) + 1;
+							lineArea *= upper[ d ] - lower[ d ];
+						}
+
+						if ( meanAccess != null )
+							meanAccess.setPosition( position );
+						if ( varianceAccess != null )
+							varianceAccess.setPosition( position );
+
+						for ( long i = 0; i < lineLength; ++i, ++position[ 0 ] )
+						{
+							lower[ 0 ] = Math.max( position[ 0 ] - radius[ 0 ], imageMin[ 0 ] );
+							upper[ 0 ] = Math.min( position[ 0 ] + radius[ 0 ], imageMax[ 0 ] ) + 1;
+							final double area = lineArea * ( upper[ 0 ] - lower[ 0 ] );
+
+							// sum up the 2^n corners, the sign is negative for an odd number of lower corners
+							double sum = 0;
+							double sumSquared = 0;
+							for ( int c = 0; c < numCorners; ++c )
+							{
+								boolean negative = false;
+								for ( int d = 0; d < n; ++d )
+								{
+									if ( ( c & ( 1 << d ) ) == 0 )
+									{
+										corner[ d ] = lower[ d ];
+										negative = !negative;
+									}
+									else
+										corner[ d ] = upper[ d ];
+								}
+
+								sumAccess.setPosition( corner );
+								final double value = sumAccess.get().getRealDouble();
+								sum += negative ? -value : value;
+
+								if ( sumSquaredAccess != null )
+								{
+									sumSquaredAccess.setPosition( corner );
+									final double valueSquared = sumSquaredAccess.get().getRealDouble();
+									sumSquared += negative ? -valueSquared : valueSquared;
+								}
+							}
+
+							final double m = sum / area;
+							if ( meanAccess != null )
+							{
+								meanAccess.get().setReal( m );
+								meanAccess.fwd( 0 );
+							}
+							if ( varianceAccess != null )
+							{
+								// rounding errors may yield slightly negative values
+								varianceAccess.get().setReal( Math.max( 0, sumSquared / area - m * m ) );
+								varianceAccess.fwd( 0 );
+							}
+						}
+					}
+				}
+			} );
+		}
+		SharedThreadPool.invokeAll( tasks, numThreads );
+	}
+}
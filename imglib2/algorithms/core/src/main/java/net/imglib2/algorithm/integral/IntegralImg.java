@@ -36,14 +36,18 @@
 
 package net.imglib2.algorithm.integral;
 
+import java.util.ArrayList;
+
 import net.imglib2.RandomAccess;
+import net.imglib2.algorithm.MultiThreaded;
 import net.imglib2.algorithm.OutputAlgorithm;
 import net.imglib2.converter.Converter;
 import net.imglib2.img.Img;
 import net.imglib2.img.array.ArrayImgFactory;
-import net.imglib2.iterator.LocalizingZeroMinIntervalIterator;
+import net.imglib2.multithreading.SharedThreadPool;
 import net.imglib2.type.NativeType;
 import net.imglib2.type.numeric.NumericType;
+import net.imglib2.util.IntervalIndexer;
 
 /** n-dimensional integral image that stores sums using type {@param <T>}.
  * Care must be taken that sums do not overflow the capacity of type {@param <T>}.
@@ -56,24 +60,46 @@ import net.imglib2.type.numeric.NumericType;
  * Sums are done with the precision of {@param <T>} and then set to the integral image type,
  * which may crop the values according to the type's capabilities.
  *
+ * Optionally, the integral image of the squared input values is computed in the same
+ * pass (see {@link #getSquaredResult()}), which allows to compute local variances
+ * in constant time, see {@link IntegralBoxFilter}.
+ *
+ * Each dimension is integrated line by line, the lines are distributed over
+ * {@link #getNumThreads()} parallel tasks.
+ *
  * @param <R> The type of the input image.
  * @param <T> The type of the integral image.
  *
  * @author Stephan Preibisch
  * @author Albert Cardona
  */
-public class IntegralImg< R extends NumericType< R >, T extends NumericType< T > & NativeType< T > > implements OutputAlgorithm< Img< T > >
+public class IntegralImg< R extends NumericType< R >, T extends NumericType< T > & NativeType< T > > implements OutputAlgorithm< Img< T > >, MultiThreaded
 {
 	protected final Img< R > img;
 	protected final T type;
 	protected Img< T > integral;
+	protected Img< T > integralSquared;
 	protected final Converter< R, T > converter;
+	protected final boolean computeSquaredSums;
+	protected int numThreads;
 
 	public IntegralImg( final Img< R > img, final T type, final Converter< R, T > converter )
+	{
+		this( img, type, converter, false );
+	}
+
+	/**
+	 * @param computeSquaredSums
+	 *            whether the integral image of the squared values is computed
+	 *            as well, see {@link #getSquaredResult()}.
+	 */
+	public IntegralImg( final Img< R > img, final T type, final Converter< R, T > converter, final boolean computeSquaredSums )
 	{
 		this.img = img;
 		this.type = type;
 		this.converter = converter;
+		this.computeSquaredSums = computeSquaredSums;
+		setNumThreads();
 	}
 
 	@Override
@@ -93,168 +119,123 @@ public class IntegralImg< R extends NumericType< R >, T extends NumericType< T >
 			return false;
 		this.integral = integral;
 
-		if ( numDimensions > 1 )
+		if ( computeSquaredSums )
 		{
-			/**
-			 * Here we "misuse" a ArrayLocalizableCursor to iterate through all dimensions except the one we are computing the integral image in
-			 */
-			final long[] fakeSize = new long[ numDimensions - 1 ];
-
-			// location for the input location
-			final long[] tmpIn = new long[ numDimensions ];
-
-			// location for the integral location
-			final long[] tmpOut = new long[ numDimensions ];
-
-			// the size of dimension 0
-			final long size = integralSize[ 0 ];
-
-			for ( int d = 1; d < numDimensions; ++d )
-				fakeSize[ d - 1 ] = integralSize[ d ];
-
-			final LocalizingZeroMinIntervalIterator cursorDim = new LocalizingZeroMinIntervalIterator( fakeSize );
-
-			final RandomAccess< R > cursorIn = img.randomAccess();
-			final RandomAccess< T > cursorOut = integral.randomAccess();
-
-			final T tmpVar = type.createVariable();
-			final T sum = type.createVariable();
-
-			// iterate over all dimensions except the one we are computing the integral in, which is dim=0 here
-main:		while( cursorDim.hasNext() )
-			{
-				cursorDim.fwd();
-
-				// get all dimensions except the one we are currently doing the integral on
-				cursorDim.localize( fakeSize );
-
-				tmpIn[ 0 ] = 0;
-				tmpOut[ 0 ] = 1;
-
-				for ( int d = 1; d < numDimensions; ++d )
-				{
-					tmpIn[ d ] = fakeSize[ d - 1 ] - 1;
-					tmpOut[ d ] = fakeSize[ d - 1 ];
-
-					// all entries of position 0 are 0
-					if ( tmpOut[ d ] == 0 )
-						continue main;
-				}
-
-				// set the cursor to the beginning of the correct line
-				cursorIn.setPosition( tmpIn );
-
-				// set the cursor in the integral image to the right position
-				cursorOut.setPosition( tmpOut );
-				
-				// integrate over the line
-				integrateLineDim0( converter, cursorIn, cursorOut, sum, tmpVar, size );
-				/*
-				// compute the first pixel
-				converter.convert( cursorIn.getType(), sum );
-				cursorOut.getType().set( sum );
-
-				for ( int i = 2; i < size; ++i )
-				{
-					cursorIn.fwd( 0 );
-					cursorOut.fwd( 0 );
-
-					converter.convert( cursorIn.getType(), tmpVar );
-					sum.add( tmpVar );
-					cursorOut.getType().set( sum );
-				}
-				*/
-			}
+			integralSquared = new ArrayImgFactory<T>().create( integralSize, type.createVariable() );
+			if ( integralSquared == null )
+				return false;
 		}
 		else
-		{
-			final T tmpVar = type.createVariable();
-			final T sum = type.createVariable();
-
-			// the size of dimension 0
-			final long size = integralSize[ 0 ];
+			integralSquared = null;
 
-			final RandomAccess< R > cursorIn = img.randomAccess();
-			final RandomAccess< T > cursorOut = integral.randomAccess();
-
-			cursorIn.setPosition( 0, 0 );
-			cursorOut.setPosition( 1, 0 );
+		// the integrals in dimension d depend on all lines of dimension d-1 being done
+		for ( int d = 0; d < numDimensions; ++d )
+			integrateDimension( d, integralSize );
 
-			// compute the first pixel
-			converter.convert( cursorIn.get(), sum );
-			cursorOut.get().set( sum );
+		return true;
+	}
 
-			for ( int i = 2; i < size; ++i )
+	/**
+	 * Integrate all lines along dimension d in parallel. The lines in
+	 * dimension 0 are read from the input image, all other dimensions are
+	 * integrated in place. Lines that start at position 0 in any other
+	 * dimension only contain zeros and are skipped.
+	 */
+	protected void integrateDimension( final int d, final long[] integralSize )
+	{
+		final int numDimensions = integralSize.length;
+
+		// the lines are indexed by all dimensions except d, starting at position 1
+		final long[] lineSize = new long[ Math.max( 1, numDimensions - 1 ) ];
+		lineSize[ 0 ] = 1;
+		long numLines = 1;
+		int countDim = 0;
+		for ( int e = 0; e < numDimensions; ++e )
+			if ( e != d )
 			{
-				cursorIn.fwd( 0 );
-				cursorOut.fwd( 0 );
-
-				converter.convert( cursorIn.get(), tmpVar );
-				sum.add( tmpVar );
-				cursorOut.get().set( sum );
+				lineSize[ countDim++ ] = integralSize[ e ] - 1;
+				numLines *= integralSize[ e ] - 1;
 			}
 
-			return true;
-		}
+		// the size of dimension d
+		final long size = integralSize[ d ];
+		if ( numLines == 0 || size < 2 )
+			return;
 
-		for ( int d = 1; d < numDimensions; ++d )
+		final int numTasks = ( int ) Math.max( 1, Math.min( numLines, numThreads ) );
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >( numTasks );
+		for ( int t = 0; t < numTasks; ++t )
 		{
-			/**
-			 * Here we "misuse" a ArrayLocalizableCursor to iterate through all dimensions except the one we are computing the fft in
-			 */
-			final long[] fakeSize = new long[ numDimensions - 1 ];
-			final long[] tmp = new long[ numDimensions ];
-
-			// the size of dimension d
-			final long size = integralSize[ d ];
-
-			// get all dimensions except the one we are currently doing the integral on
-			int countDim = 0;
-			for ( int e = 0; e < numDimensions; ++e )
-				if ( e != d )
-					fakeSize[ countDim++ ] = integralSize[ e ];
-
-			final LocalizingZeroMinIntervalIterator cursorDim = new LocalizingZeroMinIntervalIterator( fakeSize );
-
-			final RandomAccess< T > cursor = integral.randomAccess();
-			final T sum = type.createVariable();
-
-			while( cursorDim.hasNext() )
+			final long firstLine = numLines * t / numTasks;
+			final long lastLine = numLines * ( t + 1 ) / numTasks;
+			tasks.add( new Runnable()
 			{
-				cursorDim.fwd();
-
-				// get all dimensions except the one we are currently doing the integral on
-				cursorDim.localize( fakeSize );
-
-				tmp[ d ] = 1;
-				countDim = 0;
-				for ( int e = 0; e < numDimensions; ++e )
-					if ( e != d )
-						tmp[ e ] = fakeSize[ countDim++ ];
-
-				// update the cursor in the input image to the current dimension position
-				cursor.setPosition( tmp );
-
-				// sum up line
-				integrateLine( d, cursor, sum, size );
-				/*
-				// init sum on first pixel that is not zero
-				sum.set( cursor.getType() );
-
-				for ( int i = 2; i < size; ++i )
+				@Override
+				public void run()
 				{
-					cursor.fwd( d );
-
-					sum.add( cursor.getType() );
-					cursor.getType().set( sum );
+					final long[] linePosition = new long[ lineSize.length ];
+
+					// location for the input location
+					final long[] tmpIn = new long[ numDimensions ];
+
+					// location for the integral location
+					final long[] tmpOut = new long[ numDimensions ];
+
+					final RandomAccess< R > cursorIn = d == 0 ? img.randomAccess() : null;
+					final RandomAccess< T > cursorOut = integral.randomAccess();
+					final RandomAccess< T > cursorOutSquared = integralSquared == null ? null : integralSquared.randomAccess();
+
+					final T tmpVar = type.createVariable();
+					final T sum = type.createVariable();
+					final T sumSquared = type.createVariable();
+
+					for ( long line = firstLine; line < lastLine; ++line )
+					{
+						IntervalIndexer.indexToPosition( line, lineSize, linePosition );
+
+						int countDim = 0;
+						for ( int e = 0; e < numDimensions; ++e )
+						{
+							if ( e == d )
+							{
+								tmpIn[ e ] = 0;
+								tmpOut[ e ] = 1;
+							}
+							else
+							{
+								tmpIn[ e ] = linePosition[ countDim ];
+								tmpOut[ e ] = linePosition[ countDim ] + 1;
+								++countDim;
+							}
+						}
+
+						cursorOut.setPosition( tmpOut );
+						if ( cursorOutSquared != null )
+							cursorOutSquared.setPosition( tmpOut );
+
+						if ( d == 0 )
+						{
+							// set the cursor to the beginning of the correct line
+							cursorIn.setPosition( tmpIn );
+
+							if ( cursorOutSquared == null )
+								integrateLineDim0( converter, cursorIn, cursorOut, sum, tmpVar, size );
+							else
+								integrateLineDim0( converter, cursorIn, cursorOut, cursorOutSquared, sum, sumSquared, tmpVar, size );
+						}
+						else
+						{
+							integrateLine( d, cursorOut, sum, size );
+							if ( cursorOutSquared != null )
+								integrateLine( d, cursorOutSquared, sum, size );
+						}
+					}
 				}
-				*/
-			}
+			} );
 		}
-
-		return true;
+		SharedThreadPool.invokeAll( tasks, numThreads );
 	}
-	
+
 	protected void integrateLineDim0( final Converter< R, T > converter, final RandomAccess< R > cursorIn, final RandomAccess< T > cursorOut, final T sum, final T tmpVar, final long size )
 	{
 		// compute the first pixel
@@ -272,6 +253,34 @@ main:		while( cursorDim.hasNext() )
 		}		
 	}
 
+	/**
+	 * Integrate a line in dimension 0 of the input and of the squared input
+	 * in one pass.
+	 */
+	protected void integrateLineDim0( final Converter< R, T > converter, final RandomAccess< R > cursorIn, final RandomAccess< T > cursorOut, final RandomAccess< T > cursorOutSquared, final T sum, final T sumSquared, final T tmpVar, final long size )
+	{
+		// compute the first pixel
+		converter.convert( cursorIn.get(), sum );
+		cursorOut.get().set( sum );
+		sumSquared.set( sum );
+		sumSquared.mul( sum );
+		cursorOutSquared.get().set( sumSquared );
+
+		for ( int i = 2; i < size; ++i )
+		{
+			cursorIn.fwd( 0 );
+			cursorOut.fwd( 0 );
+			cursorOutSquared.fwd( 0 );
+
+			converter.convert( cursorIn.get(), tmpVar );
+			sum.add( tmpVar );
+			cursorOut.get().set( sum );
+			tmpVar.mul( tmpVar );
+			sumSquared.add( tmpVar );
+			cursorOutSquared.get().set( sumSquared );
+		}
+	}
+
 	protected void integrateLine( final int d, final RandomAccess< T > cursor, final T sum, final long size )
 	{
 		// init sum on first pixel that is not zero
@@ -300,5 +309,28 @@ main:		while( cursorDim.hasNext() )
 	public Img<T> getResult() {
 		return integral;
 	}
+
+	/**
+	 * The integral image of the squared input values, or null if it was not
+	 * requested in the constructor.
+	 */
+	public Img<T> getSquaredResult() {
+		return integralSquared;
+	}
+
+	@Override
+	public void setNumThreads() {
+		numThreads = SharedThreadPool.getParallelism();
+	}
+
+	@Override
+	public void setNumThreads( final int numThreads ) {
+		this.numThreads = Math.max( 1, numThreads );
+	}
+
+	@Override
+	public int getNumThreads() {
+		return numThreads;
+	}
 }
 
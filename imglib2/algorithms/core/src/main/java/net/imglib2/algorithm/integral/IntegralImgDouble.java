@@ -56,6 +56,11 @@ public class IntegralImgDouble< R extends NumericType< R > > extends IntegralImg
 		super( img, type, converter );
 	}
 
+	public IntegralImgDouble( final Img<R> img, final DoubleType type, final Converter<R, DoubleType> converter, final boolean computeSquaredSums )
+	{
+		super( img, type, converter, computeSquaredSums );
+	}
+
 	@Override
 	protected void integrateLineDim0( final Converter< R, DoubleType > converter, final RandomAccess< R > cursorIn, final RandomAccess< DoubleType > cursorOut, final DoubleType sum, final DoubleType tmpVar, final long size )
 	{
@@ -76,6 +81,31 @@ public class IntegralImgDouble< R extends NumericType< R > > extends IntegralImg
 		}		
 	}
 
+	@Override
+	protected void integrateLineDim0( final Converter< R, DoubleType > converter, final RandomAccess< R > cursorIn, final RandomAccess< DoubleType > cursorOut, final RandomAccess< DoubleType > cursorOutSquared, final DoubleType sum, final DoubleType sumSquared, final DoubleType tmpVar, final long size )
+	{
+		// compute the first pixel
+		converter.convert( cursorIn.get(), sum );
+		double sum2 = sum.get();
+		double sumSquared2 = sum2 * sum2;
+		cursorOut.get().set( sum2 );
+		cursorOutSquared.get().set( sumSquared2 );
+
+		for ( int i = 2; i < size; ++i )
+		{
+			cursorIn.fwd( 0 );
+			cursorOut.fwd( 0 );
+			cursorOutSquared.fwd( 0 );
+
+			converter.convert( cursorIn.get(), tmpVar );
+			final double value = tmpVar.get();
+			sum2 += value;
+			sumSquared2 += value * value;
+			cursorOut.get().set( sum2 );
+			cursorOutSquared.get().set( sumSquared2 );
+		}
+	}
+
 	@Override
 	protected void integrateLine( final int d, final RandomAccess< DoubleType > cursor, final DoubleType sum, final long size )
 	{
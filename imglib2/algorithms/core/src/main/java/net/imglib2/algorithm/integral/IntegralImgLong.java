@@ -55,6 +55,11 @@ public class IntegralImgLong< R extends NumericType< R > > extends IntegralImg<
 	{
 		super( img, type, converter );
 	}
+
+	public IntegralImgLong( final Img<R> img, final LongType type, final Converter<R, LongType> converter, final boolean computeSquaredSums )
+	{
+		super( img, type, converter, computeSquaredSums );
+	}
 	
 	@Override
 	protected void integrateLineDim0( final Converter< R, LongType > converter, final RandomAccess< R > cursorIn, final RandomAccess< LongType > cursorOut, final LongType sum, final LongType tmpVar, final long size )
@@ -76,6 +81,31 @@ public class IntegralImgLong< R extends NumericType< R > > extends IntegralImg<
 		}		
 	}
 
+	@Override
+	protected void integrateLineDim0( final Converter< R, LongType > converter, final RandomAccess< R > cursorIn, final RandomAccess< LongType > cursorOut, final RandomAccess< LongType > cursorOutSquared, final LongType sum, final LongType sumSquared, final LongType tmpVar, final long size )
+	{
+		// compute the first pixel
+		converter.convert( cursorIn.get(), sum );
+		long sum2 = sum.get();
+		long sumSquared2 = sum2 * sum2;
+		cursorOut.get().set( sum2 );
+		cursorOutSquared.get().set( sumSquared2 );
+
+		for ( int i = 2; i < size; ++i )
+		{
+			cursorIn.fwd( 0 );
+			cursorOut.fwd( 0 );
+			cursorOutSquared.fwd( 0 );
+
+			converter.convert( cursorIn.get(), tmpVar );
+			final long value = tmpVar.get();
+			sum2 += value;
+			sumSquared2 += value * value;
+			cursorOut.get().set( sum2 );
+			cursorOutSquared.get().set( sumSquared2 );
+		}
+	}
+
 	@Override
 	protected void integrateLine( final int d, final RandomAccess< LongType > cursor, final LongType sum, final long size )
 	{
@@ -0,0 +1,580 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.labeling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.imglib2.AbstractInterval;
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.algorithm.MultiThreadedAlgorithm;
+import net.imglib2.algorithm.OutputAlgorithm;
+import net.imglib2.multithreading.SharedThreadPool;
+import net.imglib2.type.BooleanType;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.view.Views;
+
+/**
+ * Label the connected components of a binary image by writing integer labels
+ * into an {@link IntegerType} image. Unlike
+ * {@link AllConnectedComponents#labelAllConnectedComponents}, the components
+ * are not flood-filled but found in two raster scans. The first scan assigns
+ * provisional labels and records which of them are connected in a union-find
+ * forest, the second scan writes the final labels.
+ *
+ * Components are labeled 1, 2, ... in the order of their first pixel in flat
+ * iteration order, background pixels are set to 0. The size and bounding box
+ * of each component are gathered during the first scan and are available as
+ * {@link Component Components} after {@link #process()}.
+ *
+ * The image is split into slabs along the last dimension which are scanned in
+ * parallel. Components that touch across slab boundaries are merged
+ * afterwards, the result does not depend on the number of threads.
+ *
+ * @param <B>
+ *            the type of the binary input image
+ * @param <L>
+ *            the type of the label image
+ *
+ * @author ImgLib2 developers
+ */
+public class ConnectedComponents< B extends BooleanType< B >, L extends IntegerType< L > > extends MultiThreadedAlgorithm implements OutputAlgorithm< RandomAccessibleInterval< L > >
+{
+	/**
+	 * The size and bounding box of a connected component.
+	 */
+	public static class Component extends AbstractInterval
+	{
+		protected final long label;
+
+		protected final long size;
+
+		public Component( final long label, final long size, final long[] min, final long[] max )
+		{
+			super( min, max );
+			this.label = label;
+			this.size = size;
+		}
+
+		/**
+		 * @return the label of the component in the label image.
+		 */
+		public long getLabel()
+		{
+			return label;
+		}
+
+		/**
+		 * @return the number of pixels of the component.
+		 */
+		public long getSize()
+		{
+			return size;
+		}
+	}
+
+	/**
+	 * Provisional labels of a slab, their union-find forest and the size and
+	 * bounding box of the pixels that were assigned to each provisional label.
+	 */
+	private static final class Slab
+	{
+		final int n;
+
+		final int start;
+
+		final int end;
+
+		int numLabels;
+
+		int[] parent;
+
+		long[] sizes;
+
+		long[] bounds;
+
+		int offset;
+
+		Slab( final int n, final int start, final int end )
+		{
+			this.n = n;
+			this.start = start;
+			this.end = end;
+			numLabels = 0;
+			parent = new int[ 64 ];
+			sizes = new long[ 64 ];
+			bounds = new long[ 64 * 2 * n ];
+		}
+
+		int newLabel()
+		{
+			final int label = ++numLabels;
+			if ( label == parent.length )
+			{
+				parent = Arrays.copyOf( parent, 2 * label );
+				sizes = Arrays.copyOf( sizes, 2 * label );
+				bounds = Arrays.copyOf( bounds, 2 * label * 2 * n );
+			}
+			parent[ label ] = label;
+			final int o = 2 * n * label;
+			Arrays.fill( bounds, o, o + n, Long.MAX_VALUE );
+			Arrays.fill( bounds, o + n, o + 2 * n, Long.MIN_VALUE );
+			return label;
+		}
+
+		void add( final int label, final long[] position )
+		{
+			++sizes[ label ];
+			final int o = 2 * n * label;
+			for ( int d = 0; d < n; ++d )
+			{
+				if ( position[ d ] < bounds[ o + d ] )
+					bounds[ o + d ] = position[ d ];
+				if ( position[ d ] > bounds[ o + n + d ] )
+					bounds[ o + n + d ] = position[ d ];
+			}
+		}
+	}
+
+	protected final RandomAccessibleInterval< B > mask;
+
+	protected final RandomAccessibleInterval< L > labels;
+
+	protected final long[][] structuringElement;
+
+	protected List< Component > components;
+
+	/**
+	 * Label the 8-connected (or n-dimensional equivalent) components.
+	 *
+	 * @param mask
+	 *            a binary image where true indicates parts of components
+	 * @param labels
+	 *            the label image of the same size
+	 */
+	public ConnectedComponents( final RandomAccessibleInterval< B > mask, final RandomAccessibleInterval< L > labels )
+	{
+		this( mask, labels, AllConnectedComponents.getStructuringElement( mask.numDimensions() ) );
+	}
+
+	/**
+	 * Label the components connected by an arbitrary structuring element.
+	 * Connectivity is symmetric: two pixels are connected if either of them is
+	 * in the neighborhood of the other.
+	 *
+	 * @param mask
+	 *            a binary image where true indicates parts of components
+	 * @param labels
+	 *            the label image of the same size
+	 * @param structuringElement
+	 *            an array of offsets to a pixel of the pixels which are
+	 *            considered connected, see
+	 *            {@link AllConnectedComponents#getStructuringElement(int)}.
+	 */
+	public ConnectedComponents( final RandomAccessibleInterval< B > mask, final RandomAccessibleInterval< L > labels, final long[][] structuringElement )
+	{
+		this.mask = mask;
+		this.labels = labels;
+		this.structuringElement = structuringElement;
+	}
+
+	@Override
+	public boolean checkInput()
+	{
+		final int n = mask.numDimensions();
+		if ( labels.numDimensions() != n )
+		{
+			errorMessage = "The label image does not have the same number of dimensions as the mask";
+			return false;
+		}
+		long numPixels = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			if ( labels.dimension( d ) != mask.dimension( d ) )
+			{
+				errorMessage = "The label image does not have the same size as the mask";
+				return false;
+			}
+			numPixels *= mask.dimension( d );
+		}
+		if ( numPixels > Integer.MAX_VALUE )
+		{
+			errorMessage = "The mask has more than " + Integer.MAX_VALUE + " pixels";
+			return false;
+		}
+		for ( final long[] offset : structuringElement )
+		{
+			if ( offset.length != n )
+			{
+				errorMessage = "Some or all of the structuring element offsets do not have the same number of dimensions as the image";
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean process()
+	{
+		if ( !checkInput() )
+			return false;
+
+		final int n = mask.numDimensions();
+		final long[] dimensions = new long[ n ];
+		mask.dimensions( dimensions );
+		long numPixels = 1;
+		for ( int d = 0; d < n; ++d )
+			numPixels *= dimensions[ d ];
+		if ( numPixels == 0 )
+		{
+			components = new ArrayList< Component >();
+			return true;
+		}
+
+		/*
+		 * Offsets to the neighbors that precede a pixel in flat iteration
+		 * order, i.e., the neighbors that are already labeled when the pixel
+		 * is visited.
+		 */
+		final ArrayList< long[] > causal = new ArrayList< long[] >();
+		for ( final long[] offset : structuringElement )
+		{
+			final long flat = flatOffset( offset, dimensions );
+			final long[] o = offset.clone();
+			if ( flat > 0 )
+				for ( int d = 0; d < n; ++d )
+					o[ d ] = -o[ d ];
+			if ( flat == 0 || containsOffset( causal, o ) )
+				continue;
+			causal.add( o );
+		}
+		final long[][] offsets = causal.toArray( new long[ causal.size() ][] );
+		final int[] flatOffsets = new int[ offsets.length ];
+		final long[] interiorMin = new long[ n ];
+		final long[] interiorMax = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+			interiorMax[ d ] = dimensions[ d ] - 1;
+		long reach = 0;
+		for ( int k = 0; k < offsets.length; ++k )
+		{
+			flatOffsets[ k ] = ( int ) flatOffset( offsets[ k ], dimensions );
+			for ( int d = 0; d < n; ++d )
+			{
+				interiorMin[ d ] = Math.max( interiorMin[ d ], -offsets[ k ][ d ] );
+				interiorMax[ d ] = Math.min( interiorMax[ d ], dimensions[ d ] - 1 - offsets[ k ][ d ] );
+			}
+			reach = Math.max( reach, -offsets[ k ][ n - 1 ] );
+		}
+
+		final long numSlices = dimensions[ n - 1 ];
+		final long sliceSize = numPixels / numSlices;
+		final int numSlabs = ( int ) Math.max( 1, Math.min( numThreads, numSlices ) );
+		final int[] slabStarts = new int[ numSlabs + 1 ];
+		for ( int s = 0; s <= numSlabs; ++s )
+			slabStarts[ s ] = ( int ) ( numSlices * s / numSlabs * sliceSize );
+
+		/*
+		 * First scan: assign provisional labels per slab.
+		 */
+		final int[] provisional = new int[ ( int ) numPixels ];
+		final Slab[] slabs = new Slab[ numSlabs ];
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >();
+		for ( int s = 0; s < numSlabs; ++s )
+		{
+			final Slab slab = new Slab( n, slabStarts[ s ], slabStarts[ s + 1 ] );
+			slabs[ s ] = slab;
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					final long[] position = new long[ n ];
+					position[ n - 1 ] = slab.start / sliceSize;
+					final Cursor< B > c = Views.flatIterable( Views.interval( mask, slabInterval( mask, slab, sliceSize ) ) ).cursor();
+					for ( int i = slab.start; i < slab.end; ++i )
+					{
+						if ( c.next().get() )
+						{
+							boolean interior = true;
+							for ( int d = 0; d < n; ++d )
+								if ( position[ d ] < interiorMin[ d ] || position[ d ] > interiorMax[ d ] )
+									interior = false;
+							int label = 0;
+							A: for ( int k = 0; k < offsets.length; ++k )
+							{
+								if ( !interior )
+								{
+									for ( int d = 0; d < n; ++d )
+									{
+										final long p = position[ d ] + offsets[ k ][ d ];
+										if ( p < 0 || p >= dimensions[ d ] )
+											continue A;
+									}
+								}
+								final int j = i + flatOffsets[ k ];
+								if ( j < slab.start || provisional[ j ] == 0 )
+									continue;
+								if ( label == 0 )
+									label = find( slab.parent, provisional[ j ] );
+								else
+									label = union( slab.parent, label, provisional[ j ] );
+							}
+							if ( label == 0 )
+								label = slab.newLabel();
+							provisional[ i ] = label;
+							slab.add( label, position );
+						}
+						for ( int d = 0; d < n; ++d )
+						{
+							if ( ++position[ d ] < dimensions[ d ] )
+								break;
+							position[ d ] = 0;
+						}
+					}
+				}
+			} );
+		}
+		SharedThreadPool.invokeAll( tasks, numThreads );
+
+		/*
+		 * Merge the slabs into one union-find forest over global labels and
+		 * join components that are connected across slab boundaries.
+		 */
+		int numProvisional = 0;
+		for ( final Slab slab : slabs )
+		{
+			slab.offset = numProvisional;
+			numProvisional += slab.numLabels;
+		}
+		final int[] parent = new int[ numProvisional + 1 ];
+		for ( final Slab slab : slabs )
+			for ( int l = 1; l <= slab.numLabels; ++l )
+				parent[ slab.offset + l ] = slab.offset + slab.parent[ l ];
+		final long[] position = new long[ n ];
+		for ( int s = 1; s < numSlabs; ++s )
+		{
+			final int start = slabStarts[ s ];
+			final int end = ( int ) Math.min( numPixels, start + reach * sliceSize );
+			for ( int i = start; i < end; ++i )
+			{
+				if ( provisional[ i ] == 0 )
+					continue;
+				long index = i;
+				for ( int d = 0; d < n; ++d )
+				{
+					position[ d ] = index % dimensions[ d ];
+					index /= dimensions[ d ];
+				}
+				A: for ( int k = 0; k < offsets.length; ++k )
+				{
+					for ( int d = 0; d < n; ++d )
+					{
+						final long p = position[ d ] + offsets[ k ][ d ];
+						if ( p < 0 || p >= dimensions[ d ] )
+							continue A;
+					}
+					final int j = i + flatOffsets[ k ];
+					if ( j >= start || provisional[ j ] == 0 )
+						continue;
+					union( parent, globalLabel( slabs, slabStarts, i, provisional[ i ] ), globalLabel( slabs, slabStarts, j, provisional[ j ] ) );
+				}
+			}
+		}
+
+		/*
+		 * Number the components in the order of their roots, which are the
+		 * smallest provisional labels, and sum up their statistics.
+		 */
+		final int[] finalLabels = new int[ numProvisional + 1 ];
+		int numComponents = 0;
+		for ( int g = 1; g <= numProvisional; ++g )
+		{
+			final int root = find( parent, g );
+			finalLabels[ g ] = root == g ? ++numComponents : finalLabels[ root ];
+		}
+		final long[] sizes = new long[ numComponents + 1 ];
+		final long[][] min = new long[ numComponents + 1 ][ n ];
+		final long[][] max = new long[ numComponents + 1 ][ n ];
+		for ( int c = 1; c <= numComponents; ++c )
+		{
+			Arrays.fill( min[ c ], Long.MAX_VALUE );
+			Arrays.fill( max[ c ], Long.MIN_VALUE );
+		}
+		for ( final Slab slab : slabs )
+		{
+			for ( int l = 1; l <= slab.numLabels; ++l )
+			{
+				final int c = finalLabels[ slab.offset + l ];
+				sizes[ c ] += slab.sizes[ l ];
+				final int o = 2 * n * l;
+				for ( int d = 0; d < n; ++d )
+				{
+					min[ c ][ d ] = Math.min( min[ c ][ d ], slab.bounds[ o + d ] );
+					max[ c ][ d ] = Math.max( max[ c ][ d ], slab.bounds[ o + n + d ] );
+				}
+			}
+		}
+		components = new ArrayList< Component >( numComponents );
+		for ( int c = 1; c <= numComponents; ++c )
+		{
+			for ( int d = 0; d < n; ++d )
+			{
+				min[ c ][ d ] += mask.min( d );
+				max[ c ][ d ] += mask.min( d );
+			}
+			components.add( new Component( c, sizes[ c ], min[ c ], max[ c ] ) );
+		}
+
+		/*
+		 * Second scan: write the final labels.
+		 */
+		tasks.clear();
+		for ( final Slab slab : slabs )
+		{
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					final Cursor< L > c = Views.flatIterable( Views.interval( labels, slabInterval( labels, slab, sliceSize ) ) ).cursor();
+					for ( int i = slab.start; i < slab.end; ++i )
+					{
+						final int label = provisional[ i ];
+						c.next().setInteger( label == 0 ? 0 : finalLabels[ slab.offset + label ] );
+					}
+				}
+			} );
+		}
+		SharedThreadPool.invokeAll( tasks, numThreads );
+
+		return true;
+	}
+
+	/**
+	 * @return the label image.
+	 */
+	@Override
+	public RandomAccessibleInterval< L > getResult()
+	{
+		return labels;
+	}
+
+	/**
+	 * @return the components found by {@link #process()}, ordered by label.
+	 *         The component with label <em>i</em> is at index <em>i</em> - 1.
+	 */
+	public List< Component > getComponents()
+	{
+		return components;
+	}
+
+	/**
+	 * @return the part of an interval that is covered by a slab.
+	 */
+	private static FinalInterval slabInterval( final Interval interval, final Slab slab, final long sliceSize )
+	{
+		final int n = interval.numDimensions();
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		interval.min( min );
+		interval.max( max );
+		min[ n - 1 ] += slab.start / sliceSize;
+		max[ n - 1 ] = min[ n - 1 ] + ( slab.end - slab.start ) / sliceSize - 1;
+		return new FinalInterval( min, max );
+	}
+
+	private static int globalLabel( final Slab[] slabs, final int[] slabStarts, final int index, final int label )
+	{
+		int s = Arrays.binarySearch( slabStarts, index );
+		if ( s < 0 )
+			s = -s - 2;
+		return slabs[ s ].offset + label;
+	}
+
+	private static long flatOffset( final long[] offset, final long[] dimensions )
+	{
+		long flat = 0;
+		long step = 1;
+		for ( int d = 0; d < dimensions.length; ++d )
+		{
+			flat += offset[ d ] * step;
+			step *= dimensions[ d ];
+		}
+		return flat;
+	}
+
+	private static boolean containsOffset( final List< long[] > offsets, final long[] offset )
+	{
+		for ( final long[] o : offsets )
+			if ( Arrays.equals( o, offset ) )
+				return true;
+		return false;
+	}
+
+	private static int find( final int[] parent, int label )
+	{
+		while ( parent[ label ] != label )
+		{
+			parent[ label ] = parent[ parent[ label ] ];
+			label = parent[ label ];
+		}
+		return label;
+	}
+
+	/**
+	 * Join the trees of two labels. The smaller root becomes the root of the
+	 * joined tree.
+	 *
+	 * @return the root of the joined tree.
+	 */
+	private static int union( final int[] parent, final int label1, final int label2 )
+	{
+		final int root1 = find( parent, label1 );
+		final int root2 = find( parent, label2 );
+		if ( root1 < root2 )
+		{
+			parent[ root2 ] = root1;
+			return root1;
+		}
+		parent[ root1 ] = root2;
+		return root2;
+	}
+}
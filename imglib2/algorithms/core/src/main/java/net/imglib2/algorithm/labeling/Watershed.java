@@ -36,10 +36,16 @@
 
 package net.imglib2.algorithm.labeling;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.PriorityQueue;
 
 import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.algorithm.MultiThreaded;
 import net.imglib2.algorithm.OutputAlgorithm;
 import net.imglib2.img.Img;
 import net.imglib2.img.array.ArrayImgFactory;
@@ -47,11 +53,15 @@ import net.imglib2.labeling.Labeling;
 import net.imglib2.labeling.LabelingOutOfBoundsRandomAccessFactory;
 import net.imglib2.labeling.LabelingType;
 import net.imglib2.labeling.NativeImgLabeling;
+import net.imglib2.multithreading.SharedThreadPool;
+import net.imglib2.multithreading.SimpleMultiThreading;
 import net.imglib2.outofbounds.OutOfBounds;
 import net.imglib2.outofbounds.OutOfBoundsConstantValueFactory;
 import net.imglib2.outofbounds.OutOfBoundsFactory;
+import net.imglib2.type.numeric.IntegerType;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.util.IntervalIndexer;
 
 /**
  * Watershed algorithms. The watershed algorithm segments and labels an image
@@ -69,10 +79,29 @@ import net.imglib2.type.numeric.integer.IntType;
  * image has a depressed object interior and a ridge which constrains the
  * watershed boundary.
  * 
+ * Integer images with at most {@link #MAX_INTEGER_LEVELS} distinct intensity
+ * levels are flooded using a {@link HierarchicalQueue} of pixel indices
+ * instead of a {@link PriorityQueue} of pixel objects. Images of other types
+ * can be flooded in the same way after quantizing their intensities, see
+ * {@link #setNumLevels(int)}. With more than one thread (see
+ * {@link #setNumThreads(int)}), the image is split into slabs that are flooded
+ * in parallel and then merged across the slab boundaries.
+ * 
  * @author Lee Kamentsky
  */
-public class Watershed< T extends RealType< T >, L extends Comparable< L >> implements OutputAlgorithm< Labeling< L >>
+public class Watershed< T extends RealType< T >, L extends Comparable< L >> implements OutputAlgorithm< Labeling< L >>, MultiThreaded
 {
+	/**
+	 * The maximum number of intensity levels of an integer image that is
+	 * flooded using a {@link HierarchicalQueue} without quantization.
+	 */
+	public static final int MAX_INTEGER_LEVELS = 1 << 20;
+
+	/**
+	 * Marks pixels in the label array that were labeled in the output before
+	 * the watershed and are not flooded.
+	 */
+	private static final int PRELABELED = -1;
 
 	protected static class PixelIntensity< U extends Comparable< U >> implements Comparable< PixelIntensity< U >>
 	{
@@ -125,6 +154,197 @@ public class Watershed< T extends RealType< T >, L extends Comparable< L >> impl
 		}
 	}
 
+	/**
+	 * A priority queue of pixel indices with integer priority levels. Each
+	 * level is a first-in-first-out queue, so that pixels of the same level
+	 * are removed in the order in which they were added. Elements may be added
+	 * at levels below the level of the last removed element.
+	 */
+	protected static class HierarchicalQueue
+	{
+		private final int[][] buckets;
+
+		private final int[] heads;
+
+		private final int[] tails;
+
+		private int current;
+
+		private long size;
+
+		/**
+		 * @param numLevels
+		 *            number of priority levels, levels range from 0 to
+		 *            numLevels - 1.
+		 */
+		public HierarchicalQueue( final int numLevels )
+		{
+			buckets = new int[ numLevels ][];
+			heads = new int[ numLevels ];
+			tails = new int[ numLevels ];
+			current = numLevels;
+			size = 0;
+		}
+
+		public void add( final int index, final int level )
+		{
+			int[] bucket = buckets[ level ];
+			if ( bucket == null )
+			{
+				bucket = new int[ 16 ];
+				buckets[ level ] = bucket;
+			}
+			else if ( tails[ level ] == bucket.length )
+			{
+				final int n = tails[ level ] - heads[ level ];
+				if ( heads[ level ] < bucket.length / 2 )
+				{
+					bucket = new int[ 2 * bucket.length ];
+					System.arraycopy( buckets[ level ], heads[ level ], bucket, 0, n );
+					buckets[ level ] = bucket;
+				}
+				else
+					System.arraycopy( bucket, heads[ level ], bucket, 0, n );
+				heads[ level ] = 0;
+				tails[ level ] = n;
+			}
+			bucket[ tails[ level ]++ ] = index;
+			if ( level < current )
+				current = level;
+			++size;
+		}
+
+		public boolean isEmpty()
+		{
+			return size == 0;
+		}
+
+		/**
+		 * Remove the oldest element of the lowest non-empty level. The queue
+		 * must not be empty.
+		 */
+		public int remove()
+		{
+			while ( heads[ current ] == tails[ current ] )
+				++current;
+			final int index = buckets[ current ][ heads[ current ]++ ];
+			if ( heads[ current ] == tails[ current ] )
+			{
+				heads[ current ] = 0;
+				tails[ current ] = 0;
+			}
+			--size;
+			return index;
+		}
+
+		/**
+		 * @return the level of the element that was last removed.
+		 */
+		public int currentLevel()
+		{
+			return current;
+		}
+	}
+
+	/**
+	 * Computes the flat indices of the neighbors of a pixel given by its flat
+	 * index. Neighbors outside the image are omitted, the order of the
+	 * remaining neighbors is the order of the structuring element.
+	 */
+	private static final class Neighborhood
+	{
+		final int n;
+
+		final long[] dimensions;
+
+		final long[][] offsets;
+
+		final int[] flatOffsets;
+
+		final long[] interiorMin;
+
+		final long[] interiorMax;
+
+		final long[] position;
+
+		final int[] neighbors;
+
+		Neighborhood( final long[] dimensions, final long[][] offsets )
+		{
+			n = dimensions.length;
+			this.dimensions = dimensions;
+			this.offsets = offsets;
+			flatOffsets = new int[ offsets.length ];
+			interiorMin = new long[ n ];
+			interiorMax = new long[ n ];
+			for ( int d = 0; d < n; ++d )
+				interiorMax[ d ] = dimensions[ d ] - 1;
+			for ( int k = 0; k < offsets.length; ++k )
+			{
+				long step = 1;
+				for ( int d = 0; d < n; ++d )
+				{
+					flatOffsets[ k ] += ( int ) ( offsets[ k ][ d ] * step );
+					step *= dimensions[ d ];
+					interiorMin[ d ] = Math.max( interiorMin[ d ], -offsets[ k ][ d ] );
+					interiorMax[ d ] = Math.min( interiorMax[ d ], dimensions[ d ] - 1 - offsets[ k ][ d ] );
+				}
+			}
+			position = new long[ n ];
+			neighbors = new int[ offsets.length ];
+		}
+
+		Neighborhood( final Neighborhood neighborhood )
+		{
+			n = neighborhood.n;
+			dimensions = neighborhood.dimensions;
+			offsets = neighborhood.offsets;
+			flatOffsets = neighborhood.flatOffsets;
+			interiorMin = neighborhood.interiorMin;
+			interiorMax = neighborhood.interiorMax;
+			position = new long[ n ];
+			neighbors = new int[ offsets.length ];
+		}
+
+		/**
+		 * Store the neighbors of the pixel with the given index in
+		 * {@link #neighbors}.
+		 *
+		 * @return the number of neighbors.
+		 */
+		int get( final int index )
+		{
+			long i = index;
+			boolean interior = true;
+			for ( int d = 0; d < n; ++d )
+			{
+				final long p = i % dimensions[ d ];
+				i /= dimensions[ d ];
+				position[ d ] = p;
+				if ( p < interiorMin[ d ] || p > interiorMax[ d ] )
+					interior = false;
+			}
+			if ( interior )
+			{
+				for ( int k = 0; k < flatOffsets.length; ++k )
+					neighbors[ k ] = index + flatOffsets[ k ];
+				return flatOffsets.length;
+			}
+			int count = 0;
+			A: for ( int k = 0; k < offsets.length; ++k )
+			{
+				for ( int d = 0; d < n; ++d )
+				{
+					final long p = position[ d ] + offsets[ k ][ d ];
+					if ( p < 0 || p >= dimensions[ d ] )
+						continue A;
+				}
+				neighbors[ count++ ] = index + flatOffsets[ k ];
+			}
+			return count;
+		}
+	}
+
 	protected Img< T > image;
 
 	protected Labeling< L > seeds;
@@ -133,6 +353,10 @@ public class Watershed< T extends RealType< T >, L extends Comparable< L >> impl
 
 	protected Labeling< L > output;
 
+	protected int numLevels = 0;
+
+	protected int numThreads = 1;
+
 	String errorMessage;
 
 	/**
@@ -186,6 +410,59 @@ public class Watershed< T extends RealType< T >, L extends Comparable< L >> impl
 		output = outputLabeling;
 	}
 
+	/**
+	 * Set the number of intensity levels for images that are not flooded
+	 * exactly using a {@link HierarchicalQueue}, i.e., images that are not
+	 * integer images or have more than {@link #MAX_INTEGER_LEVELS} distinct
+	 * intensities. The intensity range of such images is quantized into
+	 * numLevels equally sized levels. Pixels in the same level are flooded in
+	 * the order in which they are reached, regardless of their exact
+	 * intensity.
+	 * 
+	 * @param numLevels
+	 *            the number of quantization levels, or 0 (the default) to
+	 *            flood such images without quantization using a
+	 *            {@link PriorityQueue}.
+	 */
+	public void setNumLevels( final int numLevels )
+	{
+		this.numLevels = numLevels;
+	}
+
+	/**
+	 * Use the default number of threads to flood the image. Note that the
+	 * watershed is single-threaded unless one of the setNumThreads methods is
+	 * called.
+	 */
+	@Override
+	public void setNumThreads()
+	{
+		this.numThreads = SharedThreadPool.getParallelism();
+	}
+
+	/**
+	 * Set the number of threads to flood the image. With more than one thread,
+	 * the image is split into slabs along the last dimension which are flooded
+	 * in parallel. The slabs are then merged by re-flooding from the slab
+	 * boundaries every pixel that can be reached from a seed on a path with a
+	 * lower maximum intensity than within its slab. Pixels that can be reached
+	 * from different seeds at the same flooding level may therefore be
+	 * assigned differently than by the single-threaded watershed. Only images
+	 * that are flooded using a {@link HierarchicalQueue} are processed in
+	 * parallel.
+	 */
+	@Override
+	public void setNumThreads( final int numThreads )
+	{
+		this.numThreads = numThreads;
+	}
+
+	@Override
+	public int getNumThreads()
+	{
+		return numThreads;
+	}
+
 	/**
 	 * The seeded watershed uses a pre-existing labeling of the space where the
 	 * labels act as seeds for the output watershed. The analogy would be to use
@@ -204,6 +481,7 @@ public class Watershed< T extends RealType< T >, L extends Comparable< L >> impl
 
 		if ( structuringElement == null )
 			structuringElement = AllConnectedComponents.getStructuringElement( image.numDimensions() );
+		final boolean outputIsEmpty = output == null;
 		if ( output == null )
 		{
 			long[] dimensions = new long[ seeds.numDimensions() ];
@@ -211,6 +489,9 @@ public class Watershed< T extends RealType< T >, L extends Comparable< L >> impl
 			NativeImgLabeling< L, IntType > o = new NativeImgLabeling< L, IntType >( new ArrayImgFactory< IntType >().create( dimensions, new IntType() ) );
 			output = o;
 		}
+		if ( processWithHierarchicalQueue( outputIsEmpty ) )
+			return true;
+
 		/*
 		 * Make an OutOfBounds for the labels that returns empty labels if out
 		 * of bounds. Make an OutOfBounds for the intensities that returns the
@@ -306,6 +587,349 @@ public class Watershed< T extends RealType< T >, L extends Comparable< L >> impl
 		return true;
 	}
 
+	/**
+	 * Flood the image using {@link HierarchicalQueue HierarchicalQueues} of
+	 * pixel indices. Intensities are converted to levels and labels to label
+	 * indices, both stored in int arrays, so that no objects are created per
+	 * pixel. In the single-threaded case, the result is the same as the one of
+	 * the {@link PriorityQueue}-based watershed, if no quantization is
+	 * necessary.
+	 *
+	 * @param outputIsEmpty
+	 *            whether the output labeling was created by {@link #process()}
+	 *            and does not need to be checked for pre-existing labels.
+	 * @return false if the image can not be flooded using a
+	 *         {@link HierarchicalQueue}, i.e., if it is not an integer image
+	 *         with at most {@link #MAX_INTEGER_LEVELS} intensity levels and no
+	 *         number of quantization levels was set, or if it has more than
+	 *         {@link Integer#MAX_VALUE} pixels.
+	 */
+	protected boolean processWithHierarchicalQueue( final boolean outputIsEmpty )
+	{
+		/*
+		 * Pixels outside of the image or the output are never labeled, so the
+		 * flooded domain is their intersection.
+		 */
+		final int n = image.numDimensions();
+		final long[] dimensions = new long[ n ];
+		long numPixels = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			dimensions[ d ] = Math.min( image.dimension( d ), output.dimension( d ) );
+			numPixels *= dimensions[ d ];
+		}
+		if ( numPixels == 0 || numPixels > Integer.MAX_VALUE )
+			return false;
+
+		final List< IterableInterval< T > > parts = SimpleMultiThreading.split( image, Math.max( 1, numThreads ) );
+		final double[] minValues = new double[ parts.size() ];
+		final double[] maxValues = new double[ parts.size() ];
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >();
+		for ( int p = 0; p < parts.size(); ++p )
+		{
+			final int part = p;
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					double min = Double.POSITIVE_INFINITY;
+					double max = Double.NEGATIVE_INFINITY;
+					final long[] position = new long[ n ];
+					final Cursor< T > c = parts.get( part ).localizingCursor();
+					while ( c.hasNext() )
+					{
+						final double value = c.next().getRealDouble();
+						c.localize( position );
+						if ( isInside( position, dimensions ) )
+						{
+							min = Math.min( min, value );
+							max = Math.max( max, value );
+						}
+					}
+					minValues[ part ] = min;
+					maxValues[ part ] = max;
+				}
+			} );
+		}
+		SharedThreadPool.invokeAll( tasks, numThreads );
+		double minValue = Double.POSITIVE_INFINITY;
+		double maxValue = Double.NEGATIVE_INFINITY;
+		for ( int p = 0; p < parts.size(); ++p )
+		{
+			minValue = Math.min( minValue, minValues[ p ] );
+			maxValue = Math.max( maxValue, maxValues[ p ] );
+		}
+
+		final int levelCount;
+		final double scale;
+		if ( image.firstElement() instanceof IntegerType && maxValue - minValue < MAX_INTEGER_LEVELS )
+		{
+			levelCount = ( int ) ( maxValue - minValue ) + 1;
+			scale = 1;
+		}
+		else if ( numLevels > 0 )
+		{
+			levelCount = numLevels;
+			scale = maxValue > minValue ? ( numLevels - 1 ) / ( maxValue - minValue ) : 0;
+		}
+		else
+			return false;
+
+		/*
+		 * Convert intensities to levels.
+		 */
+		final int[] levels = new int[ ( int ) numPixels ];
+		final double offset = minValue;
+		tasks.clear();
+		for ( final IterableInterval< T > part : parts )
+		{
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					final long[] position = new long[ n ];
+					final Cursor< T > c = part.localizingCursor();
+					while ( c.hasNext() )
+					{
+						final double value = c.next().getRealDouble();
+						c.localize( position );
+						if ( isInside( position, dimensions ) )
+							levels[ ( int ) IntervalIndexer.positionToIndex( position, dimensions ) ] = Math.min( ( int ) ( ( value - offset ) * scale ), levelCount - 1 );
+					}
+				}
+			} );
+		}
+		SharedThreadPool.invokeAll( tasks, numThreads );
+
+		/*
+		 * Label indices are 1-based indices into labelings, 0 marks unlabeled
+		 * pixels.
+		 */
+		final int[] labels = new int[ ( int ) numPixels ];
+		final long[] position = new long[ n ];
+		if ( !outputIsEmpty )
+		{
+			final Cursor< LabelingType< L >> c = output.localizingCursor();
+			while ( c.hasNext() )
+			{
+				final List< L > l = c.next().getLabeling();
+				c.localize( position );
+				if ( !l.isEmpty() && isInside( position, dimensions ) )
+					labels[ ( int ) IntervalIndexer.positionToIndex( position, dimensions ) ] = PRELABELED;
+			}
+		}
+
+		final ArrayList< List< L >> labelings = new ArrayList< List< L >>();
+		final HashMap< List< L >, Integer > labelIndices = new HashMap< List< L >, Integer >();
+		final RandomAccess< LabelingType< L >> outputAccess = output.randomAccess();
+		int[] seedIndices = new int[ 16 ];
+		int numSeeds = 0;
+		final Cursor< LabelingType< L >> c = seeds.localizingCursor();
+		while ( c.hasNext() )
+		{
+			final List< L > l = c.next().getLabeling();
+			if ( l.isEmpty() )
+				continue;
+			c.localize( position );
+			if ( !isInside( position, dimensions ) )
+				continue;
+			Integer label = labelIndices.get( l );
+			if ( label == null )
+			{
+				outputAccess.setPosition( position );
+				labelings.add( outputAccess.get().intern( l ) );
+				label = labelings.size();
+				labelIndices.put( l, label );
+			}
+			final int i = ( int ) IntervalIndexer.positionToIndex( position, dimensions );
+			labels[ i ] = label;
+			if ( numSeeds == seedIndices.length )
+				seedIndices = Arrays.copyOf( seedIndices, 2 * numSeeds );
+			seedIndices[ numSeeds++ ] = i;
+		}
+		seedIndices = Arrays.copyOf( seedIndices, numSeeds );
+
+		final Neighborhood neighborhood = new Neighborhood( dimensions, structuringElement );
+		if ( numThreads > 1 && dimensions[ n - 1 ] > 1 )
+			floodParallel( levels, labels, seedIndices, neighborhood, levelCount );
+		else
+			flood( levels, labels, seedIndices, neighborhood, levelCount );
+
+		final Cursor< LabelingType< L >> oc = output.localizingCursor();
+		while ( oc.hasNext() )
+		{
+			final LabelingType< L > t = oc.next();
+			oc.localize( position );
+			if ( isInside( position, dimensions ) )
+			{
+				final int label = labels[ ( int ) IntervalIndexer.positionToIndex( position, dimensions ) ];
+				if ( label > 0 )
+					t.setLabeling( labelings.get( label - 1 ) );
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Flood from the seeds in the order of the levels of the flooded pixels.
+	 * Each pixel is labeled by the first labeled neighbor that is removed from
+	 * the queue.
+	 */
+	private static void flood( final int[] levels, final int[] labels, final int[] seedIndices, final Neighborhood neighborhood, final int numLevels )
+	{
+		final HierarchicalQueue queue = new HierarchicalQueue( numLevels );
+		for ( final int i : seedIndices )
+			queue.add( i, levels[ i ] );
+		final int[] neighbors = neighborhood.neighbors;
+		while ( !queue.isEmpty() )
+		{
+			final int i = queue.remove();
+			final int label = labels[ i ];
+			final int numNeighbors = neighborhood.get( i );
+			for ( int k = 0; k < numNeighbors; ++k )
+			{
+				final int j = neighbors[ k ];
+				if ( labels[ j ] == 0 )
+				{
+					labels[ j ] = label;
+					queue.add( j, levels[ j ] );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Flood slabs of the image in parallel and merge them. Within each slab,
+	 * pixels are flooded in the order of their cost, the minimal maximum level
+	 * on a path from a seed. The slabs are merged by re-flooding every pixel
+	 * whose cost can be lowered by a path across a slab boundary.
+	 */
+	private void floodParallel( final int[] levels, final int[] labels, final int[] seedIndices, final Neighborhood neighborhood, final int numLevels )
+	{
+		final int n = neighborhood.n;
+		final long numSlices = neighborhood.dimensions[ n - 1 ];
+		final long sliceSize = labels.length / numSlices;
+		final int numSlabs = ( int ) Math.min( numThreads, numSlices );
+		final int[] slabStarts = new int[ numSlabs + 1 ];
+		for ( int s = 0; s <= numSlabs; ++s )
+			slabStarts[ s ] = ( int ) ( numSlices * s / numSlabs * sliceSize );
+
+		final int[] costs = new int[ labels.length ];
+		Arrays.fill( costs, Integer.MAX_VALUE );
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >();
+		for ( int s = 0; s < numSlabs; ++s )
+		{
+			final int start = slabStarts[ s ];
+			final int end = slabStarts[ s + 1 ];
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					floodSlab( levels, labels, costs, seedIndices, new Neighborhood( neighborhood ), numLevels, start, end );
+				}
+			} );
+		}
+		SharedThreadPool.invokeAll( tasks, numThreads );
+
+		/*
+		 * Relax all neighbor pairs that may cross a slab boundary.
+		 */
+		long reach = 0;
+		for ( final long[] offset : neighborhood.offsets )
+			reach = Math.max( reach, Math.abs( offset[ n - 1 ] ) );
+		final HierarchicalQueue queue = new HierarchicalQueue( numLevels );
+		final int[] neighbors = neighborhood.neighbors;
+		for ( int s = 1; s < numSlabs; ++s )
+		{
+			final int start = ( int ) Math.max( 0, slabStarts[ s ] - reach * sliceSize );
+			final int end = ( int ) Math.min( labels.length, slabStarts[ s ] + reach * sliceSize );
+			for ( int i = start; i < end; ++i )
+			{
+				if ( labels[ i ] <= 0 )
+					continue;
+				final int numNeighbors = neighborhood.get( i );
+				for ( int k = 0; k < numNeighbors; ++k )
+					relax( i, neighbors[ k ], levels, labels, costs, queue );
+			}
+		}
+
+		/*
+		 * Propagate lowered costs. A pixel whose cost was lowered again after
+		 * it was added to the queue is skipped.
+		 */
+		while ( !queue.isEmpty() )
+		{
+			final int i = queue.remove();
+			if ( costs[ i ] != queue.currentLevel() )
+				continue;
+			final int numNeighbors = neighborhood.get( i );
+			for ( int k = 0; k < numNeighbors; ++k )
+				relax( i, neighbors[ k ], levels, labels, costs, queue );
+		}
+	}
+
+	/**
+	 * Flood the pixels with indices in [start, end) from the seeds in that
+	 * range.
+	 */
+	private static void floodSlab( final int[] levels, final int[] labels, final int[] costs, final int[] seedIndices, final Neighborhood neighborhood, final int numLevels, final int start, final int end )
+	{
+		final HierarchicalQueue queue = new HierarchicalQueue( numLevels );
+		for ( final int i : seedIndices )
+		{
+			if ( i >= start && i < end )
+			{
+				costs[ i ] = levels[ i ];
+				queue.add( i, levels[ i ] );
+			}
+		}
+		final int[] neighbors = neighborhood.neighbors;
+		while ( !queue.isEmpty() )
+		{
+			final int i = queue.remove();
+			final int cost = queue.currentLevel();
+			final int label = labels[ i ];
+			final int numNeighbors = neighborhood.get( i );
+			for ( int k = 0; k < numNeighbors; ++k )
+			{
+				final int j = neighbors[ k ];
+				if ( j < start || j >= end || labels[ j ] != 0 )
+					continue;
+				labels[ j ] = label;
+				costs[ j ] = Math.max( cost, levels[ j ] );
+				queue.add( j, costs[ j ] );
+			}
+		}
+	}
+
+	/**
+	 * Label pixel j like its neighbor i if the path through i lowers the cost
+	 * of j.
+	 */
+	private static void relax( final int i, final int j, final int[] levels, final int[] labels, final int[] costs, final HierarchicalQueue queue )
+	{
+		if ( labels[ j ] == PRELABELED )
+			return;
+		final int cost = Math.max( costs[ i ], levels[ j ] );
+		if ( cost < costs[ j ] )
+		{
+			costs[ j ] = cost;
+			labels[ j ] = labels[ i ];
+			queue.add( j, cost );
+		}
+	}
+
+	private static boolean isInside( final long[] position, final long[] dimensions )
+	{
+		for ( int d = 0; d < dimensions.length; ++d )
+			if ( position[ d ] >= dimensions[ d ] )
+				return false;
+		return true;
+	}
+
 	@Override
 	public boolean checkInput()
 	{
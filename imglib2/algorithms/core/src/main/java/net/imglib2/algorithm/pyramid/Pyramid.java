@@ -0,0 +1,335 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.pyramid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.algorithm.gauss3.Gauss3;
+import net.imglib2.algorithm.gauss3.SeparableSymmetricConvolution;
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.DoubleArray;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.multithreading.SharedThreadPool;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.view.Views;
+
+/**
+ * Resolution pyramids of n-dimensional images.
+ *
+ * <p>
+ * Every level is downsampled from the previous one by integer factors. Pixel x
+ * of a downsampled image is computed from the block of pixels
+ * [f*x, f*x+f-1] of its source (relative to the minima of source and target),
+ * so its center lies at f*x+(f-1)/2 in source coordinates. Blocks that are cut
+ * off at the source border are averaged over the pixels that exist.
+ * </p>
+ *
+ * <p>
+ * With {@link Filter#AVERAGE} each pixel is the mean of its block. With
+ * {@link Filter#GAUSSIAN} the source is smoothed with a Gaussian of
+ * &sigma;<sup>2</sup> = (f<sup>2</sup>-1)/6 before averaging, which together
+ * with the box average gives the &sigma; = f/2 that is needed to avoid
+ * aliasing (assuming the source already has &sigma; = 1/2).
+ * </p>
+ *
+ * <p>
+ * The target is processed in blocks which are distributed over parallel tasks.
+ * Each block only reads the part of the source it is computed from (plus the
+ * kernel border for {@link Filter#GAUSSIAN}), so levels stored in
+ * {@link CellImg CellImgs} with the block size as cell size are written cell
+ * by cell and the previous level is streamed through.
+ * </p>
+ *
+ * @author ImgLib2 developers
+ */
+public class Pyramid
+{
+	public static enum Filter
+	{
+		AVERAGE, GAUSSIAN
+	}
+
+	/**
+	 * Build a pyramid of {@link CellImg CellImgs} where each level is
+	 * downsampled by 2 in every dimension from the previous one, starting from
+	 * source.
+	 *
+	 * @param source
+	 *            the full resolution image.
+	 * @param numLevels
+	 *            number of downsampled levels to create.
+	 * @param cellDimensions
+	 *            cell size of the levels.
+	 * @param filter
+	 *            how pixels are averaged.
+	 * @return the downsampled levels, level i is downsampled by
+	 *         2<sup>i+1</sup> from source.
+	 */
+	public static < T extends RealType< T > & NativeType< T > > List< CellImg< T, ?, ? > > build( final RandomAccessibleInterval< T > source, final int numLevels, final int[] cellDimensions, final Filter filter )
+	{
+		final int[] factors = new int[ source.numDimensions() ];
+		Arrays.fill( factors, 2 );
+		return build( source, numLevels, factors, cellDimensions, filter, SharedThreadPool.getParallelism() );
+	}
+
+	/**
+	 * Build a pyramid of {@link CellImg CellImgs} where each level is
+	 * downsampled by factors from the previous one, starting from source.
+	 *
+	 * @param source
+	 *            the full resolution image.
+	 * @param numLevels
+	 *            number of downsampled levels to create.
+	 * @param factors
+	 *            downsampling factor from one level to the next in every
+	 *            dimension, e.g. 1 for a dimension that is not downsampled.
+	 * @param cellDimensions
+	 *            cell size of the levels.
+	 * @param filter
+	 *            how pixels are averaged.
+	 * @param numThreads
+	 *            maximum number of blocks processed in parallel.
+	 * @return the downsampled levels, level i is downsampled by
+	 *         factors<sup>i+1</sup> from source.
+	 */
+	public static < T extends RealType< T > & NativeType< T > > List< CellImg< T, ?, ? > > build( final RandomAccessibleInterval< T > source, final int numLevels, final int[] factors, final int[] cellDimensions, final Filter filter, final int numThreads )
+	{
+		final T type = source.randomAccess().get().createVariable();
+		final CellImgFactory< T > factory = new CellImgFactory< T >( cellDimensions );
+		final ArrayList< CellImg< T, ?, ? > > levels = new ArrayList< CellImg< T, ?, ? > >( numLevels );
+		RandomAccessibleInterval< T > previous = source;
+		for ( int l = 0; l < numLevels; ++l )
+		{
+			final CellImg< T, ?, ? > level = factory.create( downsampledDimensions( previous, factors ), type );
+			downsample( previous, level, factors, filter, cellDimensions, numThreads );
+			levels.add( level );
+			previous = level;
+		}
+		return levels;
+	}
+
+	/**
+	 * Get the dimensions of source downsampled by factors, that is,
+	 * ceil(dimension / factor) in every dimension.
+	 */
+	public static long[] downsampledDimensions( final RandomAccessibleInterval< ? > source, final int[] factors )
+	{
+		final int n = source.numDimensions();
+		final long[] dimensions = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+			dimensions[ d ] = ( source.dimension( d ) + factors[ d ] - 1 ) / factors[ d ];
+		return dimensions;
+	}
+
+	/**
+	 * Downsample source by factors into target. Target pixel x (relative to
+	 * the target minimum) is computed from the source block [f*x, f*x+f-1]
+	 * (relative to the source minimum). The target must not be larger than
+	 * {@link #downsampledDimensions(RandomAccessibleInterval, int[])}.
+	 *
+	 * @param source
+	 *            the image to downsample.
+	 * @param target
+	 *            the downsampled image.
+	 * @param factors
+	 *            downsampling factor in every dimension.
+	 * @param filter
+	 *            how pixels are averaged.
+	 * @param blockSize
+	 *            size of the target blocks processed by each task, should be
+	 *            the cell size if target is a {@link CellImg}.
+	 * @param numThreads
+	 *            maximum number of blocks processed in parallel.
+	 */
+	public static < S extends RealType< S >, T extends RealType< T > > void downsample( final RandomAccessibleInterval< S > source, final RandomAccessibleInterval< T > target, final int[] factors, final Filter filter, final int[] blockSize, final int numThreads )
+	{
+		final int n = target.numDimensions();
+		final long[] numBlocks = new long[ n ];
+		long totalBlocks = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			numBlocks[ d ] = ( target.dimension( d ) + blockSize[ d ] - 1 ) / blockSize[ d ];
+			totalBlocks *= numBlocks[ d ];
+		}
+
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >();
+		final long[] blockIndex = new long[ n ];
+		for ( long b = 0; b < totalBlocks; ++b )
+		{
+			final long[] min = new long[ n ];
+			final long[] max = new long[ n ];
+			for ( int d = 0; d < n; ++d )
+			{
+				min[ d ] = target.min( d ) + blockIndex[ d ] * blockSize[ d ];
+				max[ d ] = Math.min( target.max( d ), min[ d ] + blockSize[ d ] - 1 );
+			}
+			final FinalInterval block = new FinalInterval( min, max );
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					downsampleBlock( source, target, block, factors, filter );
+				}
+			} );
+			for ( int d = 0; d < n; ++d )
+			{
+				if ( ++blockIndex[ d ] < numBlocks[ d ] )
+					break;
+				blockIndex[ d ] = 0;
+			}
+		}
+		SharedThreadPool.invokeAll( tasks, numThreads );
+	}
+
+	/**
+	 * Compute the target pixels in block.
+	 */
+	protected static < S extends RealType< S >, T extends RealType< T > > void downsampleBlock( final RandomAccessibleInterval< S > source, final RandomAccessibleInterval< T > target, final FinalInterval block, final int[] factors, final Filter filter )
+	{
+		final int n = target.numDimensions();
+
+		// the source pixels the block is computed from
+		final long[] sourceMin = new long[ n ];
+		final long[] sourceMax = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			sourceMin[ d ] = source.min( d ) + factors[ d ] * ( block.min( d ) - target.min( d ) );
+			sourceMax[ d ] = Math.min( source.max( d ), source.min( d ) + factors[ d ] * ( block.max( d ) - target.min( d ) ) + factors[ d ] - 1 );
+		}
+
+		if ( filter == Filter.GAUSSIAN )
+		{
+			final long[] dimensions = new long[ n ];
+			for ( int d = 0; d < n; ++d )
+				dimensions[ d ] = sourceMax[ d ] - sourceMin[ d ] + 1;
+			final ArrayImg< DoubleType, DoubleArray > smoothed = ArrayImgs.doubles( dimensions );
+			final RandomAccessibleInterval< DoubleType > translated = Views.translate( smoothed, sourceMin );
+			try
+			{
+				SeparableSymmetricConvolution.convolve( halfkernels( factors ), Views.extendMirrorSingle( source ), translated, 1 );
+			}
+			catch ( final IncompatibleTypeException e )
+			{
+				// cannot happen, source and DoubleType are both RealTypes
+				throw new IllegalStateException( e );
+			}
+			average( translated, source, target, block, factors );
+		}
+		else
+			average( source, source, target, block, factors );
+	}
+
+	/**
+	 * Average the blocks of input into the target pixels in block. Blocks
+	 * are cropped to the interval of source.
+	 */
+	protected static < T extends RealType< T > > void average( final RandomAccessible< ? extends RealType< ? > > input, final RandomAccessibleInterval< ? > source, final RandomAccessibleInterval< T > target, final FinalInterval block, final int[] factors )
+	{
+		final int n = target.numDimensions();
+		final long[] position = new long[ n ];
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		final RandomAccess< ? extends RealType< ? > > in = input.randomAccess();
+		final Cursor< T > cursor = Views.iterable( Views.interval( target, block ) ).localizingCursor();
+		while ( cursor.hasNext() )
+		{
+			cursor.fwd();
+			cursor.localize( position );
+			for ( int d = 0; d < n; ++d )
+			{
+				min[ d ] = source.min( d ) + factors[ d ] * ( position[ d ] - target.min( d ) );
+				max[ d ] = Math.min( source.max( d ), min[ d ] + factors[ d ] - 1 );
+			}
+			in.setPosition( min );
+			double sum = 0;
+			long count = 0;
+			while ( true )
+			{
+				sum += in.get().getRealDouble();
+				++count;
+				int d = 0;
+				for ( ; d < n; ++d )
+				{
+					if ( in.getLongPosition( d ) < max[ d ] )
+					{
+						in.fwd( d );
+						break;
+					}
+					in.setPosition( min[ d ], d );
+				}
+				if ( d == n )
+					break;
+			}
+			cursor.get().setReal( sum / count );
+		}
+	}
+
+	/**
+	 * Get the Gaussian half-kernels that are applied before averaging blocks
+	 * of the given size, &sigma;<sup>2</sup> = (f<sup>2</sup>-1)/6. Dimensions
+	 * that are not downsampled are not smoothed.
+	 */
+	public static double[][] halfkernels( final int[] factors )
+	{
+		final int n = factors.length;
+		final double[][] halfkernels = new double[ n ][];
+		for ( int d = 0; d < n; ++d )
+		{
+			if ( factors[ d ] <= 1 )
+				halfkernels[ d ] = new double[] { 1 };
+			else
+			{
+				final double sigma = Math.sqrt( ( factors[ d ] * factors[ d ] - 1 ) / 6.0 );
+				halfkernels[ d ] = Gauss3.halfkernels( new double[] { sigma } )[ 0 ];
+			}
+		}
+		return halfkernels;
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.rank;
+
+/**
+ * A {@link RankWindow} for integer values of a small range that counts the
+ * values in a histogram with one bin per value. The bin of the last query is
+ * remembered together with the number of values in lower bins, so that a
+ * query only walks the bins between the previous and the current result.
+ * Since the window is empty at the start of each line, the histogram is never
+ * cleared and the last bin carries over to the next line.
+ *
+ * @author ImgLib2 developers
+ */
+final class HistogramRankWindow implements RankWindow
+{
+	private final long minValue;
+
+	private final int[] histogram;
+
+	private double[] values;
+
+	/**
+	 * The bin of the last result.
+	 */
+	private int current;
+
+	/**
+	 * The number of values in the bins below current.
+	 */
+	private int below;
+
+	/**
+	 * @param minValue
+	 *            the smallest value that will be added.
+	 * @param numBins
+	 *            the number of values in the range.
+	 */
+	public HistogramRankWindow( final long minValue, final int numBins )
+	{
+		this.minValue = minValue;
+		this.histogram = new int[ numBins ];
+	}
+
+	@Override
+	public void init( final double[] values, final int n )
+	{
+		// the histogram is already empty, and the bin of the last result is
+		// kept as the starting point of the next search
+		this.values = values;
+	}
+
+	@Override
+	public void add( final int i )
+	{
+		final int bin = ( int ) ( ( long ) values[ i ] - minValue );
+		++histogram[ bin ];
+		if ( bin < current )
+			++below;
+	}
+
+	@Override
+	public void remove( final int i )
+	{
+		final int bin = ( int ) ( ( long ) values[ i ] - minValue );
+		--histogram[ bin ];
+		if ( bin < current )
+			--below;
+	}
+
+	@Override
+	public double get( final int k )
+	{
+		while ( below > k )
+			below -= histogram[ --current ];
+		while ( below + histogram[ current ] <= k )
+			below += histogram[ current++ ];
+		return current + minValue;
+	}
+}
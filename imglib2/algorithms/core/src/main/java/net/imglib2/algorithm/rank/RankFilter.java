@@ -0,0 +1,297 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.rank;
+
+import java.util.ArrayList;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.algorithm.region.localneighborhood.RectangleShape;
+import net.imglib2.multithreading.SharedThreadPool;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.IntervalIndexer;
+
+/**
+ * Rank filters (median, minimum, maximum, arbitrary quantiles) over
+ * {@link RectangleShape} neighborhoods in n dimensions.
+ *
+ * <p>
+ * The neighborhood is moved along dimension 0 as a sliding window. In each
+ * step, the (n-1)-dimensional slab of values entering the window is added and
+ * the slab leaving it is removed, so the cost per pixel is proportional to
+ * span<sup>n-1</sup> instead of span<sup>n</sup>. Integer types with at most
+ * {@link #MAX_HISTOGRAM_BINS} values are counted in a histogram. For other
+ * types, the values that pass through the window along a line are sorted once
+ * and counted by rank in a Fenwick tree, which adds a factor of log(number of
+ * values in the line) to the cost per pixel.
+ * </p>
+ *
+ * <p>
+ * The lines along dimension 0 are distributed over several threads. The source
+ * has to be defined in the neighborhood of every target pixel, e.g. by
+ * extending it with {@link net.imglib2.view.Views#extendMirrorSingle}.
+ * </p>
+ *
+ * @author ImgLib2 developers
+ */
+public class RankFilter
+{
+	/**
+	 * Integer types with at most this many values are counted in a histogram.
+	 */
+	public static final int MAX_HISTOGRAM_BINS = 1 << 16;
+
+	/**
+	 * Median filter.
+	 *
+	 * @param source
+	 *            source image, must be sufficiently padded.
+	 * @param target
+	 *            target image.
+	 * @param shape
+	 *            the neighborhood.
+	 */
+	public static < S extends RealType< S >, T extends RealType< T > > void median( final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final RectangleShape shape )
+	{
+		quantile( 0.5, source, target, shape );
+	}
+
+	/**
+	 * Minimum filter.
+	 *
+	 * @param source
+	 *            source image, must be sufficiently padded.
+	 * @param target
+	 *            target image.
+	 * @param shape
+	 *            the neighborhood.
+	 */
+	public static < S extends RealType< S >, T extends RealType< T > > void min( final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final RectangleShape shape )
+	{
+		quantile( 0, source, target, shape );
+	}
+
+	/**
+	 * Maximum filter.
+	 *
+	 * @param source
+	 *            source image, must be sufficiently padded.
+	 * @param target
+	 *            target image.
+	 * @param shape
+	 *            the neighborhood.
+	 */
+	public static < S extends RealType< S >, T extends RealType< T > > void max( final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final RectangleShape shape )
+	{
+		quantile( 1, source, target, shape );
+	}
+
+	/**
+	 * Quantile filter using the default number of threads.
+	 *
+	 * @param quantile
+	 *            the quantile in [0, 1]. The value of rank round(quantile *
+	 *            (n - 1)) of the n values in the neighborhood is taken.
+	 * @param source
+	 *            source image, must be sufficiently padded.
+	 * @param target
+	 *            target image.
+	 * @param shape
+	 *            the neighborhood.
+	 */
+	public static < S extends RealType< S >, T extends RealType< T > > void quantile( final double quantile, final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final RectangleShape shape )
+	{
+		quantile( quantile, source, target, shape, SharedThreadPool.getParallelism() );
+	}
+
+	/**
+	 * Quantile filter.
+	 *
+	 * @param quantile
+	 *            the quantile in [0, 1]. The value of rank round(quantile *
+	 *            (n - 1)) of the n values in the neighborhood is taken.
+	 * @param source
+	 *            source image, must be sufficiently padded.
+	 * @param target
+	 *            target image.
+	 * @param shape
+	 *            the neighborhood.
+	 * @param numThreads
+	 *            how many threads to use for the computation.
+	 */
+	public static < S extends RealType< S >, T extends RealType< T > > void quantile( final double quantile, final RandomAccessible< S > source, final RandomAccessibleInterval< T > target, final RectangleShape shape, final int numThreads )
+	{
+		final int n = target.numDimensions();
+		final int span = shape.getSpan();
+		final boolean skipCenter = shape.isSkippingCenter();
+		final int width = 2 * span + 1;
+
+		// the slab of values that enters (leaves) the window when it moves along dimension 0
+		int slabSize = 1;
+		for ( int d = 1; d < n; ++d )
+			slabSize *= width;
+		final int windowSize = slabSize * width - ( skipCenter ? 1 : 0 );
+		final int rank = ( int ) Math.round( Math.max( 0, Math.min( 1, quantile ) ) * ( windowSize - 1 ) );
+
+		final long[] offsets = new long[ slabSize * n ];
+		final long[] slabDimensions = new long[ n ];
+		slabDimensions[ 0 ] = 1;
+		for ( int d = 1; d < n; ++d )
+			slabDimensions[ d ] = width;
+		final long[] offset = new long[ n ];
+		for ( int i = 0; i < slabSize; ++i )
+		{
+			IntervalIndexer.indexToPosition( i, slabDimensions, offset );
+			for ( int d = 1; d < n; ++d )
+				offsets[ i * n + d ] = offset[ d ] - span;
+		}
+
+		// choose the window implementation by the source type
+		final long[] min = new long[ n ];
+		target.min( min );
+		final RandomAccess< S > typeAccess = source.randomAccess();
+		typeAccess.setPosition( min );
+		final S type = typeAccess.get();
+		final boolean histogram = type instanceof IntegerType && type.getMaxValue() - type.getMinValue() < MAX_HISTOGRAM_BINS;
+		final long minValue = ( long ) type.getMinValue();
+		final int numBins = histogram ? ( int ) ( type.getMaxValue() - type.getMinValue() ) + 1 : 0;
+
+		// lines along dimension 0
+		final long[] lineDimensions = new long[ n ];
+		target.dimensions( lineDimensions );
+		lineDimensions[ 0 ] = 1;
+		long numLines = 1;
+		for ( int d = 1; d < n; ++d )
+			numLines *= lineDimensions[ d ];
+		final long lineLength = target.dimension( 0 );
+
+		// the values of all slabs that pass through the window along a line
+		final int numLineSlabs = ( int ) lineLength + 2 * span;
+		final int numLineValues = numLineSlabs * slabSize;
+		// index of the center in a slab
+		final int slabCenter = ( slabSize - 1 ) / 2;
+
+		final int numTasks = ( int ) Math.max( 1, Math.min( numLines, numThreads ) );
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >( numTasks );
+		for ( int t = 0; t < numTasks; ++t )
+		{
+			final long firstLine = numLines * t / numTasks;
+			final long lastLine = numLines * ( t + 1 ) / numTasks;
+			final int numSlabValues = slabSize;
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					final RankWindow window = histogram ? new HistogramRankWindow( minValue, numBins ) : new SortedRankWindow( numLineValues );
+
+					@SuppressWarnings( { "unchecked", "rawtypes" } )
+					final RandomAccess< S >[] slab = new RandomAccess[ numSlabValues ];
+					for ( int i = 0; i < numSlabValues; ++i )
+						slab[ i ] = source.randomAccess();
+					final RandomAccess< T > out = target.randomAccess();
+					final double[] values = new double[ numLineValues ];
+					final long[] position = new long[ n ];
+
+					for ( long line = firstLine; line < lastLine; ++line )
+					{
+						IntervalIndexer.indexToPositionWithOffset( line, lineDimensions, min, position );
+
+						// read all values of the line
+						for ( int i = 0; i < numSlabValues; ++i )
+						{
+							for ( int d = 1; d < n; ++d )
+								slab[ i ].setPosition( position[ d ] + offsets[ i * n + d ], d );
+							slab[ i ].setPosition( position[ 0 ] - span, 0 );
+						}
+						for ( int x = 0; x < numLineSlabs; ++x )
+							readSlab( slab, values, x * numSlabValues );
+						window.init( values, numLineValues );
+						out.setPosition( position );
+
+						// fill the window up to the slab before the last one
+						for ( int i = 0; i < 2 * span * numSlabValues; ++i )
+							window.add( i );
+
+						for ( int x = 0; x < lineLength; ++x )
+						{
+							final int entering = ( x + 2 * span ) * numSlabValues;
+							for ( int i = 0; i < numSlabValues; ++i )
+								window.add( entering + i );
+
+							if ( skipCenter )
+							{
+								final int c = ( x + span ) * numSlabValues + slabCenter;
+								window.remove( c );
+								out.get().setReal( window.get( rank ) );
+								window.add( c );
+							}
+							else
+								out.get().setReal( window.get( rank ) );
+
+							final int leaving = x * numSlabValues;
+							for ( int i = 0; i < numSlabValues; ++i )
+								window.remove( leaving + i );
+							out.fwd( 0 );
+						}
+
+						// empty the window for the next line
+						for ( int i = ( int ) lineLength * numSlabValues; i < numLineValues; ++i )
+							window.remove( i );
+					}
+				}
+			} );
+		}
+
+		SharedThreadPool.invokeAll( tasks, numThreads );
+	}
+
+	/**
+	 * Read the values of a slab into values, starting at offset, and move the
+	 * slab one step along dimension 0.
+	 */
+	private static < S extends RealType< S > > void readSlab( final RandomAccess< S >[] slab, final double[] values, final int offset )
+	{
+		for ( int i = 0; i < slab.length; ++i )
+		{
+			values[ offset + i ] = slab[ i ].get().getRealDouble();
+			slab[ i ].fwd( 0 );
+		}
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.rank;
+
+import java.util.Arrays;
+
+/**
+ * A {@link RankWindow} for arbitrary values. The values of a line are sorted
+ * once by {@link #init(double[], int)}, which assigns each value the slot of
+ * its rank among the distinct values. The window counts the values per slot
+ * in a Fenwick tree, so adding or removing a value and querying the k-th
+ * smallest value each take O(log n) for n values in the line.
+ *
+ * @author ImgLib2 developers
+ */
+final class SortedRankWindow implements RankWindow
+{
+	/**
+	 * The distinct values of the line in ascending order.
+	 */
+	private final double[] sorted;
+
+	/**
+	 * The slot in {@link #sorted} of each value of the line.
+	 */
+	private final int[] slots;
+
+	/**
+	 * Fenwick tree of the number of values per slot. Entry s (starting at 1)
+	 * holds the count of the slots s - lowestOneBit(s) to s - 1.
+	 */
+	private final int[] tree;
+
+	private int numSlots;
+
+	/**
+	 * The highest power of two not exceeding {@link #numSlots}.
+	 */
+	private int highestBit;
+
+	/**
+	 * @param capacity
+	 *            the maximal number of values in a line.
+	 */
+	public SortedRankWindow( final int capacity )
+	{
+		sorted = new double[ capacity ];
+		slots = new int[ capacity ];
+		tree = new int[ capacity + 1 ];
+	}
+
+	@Override
+	public void init( final double[] values, final int n )
+	{
+		System.arraycopy( values, 0, sorted, 0, n );
+		Arrays.sort( sorted, 0, n );
+		numSlots = 0;
+		for ( int i = 0; i < n; ++i )
+			if ( numSlots == 0 || Double.compare( sorted[ i ], sorted[ numSlots - 1 ] ) != 0 )
+				sorted[ numSlots++ ] = sorted[ i ];
+		for ( int i = 0; i < n; ++i )
+			slots[ i ] = Arrays.binarySearch( sorted, 0, numSlots, values[ i ] );
+		Arrays.fill( tree, 0, numSlots + 1, 0 );
+		highestBit = Integer.highestOneBit( numSlots );
+	}
+
+	@Override
+	public void add( final int i )
+	{
+		for ( int s = slots[ i ] + 1; s <= numSlots; s += s & -s )
+			++tree[ s ];
+	}
+
+	@Override
+	public void remove( final int i )
+	{
+		for ( int s = slots[ i ] + 1; s <= numSlots; s += s & -s )
+			--tree[ s ];
+	}
+
+	@Override
+	public double get( final int k )
+	{
+		// find the largest prefix of slots that holds at most k values
+		int slot = 0;
+		int remaining = k;
+		for ( int bit = highestBit; bit > 0; bit >>= 1 )
+		{
+			final int next = slot + bit;
+			if ( next <= numSlots && tree[ next ] <= remaining )
+			{
+				slot = next;
+				remaining -= tree[ next ];
+			}
+		}
+		return sorted[ slot ];
+	}
+}
@@ -37,6 +37,23 @@ public class RectangleShape implements Shape
 		this.skipCenter = skipCenter;
 	}
 
+	/**
+	 * @return the span of the rectangle, i.e. its size is 2 * span + 1 in
+	 *         every dimension.
+	 */
+	public int getSpan()
+	{
+		return span;
+	}
+
+	/**
+	 * @return whether the center pixel is excluded from the neighborhood.
+	 */
+	public boolean isSkippingCenter()
+	{
+		return skipCenter;
+	}
+
 	@Override
 	public < T > NeighborhoodsAccessible< T > neighborhoods( final RandomAccessibleInterval< T > source )
 	{
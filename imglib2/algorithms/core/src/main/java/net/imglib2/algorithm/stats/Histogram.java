@@ -38,21 +38,40 @@ package net.imglib2.algorithm.stats;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 
+import net.imglib2.IterableInterval;
 import net.imglib2.RealCursor;
 import net.imglib2.algorithm.Algorithm;
 import net.imglib2.algorithm.Benchmark;
+import net.imglib2.algorithm.MultiThreaded;
 import net.imglib2.img.Img;
+import net.imglib2.multithreading.SharedThreadPool;
+import net.imglib2.multithreading.SimpleMultiThreading;
 import net.imglib2.type.Type;
 
 /**
  * Implements a Histogram over an Image.
+ * <p>
+ * Bin counts are stored as longs. If the Histogram is calculated from an
+ * {@link IterableInterval}, the interval is split into parts (whole cells for a
+ * {@link net.imglib2.img.cell.CellImg}) that are counted by several threads
+ * into partial histograms, which are merged afterwards. Histograms can also be
+ * updated incrementally by adding or subtracting the values of a region, or
+ * merged with other Histograms.
+ * </p>
  *
  * @author 2011 Larry Lindsey
  * @author Larry Lindsey
  */
-public class Histogram <T> implements Algorithm, Benchmark
+public class Histogram <T> implements Algorithm, Benchmark, MultiThreaded
 {
+	/**
+	 * Regions with less elements are counted by a single thread.
+	 */
+	private static final long MIN_PARALLEL_SIZE = 1 << 16;
+
 	/**
 	 * Processing time, milliseconds.
 	 */
@@ -61,12 +80,19 @@ public class Histogram <T> implements Algorithm, Benchmark
 	/**
 	 * Hold the histogram itself.
 	 */
-	private final int[] histogram;
+	private final long[] histogram;
 	
 	/**
-	 * The Cursor from which the histogram is to be calculated.
+	 * The Cursor from which the histogram is to be calculated, or null if it
+	 * is calculated from an IterableInterval.
 	 */
 	private final RealCursor<T> cursor;
+
+	/**
+	 * The IterableInterval from which the histogram is to be calculated, or
+	 * null.
+	 */
+	private final IterableInterval<T> interval;
 	
 	/**
 	 * The HistogramBinMapper, used to map Type values to histogram bin
@@ -74,6 +100,8 @@ public class Histogram <T> implements Algorithm, Benchmark
 	 */
 	private final HistogramBinMapper<T> binMapper;	
 
+	private int numThreads;
+
 	/**
 	 * Create a Histogram using the given mapper, calculating from the given
 	 * Cursor.
@@ -86,9 +114,7 @@ public class Histogram <T> implements Algorithm, Benchmark
 	public Histogram(final HistogramBinMapper<T> mapper,
 			final RealCursor<T> c)
 	{		
-		cursor = c;
-		binMapper = mapper;
-		histogram = new int[binMapper.getNumBins()];
+		this(mapper, c, null);
 	}
 	
 	/**
@@ -102,7 +128,42 @@ public class Histogram <T> implements Algorithm, Benchmark
 	public Histogram(final HistogramBinMapper<T> mapper,
 			final Img<T> image)
 	{
-		this(mapper, image.cursor());
+		this(mapper, null, image);
+	}
+
+	/**
+	 * Create a Histogram using the given mapper, calculating from the given
+	 * IterableInterval with several threads.
+	 * @param mapper the HistogramBinMapper used to map Type values to 
+	 * histogram bin indices. 
+	 * @param interval the IterableInterval from which the Histogram will be
+	 * calculated
+	 */
+	public Histogram(final HistogramBinMapper<T> mapper,
+			final IterableInterval<T> interval)
+	{
+		this(mapper, null, interval);
+	}
+
+	/**
+	 * Create an empty Histogram using the given mapper. Values are counted
+	 * by {@link #add(Iterable)}.
+	 * @param mapper the HistogramBinMapper used to map Type values to 
+	 * histogram bin indices. 
+	 */
+	public Histogram(final HistogramBinMapper<T> mapper)
+	{
+		this(mapper, null, null);
+	}
+
+	private Histogram(final HistogramBinMapper<T> mapper,
+			final RealCursor<T> c, final IterableInterval<T> interval)
+	{
+		cursor = c;
+		this.interval = interval;
+		binMapper = mapper;
+		histogram = new long[binMapper.getNumBins()];
+		setNumThreads();
 	}
 	
 	/**
@@ -111,28 +172,81 @@ public class Histogram <T> implements Algorithm, Benchmark
 	public void reset()
 	{
 		Arrays.fill(histogram, 0);
-		cursor.reset();
+		if (cursor != null)
+		{
+			cursor.reset();
+		}
+	}
+
+	/**
+	 * Counts the values of the given region, e.g. when a sliding window
+	 * moves onto it.
+	 * @param region the values to count.
+	 */
+	public void add(final Iterable<T> region)
+	{
+		accumulate(region, 1);
+	}
+
+	/**
+	 * Removes the values of the given region, which have to be counted
+	 * before, e.g. when a sliding window moves off it.
+	 * @param region the values to remove.
+	 */
+	public void subtract(final Iterable<T> region)
+	{
+		accumulate(region, -1);
+	}
+
+	/**
+	 * Adds the bin counts of another Histogram with the same number of bins
+	 * to this Histogram.
+	 * @param other the Histogram to merge into this one.
+	 */
+	public void add(final Histogram<T> other)
+	{
+		if (other.histogram.length != histogram.length)
+		{
+			throw new IllegalArgumentException("Cannot merge histograms with " +
+					other.histogram.length + " and " + histogram.length +
+					" bins.");
+		}
+		for (int i = 0; i < histogram.length; ++i)
+		{
+			histogram[i] += other.histogram[i];
+		}
 	}
 	
 	/**
 	 * Returns the bin count corresponding to a given {@link Type}.
 	 * @param t the Type corresponding to the requested 
-	 * @return The requested bin count.
+	 * @return The requested bin count, or Integer.MAX_VALUE if it is larger.
 	 */
 	public int getBin(final T t)
 	{
-		return getHistogram()[binMapper.map(t)];
+		return getBin(binMapper.map(t));
 	}
 
 	/**
 	 * Returns the bin count given by the indicated bin index.
 	 * @param i the index of the requested bin
-	 * @return the bin count at the given index
+	 * @return the bin count at the given index, or Integer.MAX_VALUE if it is
+	 * larger.
 	 */
 	public int getBin(int i)
     {
-        return getHistogram()[i];
+        return saturate(histogram[i]);
     }
+
+	/**
+	 * Returns the bin count given by the indicated bin index.
+	 * @param i the index of the requested bin
+	 * @return the bin count at the given index
+	 */
+	public long getLongBin(final int i)
+	{
+		return histogram[i];
+	}
 	
 	/**
 	 * Returns this Histogram's HistogramBinMapper.
@@ -144,14 +258,30 @@ public class Histogram <T> implements Algorithm, Benchmark
 	}
 	
 	/**
-	 * Returns the histogram array.
+	 * Returns a copy of the histogram array. Bin counts larger than
+	 * Integer.MAX_VALUE are clamped, use {@link #getLongHistogram()} for
+	 * large images.
 	 * @return the histogram array.
 	 */
 	public int[] getHistogram()
 	{
-		return histogram; 
+		final int[] h = new int[histogram.length];
+		for (int i = 0; i < h.length; ++i)
+		{
+			h[i] = saturate(histogram[i]);
+		}
+		return h;
 	}
-	
+
+	/**
+	 * Returns the histogram array.
+	 * @return the histogram array.
+	 */
+	public long[] getLongHistogram()
+	{
+		return histogram;
+	}
+
 	/**
 	 * Creates and returns the a Type whose value corresponds to the center
 	 * of the bin indexed by i.
@@ -203,12 +333,93 @@ public class Histogram <T> implements Algorithm, Benchmark
 	@Override
 	public boolean process() {
 		long startTime = System.currentTimeMillis();
-		int index;
+
+		if (interval != null)
+		{
+			Arrays.fill(histogram, 0);
+			accumulate(interval, 1);
+		}
+		else if (cursor != null)
+		{
+			count(cursor, histogram, 1);
+		}
 		
-		while (cursor.hasNext())
-		{			
-			cursor.fwd();
-			index = binMapper.map(cursor.get());
+		pTime = System.currentTimeMillis() - startTime;
+		return true;
+	}
+
+	@Override
+	public long getProcessingTime() {		
+		return pTime;
+	}
+
+	@Override
+	public void setNumThreads() {
+		numThreads = SharedThreadPool.getParallelism();
+	}
+
+	@Override
+	public void setNumThreads(final int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	@Override
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	/**
+	 * Adds increment to the bins of all values. Large IterableIntervals are
+	 * split into parts which are counted into partial histograms by several
+	 * threads.
+	 */
+	private void accumulate(final Iterable<T> values, final long increment)
+	{
+		if (numThreads > 1 && values instanceof IterableInterval &&
+				((IterableInterval<T>) values).size() >= MIN_PARALLEL_SIZE)
+		{
+			final List<IterableInterval<T>> parts = SimpleMultiThreading.split(
+					(IterableInterval<T>) values, numThreads);
+			final long[][] partials = new long[parts.size()][];
+			final ArrayList<Runnable> tasks = new ArrayList<Runnable>(
+					parts.size());
+
+			for (int i = 0; i < parts.size(); ++i)
+			{
+				final int part = i;
+				tasks.add(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						partials[part] = new long[histogram.length];
+						count(parts.get(part).cursor(), partials[part], 1);
+					}
+				});
+			}
+
+			SharedThreadPool.invokeAll(tasks, numThreads);
+
+			for (final long[] partial : partials)
+			{
+				for (int i = 0; i < histogram.length; ++i)
+				{
+					histogram[i] += increment * partial[i];
+				}
+			}
+		}
+		else
+		{
+			count(values.iterator(), histogram, increment);
+		}
+	}
+
+	private void count(final Iterator<T> values, final long[] counts,
+			final long increment)
+	{
+		while (values.hasNext())
+		{
+			final int index = binMapper.map(values.next());
 			/*
 		    The following check makes this run for IntegerTypes at 3 to 4
 		    longer than the manual case on my machine.  This is a necessary
@@ -216,19 +427,16 @@ public class Histogram <T> implements Algorithm, Benchmark
 		    separate out an UncheckedHistogram, which would instead throw an
 		    ArrayOutOfBoundsException.
 			*/
-			if (index >=0 && index < histogram.length)
+			if (index >=0 && index < counts.length)
 			{
-			    ++histogram[index];
+			    counts[index] += increment;
 			}
 		}
-		
-		pTime = System.currentTimeMillis() - startTime;
-		return true;
 	}
 
-	@Override
-	public long getProcessingTime() {		
-		return pTime;
+	private static int saturate(final long count)
+	{
+		return (int) Math.min(count, Integer.MAX_VALUE);
 	}
 	
 }
@@ -0,0 +1,236 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.componenttree.mser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.Localizable;
+import net.imglib2.RandomAccess;
+import net.imglib2.algorithm.componenttree.ComponentTree;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.util.IntervalIndexer;
+
+import org.junit.Test;
+
+/**
+ * Compares MSER computed with {@link net.imglib2.algorithm.componenttree.IntegerComponentTree}
+ * to MSER computed with the generic {@link ComponentTree}, and checks MSER
+ * computed in blocks.
+ *
+ * @author ImgLib2 developers
+ */
+public class MserTreeTest
+{
+	final long[] dimensions = new long[] { 128, 96 };
+
+	final long delta = 200;
+
+	final long minSize = 5;
+
+	final long maxSize = 2000;
+
+	final double maxVar = 0.8;
+
+	final double minDiversity = 0.1;
+
+	/**
+	 * Create an image of bright Gaussian blobs centered in 32x32 blocks. To
+	 * make the component tree unique, pixel values are the ranks of the blob
+	 * intensities plus some noise, i.e., every value occurs only once.
+	 */
+	Img< UnsignedShortType > createImg()
+	{
+		final Img< UnsignedShortType > img = new ArrayImgFactory< UnsignedShortType >().create( dimensions, new UnsignedShortType() );
+		final Random random = new Random( 0 );
+		final double[] sigmas = new double[] { 2, 3, 4, 5 };
+		final ArrayList< double[] > values = new ArrayList< double[] >();
+		final Cursor< UnsignedShortType > c = img.localizingCursor();
+		for ( int i = 0; c.hasNext(); ++i )
+		{
+			c.fwd();
+			final long x = c.getLongPosition( 0 );
+			final long y = c.getLongPosition( 1 );
+			final double dx = x % 32 - 15.5;
+			final double dy = y % 32 - 15.5;
+			final double sigma = sigmas[ ( int ) ( ( x / 32 + y / 32 ) % 4 ) ];
+			final double v = 200 * Math.exp( -( dx * dx + dy * dy ) / ( 2 * sigma * sigma ) ) + 20 * random.nextDouble();
+			values.add( new double[] { v, i } );
+		}
+		Collections.sort( values, new Comparator< double[] >()
+		{
+			@Override
+			public int compare( final double[] o1, final double[] o2 )
+			{
+				return Double.compare( o1[ 0 ], o2[ 0 ] );
+			}
+		} );
+		final RandomAccess< UnsignedShortType > a = img.randomAccess();
+		final long[] position = new long[ dimensions.length ];
+		for ( int rank = 0; rank < values.size(); ++rank )
+		{
+			IntervalIndexer.indexToPosition( ( long ) values.get( rank )[ 1 ], dimensions, position );
+			a.setPosition( position );
+			a.get().set( rank );
+		}
+		return img;
+	}
+
+	static String describe( final Mser< UnsignedShortType > mser )
+	{
+		return String.format( "%d %d %.6f %.6f %.6f", mser.value().get(), mser.size(), mser.mean()[ 0 ], mser.mean()[ 1 ], mser.score() );
+	}
+
+	static ArrayList< String > describe( final Iterable< Mser< UnsignedShortType > > msers )
+	{
+		final ArrayList< String > list = new ArrayList< String >();
+		for ( final Mser< UnsignedShortType > mser : msers )
+			list.add( describe( mser ) );
+		Collections.sort( list );
+		return list;
+	}
+
+	@Test
+	public void testIntegerComponentTree()
+	{
+		final Img< UnsignedShortType > img = createImg();
+		for ( final boolean darkToBright : new boolean[] { true, false } )
+		{
+			final UnsignedShortType deltaT = new UnsignedShortType( ( int ) delta );
+			final UnsignedShortType max = new UnsignedShortType( darkToBright ? 65535 : 0 );
+			final ComputeDelta< UnsignedShortType > computeDelta = darkToBright ? new ComputeDeltaDarkToBright< UnsignedShortType >( deltaT ) : new ComputeDeltaBrightToDark< UnsignedShortType >( deltaT );
+			final Comparator< UnsignedShortType > comparator = darkToBright ? new ComponentTree.DarkToBright< UnsignedShortType >() : new ComponentTree.BrightToDark< UnsignedShortType >();
+			final MserTree< UnsignedShortType > expected = MserTree.buildMserTree( img, computeDelta, minSize, maxSize, maxVar, minDiversity, max, comparator );
+			final MserTree< UnsignedShortType > tree = MserTree.buildMserTree( img, delta, minSize, maxSize, maxVar, minDiversity, darkToBright );
+			assertTrue( expected.size() > 0 );
+			assertEquals( describe( expected ), describe( tree ) );
+			assertEquals( expected.roots().size(), tree.roots().size() );
+		}
+	}
+
+	/**
+	 * Compute the connected component of pixels with values greater or equal
+	 * to <em>threshold</em> containing <em>seed</em>.
+	 */
+	static HashSet< Integer > connectedComponent( final Img< UnsignedShortType > img, final long[] seed, final int threshold )
+	{
+		final int w = ( int ) img.dimension( 0 );
+		final int h = ( int ) img.dimension( 1 );
+		final int[] values = new int[ w * h ];
+		int i = 0;
+		for ( final UnsignedShortType t : img )
+			values[ i++ ] = t.get();
+		final HashSet< Integer > component = new HashSet< Integer >();
+		final ArrayDeque< Integer > queue = new ArrayDeque< Integer >();
+		queue.add( ( int ) ( seed[ 1 ] * w + seed[ 0 ] ) );
+		while ( !queue.isEmpty() )
+		{
+			final int index = queue.poll();
+			if ( values[ index ] < threshold || !component.add( index ) )
+				continue;
+			final int x = index % w;
+			final int y = index / w;
+			if ( x > 0 )
+				queue.add( index - 1 );
+			if ( x < w - 1 )
+				queue.add( index + 1 );
+			if ( y > 0 )
+				queue.add( index - w );
+			if ( y < h - 1 )
+				queue.add( index + w );
+		}
+		return component;
+	}
+
+	@Test
+	public void testBlocks()
+	{
+		final Img< UnsignedShortType > img = createImg();
+
+		// a single block gives the same result as the whole image
+		final MserTree< UnsignedShortType > full = MserTree.buildMserTree( img, delta, minSize, maxSize, maxVar, minDiversity, false );
+		final MserTree< UnsignedShortType > single = MserTree.buildMserTreeInBlocks( img, delta, minSize, maxSize, maxVar, minDiversity, false, dimensions, new long[] { 0, 0 }, 4 );
+		assertEquals( describe( full ), describe( single ) );
+
+		// MSER of 48x48 blocks with a halo of 24 are connected components of
+		// the whole image (for the threshold given by their minimum value),
+		// every component is found only once, and blobs centered on the block
+		// borders are found
+		final int w = ( int ) dimensions[ 0 ];
+		final MserTree< UnsignedShortType > tree = MserTree.buildMserTreeInBlocks( img, delta, minSize, maxSize, maxVar, minDiversity, false, new long[] { 48, 48 }, new long[] { 24, 24 }, 4 );
+		assertTrue( tree.size() >= 12 );
+		final HashSet< HashSet< Integer > > regions = new HashSet< HashSet< Integer > >();
+		boolean foundAcrossBorder = false;
+		final long[] seed = new long[ 2 ];
+		final RandomAccess< UnsignedShortType > a = img.randomAccess();
+		for ( final Mser< UnsignedShortType > mser : tree )
+		{
+			final HashSet< Integer > pixels = new HashSet< Integer >();
+			final double[] mean = new double[ 2 ];
+			int minValue = Integer.MAX_VALUE;
+			boolean left = false, right = false;
+			for ( final Localizable l : mser )
+			{
+				l.localize( seed );
+				a.setPosition( seed );
+				minValue = Math.min( minValue, a.get().get() );
+				for ( int d = 0; d < 2; ++d )
+					mean[ d ] += seed[ d ];
+				left |= seed[ 0 ] == 47;
+				right |= seed[ 0 ] == 48;
+				pixels.add( ( int ) ( seed[ 1 ] * w + seed[ 0 ] ) );
+			}
+			foundAcrossBorder |= left && right;
+			assertEquals( mser.size(), pixels.size() );
+			assertEquals( connectedComponent( img, seed, minValue ), pixels );
+			assertTrue( regions.add( pixels ) );
+			for ( int d = 0; d < 2; ++d )
+				assertEquals( mean[ d ] / mser.size(), mser.mean()[ d ], 1e-6 );
+		}
+		assertTrue( foundAcrossBorder );
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.gauss3;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Compares tiled and untiled {@link SeparableSymmetricConvolution}.
+ *
+ * @author ImgLib2 developers
+ */
+public class SeparableSymmetricConvolutionTest
+{
+	private static Img< FloatType > createRandom( final long... dimensions )
+	{
+		final Img< FloatType > img = new ArrayImgFactory< FloatType >().create( dimensions, new FloatType() );
+		final Random random = new Random( 1 );
+		for ( final FloatType t : img )
+			t.set( random.nextFloat() );
+		return img;
+	}
+
+	private static void testTiled( final long[] dimensions, final double[] sigma, final int[] blockSize ) throws IncompatibleTypeException
+	{
+		final Img< FloatType > source = createRandom( dimensions );
+		final Img< DoubleType > expected = new ArrayImgFactory< DoubleType >().create( dimensions, new DoubleType() );
+		final Img< DoubleType > tiled = new CellImgFactory< DoubleType >( 7 ).create( dimensions, new DoubleType() );
+
+		final ExecutorService service = Executors.newFixedThreadPool( 3 );
+		try
+		{
+			Gauss3.gauss( sigma, Views.extendMirrorSingle( source ), expected, service );
+			Gauss3.gaussTiled( sigma, Views.extendMirrorSingle( source ), tiled, blockSize, service );
+		}
+		finally
+		{
+			service.shutdown();
+		}
+
+		final Cursor< DoubleType > c = expected.localizingCursor();
+		final RandomAccess< DoubleType > a = tiled.randomAccess();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			a.setPosition( c );
+			assertEquals( c.get().get(), a.get().get(), 1e-10 );
+		}
+	}
+
+	@Test
+	public void testTiled1D() throws IncompatibleTypeException
+	{
+		testTiled( new long[] { 100 }, new double[] { 2 }, new int[] { 17 } );
+	}
+
+	@Test
+	public void testTiled2D() throws IncompatibleTypeException
+	{
+		testTiled( new long[] { 53, 41 }, new double[] { 2, 3.5 }, new int[] { 16, 10 } );
+	}
+
+	@Test
+	public void testTiled3D() throws IncompatibleTypeException
+	{
+		testTiled( new long[] { 31, 22, 19 }, new double[] { 1.5, 2, 3 }, new int[] { 8, 9, 30 } );
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+
+package net.imglib2.algorithm.integral;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.converter.Converter;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.real.DoubleType;
+
+import org.junit.Test;
+
+/**
+ * Compares {@link IntegralImg} and {@link IntegralBoxFilter} to summing up
+ * the pixels directly.
+ *
+ * @author ImgLib2 developers
+ */
+public class IntegralBoxFilterTest
+{
+	final long[] dimensions = new long[] { 13, 9, 7 };
+
+	Img< UnsignedByteType > createImg()
+	{
+		final Img< UnsignedByteType > img = new ArrayImgFactory< UnsignedByteType >().create( dimensions, new UnsignedByteType() );
+		final Random random = new Random( 0 );
+		for ( final UnsignedByteType t : img )
+			t.set( random.nextInt( 256 ) );
+		return img;
+	}
+
+	/**
+	 * sum of the values (or squared values) in the box [min, max].
+	 */
+	static long sum( final Img< UnsignedByteType > img, final long[] min, final long[] max, final boolean squared )
+	{
+		long sum = 0;
+		final Cursor< UnsignedByteType > c = img.localizingCursor();
+		A: while ( c.hasNext() )
+		{
+			final long v = c.next().get();
+			for ( int d = 0; d < min.length; ++d )
+				if ( c.getLongPosition( d ) < min[ d ] || c.getLongPosition( d ) > max[ d ] )
+					continue A;
+			sum += squared ? v * v : v;
+		}
+		return sum;
+	}
+
+	@Test
+	public void testIntegralImgWithSquaredSums()
+	{
+		final Img< UnsignedByteType > img = createImg();
+		final Converter< UnsignedByteType, LongType > converter = new Converter< UnsignedByteType, LongType >()
+		{
+			@Override
+			public void convert( final UnsignedByteType input, final LongType output )
+			{
+				output.set( input.get() );
+			}
+		};
+
+		final IntegralImg< UnsignedByteType, LongType > generic = new IntegralImg< UnsignedByteType, LongType >( img, new LongType(), converter, true );
+		generic.setNumThreads( 4 );
+		generic.process();
+		final IntegralImgLong< UnsignedByteType > primitive = new IntegralImgLong< UnsignedByteType >( img, new LongType(), converter, true );
+		primitive.setNumThreads( 3 );
+		primitive.process();
+
+		final long[] min = new long[ 3 ];
+		final long[] max = new long[ 3 ];
+		final long[] position = new long[ 3 ];
+		final RandomAccess< LongType > a1 = generic.getResult().randomAccess();
+		final RandomAccess< LongType > a2 = generic.getSquaredResult().randomAccess();
+		final RandomAccess< LongType > a3 = primitive.getResult().randomAccess();
+		final RandomAccess< LongType > a4 = primitive.getSquaredResult().randomAccess();
+		final Cursor< LongType > c = generic.getResult().localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( position );
+			for ( int d = 0; d < 3; ++d )
+				max[ d ] = position[ d ] - 1;
+			final long expected = sum( img, min, max, false );
+			final long expectedSquared = sum( img, min, max, true );
+			a1.setPosition( position );
+			a2.setPosition( position );
+			a3.setPosition( position );
+			a4.setPosition( position );
+			assertEquals( expected, a1.get().get() );
+			assertEquals( expectedSquared, a2.get().get() );
+			assertEquals( expected, a3.get().get() );
+			assertEquals( expectedSquared, a4.get().get() );
+		}
+	}
+
+	@Test
+	public void testMeanAndVariance()
+	{
+		final Img< UnsignedByteType > img = createImg();
+		final long[] radius = new long[] { 2, 1, 3 };
+		final Img< DoubleType > mean = new ArrayImgFactory< DoubleType >().create( dimensions, new DoubleType() );
+		final Img< DoubleType > variance = new ArrayImgFactory< DoubleType >().create( dimensions, new DoubleType() );
+		IntegralBoxFilter.meanAndVariance( img, radius, mean, variance, 4 );
+
+		final long[] min = new long[ 3 ];
+		final long[] max = new long[ 3 ];
+		final RandomAccess< DoubleType > v = variance.randomAccess();
+		final Cursor< DoubleType > c = mean.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			long area = 1;
+			for ( int d = 0; d < 3; ++d )
+			{
+				min[ d ] = Math.max( 0, c.getLongPosition( d ) - radius[ d ] );
+				max[ d ] = Math.min( dimensions[ d ] - 1, c.getLongPosition( d ) + radius[ d ] );
+				area *= max[ d ] - min[ d ] + 1;
+			}
+			final double expectedMean = ( double ) sum( img, min, max, false ) / area;
+			final double expectedVariance = ( double ) sum( img, min, max, true ) / area - expectedMean * expectedMean;
+			v.setPosition( c );
+			assertEquals( expectedMean, c.get().get(), 1e-9 );
+			assertEquals( expectedVariance, v.get().get(), 1e-6 );
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.pyramid;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.algorithm.pyramid.Pyramid.Filter;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Compares {@link Pyramid} levels to averaging the blocks directly and checks
+ * that the result does not depend on the block partition.
+ *
+ * @author ImgLib2 developers
+ */
+public class PyramidTest
+{
+	final long[] dimensions = new long[] { 45, 31, 7 };
+
+	Img< FloatType > createImg()
+	{
+		final Img< FloatType > img = new ArrayImgFactory< FloatType >().create( dimensions, new FloatType() );
+		final Random random = new Random( 0 );
+		for ( final FloatType t : img )
+			t.set( random.nextFloat() * 100 );
+		return img;
+	}
+
+	/**
+	 * mean of the pixels of source in the block [f*x, f*x+f-1], cropped to
+	 * source.
+	 */
+	static double blockMean( final RandomAccessibleInterval< FloatType > source, final long[] x, final int[] factors )
+	{
+		final long[] min = new long[ x.length ];
+		final long[] max = new long[ x.length ];
+		for ( int d = 0; d < x.length; ++d )
+		{
+			min[ d ] = factors[ d ] * x[ d ];
+			max[ d ] = Math.min( source.max( d ), min[ d ] + factors[ d ] - 1 );
+		}
+		double sum = 0;
+		long count = 0;
+		for ( final FloatType t : Views.iterable( Views.interval( source, min, max ) ) )
+		{
+			sum += t.get();
+			++count;
+		}
+		return sum / count;
+	}
+
+	@Test
+	public void testAverage()
+	{
+		final Img< FloatType > img = createImg();
+		final int[] factors = new int[] { 2, 3, 1 };
+		final List< CellImg< FloatType, ?, ? > > levels = Pyramid.build( img, 2, factors, new int[] { 8, 4, 3 }, Filter.AVERAGE, 4 );
+		assertEquals( 2, levels.size() );
+
+		RandomAccessibleInterval< FloatType > previous = img;
+		for ( final CellImg< FloatType, ?, ? > level : levels )
+		{
+			assertArrayEquals( Pyramid.downsampledDimensions( previous, factors ), new long[] { level.dimension( 0 ), level.dimension( 1 ), level.dimension( 2 ) } );
+			final long[] x = new long[ 3 ];
+			final Cursor< FloatType > c = level.localizingCursor();
+			while ( c.hasNext() )
+			{
+				c.fwd();
+				c.localize( x );
+				assertEquals( blockMean( previous, x, factors ), c.get().get(), 1e-3 );
+			}
+			previous = level;
+		}
+	}
+
+	@Test
+	public void testGaussianConstant()
+	{
+		final Img< FloatType > img = new ArrayImgFactory< FloatType >().create( dimensions, new FloatType() );
+		for ( final FloatType t : img )
+			t.set( 42 );
+		final List< CellImg< FloatType, ?, ? > > levels = Pyramid.build( img, 3, new int[] { 8, 8, 8 }, Filter.GAUSSIAN );
+		for ( final CellImg< FloatType, ?, ? > level : levels )
+			for ( final FloatType t : level )
+				assertEquals( 42, t.get(), 1e-3 );
+	}
+
+	@Test
+	public void testBlocks()
+	{
+		final Img< FloatType > img = createImg();
+		final int[] factors = new int[] { 2, 2, 2 };
+		final long[] levelDimensions = Pyramid.downsampledDimensions( img, factors );
+		for ( final Filter filter : Filter.values() )
+		{
+			final Img< FloatType > whole = new ArrayImgFactory< FloatType >().create( levelDimensions, new FloatType() );
+			Pyramid.downsample( img, whole, factors, filter, new int[] { 100, 100, 100 }, 1 );
+			final Img< FloatType > blocks = new ArrayImgFactory< FloatType >().create( levelDimensions, new FloatType() );
+			Pyramid.downsample( img, blocks, factors, filter, new int[] { 5, 3, 2 }, 4 );
+
+			final Cursor< FloatType > c = whole.localizingCursor();
+			final RandomAccess< FloatType > r = blocks.randomAccess();
+			while ( c.hasNext() )
+			{
+				c.fwd();
+				r.setPosition( c );
+				assertEquals( c.get().get(), r.get().get(), 0 );
+			}
+		}
+	}
+}
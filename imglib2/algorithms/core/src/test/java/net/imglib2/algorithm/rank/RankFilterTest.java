@@ -0,0 +1,148 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.rank;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.algorithm.region.localneighborhood.Neighborhood;
+import net.imglib2.algorithm.region.localneighborhood.RectangleShape;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Compares {@link RankFilter} to sorting the values of every neighborhood.
+ *
+ * @author ImgLib2 developers
+ */
+public class RankFilterTest
+{
+	static < T extends RealType< T > & NativeType< T > > Img< T > random( final T type, final double range, final long... dimensions )
+	{
+		final Img< T > img = new ArrayImgFactory< T >().create( dimensions, type );
+		final Random random = new Random( 0 );
+		for ( final T t : img )
+			t.setReal( random.nextDouble() * range );
+		return img;
+	}
+
+	static < T extends RealType< T > > void assertQuantile( final double quantile, final RandomAccessible< T > source, final RandomAccessibleInterval< T > target, final RectangleShape shape, final Img< FloatType > result )
+	{
+		final Cursor< Neighborhood< T > > neighborhoods = shape.neighborhoods( Views.interval( source, target ) ).cursor();
+		final Cursor< FloatType > c = result.cursor();
+		while ( c.hasNext() )
+		{
+			final Neighborhood< T > neighborhood = neighborhoods.next();
+			final double[] values = new double[ ( int ) neighborhood.size() ];
+			int i = 0;
+			for ( final T t : neighborhood )
+				values[ i++ ] = t.getRealDouble();
+			Arrays.sort( values );
+			assertEquals( values[ ( int ) Math.round( quantile * ( values.length - 1 ) ) ], c.next().get(), 0 );
+		}
+	}
+
+	static < T extends RealType< T > > void test( final Img< T > img, final RectangleShape shape, final double quantile, final int numThreads )
+	{
+		final RandomAccessible< T > source = Views.extendMirrorSingle( img );
+		final Img< FloatType > result = new ArrayImgFactory< FloatType >().create( img, new FloatType() );
+		RankFilter.quantile( quantile, source, result, shape, numThreads );
+		assertQuantile( quantile, source, img, shape, result );
+	}
+
+	@Test
+	public void testHistogram()
+	{
+		final Img< UnsignedByteType > img = random( new UnsignedByteType(), 256, 23, 17, 9 );
+		test( img, new RectangleShape( 2, false ), 0.5, 3 );
+		test( img, new RectangleShape( 1, true ), 0.5, 2 );
+		test( img, new RectangleShape( 3, false ), 0, 1 );
+		test( img, new RectangleShape( 1, false ), 1, 4 );
+	}
+
+	@Test
+	public void testHistogramAcrossLines()
+	{
+		// a narrow value range within the 16-bit histogram, so that the bin of
+		// the last result carries over between lines
+		final Img< UnsignedShortType > img = random( new UnsignedShortType(), 50, 19, 41 );
+		for ( final UnsignedShortType t : img )
+			t.set( t.get() + 30000 );
+		test( img, new RectangleShape( 2, false ), 0.5, 1 );
+		test( img, new RectangleShape( 1, true ), 0.25, 2 );
+		test( img, new RectangleShape( 1, false ), 0, 1 );
+		test( img, new RectangleShape( 1, false ), 1, 1 );
+	}
+
+	@Test
+	public void testSorted()
+	{
+		final Img< FloatType > img = random( new FloatType(), 1, 31, 19 );
+		test( img, new RectangleShape( 3, false ), 0.5, 3 );
+		test( img, new RectangleShape( 2, true ), 0.25, 2 );
+		test( img, new RectangleShape( 1, false ), 0, 1 );
+		test( img, new RectangleShape( 4, false ), 1, 4 );
+
+		final Img< FloatType > volume = random( new FloatType(), 1, 13, 11, 7 );
+		test( volume, new RectangleShape( 2, false ), 0.5, 3 );
+		test( volume, new RectangleShape( 1, true ), 0.75, 2 );
+	}
+
+	@Test
+	public void testSortedWithDuplicates()
+	{
+		final Img< FloatType > img = random( new FloatType(), 1, 29, 23 );
+		for ( final FloatType t : img )
+			t.set( Math.round( t.get() * 4 ) / 4f );
+		test( img, new RectangleShape( 2, false ), 0.5, 2 );
+		test( img, new RectangleShape( 3, true ), 0.3, 1 );
+		test( img, new RectangleShape( 1, false ), 1, 3 );
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.stats;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link Histogram}.
+ *
+ * @author ImgLib2 developers
+ */
+public class HistogramTest
+{
+	static Img< UnsignedByteType > createImg( final Img< UnsignedByteType > img, final long[] expected )
+	{
+		final Random random = new Random( 0 );
+		for ( final UnsignedByteType t : img )
+		{
+			t.set( random.nextInt( 256 ) );
+			++expected[ t.get() ];
+		}
+		return img;
+	}
+
+	@Test
+	public void testParallelCellImg()
+	{
+		final long[] expected = new long[ 256 ];
+		final Img< UnsignedByteType > img = createImg( new CellImgFactory< UnsignedByteType >( 32 ).create( new long[] { 300, 200, 5 }, new UnsignedByteType() ), expected );
+
+		final Histogram< UnsignedByteType > histogram = new Histogram< UnsignedByteType >( new IntBinMapper< UnsignedByteType >( new UnsignedByteType() ), img );
+		histogram.setNumThreads( 4 );
+		histogram.process();
+		assertArrayEquals( expected, histogram.getLongHistogram() );
+
+		// processing again recomputes the histogram
+		histogram.process();
+		assertArrayEquals( expected, histogram.getLongHistogram() );
+	}
+
+	@Test
+	public void testAddSubtractMerge()
+	{
+		final long[] expected = new long[ 256 ];
+		final Img< UnsignedByteType > img = createImg( new ArrayImgFactory< UnsignedByteType >().create( new long[] { 400, 300 }, new UnsignedByteType() ), expected );
+		final IntBinMapper< UnsignedByteType > mapper = new IntBinMapper< UnsignedByteType >( new UnsignedByteType() );
+
+		final Histogram< UnsignedByteType > top = new Histogram< UnsignedByteType >( mapper );
+		top.setNumThreads( 3 );
+		top.add( Views.iterable( Views.interval( img, new long[] { 0, 0 }, new long[] { 399, 199 } ) ) );
+
+		final Histogram< UnsignedByteType > bottom = new Histogram< UnsignedByteType >( mapper );
+		bottom.add( Views.iterable( Views.interval( img, new long[] { 0, 200 }, new long[] { 399, 299 } ) ) );
+
+		top.add( bottom );
+		assertArrayEquals( expected, top.getLongHistogram() );
+
+		top.subtract( Views.iterable( Views.interval( img, new long[] { 0, 200 }, new long[] { 399, 299 } ) ) );
+		long total = 0;
+		for ( int i = 0; i < 256; ++i )
+		{
+			assertEquals( expected[ i ] - bottom.getLongBin( i ), top.getLongBin( i ) );
+			total += top.getBin( i );
+		}
+		assertEquals( 400 * 200, total );
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package tests.labeling;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.algorithm.labeling.AllConnectedComponents;
+import net.imglib2.algorithm.labeling.ConnectedComponents;
+import net.imglib2.algorithm.labeling.ConnectedComponents.Component;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.labeling.LabelingType;
+import net.imglib2.labeling.NativeImgLabeling;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.util.IntervalIndexer;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ConnectedComponents}.
+ *
+ * @author ImgLib2 developers
+ */
+public class ConnectedComponentsTest
+{
+	private final long[] dimensions = new long[] { 31, 19, 13 };
+
+	private Img< BitType > createRandomMask( final double density )
+	{
+		final Img< BitType > mask = new ArrayImgFactory< BitType >().create( dimensions, new BitType() );
+		final Random random = new Random( 3 );
+		for ( final BitType t : mask )
+			t.set( random.nextDouble() < density );
+		return mask;
+	}
+
+	private int[] label( final Img< BitType > mask, final long[][] structuringElement, final int numThreads, final List< Component > components )
+	{
+		final Img< IntType > labels = new ArrayImgFactory< IntType >().create( dimensions, new IntType() );
+		final ConnectedComponents< BitType, IntType > cc = new ConnectedComponents< BitType, IntType >( mask, labels, structuringElement );
+		cc.setNumThreads( numThreads );
+		assertTrue( cc.process() );
+		if ( components != null )
+			components.addAll( cc.getComponents() );
+		final int[] result = new int[ ( int ) labels.size() ];
+		int i = 0;
+		for ( final IntType t : labels )
+			result[ i++ ] = t.get();
+		return result;
+	}
+
+	private void testAgainstFloodFill( final double density, final long[][] structuringElement )
+	{
+		final Img< BitType > mask = createRandomMask( density );
+		final int[] labels = label( mask, structuringElement, 1, null );
+
+		final NativeImgLabeling< Integer, IntType > labeling = new NativeImgLabeling< Integer, IntType >( new ArrayImgFactory< IntType >().create( dimensions, new IntType() ) );
+		AllConnectedComponents.labelAllConnectedComponents( labeling, mask, AllConnectedComponents.getIntegerNames( 1 ), structuringElement );
+
+		/*
+		 * The two labelings must be the same up to renaming.
+		 */
+		final HashMap< Integer, Integer > map = new HashMap< Integer, Integer >();
+		final HashMap< Integer, Integer > inverse = new HashMap< Integer, Integer >();
+		final Cursor< LabelingType< Integer >> c = labeling.cursor();
+		int i = 0;
+		while ( c.hasNext() )
+		{
+			final List< Integer > l = c.next().getLabeling();
+			final int label = labels[ i++ ];
+			if ( l.isEmpty() )
+			{
+				assertEquals( 0, label );
+				continue;
+			}
+			assertTrue( label > 0 );
+			final Integer expected = l.get( 0 );
+			if ( map.containsKey( expected ) )
+				assertEquals( map.get( expected ).intValue(), label );
+			else
+				map.put( expected, label );
+			if ( inverse.containsKey( label ) )
+				assertEquals( inverse.get( label ), expected );
+			else
+				inverse.put( label, expected );
+		}
+	}
+
+	@Test
+	public void testEightConnected()
+	{
+		testAgainstFloodFill( 0.3, AllConnectedComponents.getStructuringElement( dimensions.length ) );
+	}
+
+	@Test
+	public void testFourConnected()
+	{
+		testAgainstFloodFill( 0.5, new long[][] { { -1, 0, 0 }, { 1, 0, 0 }, { 0, -1, 0 }, { 0, 1, 0 }, { 0, 0, -1 }, { 0, 0, 1 } } );
+	}
+
+	@Test
+	public void testMultiThreaded()
+	{
+		final Img< BitType > mask = createRandomMask( 0.3 );
+		final long[][] strel = AllConnectedComponents.getStructuringElement( dimensions.length );
+		final int[] expected = label( mask, strel, 1, null );
+		for ( int numThreads = 2; numThreads <= 13; numThreads += 3 )
+			assertArrayEquals( expected, label( mask, strel, numThreads, null ) );
+	}
+
+	@Test
+	public void testComponents()
+	{
+		final Img< BitType > mask = createRandomMask( 0.25 );
+		final List< Component > components = new ArrayList< Component >();
+		final int[] labels = label( mask, AllConnectedComponents.getStructuringElement( dimensions.length ), 4, components );
+
+		final int n = dimensions.length;
+		final long[] sizes = new long[ components.size() + 1 ];
+		final long[][] min = new long[ components.size() + 1 ][ n ];
+		final long[][] max = new long[ components.size() + 1 ][ n ];
+		for ( int c = 1; c <= components.size(); c++ )
+		{
+			Arrays.fill( min[ c ], Long.MAX_VALUE );
+			Arrays.fill( max[ c ], Long.MIN_VALUE );
+		}
+		final long[] position = new long[ n ];
+		for ( int i = 0; i < labels.length; i++ )
+		{
+			final int c = labels[ i ];
+			if ( c == 0 )
+				continue;
+			IntervalIndexer.indexToPosition( i, dimensions, position );
+			sizes[ c ]++;
+			for ( int d = 0; d < n; d++ )
+			{
+				min[ c ][ d ] = Math.min( min[ c ][ d ], position[ d ] );
+				max[ c ][ d ] = Math.max( max[ c ][ d ], position[ d ] );
+			}
+		}
+		for ( int c = 1; c <= components.size(); c++ )
+		{
+			final Component component = components.get( c - 1 );
+			assertEquals( c, component.getLabel() );
+			assertEquals( sizes[ c ], component.getSize() );
+			for ( int d = 0; d < n; d++ )
+			{
+				assertEquals( min[ c ][ d ], component.min( d ) );
+				assertEquals( max[ c ][ d ], component.max( d ) );
+			}
+		}
+	}
+}
@@ -36,20 +36,30 @@
 
 package tests.labeling;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
 import net.imglib2.algorithm.labeling.AllConnectedComponents;
 import net.imglib2.algorithm.labeling.Watershed;
+import net.imglib2.img.Img;
 import net.imglib2.img.NativeImg;
 import net.imglib2.img.array.ArrayImgFactory;
 import net.imglib2.img.basictypeaccess.IntAccess;
+import net.imglib2.labeling.Labeling;
 import net.imglib2.labeling.LabelingType;
 import net.imglib2.labeling.NativeImgLabeling;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.IntervalIndexer;
 
 import org.junit.Test;
 
@@ -166,4 +176,144 @@ public class WatershedTest
 		}
 		testSeededCase2D( image, seeds, expected, null, 0 );
 	}
+
+	private static final long[] randomDimensions = new long[] { 23, 17, 9 };
+
+	private < T extends RealType< T > & NativeType< T >> Img< T > createRandomImage( final T type, final int numValues )
+	{
+		final Img< T > img = new ArrayImgFactory< T >().create( randomDimensions, type );
+		final Random random = new Random( 1 );
+		for ( final T t : img )
+			t.setReal( random.nextInt( numValues ) );
+		return img;
+	}
+
+	private NativeImgLabeling< Integer, IntType > createRandomSeeds( final int numSeeds )
+	{
+		final NativeImgLabeling< Integer, IntType > seeds = new NativeImgLabeling< Integer, IntType >( new ArrayImgFactory< IntType >().create( randomDimensions, new IntType() ) );
+		final RandomAccess< LabelingType< Integer >> a = seeds.randomAccess();
+		final Random random = new Random( 2 );
+		for ( int i = 1; i <= numSeeds; i++ )
+		{
+			for ( int d = 0; d < randomDimensions.length; d++ )
+				a.setPosition( random.nextInt( ( int ) randomDimensions[ d ] ), d );
+			a.get().setLabel( i );
+		}
+		return seeds;
+	}
+
+	private < T extends RealType< T >> int[] runWatershed( final Img< T > image, final NativeImgLabeling< Integer, IntType > seeds, final int numLevels, final int numThreads )
+	{
+		final Watershed< T, Integer > watershed = new Watershed< T, Integer >();
+		watershed.setSeeds( seeds );
+		watershed.setIntensityImage( image );
+		watershed.setStructuringElement( AllConnectedComponents.getStructuringElement( image.numDimensions() ) );
+		watershed.setNumLevels( numLevels );
+		watershed.setNumThreads( numThreads );
+		assertTrue( watershed.process() );
+		return getLabels( watershed.getResult() );
+	}
+
+	private int[] getLabels( final Labeling< Integer > labeling )
+	{
+		final int[] labels = new int[ ( int ) labeling.size() ];
+		final long[] position = new long[ labeling.numDimensions() ];
+		final Cursor< LabelingType< Integer >> c = labeling.localizingCursor();
+		while ( c.hasNext() )
+		{
+			final List< Integer > l = c.next().getLabeling();
+			c.localize( position );
+			labels[ ( int ) IntervalIndexer.positionToIndex( position, randomDimensions ) ] = l.isEmpty() ? 0 : l.get( 0 );
+		}
+		return labels;
+	}
+
+	@Test
+	public final void testHierarchicalQueue()
+	{
+		final NativeImgLabeling< Integer, IntType > seeds = createRandomSeeds( 10 );
+		// float images are flooded using the priority queue
+		final int[] expected = runWatershed( createRandomImage( new FloatType(), 16 ), seeds, 0, 1 );
+		assertArrayEquals( expected, runWatershed( createRandomImage( new IntType(), 16 ), seeds, 0, 1 ) );
+		assertArrayEquals( expected, runWatershed( createRandomImage( new FloatType(), 16 ), seeds, 16, 1 ) );
+	}
+
+	@Test
+	public final void testParallel()
+	{
+		final Img< IntType > image = createRandomImage( new IntType(), 16 );
+		final NativeImgLabeling< Integer, IntType > seeds = createRandomSeeds( 10 );
+		final int[] labels = runWatershed( image, seeds, 0, 4 );
+
+		/*
+		 * Every pixel must be labeled by a seed from which it can be reached
+		 * on a path with the lowest maximum intensity.
+		 */
+		final int[] levels = new int[ labels.length ];
+		final long[] position = new long[ image.numDimensions() ];
+		final Cursor< IntType > c = image.localizingCursor();
+		while ( c.hasNext() )
+		{
+			final int level = c.next().get();
+			c.localize( position );
+			levels[ ( int ) IntervalIndexer.positionToIndex( position, randomDimensions ) ] = level;
+		}
+		final int[] seedLabels = getLabels( seeds );
+		final int[] minCosts = new int[ labels.length ];
+		Arrays.fill( minCosts, Integer.MAX_VALUE );
+		final int[][] costs = new int[ 11 ][];
+		for ( int label = 1; label <= 10; label++ )
+		{
+			costs[ label ] = computeCosts( levels, seedLabels, label );
+			for ( int i = 0; i < labels.length; i++ )
+				minCosts[ i ] = Math.min( minCosts[ i ], costs[ label ][ i ] );
+		}
+		for ( int i = 0; i < labels.length; i++ )
+		{
+			assertTrue( labels[ i ] > 0 );
+			assertEquals( minCosts[ i ], costs[ labels[ i ] ][ i ] );
+		}
+	}
+
+	/**
+	 * Compute the lowest maximum level on a path from any seed with the given
+	 * label to each pixel by relaxing until nothing changes.
+	 */
+	private int[] computeCosts( final int[] levels, final int[] seedLabels, final int label )
+	{
+		final int[] costs = new int[ levels.length ];
+		for ( int i = 0; i < levels.length; i++ )
+			costs[ i ] = seedLabels[ i ] == label ? levels[ i ] : Integer.MAX_VALUE;
+		final long[][] offsets = AllConnectedComponents.getStructuringElement( randomDimensions.length );
+		final long[] position = new long[ randomDimensions.length ];
+		boolean changed = true;
+		while ( changed )
+		{
+			changed = false;
+			for ( int i = 0; i < levels.length; i++ )
+			{
+				if ( costs[ i ] == Integer.MAX_VALUE )
+					continue;
+				IntervalIndexer.indexToPosition( i, randomDimensions, position );
+				A: for ( final long[] offset : offsets )
+				{
+					final long[] neighbor = new long[ position.length ];
+					for ( int d = 0; d < position.length; d++ )
+					{
+						neighbor[ d ] = position[ d ] + offset[ d ];
+						if ( neighbor[ d ] < 0 || neighbor[ d ] >= randomDimensions[ d ] )
+							continue A;
+					}
+					final int j = ( int ) IntervalIndexer.positionToIndex( neighbor, randomDimensions );
+					final int cost = Math.max( costs[ i ], levels[ j ] );
+					if ( cost < costs[ j ] )
+					{
+						costs[ j ] = cost;
+						changed = true;
+					}
+				}
+			}
+		}
+		return costs;
+	}
 }
@@ -1,19 +1,31 @@
 package net.imglib2.algorithm.fft2;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import net.imglib2.Cursor;
+import net.imglib2.ExtendedRandomAccessibleInterval;
 import net.imglib2.FinalDimensions;
 import net.imglib2.FinalInterval;
 import net.imglib2.Interval;
 import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.algorithm.MultiThreaded;
 import net.imglib2.exception.IncompatibleTypeException;
 import net.imglib2.img.Img;
 import net.imglib2.img.ImgFactory;
 import net.imglib2.img.array.ArrayImgFactory;
 import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.list.ListImgFactory;
+import net.imglib2.multithreading.SharedThreadPool;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.complex.ComplexFloatType;
+import net.imglib2.util.IntervalIndexer;
 import net.imglib2.util.Util;
+import net.imglib2.view.IntervalView;
+import net.imglib2.view.TransformedRandomAccessible;
 import net.imglib2.view.Views;
 
 /**
@@ -32,9 +44,24 @@ import net.imglib2.view.Views;
  * NOTE: There is no checking if the sizes are compatible. If the new input has smaller or larger dimensions, it will simply fail. It is up to you to look for that.
  * NOTE: This is not influenced by whether the computation is performed in-place or not, just the FFT of the kernel is kept.
  * 
+ * To convolve different images (or using different instances of {@link FFTConvolution}) with the same kernel, a
+ * {@link KernelFFTCache} can be set. The FFT of the kernel is then computed only once for each padded size. The
+ * kernel is identified by its instance, i.e. a cache has to be cleared if the pixels of a kernel are changed.
+ * 
+ * For large images, the convolution can be computed block-wise (overlap-save) by calling setBlockSize(). Each
+ * block is extended by the kernel size and transformed separately, so that only the FFTs of the blocks that are
+ * currently processed (one per thread) have to be kept in memory instead of the FFT of the entire padded image.
+ * The blocks are processed in parallel. Block-wise computation does not produce an FFT of the entire image, so
+ * if setKeepImgFFT(true) was called, the block size is ignored and the entire image is transformed as usual.
+ * If the output may overwrite pixels of the input that are still needed by other blocks, the result is buffered
+ * in an image of the size of the output until all blocks are done. This is the case if the convolution is computed
+ * in-place or if the output is a view (see {@link Views}) of the same source as the input. Outputs that share the
+ * data of the input in any other way (e.g. two images wrapping the same array) cannot be detected; compute such
+ * convolutions in-place instead.
+ * 
  * @author Stephan Preibisch
  */
-public class FFTConvolution < R extends RealType< R > > implements Runnable
+public class FFTConvolution < R extends RealType< R > > implements Runnable, MultiThreaded
 {
 	Img< ComplexFloatType > fftImg, fftKernel;
 	ImgFactory< ComplexFloatType > fftFactory;
@@ -45,6 +72,16 @@ public class FFTConvolution < R extends RealType< R > > implements Runnable
 	
 	boolean keepImgFFT = false;
 
+	// the object identifying the kernel in the KernelFFTCache, the padded size of fftKernel
+	Object kernelId;
+	long[] fftKernelPaddedDimensions;
+	KernelFFTCache kernelFFTCache = null;
+
+	// null if the convolution is not computed block-wise
+	long[] blockSize = null;
+	boolean inPlace = false;
+	int numThreads = SharedThreadPool.getParallelism();
+
 	/**
 	 * Compute a Fourier space based convolution in-place (img will be replaced by the convolved result). 
 	 * The image will be extended by mirroring with single boundary, the kernel will be zero-padded.
@@ -99,6 +136,7 @@ public class FFTConvolution < R extends RealType< R > > implements Runnable
 	public FFTConvolution( final RandomAccessibleInterval< R > img, final RandomAccessibleInterval< R > kernel, final RandomAccessibleInterval< R > output, final ImgFactory< ComplexFloatType > factory )
 	{
 		this ( Views.extendMirrorSingle( img ), img, Views.extendValue( kernel, Util.getTypeFromInterval( kernel ).createVariable() ), kernel, output, factory );
+		this.kernelId = kernel;
 	}
 
 	/**
@@ -117,6 +155,7 @@ public class FFTConvolution < R extends RealType< R > > implements Runnable
 	public FFTConvolution( final RandomAccessible< R > img, final Interval imgInterval, final RandomAccessible< R > kernel, final Interval kernelInterval, final ImgFactory< ComplexFloatType > factory )
 	{
 		this( img, imgInterval, kernel, kernelInterval, Views.interval( img, imgInterval ), factory );
+		this.inPlace = true;
 	}
 
 	/**
@@ -139,6 +178,7 @@ public class FFTConvolution < R extends RealType< R > > implements Runnable
 		this.imgInterval = imgInterval;
 		this.kernel = kernel;
 		this.kernelInterval = kernelInterval;
+		this.kernelId = kernel;
 		this.output = output;
 		this.fftFactory = factory;
 	}
@@ -161,6 +201,7 @@ public class FFTConvolution < R extends RealType< R > > implements Runnable
 	{
 		this.kernel = Views.extendValue( kernel, Util.getTypeFromInterval( kernel ).createVariable() );
 		this.kernelInterval = kernel;
+		this.kernelId = kernel;
 		this.fftKernel = null;
 	}
 
@@ -168,10 +209,44 @@ public class FFTConvolution < R extends RealType< R > > implements Runnable
 	{
 		this.kernel = kernel;
 		this.kernelInterval = kernelInterval;
+		this.kernelId = kernel;
 		this.fftKernel = null;
 	}
 
-	public void setOutput( final RandomAccessibleInterval< R > output ) { this.output = output; }
+	public void setOutput( final RandomAccessibleInterval< R > output )
+	{
+		this.output = output;
+		this.inPlace = false;
+	}
+
+	/**
+	 * Compute the convolution block-wise (overlap-save) instead of transforming the entire image at once.
+	 * 
+	 * @param blockSize - the size of the output blocks, if less values than dimensions are given, the last
+	 * one is used for the remaining dimensions. The actual blocks may be somewhat larger as the FFT size is
+	 * padded anyways. null computes the convolution of the entire image at once (default).
+	 */
+	public void setBlockSize( final long... blockSize )
+	{
+		this.blockSize = ( blockSize == null || blockSize.length == 0 ) ? null : blockSize.clone();
+	}
+
+	public long[] getBlockSize() { return blockSize == null ? null : blockSize.clone(); }
+
+	/**
+	 * @param cache - the {@link KernelFFTCache} to take the FFT of the kernel from, null for no caching
+	 */
+	public void setKernelFFTCache( final KernelFFTCache cache ) { this.kernelFFTCache = cache; }
+	public KernelFFTCache kernelFFTCache() { return kernelFFTCache; }
+
+	@Override
+	public void setNumThreads() { this.numThreads = SharedThreadPool.getParallelism(); }
+
+	@Override
+	public void setNumThreads( final int numThreads ) { this.numThreads = Math.max( 1, numThreads ); }
+
+	@Override
+	public int getNumThreads() { return numThreads; }
 	
 	public void setKeepImgFFT( final boolean keep ) { this.keepImgFFT = keep; }
 	public boolean keepImgFFT() { return keepImgFFT; }
@@ -183,6 +258,12 @@ public class FFTConvolution < R extends RealType< R > > implements Runnable
 	@Override
 	public void run() 
 	{
+		if ( blockSize != null && !keepImgFFT )
+		{
+			runBlocks();
+			return;
+		}
+
 		final int numDimensions = imgInterval.numDimensions();
 		
 		// the image has to be extended at least by kernelDimensions/2-1 in each dimension so that
@@ -202,30 +283,13 @@ public class FFTConvolution < R extends RealType< R > > implements Runnable
 		// compute the new interval for the input image
 		final Interval imgConvolutionInterval = FFTMethods.paddingIntervalCentered( imgInterval, FinalDimensions.wrap( paddedDimensions ) );
 		
-		// compute the new interval for the kernel image
-		final Interval kernelConvolutionInterval = FFTMethods.paddingIntervalCentered( kernelInterval, FinalDimensions.wrap( paddedDimensions ) );
-
-		// compute where to place the final Interval for the kernel so that the coordinate in the center
-		// of the kernel is at position (0,0)
-		final long[] min = new long[ numDimensions ];
-		final long[] max = new long[ numDimensions ];
-		
-		for ( int d = 0; d < numDimensions; ++d )
-		{
-			min[ d ] = kernelInterval.min( d ) + kernelInterval.dimension( d ) / 2;
-			max[ d ] = min[ d ] + kernelConvolutionInterval.dimension( d ) - 1;
-		}
-		
-		// assemble the correct kernel (size of the input + extended periodic + top left at center of input kernel)
-		final RandomAccessibleInterval< R > kernelInput = Views.interval( Views.extendPeriodic( Views.interval( kernel, kernelConvolutionInterval ) ), new FinalInterval( min, max ) );
 		final RandomAccessibleInterval< R > imgInput = Views.interval( img, imgConvolutionInterval );
 		
 		// compute the FFT's if they do not exist yet
 		if ( fftImg == null )
 			fftImg = FFT.realToComplex( imgInput, fftFactory );
 		
-		if( fftKernel == null )
-			fftKernel = FFT.realToComplex( kernelInput, fftFactory );
+		fftKernel = computeKernelFFT( paddedDimensions );
 		
 		final Img< ComplexFloatType > fftconvolved;
 		
@@ -240,6 +304,213 @@ public class FFTConvolution < R extends RealType< R > > implements Runnable
 		// inverse FFT in place
 		FFT.complexToRealUnpad( fftconvolved, output );
 	}
+
+	/**
+	 * Follows a hierarchy of views down to the {@link RandomAccessible} that holds the data.
+	 */
+	protected static Object getRootSource( Object source )
+	{
+		while ( true )
+		{
+			if ( source instanceof TransformedRandomAccessible )
+				source = ( ( TransformedRandomAccessible< ? > ) source ).getSource();
+			else if ( source instanceof IntervalView )
+				source = ( ( IntervalView< ? > ) source ).getSource();
+			else if ( source instanceof ExtendedRandomAccessibleInterval )
+				source = ( ( ExtendedRandomAccessibleInterval< ?, ? > ) source ).getSource();
+			else
+				return source;
+		}
+	}
+
+	/**
+	 * Computes the convolution block by block. Each block is extended by the size of the kernel
+	 * minus one and padded to a size supported by the FFT, all blocks share the same FFT of the kernel.
+	 */
+	protected void runBlocks()
+	{
+		final int numDimensions = imgInterval.numDimensions();
+
+		// the extended blocks overlap by the size of the kernel minus one
+		final long[] blockDimensions = new long[ numDimensions ];
+		final long[] extendedDimensions = new long[ numDimensions ];
+		final long[] numBlocks = new long[ numDimensions ];
+		long totalBlocks = 1;
+
+		for ( int d = 0; d < numDimensions; ++d )
+		{
+			blockDimensions[ d ] = Math.max( 1, Math.min( blockSize[ Math.min( d, blockSize.length - 1 ) ], imgInterval.dimension( d ) ) );
+			extendedDimensions[ d ] = blockDimensions[ d ] + kernelInterval.dimension( d ) - 1;
+		}
+
+		final long[] paddedDimensions = new long[ numDimensions ];
+		final long[] fftDimensions = new long[ numDimensions ];
+
+		FFTMethods.dimensionsRealToComplexFast( FinalDimensions.wrap( extendedDimensions ), paddedDimensions, fftDimensions );
+
+		// make use of the padding to enlarge the blocks
+		for ( int d = 0; d < numDimensions; ++d )
+		{
+			blockDimensions[ d ] = Math.min( paddedDimensions[ d ] - kernelInterval.dimension( d ) + 1, imgInterval.dimension( d ) );
+			numBlocks[ d ] = ( imgInterval.dimension( d ) + blockDimensions[ d ] - 1 ) / blockDimensions[ d ];
+			totalBlocks *= numBlocks[ d ];
+		}
+
+		// the FFT of the image is not kept (see run()), a previously computed one is stale
+		fftKernel = computeKernelFFT( paddedDimensions );
+		fftImg = null;
+
+		// if the result might overwrite the input, the blocks are written into a buffer first
+		final boolean buffered = inPlace || getRootSource( output ) == getRootSource( img );
+		final RandomAccessibleInterval< R > target;
+		final Img< R > buffer;
+
+		if ( buffered )
+		{
+			final R type = Util.getTypeFromInterval( output ).createVariable();
+			ImgFactory< R > factory;
+			try
+			{
+				factory = fftFactory.imgFactory( type );
+			}
+			catch ( final IncompatibleTypeException e )
+			{
+				factory = new ListImgFactory< R >();
+			}
+			buffer = factory.create( output, type );
+			final long[] outputMin = new long[ numDimensions ];
+			output.min( outputMin );
+			target = Views.translate( buffer, outputMin );
+		}
+		else
+		{
+			buffer = null;
+			target = output;
+		}
+
+		final Img< ComplexFloatType > kernelFFT = fftKernel;
+		final int numBlocksInt = ( int ) totalBlocks;
+		final AtomicInteger nextBlock = new AtomicInteger( 0 );
+		final int numTasks = Math.max( 1, Math.min( numThreads, numBlocksInt ) );
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >( numTasks );
+
+		for ( int t = 0; t < numTasks; ++t )
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					// every task reuses the FFT of its blocks
+					final Img< ComplexFloatType > fftBlock = fftFactory.create( fftDimensions, new ComplexFloatType() );
+					final long[] blockPosition = new long[ numDimensions ];
+					final long[] min = new long[ numDimensions ];
+					final long[] max = new long[ numDimensions ];
+					final long[] outputMin = new long[ numDimensions ];
+					final long[] outputMax = new long[ numDimensions ];
+
+					for ( int i = nextBlock.getAndIncrement(); i < numBlocksInt; i = nextBlock.getAndIncrement() )
+					{
+						IntervalIndexer.indexToPosition( i, numBlocks, blockPosition );
+
+						for ( int d = 0; d < numDimensions; ++d )
+						{
+							min[ d ] = imgInterval.min( d ) + blockPosition[ d ] * blockDimensions[ d ];
+							max[ d ] = Math.min( min[ d ] + blockDimensions[ d ] - 1, imgInterval.max( d ) );
+							outputMin[ d ] = output.min( d ) + min[ d ] - imgInterval.min( d );
+							outputMax[ d ] = output.min( d ) + max[ d ] - imgInterval.min( d );
+						}
+
+						final Interval blockConvolutionInterval = FFTMethods.paddingIntervalCentered( new FinalInterval( min, max ), FinalDimensions.wrap( paddedDimensions ) );
+
+						FFT.realToComplex( Views.interval( img, blockConvolutionInterval ), fftBlock );
+						multiplyComplex( fftBlock, kernelFFT );
+						FFT.complexToRealUnpad( fftBlock, Views.interval( target, outputMin, outputMax ) );
+					}
+				}
+			});
+
+		SharedThreadPool.invokeAll( tasks, numThreads );
+
+		if ( buffered )
+		{
+			final Cursor< R > cursor = buffer.localizingCursor();
+			final RandomAccess< R > ra = output.randomAccess();
+			final long[] position = new long[ numDimensions ];
+
+			while ( cursor.hasNext() )
+			{
+				cursor.fwd();
+				cursor.localize( position );
+
+				for ( int d = 0; d < numDimensions; ++d )
+					position[ d ] += output.min( d );
+
+				ra.setPosition( position );
+				ra.get().set( cursor.get() );
+			}
+		}
+	}
+
+	/**
+	 * Returns the FFT of the kernel for a certain padded size. It is reused from the last run or taken
+	 * from the {@link KernelFFTCache} if possible, otherwise it is computed (and added to the cache).
+	 * 
+	 * @param paddedDimensions - the real-valued (padded) dimensions of the FFT
+	 * @return - the FFT of the kernel
+	 */
+	protected Img< ComplexFloatType > computeKernelFFT( final long[] paddedDimensions )
+	{
+		if ( fftKernel != null && Arrays.equals( paddedDimensions, fftKernelPaddedDimensions ) )
+			return fftKernel;
+
+		Img< ComplexFloatType > kernelFFT = null;
+
+		if ( kernelFFTCache != null )
+			kernelFFT = kernelFFTCache.get( kernelId, kernelInterval, paddedDimensions );
+
+		if ( kernelFFT == null )
+		{
+			kernelFFT = FFT.realToComplex( kernelInput( kernel, kernelInterval, paddedDimensions ), fftFactory );
+
+			if ( kernelFFTCache != null )
+				kernelFFTCache.put( kernelId, kernelInterval, paddedDimensions, kernelFFT );
+		}
+
+		fftKernelPaddedDimensions = paddedDimensions.clone();
+
+		return kernelFFT;
+	}
+
+	/**
+	 * Assembles the kernel for a certain padded size of the FFT, i.e. extended periodically and the
+	 * center of the kernel at position (0,0).
+	 * 
+	 * @param kernel - the kernel (zero-extended)
+	 * @param kernelInterval - the kernel interval
+	 * @param paddedDimensions - the real-valued (padded) dimensions of the FFT
+	 * @return - the interval of the kernel to transform
+	 */
+	final public static < R extends RealType< R > > RandomAccessibleInterval< R > kernelInput( final RandomAccessible< R > kernel, final Interval kernelInterval, final long[] paddedDimensions )
+	{
+		final int numDimensions = kernelInterval.numDimensions();
+
+		// compute the new interval for the kernel image
+		final Interval kernelConvolutionInterval = FFTMethods.paddingIntervalCentered( kernelInterval, FinalDimensions.wrap( paddedDimensions ) );
+
+		// compute where to place the final Interval for the kernel so that the coordinate in the center
+		// of the kernel is at position (0,0)
+		final long[] min = new long[ numDimensions ];
+		final long[] max = new long[ numDimensions ];
+		
+		for ( int d = 0; d < numDimensions; ++d )
+		{
+			min[ d ] = kernelInterval.min( d ) + kernelInterval.dimension( d ) / 2;
+			max[ d ] = min[ d ] + kernelConvolutionInterval.dimension( d ) - 1;
+		}
+		
+		// assemble the correct kernel (size of the input + extended periodic + top left at center of input kernel)
+		return Views.interval( Views.extendPeriodic( Views.interval( kernel, kernelConvolutionInterval ) ), new FinalInterval( min, max ) );
+	}
 	
 	final public static < R extends RealType< R > > void convolve( final RandomAccessible< R > img, final Interval imgInterval, final RandomAccessible< R > kernel, final Interval kernelInterval, final RandomAccessibleInterval< R > output, final ImgFactory< ComplexFloatType > factory )
 	{
@@ -293,11 +564,27 @@ public class FFTConvolution < R extends RealType< R > > implements Runnable
 	
 	final public static void multiplyComplex( final Img< ComplexFloatType > img, final Img< ComplexFloatType > kernel )
 	{
-		final Cursor< ComplexFloatType > cursorA = img.cursor();
-		final Cursor< ComplexFloatType > cursorB = kernel.cursor();
-		
-		while ( cursorA.hasNext() )
-			cursorA.next().mul( cursorB.next() );
+		if ( img.iterationOrder().equals( kernel.iterationOrder() ) )
+		{
+			final Cursor< ComplexFloatType > cursorA = img.cursor();
+			final Cursor< ComplexFloatType > cursorB = kernel.cursor();
+			
+			while ( cursorA.hasNext() )
+				cursorA.next().mul( cursorB.next() );
+		}
+		else
+		{
+			// e.g. a cached kernel FFT created by a different ImgFactory
+			final Cursor< ComplexFloatType > cursorA = img.localizingCursor();
+			final RandomAccess< ComplexFloatType > randomAccessB = kernel.randomAccess();
+			
+			while ( cursorA.hasNext() )
+			{
+				cursorA.fwd();
+				randomAccessB.setPosition( cursorA );
+				cursorA.get().mul( randomAccessB.get() );
+			}
+		}
 	}
 
 	protected static ImgFactory< ComplexFloatType > getFFTFactory( final Img< ? extends RealType< ? > > img )
@@ -27,6 +27,7 @@ package net.imglib2.algorithm.fft2;
 import edu.mines.jtk.dsp.FftComplex;
 import edu.mines.jtk.dsp.FftReal;
 
+import java.util.ArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import net.imglib2.Dimensions;
@@ -35,7 +36,7 @@ import net.imglib2.Interval;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.iterator.LocalizingZeroMinIntervalIterator;
-import net.imglib2.multithreading.SimpleMultiThreading;
+import net.imglib2.multithreading.SharedThreadPool;
 import net.imglib2.type.numeric.ComplexType;
 import net.imglib2.type.numeric.RealType;
 
@@ -90,7 +91,7 @@ public class FFTMethods
 	 */
 	final public static < C extends ComplexType< C >, R extends RealType< R > > boolean complexToReal( final RandomAccessibleInterval< C > input, final RandomAccessibleInterval< R > output, final int dim, final boolean scale )
 	{
-		return complexToReal( input, output, output, dim, scale, Runtime.getRuntime().availableProcessors() );
+		return complexToReal( input, output, output, dim, scale, SharedThreadPool.getParallelism() );
 	}
 
 	/**
@@ -106,7 +107,7 @@ public class FFTMethods
 	 */
 	final public static < C extends ComplexType< C >, R extends RealType< R > > boolean complexToReal( final RandomAccessibleInterval< C > input, final RandomAccessibleInterval< R > output, final Interval interval, final int dim, final boolean scale )
 	{
-		return complexToReal( input, output, interval, dim, scale, Runtime.getRuntime().availableProcessors() );
+		return complexToReal( input, output, interval, dim, scale, SharedThreadPool.getParallelism() );
 	}
 
 	/**
@@ -159,10 +160,10 @@ public class FFTMethods
 		if ( numDimensions > 1  )
 		{
 			final AtomicInteger ai = new AtomicInteger( 0 );
-			Thread[] threads = SimpleMultiThreading.newThreads( numThreads );
+			final ArrayList< Runnable > tasks = new ArrayList< Runnable >( numThreads );
 			
-			for ( int ithread = 0; ithread < threads.length; ++ithread )
-				threads[ithread] = new Thread(new Runnable()
+			for ( int ithread = 0; ithread < numThreads; ++ithread )
+				tasks.add( new Runnable()
 				{
 					@Override
 					public void run()
@@ -239,7 +240,7 @@ A:						while ( cursorDim.hasNext() )
 					}
 				});
 			
-			SimpleMultiThreading.startAndJoin(threads);			
+			SharedThreadPool.invokeAll( tasks, numThreads );
 		}
 		else
 		{
@@ -308,7 +309,7 @@ A:						while ( cursorDim.hasNext() )
 	 */
 	final public static < R extends RealType< R >, C extends ComplexType< C > > boolean realToComplex( final RandomAccessibleInterval< R > input, final RandomAccessibleInterval< C > output, final int dim, final boolean scale )
 	{
-		return realToComplex( input, output, output, dim, scale, Runtime.getRuntime().availableProcessors() );
+		return realToComplex( input, output, output, dim, scale, SharedThreadPool.getParallelism() );
 	}
 
 	/**
@@ -324,7 +325,7 @@ A:						while ( cursorDim.hasNext() )
 	 */
 	final public static < R extends RealType< R >, C extends ComplexType< C > > boolean realToComplex( final RandomAccessibleInterval< R > input, final RandomAccessibleInterval< C > output, final Interval interval, final int dim, final boolean scale )
 	{
-		return realToComplex( input, output, interval, dim, scale, Runtime.getRuntime().availableProcessors() );
+		return realToComplex( input, output, interval, dim, scale, SharedThreadPool.getParallelism() );
 	}
 
 	/**
@@ -377,10 +378,10 @@ A:						while ( cursorDim.hasNext() )
 		if ( numDimensions > 1 )
 		{		
 			final AtomicInteger ai = new AtomicInteger( 0 );
-			Thread[] threads = SimpleMultiThreading.newThreads( numThreads );
+			final ArrayList< Runnable > tasks = new ArrayList< Runnable >( numThreads );
 			
-			for ( int ithread = 0; ithread < threads.length; ++ithread )
-				threads[ithread] = new Thread(new Runnable()
+			for ( int ithread = 0; ithread < numThreads; ++ithread )
+				tasks.add( new Runnable()
 				{
 					@Override
 					public void run()
@@ -457,7 +458,7 @@ A:						while ( cursorDim.hasNext() )
 					}
 				});
 			
-			SimpleMultiThreading.startAndJoin(threads);
+			SharedThreadPool.invokeAll( tasks, numThreads );
 		}
 		else
 		{
@@ -498,7 +499,7 @@ A:						while ( cursorDim.hasNext() )
 	final public static < C extends ComplexType< C > > boolean complexToComplex( final RandomAccessibleInterval< C > data, final int dim, final boolean forward )
 	{
 		if ( forward )
-			return complexToComplex( data, dim, forward, false, Runtime.getRuntime().availableProcessors() );
+			return complexToComplex( data, dim, forward, false, SharedThreadPool.getParallelism() );
 		return complexToComplex( data, dim, forward, true );
 	}
 
@@ -514,7 +515,7 @@ A:						while ( cursorDim.hasNext() )
 	 */
 	final public static < C extends ComplexType< C > > boolean complexToComplex( final RandomAccessibleInterval< C > data, final int dim, final boolean forward, final boolean scale )
 	{
-		return complexToComplex( data, dim, forward, scale, Runtime.getRuntime().availableProcessors() );
+		return complexToComplex( data, dim, forward, scale, SharedThreadPool.getParallelism() );
 	}
 
 	/**
@@ -550,10 +551,10 @@ A:						while ( cursorDim.hasNext() )
 		if ( numDimensions > 1 )
 		{		
 			final AtomicInteger ai = new AtomicInteger( 0 );
-			Thread[] threads = SimpleMultiThreading.newThreads( numThreads );
+			final ArrayList< Runnable > tasks = new ArrayList< Runnable >( numThreads );
 			
-			for ( int ithread = 0; ithread < threads.length; ++ithread )
-				threads[ithread] = new Thread(new Runnable()
+			for ( int ithread = 0; ithread < numThreads; ++ithread )
+				tasks.add( new Runnable()
 				{
 					@Override
 					public void run()
@@ -613,7 +614,7 @@ A:						while ( cursorDim.hasNext() )
 					}
 				});
 			
-			SimpleMultiThreading.startAndJoin(threads);
+			SharedThreadPool.invokeAll( tasks, numThreads );
 		}
 		else
 		{
@@ -0,0 +1,148 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.imglib2.algorithm.fft2;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.imglib2.Interval;
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.complex.ComplexFloatType;
+
+/**
+ * Keeps the Fourier transforms of convolution kernels so that repeated convolutions with the same kernel,
+ * e.g. in iterative deconvolution, can skip the kernel FFT. An entry is identified by the kernel instance
+ * (not its content), the kernel interval and the padded size of the transform. If the pixels of a kernel
+ * change, the cache has to be cleared.
+ * 
+ * At most maxEntries transforms are kept, the least recently used one is dropped first. A
+ * {@link KernelFFTCache} can be shared by several {@link FFTConvolution}s and threads. The cached
+ * transforms must not be modified.
+ * 
+ * @author ImgLib2 developers
+ */
+public class KernelFFTCache
+{
+	public static final int DEFAULT_MAX_ENTRIES = 4;
+
+	final int maxEntries;
+	final LinkedHashMap< Key, Img< ComplexFloatType > > kernelFFTs;
+
+	/**
+	 * Creates a cache keeping at most {@link #DEFAULT_MAX_ENTRIES} kernel transforms
+	 */
+	public KernelFFTCache()
+	{
+		this( DEFAULT_MAX_ENTRIES );
+	}
+
+	/**
+	 * @param maxEntries - the maximal number of kernel transforms kept in memory
+	 */
+	public KernelFFTCache( final int maxEntries )
+	{
+		this.maxEntries = Math.max( 1, maxEntries );
+		this.kernelFFTs = new LinkedHashMap< Key, Img< ComplexFloatType > >( 16, 0.75f, true )
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry( final Map.Entry< Key, Img< ComplexFloatType > > eldest )
+			{
+				return size() > KernelFFTCache.this.maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * @param kernel - the kernel instance
+	 * @param kernelInterval - the interval of the kernel
+	 * @param paddedDimensions - the real-valued (padded) dimensions of the transform
+	 * @return the transform, or null if it is not cached
+	 */
+	public synchronized Img< ComplexFloatType > get( final Object kernel, final Interval kernelInterval, final long[] paddedDimensions )
+	{
+		return kernelFFTs.get( new Key( kernel, kernelInterval, paddedDimensions ) );
+	}
+
+	/**
+	 * @param kernel - the kernel instance
+	 * @param kernelInterval - the interval of the kernel
+	 * @param paddedDimensions - the real-valued (padded) dimensions of the transform
+	 * @param kernelFFT - the transform
+	 */
+	public synchronized void put( final Object kernel, final Interval kernelInterval, final long[] paddedDimensions, final Img< ComplexFloatType > kernelFFT )
+	{
+		kernelFFTs.put( new Key( kernel, kernelInterval, paddedDimensions ), kernelFFT );
+	}
+
+	public synchronized int size() { return kernelFFTs.size(); }
+	public synchronized void clear() { kernelFFTs.clear(); }
+	public int getMaxEntries() { return maxEntries; }
+
+	/**
+	 * Identifies a kernel transform by kernel instance, kernel interval and padded size
+	 */
+	static class Key
+	{
+		final Object kernel;
+		final long[] bounds;
+		final int hashCode;
+
+		Key( final Object kernel, final Interval kernelInterval, final long[] paddedDimensions )
+		{
+			final int n = kernelInterval.numDimensions();
+
+			this.kernel = kernel;
+			this.bounds = new long[ 3 * n ];
+
+			for ( int d = 0; d < n; ++d )
+			{
+				bounds[ d ] = kernelInterval.min( d );
+				bounds[ d + n ] = kernelInterval.max( d );
+				bounds[ d + 2 * n ] = paddedDimensions[ d ];
+			}
+
+			this.hashCode = 31 * System.identityHashCode( kernel ) + Arrays.hashCode( bounds );
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals( final Object o )
+		{
+			if ( !( o instanceof Key ) )
+				return false;
+
+			final Key key = ( Key ) o;
+			return key.kernel == kernel && Arrays.equals( key.bounds, bounds );
+		}
+	}
+}
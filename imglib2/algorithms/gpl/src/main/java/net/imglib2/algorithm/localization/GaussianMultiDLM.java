@@ -70,7 +70,7 @@ public class GaussianMultiDLM implements FitFunction {
 		} else if (k <= ndims) {
 			// With respect to xi
 			int dim = k - 1;
-			return 2 * a[dim+ndims] * (x[dim] - a[dim+1]) * a[0] * E(x, a);
+			return 2 * a[dim+ndims+1] * (x[dim] - a[dim+1]) * a[0] * E(x, a);
 
 		} else {
 			// With respect to ai
@@ -25,10 +25,16 @@
 
 package net.imglib2.algorithm.localization;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import net.imglib2.Localizable;
+import net.imglib2.algorithm.MultiThreaded;
 import net.imglib2.algorithm.region.localneighborhood.RectangleCursor;
 import net.imglib2.algorithm.region.localneighborhood.RectangleNeighborhoodGPL;
 import net.imglib2.img.Img;
+import net.imglib2.multithreading.SharedThreadPool;
 import net.imglib2.type.numeric.RealType;
 
 /**
@@ -44,7 +50,9 @@ import net.imglib2.type.numeric.RealType;
  * a crude estimate, based on maximum-likelihood analytic formulae.
  * <p>
  * A fitter is instantiated for an image, but can be easily processed in parallel for
- * multiple spots on this image.
+ * multiple spots on this image. {@link #process(Collection, double[])} fits a whole 
+ * batch of peaks on {@link #getNumThreads()} threads, reusing the observation arrays 
+ * and solver buffers of each thread for all the peaks it fits.
  *  
  * @param <T>  the type of the given image, must extend {@link RealType}, for
  * we operate on real values.
@@ -52,13 +60,18 @@ import net.imglib2.type.numeric.RealType;
  * @author Jean-Yves Tinevez (tinevez@pasteur.fr)
  * @author 2011-2012
  */
-public class GaussianPeakFitterND <T extends RealType<T>> {
+public class GaussianPeakFitterND <T extends RealType<T>> implements MultiThreaded {
 
 	private static final String BASE_ERROR_MESSAGE = "GaussianPeakFitterND: ";
 	
+	private static final int MAXITER = 300;
+	private static final double LAMBDA = 1e-3;
+	private static final double TERMEPSILON = 1e-1;
+
 	private final Img<T> image;
 	private final int ndims;
 	private String errorMessage;
+	private int numThreads;
 
 	/*
 	 * CONSTRUCTOR
@@ -72,6 +85,7 @@ public class GaussianPeakFitterND <T extends RealType<T>> {
 	public GaussianPeakFitterND(final Img<T> image) {
 		this.image = image;
 		this.ndims = image.numDimensions();
+		setNumThreads();
 	}
 
 	/*
@@ -115,46 +129,51 @@ public class GaussianPeakFitterND <T extends RealType<T>> {
 	 * ndims+1 → 2 × ndims	cᵢ = 1 / σᵢ² </pre>
 	 */
 	public double[] process(final Localizable point, final double[] typical_sigma) {
+		final double[] a = new double[2*ndims+1];
+		new FitWorkspace(typical_sigma).fit(point, a, 0);
+		return a;
+	}
 
-		// Determine the size of the data to gather
-		long[] pad_size = new long[ndims];
-		for (int i = 0; i < ndims; i++) {
-			pad_size[i] = (long) Math.ceil( 2 * typical_sigma[i]);
-		}	
-
-		// Gather data around peak
-		final Observation data = gatherObservationData(point, pad_size); 
-		final double[][] X = data.X;
-		final double[] I = data.I;
-
-		// Make best guess
-		double[] start_param = makeBestGuess(X, I);
-		
-		// Correct for too large sigmas: we drop estimate and replace it by user input
-		for (int j = 0; j < ndims; j++) {
-			if ( start_param [ j + ndims + 1 ] <  1 / ( typical_sigma[j] * typical_sigma[j] ) ) {
-				start_param [ j + ndims + 1 ] = 1 / ( typical_sigma[j] * typical_sigma[j] );
-			}
-		}
-		
-		// Prepare optimizer
-		int maxiter = 300;
-		double lambda = 1e-3;
-		double termepsilon = 1e-1;
-		
-		final double[] a = start_param.clone();
-		try {
-			LevenbergMarquardtSolver.solve(X, a, I, new GaussianMultiDLM(), lambda , termepsilon, maxiter);
-		} catch (Exception e) {
-			e.printStackTrace();
-		} 
-		
-		// NaN protection: we prefer returning the crude estimate that NaN
-		for (int j = 0; j < a.length; j++) {
-			if (Double.isNaN(a[j]))
-				a[j] = start_param[j];
+	/**
+	 * Fit an elliptical gaussian to each of the given peaks, as in 
+	 * {@link #process(Localizable, double[])}, using {@link #getNumThreads()} threads.
+	 * <p>
+	 * The peaks are split in contiguous chunks, one per thread. Each thread 
+	 * allocates its observation arrays and solver buffers once and reuses them
+	 * for all its peaks.
+	 * 
+	 * @param peaks  the approximate coordinates of the peaks
+	 * @param typical_sigma  the typical sigma of the peaks (in pixel unit, array of one
+	 * element per dimension), see {@link #process(Localizable, double[])}.
+	 * @return  a flat double array of <code>peaks.size() × (2*ndims+1)</code> elements,
+	 * containing the fit estimates of peak <code>k</code> (in the iteration order of the
+	 * collection) from index <code>k × (2*ndims+1)</code> on, in the same order as 
+	 * {@link #process(Localizable, double[])}.
+	 */
+	public double[] process(final Collection<? extends Localizable> peaks, final double[] typical_sigma) {
+		final List<Localizable> list = new ArrayList<Localizable>(peaks);
+		final int nparams = 2*ndims+1;
+		final int npeaks = list.size();
+		final double[] results = new double[npeaks * nparams];
+
+		final int numTasks = Math.max(1, Math.min(npeaks, numThreads));
+		final ArrayList<Runnable> tasks = new ArrayList<Runnable>(numTasks);
+		for (int t = 0; t < numTasks; t++) {
+			final int first = (int) ((long) npeaks * t / numTasks);
+			final int last = (int) ((long) npeaks * (t + 1) / numTasks);
+			tasks.add(new Runnable() {
+				@Override
+				public void run() {
+					final FitWorkspace workspace = new FitWorkspace(typical_sigma);
+					for (int k = first; k < last; k++) {
+						workspace.fit(list.get(k), results, k * nparams);
+					}
+				}
+			});
 		}
-		return a;
+		SharedThreadPool.invokeAll(tasks, numThreads);
+
+		return results;
 	}
 
 	/**
@@ -168,26 +187,26 @@ public class GaussianPeakFitterND <T extends RealType<T>> {
 	 * 
 	 * @param X  the coordinates of observations
 	 * @param I  the pixel value of observations
-	 * @return  a double array containing crude estimates for parameters in this order: 
+	 * @param npts  the number of observations
+	 * @param start_param  a <code>2*ndims+1</code> elements array that receives crude 
+	 * estimates for parameters in this order: 
 	 * <pre> 0.			A
 	 * 1 → ndims		x₀ᵢ
 	 * ndims+1 → 2 × ndims	cᵢ = 1 / σᵢ² </pre>
 	 */
-	private final double[] makeBestGuess(final double[][] X, final double[] I) {
-
-		double[] start_param = new double[2*ndims+1];
+	private final void makeBestGuess(final double[][] X, final double[] I, final int npts, final double[] start_param) {
 
-		double[] X_sum = new double[ndims];
 		for (int j = 0; j < ndims; j++) {
-			X_sum[j] = 0;
-			for (int i = 0; i < X.length; i++) {
-				X_sum[j] += X[i][j] * I[i];
+			double X_sum = 0;
+			for (int i = 0; i < npts; i++) {
+				X_sum += X[i][j] * I[i];
 			}
+			start_param[j+1] = X_sum;
 		}
 
 		double I_sum = 0;
 		double max_I = Double.NEGATIVE_INFINITY;
-		for (int i = 0; i < X.length; i++) {
+		for (int i = 0; i < npts; i++) {
 			I_sum += I[i];
 			if (I[i] > max_I) {
 				max_I = I[i];
@@ -198,84 +217,38 @@ public class GaussianPeakFitterND <T extends RealType<T>> {
 		start_param[0] = max_I;
 
 		for (int j = 0; j < ndims; j++) {
-			start_param[j+1] = X_sum[j] / I_sum;
+			start_param[j+1] /= I_sum;
 		}
 
 		for (int j = 0; j < ndims; j++) {
 			double C = 0;
 			double dx;
-			for (int i = 0; i < X.length; i++) {
+			for (int i = 0; i < npts; i++) {
 				dx = X[i][j] - start_param[j+1];
 				C += I[i] * dx * dx;
 			}
 			C /= I_sum;
 			start_param[ndims + j + 1] = 1 / C;
 		}
-		
-		return start_param;		
 	}
 
-	/**
-	 * Collect the points to build the observation array, by iterating in a hypercube
-	 * around the given location. The size of the cube is calculated by  
-	 * <code>2 * 2 * ceil(typical_sigma) + 1)</code>. Points found out of the image are
-	 * not included.
-	 */
-	private final Observation gatherObservationData(final Localizable point, final long[] pad_size) {
-
-		RectangleNeighborhoodGPL<T, Img<T>> neighborhood = new RectangleNeighborhoodGPL<T, Img<T>>(image);
-		neighborhood.setSpan(pad_size);
-		neighborhood.setPosition(point);
-
-		int n_pixels = (int) neighborhood.size();
-		double[] tmp_I 		= new double[n_pixels];
-		double[][] tmp_X 	= new double[n_pixels][ndims];
-		
-		
-		RectangleCursor<T> cursor = neighborhood.localizingCursor();
-		long[] pos = new long[image.numDimensions()];
-
-		int index = 0;
-		while (cursor.hasNext()) {
-			
-			cursor.fwd();
-			cursor.localize(pos); // This is the absolute roi position
-			if (cursor.isOutOfBounds()) {
-				continue;
-			}
+	public String getErrorMessage() {
+		return errorMessage;
+	}
 
-			for (int i = 0; i < ndims; i++) {
-				tmp_X[index][i] = pos[i];
-			}
-			
-			tmp_I[index] = cursor.get().getRealDouble();
-			index++;
-		} 
-
-		// Now we possibly resize the arrays, in case we have been too close to the 
-		// image border.
-		double[][] X = null;
-		double[] I = null;
-		if (index == n_pixels) {
-			// Ok, we have gone through the whole square
-			X 	= tmp_X;
-			I 	= tmp_I;
-		} else {
-			// Re-dimension the arrays
-			X 	= new double[index][ndims];
-			I 	= new double[index];
-			System.arraycopy(tmp_X, 0, X, 0, index);
-			System.arraycopy(tmp_I, 0, I, 0, index);
-		}
+	@Override
+	public void setNumThreads() {
+		this.numThreads = SharedThreadPool.getParallelism();
+	}
 
-		Observation obs = new Observation();
-		obs.I = I;
-		obs.X = X;
-		return obs;
+	@Override
+	public void setNumThreads(final int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
 	}
 
-	public String getErrorMessage() {
-		return errorMessage;
+	@Override
+	public int getNumThreads() {
+		return numThreads;
 	}
 
 	/*
@@ -283,11 +256,110 @@ public class GaussianPeakFitterND <T extends RealType<T>> {
 	 */
 
 	/**
-	 * A general-use class that can store the observations as a double array, and their 
-	 * coordinates as a 2D double array. 
+	 * The observation arrays and solver buffers needed to fit peaks of a given 
+	 * typical sigma. The arrays are sized for the full block around a peak; 
+	 * near the image border only the first points are used. A workspace must
+	 * only be used by one thread at a time.
 	 */
-	private static class Observation {
-		public double[] I;
-		public double[][] X;
-	} 
+	private class FitWorkspace {
+		private final double[] typical_sigma;
+		private final RectangleNeighborhoodGPL<T, Img<T>> neighborhood;
+		private final RectangleCursor<T> cursor;
+		private final long[] pos;
+		private final double[][] X;
+		private final double[] I;
+		private final double[] start_param;
+		private final double[] params;
+		private final GaussianMultiDLM function;
+		private final LevenbergMarquardtSolver.Workspace solverWorkspace;
+
+		public FitWorkspace(final double[] typical_sigma) {
+			this.typical_sigma = typical_sigma;
+
+			// Determine the size of the data to gather
+			final long[] pad_size = new long[ndims];
+			for (int i = 0; i < ndims; i++) {
+				pad_size[i] = (long) Math.ceil( 2 * typical_sigma[i]);
+			}	
+			neighborhood = new RectangleNeighborhoodGPL<T, Img<T>>(image);
+			neighborhood.setSpan(pad_size);
+			cursor = neighborhood.localizingCursor();
+			pos = new long[ndims];
+
+			final int n_pixels = (int) neighborhood.size();
+			X = new double[n_pixels][ndims];
+			I = new double[n_pixels];
+
+			start_param = new double[2*ndims+1];
+			params = new double[2*ndims+1];
+			function = new GaussianMultiDLM();
+			solverWorkspace = new LevenbergMarquardtSolver.Workspace(2*ndims+1);
+		}
+
+		/**
+		 * Fit the peak at the given point and write the <code>2*ndims+1</code> 
+		 * estimates to <code>a</code>, starting at <code>offset</code>.
+		 */
+		public void fit(final Localizable point, final double[] a, final int offset) {
+
+			// Gather data around peak
+			final int npts = gatherObservationData(point);
+
+			// Make best guess
+			makeBestGuess(X, I, npts, start_param);
+
+			// Correct for too large sigmas: we drop estimate and replace it by user input
+			for (int j = 0; j < ndims; j++) {
+				if ( start_param [ j + ndims + 1 ] <  1 / ( typical_sigma[j] * typical_sigma[j] ) ) {
+					start_param [ j + ndims + 1 ] = 1 / ( typical_sigma[j] * typical_sigma[j] );
+				}
+			}
+
+			// Optimize
+			System.arraycopy(start_param, 0, params, 0, params.length);
+			try {
+				LevenbergMarquardtSolver.solve(X, params, I, npts, function, LAMBDA, TERMEPSILON, MAXITER, solverWorkspace);
+			} catch (Exception e) {
+				e.printStackTrace();
+			} 
+
+			// NaN protection: we prefer returning the crude estimate that NaN
+			for (int j = 0; j < params.length; j++) {
+				a[offset + j] = Double.isNaN(params[j]) ? start_param[j] : params[j];
+			}
+		}
+
+		/**
+		 * Collect the points to build the observation array, by iterating in a hypercube
+		 * around the given location. The size of the cube is calculated by  
+		 * <code>2 * 2 * ceil(typical_sigma) + 1)</code>. Points found out of the image are
+		 * not included.
+		 * 
+		 * @return the number of points collected.
+		 */
+		private int gatherObservationData(final Localizable point) {
+
+			neighborhood.setPosition(point);
+			cursor.reset();
+
+			int index = 0;
+			while (cursor.hasNext()) {
+
+				cursor.fwd();
+				cursor.localize(pos); // This is the absolute roi position
+				if (cursor.isOutOfBounds()) {
+					continue;
+				}
+
+				for (int i = 0; i < ndims; i++) {
+					X[index][i] = pos[i];
+				}
+
+				I[index] = cursor.get().getRealDouble();
+				index++;
+			} 
+
+			return index;
+		}
+	}
 }
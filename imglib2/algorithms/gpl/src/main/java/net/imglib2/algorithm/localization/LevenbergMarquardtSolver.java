@@ -25,15 +25,15 @@
 
 package net.imglib2.algorithm.localization;
 
-import edu.mines.jtk.la.DMatrix;
-import edu.mines.jtk.la.DMatrixLud;
-
 /**
  * A collection of static utils implementing a plain Levenberg-Marquardt least-square curve fitting algorithm.
  * <p>
  * It was adapted and stripped from jplewis (www.idiom.com/~zilla) and released under 
  * the GPL. There are various small tweaks for robustness and speed, mainly a first step to derive 
  * a crude estimate, based on maximum-likelihood analytic formulae.
+ * <p>
+ * All arrays needed during the minimization are held by a {@link Workspace}, which can
+ * be reused for many fits with the same number of parameters, e.g. one per thread.
  *
  * @author Jean-Yves Tinevez <jeanyves.tinevez@gmail.com> 2011
  * @author 2012
@@ -44,7 +44,13 @@ public class LevenbergMarquardtSolver {
 	 * Calculate the current sum-squared-error
 	 */
 	public static final double chiSquared(final double[][] x, final double[] a, final double[] y, final FitFunction f)  {
-		int npts = y.length;
+		return chiSquared(x, a, y, y.length, f);
+	} //chiSquared
+
+	/**
+	 * Calculate the current sum-squared-error over the first <code>npts</code> points.
+	 */
+	public static final double chiSquared(final double[][] x, final double[] a, final double[] y, final int npts, final FitFunction f)  {
 		double sum = 0.;
 
 		for( int i = 0; i < npts; i++ ) {
@@ -73,16 +79,42 @@ public class LevenbergMarquardtSolver {
 	 */
 	public static final int solve(double[][] x, double[] a, double[] y, FitFunction f,
 			double lambda, double termepsilon, int maxiter) throws Exception  {
-		int npts = y.length;
-		int nparm = a.length;
+		return solve(x, a, y, y.length, f, lambda, termepsilon, maxiter, new Workspace(a.length));
+	}
+
+	/**
+	 * Minimize E = sum {(y[k] - f(x[k],a)) }^2 over the first <code>npts</code> 
+	 * points, using the arrays of the given workspace. No memory is allocated.
+	 * 
+	 * @param x array of domain points, each may be multidimensional
+	 * @param y corresponding array of values
+	 * @param npts the number of points of x and y to use
+	 * @param a the parameters/state of the model
+	 * @param lambda blend between steepest descent (lambda high) and
+	 *	jump to bottom of quadratic (lambda zero). Start with 0.001.
+	 * @param termepsilon termination accuracy (0.01)
+	 * @param maxiter	stop and return after this many iterations if not done
+	 * @param workspace the buffers for <code>a.length</code> parameters
+	 *
+	 * @return the number of iteration used by minimization
+	 */
+	public static final int solve(final double[][] x, final double[] a, final double[] y, final int npts, final FitFunction f,
+			double lambda, final double termepsilon, final int maxiter, final Workspace workspace) {
+		final int nparm = a.length;
+		if (workspace.nparm != nparm) {
+			throw new IllegalArgumentException("Workspace is made for " + workspace.nparm + " parameters, but got " + nparm + ".");
+		}
 	
-		double e0 = chiSquared(x, a, y, f);
+		double e0 = chiSquared(x, a, y, npts, f);
 		boolean done = false;
 
 		// g = gradient, H = hessian, d = step to minimum
 		// H d = -g, solve for d
-		double[][] H = new double[nparm][nparm];
-		double[] g = new double[nparm];
+		final double[][] H = workspace.H;
+		final double[] g = workspace.g;
+		final double[] d = workspace.d;
+		final double[] na = workspace.na;
+		final double[] grad = workspace.grad;
 
 		int iter = 0;
 		int term = 0;	// termination count test
@@ -90,55 +122,45 @@ public class LevenbergMarquardtSolver {
 		do {
 			++iter;
 
-			// hessian approximation
+			// hessian approximation and gradient, evaluating the function 
+			// gradient only once per point
 			for( int r = 0; r < nparm; r++ ) {
+				g[r] = 0.;
 				for( int c = 0; c < nparm; c++ ) {
 					H[r][c] = 0.;
-					for( int i = 0; i < npts; i++ ) {
-						double[] xi = x[i];
-						H[r][c] += f.grad(xi, a, r) * f.grad(xi, a, c);
-					}  //npts
-				} //c
-			} //r
+				}
+			}
+			for( int i = 0; i < npts; i++ ) {
+				final double[] xi = x[i];
+				for( int r = 0; r < nparm; r++ ) {
+					grad[r] = f.grad(xi, a, r);
+				}
+				final double dy = y[i] - f.val(xi, a);
+				for( int r = 0; r < nparm; r++ ) {
+					final double gr = grad[r];
+					final double[] Hr = H[r];
+					for( int c = 0; c < nparm; c++ ) {
+						Hr[c] += gr * grad[c];
+					}
+					g[r] += dy * gr;
+				}
+			} //npts
 
 			// boost diagonal towards gradient descent
 			for( int r = 0; r < nparm; r++ )
 				H[r][r] *= (1. + lambda);
 
-			// gradient
-			for( int r = 0; r < nparm; r++ ) {
-				g[r] = 0.;
-				for( int i = 0; i < npts; i++ ) {
-					double[] xi = x[i];
-					g[r] += (y[i]-f.val(xi,a)) * f.grad(xi, a, r);
-				}
-			} //npts
-
 			// solve H d = -g, evaluate error at new location
-			//double[] d = DoubleMatrix.solve(H, g);
-			double[] d = null;
-			try {
-				DMatrix mat1 = new DMatrix(H);
-				DMatrixLud lu = new DMatrixLud(mat1);
-				DMatrix mat2 = new DMatrix(nparm, nparm, 0d);
-				for (int i = 0; i < nparm; i++) {
-					mat2.set(i, i, g[i]);
-				}
-				DMatrix res = lu.solve(mat2);
-				d = res.getPackedRows();
-			} catch (RuntimeException re) {
+			if (!solveLinear(H, g, d, nparm)) {
 				// Matrix is singular
 				lambda *= 10.;
+				if (iter >= maxiter) break;
 				continue;
 			}
-			DMatrix amat = new DMatrix(nparm, nparm, 0d);
-			DMatrix dmat = new DMatrix(nparm, nparm, 0d);
 			for (int i = 0; i < nparm; i++) {
-				amat.set(i, i, a[i]);
-				dmat.set(i, i, d[i]);
+				na[i] = a[i] + d[i];
 			}
-			double[] na = amat.plus(dmat).getPackedRows();
-			double e1 = chiSquared(x, na, y, f);
+			double e1 = chiSquared(x, na, y, npts, f);
 
 			// termination test (slightly different than NR)
 			if (Math.abs(e1-e0) > termepsilon) {
@@ -171,5 +193,83 @@ public class LevenbergMarquardtSolver {
 
 		return iter;
 	} //solve
-	
+
+	/**
+	 * Solve <code>A x = b</code> by Gaussian elimination with partial pivoting. 
+	 * A is overwritten, b is left untouched. 
+	 * 
+	 * @return false if the matrix is singular.
+	 */
+	private static final boolean solveLinear(final double[][] A, final double[] b, final double[] x, final int n) {
+		for (int i = 0; i < n; i++) {
+			x[i] = b[i];
+		}
+
+		for (int k = 0; k < n; k++) {
+			// pivot
+			int p = k;
+			for (int i = k + 1; i < n; i++) {
+				if (Math.abs(A[i][k]) > Math.abs(A[p][k])) {
+					p = i;
+				}
+			}
+			if (A[p][k] == 0 || Double.isNaN(A[p][k])) {
+				return false;
+			}
+			if (p != k) {
+				final double[] tmp = A[p];
+				A[p] = A[k];
+				A[k] = tmp;
+				final double t = x[p];
+				x[p] = x[k];
+				x[k] = t;
+			}
+
+			// eliminate
+			final double[] Ak = A[k];
+			for (int i = k + 1; i < n; i++) {
+				final double[] Ai = A[i];
+				final double factor = Ai[k] / Ak[k];
+				for (int j = k + 1; j < n; j++) {
+					Ai[j] -= factor * Ak[j];
+				}
+				x[i] -= factor * x[k];
+			}
+		}
+
+		// back substitution
+		for (int k = n - 1; k >= 0; k--) {
+			final double[] Ak = A[k];
+			double sum = x[k];
+			for (int j = k + 1; j < n; j++) {
+				sum -= Ak[j] * x[j];
+			}
+			x[k] = sum / Ak[k];
+		}
+		return true;
+	}
+
+	/**
+	 * The arrays used by {@link LevenbergMarquardtSolver#solve(double[][], double[], double[], int, FitFunction, double, double, int, Workspace)}
+	 * for a given number of parameters. A workspace must not be used by several
+	 * threads at the same time.
+	 */
+	public static class Workspace {
+
+		private final int nparm;
+		private final double[][] H;
+		private final double[] g;
+		private final double[] d;
+		private final double[] na;
+		private final double[] grad;
+
+		public Workspace(final int nparm) {
+			this.nparm = nparm;
+			this.H = new double[nparm][nparm];
+			this.g = new double[nparm];
+			this.d = new double[nparm];
+			this.na = new double[nparm];
+			this.grad = new double[nparm];
+		}
+	}
 }
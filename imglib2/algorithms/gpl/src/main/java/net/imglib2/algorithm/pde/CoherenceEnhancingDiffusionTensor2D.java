@@ -1,5 +1,6 @@
 package net.imglib2.algorithm.pde;
 
+import java.util.ArrayList;
 import java.util.Vector;
 
 import mpicbg.util.Util;
@@ -11,6 +12,7 @@ import net.imglib2.algorithm.gauss.Gauss;
 import net.imglib2.exception.IncompatibleTypeException;
 import net.imglib2.img.Img;
 import net.imglib2.multithreading.Chunk;
+import net.imglib2.multithreading.SharedThreadPool;
 import net.imglib2.multithreading.SimpleMultiThreading;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.real.FloatType;
@@ -31,6 +33,11 @@ implements OutputAlgorithm<Img<FloatType>> {
 	 * iterative part.
 	 */
 	private Img<FloatType> D;
+	/** 
+	 * Stores the structure tensor. Like {@link #D}, it is allocated at the first call
+	 * to {@link #process()} and reused for all following ones.
+	 */
+	private Img<FloatType> J;
 
 	private double sigma = 2;
 	private double rho = 4;
@@ -61,18 +68,25 @@ implements OutputAlgorithm<Img<FloatType>> {
 	@Override
 	public boolean process() {
 
-		/* 0. Instantiate tensor holder, and initialize cursors. */
-		long[] tensorDims = new long[input.numDimensions() + 1];
-		for (int i = 0; i < input.numDimensions(); i++) {
-			tensorDims[i] = input.dimension(i);
-		}
-		tensorDims[input.numDimensions()] = 3;
-		try {
-			D = input.factory().imgFactory(new FloatType()).create(tensorDims, new FloatType());
-		} catch (IncompatibleTypeException e) {
-			errorMessage = BASE_ERROR_MESSAGE + "Failed to create tensor holder:\n"+e.getMessage();
-			return false;
+		/* 0. Instantiate tensor holders, unless this was done in a previous call. 
+		 * As the tensor is typically recomputed at each iteration of a diffusion 
+		 * process, this spares reallocating it every time. */
+		if (null == D) {
+			long[] tensorDims = new long[input.numDimensions() + 1];
+			for (int i = 0; i < input.numDimensions(); i++) {
+				tensorDims[i] = input.dimension(i);
+			}
+			tensorDims[input.numDimensions()] = 3;
+			try {
+				D = input.factory().imgFactory(new FloatType()).create(tensorDims, new FloatType());
+			} catch (IncompatibleTypeException e) {
+				errorMessage = BASE_ERROR_MESSAGE + "Failed to create tensor holder:\n"+e.getMessage();
+				return false;
+			}
+			J = D.factory().create(D, new FloatType());
 		}
+		final Img<FloatType> D = this.D;
+		final Img<FloatType> J = this.J;
 
 		/* 1. Create a smoothed version of the input. */
 		Img<FloatType> smoothed = Gauss.toFloat(new double[] { sigma, sigma }, input);
@@ -87,16 +101,15 @@ implements OutputAlgorithm<Img<FloatType>> {
 
 		/* 3. Compute the structure tensor. */
 
-		final Img<FloatType> J = D.factory().create(D, new FloatType());
 		final int newDim = input.numDimensions(); 
 
 		final Vector<Chunk> chunks = SimpleMultiThreading.divideIntoChunks(input.size(), numThreads);
-		Thread[] threads = SimpleMultiThreading.newThreads(numThreads);
+		final ArrayList<Runnable> tasks = new ArrayList<Runnable>(chunks.size());
 
-		for (int i = 0; i < threads.length; i++) {
+		for (int i = 0; i < chunks.size(); i++) {
 
 			final Chunk chunk = chunks.get(i);
-			threads[i] = new Thread(""+BASE_ERROR_MESSAGE+"thread "+i) {
+			tasks.add(new Runnable() {
 
 				@Override
 				public void run() {
@@ -128,10 +141,10 @@ implements OutputAlgorithm<Img<FloatType>> {
 						J_ra.get().set(uy*uy);
 					}
 				}
-			};
+			});
 		}
 
-		SimpleMultiThreading.startAndJoin(threads);
+		SharedThreadPool.invokeAll(tasks, numThreads);
 
 
 		/* 3.5 Smoooth the structure tensor. */
@@ -141,10 +154,11 @@ implements OutputAlgorithm<Img<FloatType>> {
 
 		/* 4. Construct Diffusion tensor. */
 
-		for (int i = 0; i < threads.length; i++) {
+		tasks.clear();
+		for (int i = 0; i < chunks.size(); i++) {
 
 			final Chunk chunk = chunks.get(i);
-			threads[i] = new Thread(""+BASE_ERROR_MESSAGE+"thread "+i) {
+			tasks.add(new Runnable() {
 
 				@Override
 				public void run() {
@@ -222,10 +236,10 @@ implements OutputAlgorithm<Img<FloatType>> {
 
 					}
 				}
-			};
+			});
 		}
 		
-		SimpleMultiThreading.startAndJoin(threads);
+		SharedThreadPool.invokeAll(tasks, numThreads);
 
 		return true;
 
@@ -0,0 +1,169 @@
+/*
+ * #%L
+ * ImgLib: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+package net.imglib2.algorithm.pde;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.multithreading.SharedThreadPool;
+import net.imglib2.multithreading.SimpleMultiThreading;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+/**
+ * Runs the steps of an explicit diffusion scheme on tiles of the increment image.
+ * <p>
+ * In each step, the increment of all tiles is computed in parallel on the 
+ * {@link SharedThreadPool}, and only then added to the image, also in parallel,
+ * clamped to the range of the image type. The tiles are created at the first
+ * step and reused for all following ones, until the number of threads changes
+ * or {@link #reset()} is called. Subclasses only supply the task that computes
+ * the increment of a tile.
+ * 
+ * @param <T>  the type of the image.
+ * @author ImgLib2 developers
+ */
+abstract class DiffusionTiles<T extends RealType<T>> {
+
+	/** 
+	 * The number of tiles per thread the increment image is split into. More tiles 
+	 * than threads balance the load when some tiles are slower than others.
+	 */
+	private static final int TILES_PER_THREAD = 4;
+
+	private final RandomAccessibleInterval<T> image;
+	private final Img<FloatType> increment;
+	private final float minVal;
+	private final float maxVal;
+
+	private List<Runnable> computeTasks;
+	private List<Runnable> addTasks;
+	private int tilesNumThreads;
+
+	/**
+	 * @param image  the image the increment is added to.
+	 * @param increment  the increment image, of the same size as the image.
+	 */
+	public DiffusionTiles(final RandomAccessibleInterval<T> image, final Img<FloatType> increment) {
+		this.image = image;
+		this.increment = increment;
+		// Protection against under/overflow
+		final T tmp = Views.iterable(image).firstElement();
+		this.minVal = (float) tmp.getMinValue();
+		this.maxVal = (float) tmp.getMaxValue();
+	}
+
+	/**
+	 * Create the task that computes the increment of one tile. It is created 
+	 * once per tile and run at every step.
+	 * 
+	 * @param tile  the part of the increment image to compute.
+	 */
+	protected abstract Runnable createComputeTask(IterableInterval<FloatType> tile);
+
+	/**
+	 * Drop the tiles, so that they are created again at the next step, for 
+	 * instance because the compute tasks refer to data that was replaced.
+	 */
+	public void reset() {
+		computeTasks = null;
+		addTasks = null;
+	}
+
+	/**
+	 * Execute several steps of the scheme.
+	 * 
+	 * @param numThreads  the number of threads to use.
+	 * @param numIterations  the number of steps to execute.
+	 */
+	public void process(final int numThreads, final int numIterations) {
+		if (computeTasks == null || tilesNumThreads != numThreads) {
+			createTiles(numThreads);
+		}
+		for (int i = 0; i < numIterations; i++) {
+			SharedThreadPool.invokeAll(computeTasks, numThreads);
+
+			// Now add the calculated increment all at once to the source.
+			// We do this in another multithreading loop to avoid problems with slow
+			// threads. Thanks to Stephan Preibisch who noticed it.
+			SharedThreadPool.invokeAll(addTasks, numThreads);
+		}
+	}
+
+	private void createTiles(final int numThreads) {
+		final int numTiles = numThreads <= 1 ? 1 : numThreads * TILES_PER_THREAD;
+		final List<IterableInterval<FloatType>> parts = SimpleMultiThreading.split(increment, numTiles);
+		computeTasks = new ArrayList<Runnable>(parts.size());
+		addTasks = new ArrayList<Runnable>(parts.size());
+		for (final IterableInterval<FloatType> part : parts) {
+			computeTasks.add(createComputeTask(part));
+			addTasks.add(new AddIncrement(part));
+		}
+		tilesNumThreads = numThreads;
+	}
+
+	/**
+	 * Adds the increment of one tile to the image.
+	 */
+	private class AddIncrement implements Runnable {
+
+		private final Cursor<FloatType> incrementCursor;
+		private final RandomAccess<T> ra;
+
+		public AddIncrement(final IterableInterval<FloatType> tile) {
+			incrementCursor = tile.localizingCursor();
+			ra = image.randomAccess();
+		}
+
+		@Override
+		public void run() {
+			float val, inc, sum;
+			incrementCursor.reset();
+			while (incrementCursor.hasNext()) {
+
+				inc = incrementCursor.next().get(); // FloatType, might be negative
+				ra.setPosition(incrementCursor);
+				val = ra.get().getRealFloat(); // T type, might be 0
+
+				// Over/Underflow protection
+				sum = val + inc;
+				if (sum > maxVal) {
+					sum = maxVal;
+				}
+				if (sum < minVal) {
+					sum = minVal;
+				}
+				ra.get().setReal(sum);
+			}
+		}
+	}
+}
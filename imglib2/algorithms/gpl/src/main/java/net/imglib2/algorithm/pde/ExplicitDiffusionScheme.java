@@ -1,16 +1,13 @@
 package net.imglib2.algorithm.pde;
 
-import java.util.Vector;
-
 import net.imglib2.Cursor;
 import net.imglib2.ExtendedRandomAccessibleInterval;
+import net.imglib2.IterableInterval;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.algorithm.MultiThreadedBenchmarkAlgorithm;
 import net.imglib2.exception.IncompatibleTypeException;
 import net.imglib2.img.Img;
-import net.imglib2.multithreading.Chunk;
-import net.imglib2.multithreading.SimpleMultiThreading;
 import net.imglib2.outofbounds.OutOfBounds;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.real.FloatType;
@@ -36,11 +33,17 @@ public abstract class ExplicitDiffusionScheme<T extends RealType<T>> extends Mul
 	 */
 	protected Img<FloatType> increment;
 
-	private final float maxVal;
-	private final float minVal;
 	/** The dimension to iterate over to retrieve the tensor components. */
 	protected final int tensorComponentDimension;
 
+	/** 
+	 * The tiles of the increment image. They are reused for all iterations, 
+	 * until the number of threads or the diffusion tensor changes.
+	 */
+	private final DiffusionTiles<T> tiles;
+	/** The diffusion tensor the tiles were created for. */
+	private RandomAccessibleInterval<FloatType> tilesD;
+
 	/*
 	 * PROTECTED CONSTRUCTOR
 	 */
@@ -53,9 +56,12 @@ public abstract class ExplicitDiffusionScheme<T extends RealType<T>> extends Mul
 		} catch (IncompatibleTypeException e) {
 			e.printStackTrace();
 		}
-		// Protection against under/overflow
-		this.minVal = (float) input.firstElement().getMinValue();
-		this.maxVal = (float) input.firstElement().getMaxValue();
+		this.tiles = new DiffusionTiles<T>(input, increment) {
+			@Override
+			protected Runnable createComputeTask(final IterableInterval<FloatType> tile) {
+				return new ComputeIncrement(tile);
+			}
+		};
 		// The dimension to iterate over to retrieve the tensor components
 		this.tensorComponentDimension = input.numDimensions();
 		this.processingTime = 0;
@@ -73,113 +79,88 @@ public abstract class ExplicitDiffusionScheme<T extends RealType<T>> extends Mul
 
 	/**
 	 * Execute one iteration of explicit scheme of the diffusion equation.
+	 * <p>
+	 * No memory is allocated after the first iteration, as long as the number 
+	 * of threads and the diffusion tensor stay the same.
 	 */
 	@Override
 	public boolean process() {
+		return process(1);
+	}
 
+	/**
+	 * Execute several iterations of the explicit scheme of the diffusion equation,
+	 * for a diffusion tensor that does not change during the iterations. The 
+	 * tiles and the increment image are reused for all iterations.
+	 * 
+	 * @param numIterations  the number of iterations to execute.
+	 * @return true if all iterations were executed successfully.
+	 */
+	public boolean process(final int numIterations) {
 		long start = System.currentTimeMillis();
-		final Vector<Chunk> chunks = SimpleMultiThreading.divideIntoChunks(input.size(), numThreads);
-		Thread[] threads = SimpleMultiThreading.newThreads(numThreads);
-
-		for (int i = 0; i < threads.length; i++) {
-
-			final Chunk chunk = chunks.get(i);
-
-			threads[i] = new Thread(""+BASE_ERROR_MESSAGE+"thread "+i) {
-
-				@Override
-				public void run() {
-
-					// HACK: Explicit assignment is needed for OpenJDK javac.
-					ExtendedRandomAccessibleInterval<T, Img<T>> extendedInput = Views.extendMirrorDouble(input);
-					OutOfBounds<T> ura = extendedInput.randomAccess();
-
-					// HACK: Explicit assignment is needed for OpenJDK javac.
-					ExtendedRandomAccessibleInterval<FloatType, RandomAccessibleInterval<FloatType>> extendedD = Views.extendMirrorDouble(D);
-					OutOfBounds<FloatType> dra 	= extendedD.randomAccess();
-
-					Cursor<FloatType> incrementCursor 		= increment.localizingCursor();
-
-					long[] position = new long[input.numDimensions()];
-
-					float[][] D = initDiffusionTensorArray();
-					float[] U = initDensityArray();
-
-					incrementCursor.jumpFwd(chunk.getStartPosition());
-					for (long j = 0; j < chunk.getLoopSize(); j++) {
-
-						// Move input cursor.
-						incrementCursor.fwd();
+		if (tilesD != D) {
+			tiles.reset();
+			tilesD = D;
+		}
+		tiles.process(numThreads, numIterations);
+		long end = System.currentTimeMillis();
+		processingTime += (end - start);
+		return true;
+	}
 
-						// Move local neighborhood input cursor.
-						ura.setPosition(incrementCursor);
-						incrementCursor.localize(position);
+	/**
+	 * Computes the increment of one tile, with the accesses and neighborhood 
+	 * buffers it keeps for all iterations.
+	 */
+	private class ComputeIncrement implements Runnable {
+
+		private final Cursor<FloatType> incrementCursor;
+		private final OutOfBounds<T> ura;
+		private final OutOfBounds<FloatType> dra;
+		private final long[] position;
+		private final float[][] DArray;
+		private final float[] U;
+
+		public ComputeIncrement(final IterableInterval<FloatType> tile) {
+			// HACK: Explicit assignment is needed for OpenJDK javac.
+			ExtendedRandomAccessibleInterval<T, Img<T>> extendedInput = Views.extendMirrorDouble(input);
+			ura = extendedInput.randomAccess();
+
+			// HACK: Explicit assignment is needed for OpenJDK javac.
+			ExtendedRandomAccessibleInterval<FloatType, RandomAccessibleInterval<FloatType>> extendedD = Views.extendMirrorDouble(D);
+			dra = extendedD.randomAccess();
+
+			incrementCursor = tile.localizingCursor();
+			position = new long[input.numDimensions()];
+			DArray = initDiffusionTensorArray();
+			U = initDensityArray();
+		}
 
-						// Move diffusion tensor cursor in the fist N dimension
-						for (int i = 0; i < position.length; i++) {
-							dra.setPosition(position[i], i);
-						}
+		@Override
+		public void run() {
+			incrementCursor.reset();
+			while (incrementCursor.hasNext()) {
 
-						// Iterate in local neighborhood and yield values
-						yieldDensity(ura, U);
-						yieldDiffusionTensor(dra, D);
+				// Move input cursor.
+				incrementCursor.fwd();
 
-						// Compute increment from arrays
-						incrementCursor.get().setReal(diffusionScheme(U, D));
-					} // looping on all pixel
+				// Move local neighborhood input cursor.
+				ura.setPosition(incrementCursor);
+				incrementCursor.localize(position);
 
+				// Move diffusion tensor cursor in the fist N dimension
+				for (int i = 0; i < position.length; i++) {
+					dra.setPosition(position[i], i);
 				}
 
-			};
-		}
-
-		SimpleMultiThreading.startAndJoin(threads);
-		
-		
-		// Now add the calculated increment all at once to the source.
-		// We do this in another multithreading loop to avoid problems with slow
-		// threads. Thanks to Stephan Preibisch who noticed it.
-		
-		for (int ithread = 0; ithread < threads.length; ithread++) {
-
-			final Chunk chunk = chunks.get( ithread );
-			threads[ithread] = new Thread(""+BASE_ERROR_MESSAGE+"thread "+ithread) {
-
-				@Override
-				public void run() {
-
-					Cursor<FloatType> incrementCursor = increment.localizingCursor();
-					RandomAccess<T> ra = input.randomAccess();
-
-					float val, inc, sum;
-					incrementCursor.reset();
-					incrementCursor.jumpFwd(chunk.getStartPosition());
-					for (long j = 0; j < chunk.getLoopSize(); j++) {
-
-						inc = incrementCursor.next().get(); // FloatType, might be negative
-						ra.setPosition(incrementCursor);
-						val = ra.get().getRealFloat(); // T type, might be 0
-
-						// Over/Underflow protection
-						sum = val + inc;
-						if (sum > maxVal) {
-							sum = maxVal;
-						}
-						if (sum < minVal) {
-							sum = minVal;
-						}
-						ra.get().setReal(sum);
-					}
+				// Iterate in local neighborhood and yield values
+				yieldDensity(ura, U);
+				yieldDiffusionTensor(dra, DArray);
 
-				}
-			};
+				// Compute increment from arrays
+				incrementCursor.get().setReal(diffusionScheme(U, DArray));
+			} // looping on all pixel
 		}
- 
-		SimpleMultiThreading.startAndJoin(threads);
-
-		long end = System.currentTimeMillis();
-		processingTime += (end - start);
-		return true;
 	}
 
 
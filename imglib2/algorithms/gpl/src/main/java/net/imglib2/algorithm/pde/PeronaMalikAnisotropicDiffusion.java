@@ -25,8 +25,6 @@
 
 package net.imglib2.algorithm.pde;
 
-import java.util.Vector;
-
 import net.imglib2.Cursor;
 import net.imglib2.ExtendedRandomAccessibleInterval;
 import net.imglib2.IterableInterval;
@@ -39,8 +37,6 @@ import net.imglib2.img.Img;
 import net.imglib2.img.ImgFactory;
 import net.imglib2.img.array.ArrayImgFactory;
 import net.imglib2.img.cell.CellImgFactory;
-import net.imglib2.multithreading.Chunk;
-import net.imglib2.multithreading.SimpleMultiThreading;
 import net.imglib2.type.Type;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.real.FloatType;
@@ -94,8 +90,12 @@ public class PeronaMalikAnisotropicDiffusion <T extends RealType<T>> extends Mul
 	private Img<FloatType> increment;
 	private double deltat;
 	private DiffusionFunction fun;
-	private float minVal;
-	private float maxVal;
+
+	/** 
+	 * The tiles of the increment image. They are reused for all iterations, 
+	 * until the number of threads changes.
+	 */
+	private final DiffusionTiles<T> tiles;
 
 	/*
 	 * CONSTRUCTORS
@@ -158,11 +158,12 @@ public class PeronaMalikAnisotropicDiffusion <T extends RealType<T>> extends Mul
 		this.fun = function;
 		this.processingTime = 0;
 		this.increment = factory.create(image, new FloatType());
-		
-		// Protection against under/overflow
-		final T tmp = Views.iterable( image ).firstElement();
-		this.minVal = (float) tmp.getMinValue();
-		this.maxVal = (float) tmp.getMaxValue();
+		this.tiles = new DiffusionTiles<T>(image, increment) {
+			@Override
+			protected Runnable createComputeTask(final IterableInterval<FloatType> tile) {
+				return new ComputeIncrement(tile);
+			}
+		};
 	}
 
 
@@ -209,119 +210,94 @@ public class PeronaMalikAnisotropicDiffusion <T extends RealType<T>> extends Mul
 
 	/**
 	 * Execute one step of the numerical integration scheme. To achieve several iterations of the scheme, 
-	 * one has to call this methods several times.
+	 * one has to call this methods several times, or {@link #process(int)}.
+	 * <p>
+	 * No memory is allocated after the first step, as long as the number of 
+	 * threads stays the same.
 	 */
 	@Override
 	public boolean process() {
-		long start = System.currentTimeMillis();
-
-		final Vector<Chunk> chunks = SimpleMultiThreading.divideIntoChunks(increment.size(), numThreads);
-		final Thread[] threads = SimpleMultiThreading.newThreads(numThreads);
-
-		for (int ithread = 0; ithread < threads.length; ithread++) {
-
-			final Chunk chunk = chunks.get( ithread );
-			threads[ithread] = new Thread(""+BASE_ERROR_MESSAGE+"thread "+ithread) {
-
-				@Override
-				public void run() {
-
-					long[] centralPosition = new long[image.numDimensions()];
-					long[] position = new long[image.numDimensions()];
-					Cursor<FloatType> incrementCursor = increment.localizingCursor();
-					RandomAccess<T> ra = image.randomAccess();
-
-					// HACK: Explicit assignment is needed for OpenJDK javac.
-					ExtendedRandomAccessibleInterval<T, RandomAccessibleInterval<T>> extendedImage = Views.extendMirrorSingle(image);
-					LocalNeighborhoodCursor<T> neighborhoodCursor = new LocalNeighborhoodCursor<T>(extendedImage, centralPosition);
-
-					incrementCursor.jumpFwd(chunk.getStartPosition());
-
-					for ( long j = 0; j < chunk.getLoopSize(); ++j ) {
-
-						incrementCursor.fwd();
-						incrementCursor.localize(centralPosition);
-						ra.setPosition(incrementCursor);
-						double centralValue = ra.get().getRealFloat();
-
-						// Loop over all neighbors
-						double amount = 0;
-
-						neighborhoodCursor.updateCenter(centralPosition);
-						while (neighborhoodCursor.hasNext()) {
+		return process(1);
+	}
 
-							neighborhoodCursor.fwd();
+	/**
+	 * Execute several steps of the numerical integration scheme. The tiles and 
+	 * the increment image are reused for all steps.
+	 * 
+	 * @param numIterations  the number of steps to execute.
+	 * @return true if all steps were executed successfully.
+	 */
+	public boolean process(final int numIterations) {
+		long start = System.currentTimeMillis();
+		tiles.process(numThreads, numIterations);
+		long end = System.currentTimeMillis();
+		processingTime += (end - start);
+		return true;
+	}
 
-							// Lattice length
-							double dx2 = 0;
-							for (int dim = 0; dim < image.numDimensions(); dim++) {
-								position[dim] = neighborhoodCursor.getLongPosition(dim) - centralPosition[dim];
-								dx2 += position[dim] * position[dim];
-							}
+	/**
+	 * Computes the increment of one tile, with the accesses and neighborhood 
+	 * cursor it keeps for all steps.
+	 */
+	private class ComputeIncrement implements Runnable {
+
+		private final long[] centralPosition;
+		private final long[] position;
+		private final Cursor<FloatType> incrementCursor;
+		private final RandomAccess<T> ra;
+		private final LocalNeighborhoodCursor<T> neighborhoodCursor;
+
+		public ComputeIncrement(final IterableInterval<FloatType> tile) {
+			centralPosition = new long[image.numDimensions()];
+			position = new long[image.numDimensions()];
+			incrementCursor = tile.localizingCursor();
+			ra = image.randomAccess();
+
+			// HACK: Explicit assignment is needed for OpenJDK javac.
+			ExtendedRandomAccessibleInterval<T, RandomAccessibleInterval<T>> extendedImage = Views.extendMirrorSingle(image);
+			neighborhoodCursor = new LocalNeighborhoodCursor<T>(extendedImage, centralPosition);
+		}
 
-							// Finite differences
-							double di = neighborhoodCursor.get().getRealDouble() - centralValue;
+		@Override
+		public void run() {
+			incrementCursor.reset();
+			while (incrementCursor.hasNext()) {
 
-							// Diffusion function
-							double g = fun.eval(di, position);
+				incrementCursor.fwd();
+				incrementCursor.localize(centralPosition);
+				ra.setPosition(incrementCursor);
+				double centralValue = ra.get().getRealFloat();
 
-							// Amount
-							amount += 1/dx2 * g * di;
+				// Loop over all neighbors
+				double amount = 0;
 
-						} // Finished looping over neighbors
+				neighborhoodCursor.updateCenter(centralPosition);
+				while (neighborhoodCursor.hasNext()) {
 
-						// Update current value
-						incrementCursor.get().setReal(deltat * amount);
+					neighborhoodCursor.fwd();
 
+					// Lattice length
+					double dx2 = 0;
+					for (int dim = 0; dim < image.numDimensions(); dim++) {
+						position[dim] = neighborhoodCursor.getLongPosition(dim) - centralPosition[dim];
+						dx2 += position[dim] * position[dim];
 					}
 
-				}
-			};
-		}
+					// Finite differences
+					double di = neighborhoodCursor.get().getRealDouble() - centralValue;
 
-		SimpleMultiThreading.startAndJoin(threads);
-		
-		// Now add the calculated increment all at once to the source			
-		for (int ithread = 0; ithread < threads.length; ithread++) {
-
-			final Chunk chunk = chunks.get( ithread );
-			threads[ithread] = new Thread(""+BASE_ERROR_MESSAGE+"thread "+ithread) {
-
-				@Override
-				public void run() {
-
-					Cursor<FloatType> incrementCursor = increment.localizingCursor();
-					RandomAccess<T> ra = image.randomAccess();
-					
-					float val, inc, sum;
-					incrementCursor.reset();
-					incrementCursor.jumpFwd(chunk.getStartPosition());
-					for (long j = 0; j < chunk.getLoopSize(); j++) {
-
-						inc = incrementCursor.next().get(); // FloatType, might be negative
-						ra.setPosition(incrementCursor);
-						val = ra.get().getRealFloat(); // T type, might be 0
-
-						// Over/Underflow protection
-						sum = val + inc;
-						if (sum > maxVal) {
-							sum = maxVal;
-						}
-						if (sum < minVal) {
-							sum = minVal;
-						}
-						ra.get().setReal(sum);
-					}
+					// Diffusion function
+					double g = fun.eval(di, position);
 
-				}
-			};
-		}
+					// Amount
+					amount += 1/dx2 * g * di;
 
-		SimpleMultiThreading.startAndJoin(threads);
+				} // Finished looping over neighbors
 
-		long end = System.currentTimeMillis();
-		processingTime += (end - start);
-		return true;
+				// Update current value
+				incrementCursor.get().setReal(deltat * amount);
+			}
+		}
 	}
 
 	/**
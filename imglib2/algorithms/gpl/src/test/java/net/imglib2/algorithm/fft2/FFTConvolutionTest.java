@@ -0,0 +1,191 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.algorithm.fft2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.complex.ComplexFloatType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests block-wise convolution and kernel FFT caching of {@link FFTConvolution}.
+ *
+ * @author ImgLib2 developers
+ */
+public class FFTConvolutionTest
+{
+	final ArrayImgFactory< ComplexFloatType > fftFactory = new ArrayImgFactory< ComplexFloatType >();
+
+	static Img< FloatType > random( final Random random, final long... dimensions )
+	{
+		final Img< FloatType > img = ArrayImgs.floats( dimensions );
+		for ( final FloatType t : img )
+			t.set( random.nextFloat() );
+		return img;
+	}
+
+	static void assertImgEquals( final Img< FloatType > expected, final Img< FloatType > actual )
+	{
+		final Cursor< FloatType > c = expected.localizingCursor();
+		final RandomAccess< FloatType > a = actual.randomAccess();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			a.setPosition( c );
+			assertEquals( c.get().get(), a.get().get(), 1e-3 );
+		}
+	}
+
+	@Test
+	public void testBlocksEqualFullConvolution()
+	{
+		final Random random = new Random( 1 );
+		final Img< FloatType > img = random( random, 37, 23, 9 );
+		final Img< FloatType > kernel = random( random, 5, 4, 3 );
+
+		final Img< FloatType > full = img.factory().create( img, new FloatType() );
+		new FFTConvolution< FloatType >( img, kernel, full, fftFactory ).run();
+
+		final Img< FloatType > blocks = img.factory().create( img, new FloatType() );
+		final FFTConvolution< FloatType > conv = new FFTConvolution< FloatType >( img, kernel, blocks, fftFactory );
+		conv.setBlockSize( 8, 6, 4 );
+		conv.setNumThreads( 3 );
+		conv.run();
+
+		assertImgEquals( full, blocks );
+	}
+
+	@Test
+	public void testBlocksInPlace()
+	{
+		final Random random = new Random( 2 );
+		final Img< FloatType > img = random( random, 30, 20 );
+		final Img< FloatType > kernel = random( random, 7, 3 );
+
+		final Img< FloatType > full = img.factory().create( img, new FloatType() );
+		new FFTConvolution< FloatType >( img, kernel, full, fftFactory ).run();
+
+		final FFTConvolution< FloatType > conv = new FFTConvolution< FloatType >( img, kernel, fftFactory );
+		conv.setBlockSize( 5 );
+		conv.run();
+
+		assertImgEquals( full, img );
+	}
+
+	@Test
+	public void testBlocksIntoViewOfInput()
+	{
+		final Random random = new Random( 4 );
+		final Img< FloatType > img = random( random, 30, 20 );
+		final Img< FloatType > kernel = random( random, 7, 3 );
+
+		final Img< FloatType > full = img.factory().create( img, new FloatType() );
+		new FFTConvolution< FloatType >( img, kernel, full, fftFactory ).run();
+
+		// a different object than the input, but writing into the same pixels
+		final FFTConvolution< FloatType > conv = new FFTConvolution< FloatType >( img, kernel, Views.interval( img, img ), fftFactory );
+		conv.setBlockSize( 5 );
+		conv.run();
+
+		assertImgEquals( full, img );
+	}
+
+	@Test
+	public void testBlocksKeepImgFFT()
+	{
+		final Random random = new Random( 5 );
+		final Img< FloatType > img = random( random, 30, 20 );
+		final Img< FloatType > kernel1 = random( random, 7, 3 );
+		final Img< FloatType > kernel2 = random( random, 7, 3 );
+
+		final Img< FloatType > full = img.factory().create( img, new FloatType() );
+		new FFTConvolution< FloatType >( img, kernel2, full, fftFactory ).run();
+
+		final Img< FloatType > out = img.factory().create( img, new FloatType() );
+		final FFTConvolution< FloatType > conv = new FFTConvolution< FloatType >( img, kernel1, out, fftFactory );
+		conv.setBlockSize( 5 );
+		conv.setKeepImgFFT( true );
+		conv.run();
+		assertNotNull( conv.imgFFT() );
+
+		final Img< ComplexFloatType > fftImg = conv.imgFFT();
+		conv.setKernel( kernel2 );
+		conv.run();
+		assertSame( fftImg, conv.imgFFT() );
+
+		assertImgEquals( full, out );
+	}
+
+	@Test
+	public void testKernelFFTCache()
+	{
+		final Random random = new Random( 3 );
+		final Img< FloatType > img1 = random( random, 24, 16 );
+		final Img< FloatType > img2 = random( random, 24, 16 );
+		final Img< FloatType > kernel = random( random, 5, 5 );
+		final KernelFFTCache cache = new KernelFFTCache();
+
+		final Img< FloatType > out1 = img1.factory().create( img1, new FloatType() );
+		final FFTConvolution< FloatType > conv1 = new FFTConvolution< FloatType >( img1, kernel, out1, fftFactory );
+		conv1.setKernelFFTCache( cache );
+		conv1.run();
+
+		final Img< FloatType > out2 = img2.factory().create( img2, new FloatType() );
+		final FFTConvolution< FloatType > conv2 = new FFTConvolution< FloatType >( img2, kernel, out2, fftFactory );
+		conv2.setKernelFFTCache( cache );
+		conv2.run();
+
+		assertEquals( 1, cache.size() );
+		assertSame( conv1.kernelFFT(), conv2.kernelFFT() );
+
+		final Img< FloatType > expected = img2.factory().create( img2, new FloatType() );
+		new FFTConvolution< FloatType >( img2, kernel, expected, fftFactory ).run();
+		assertImgEquals( expected, out2 );
+	}
+}
@@ -2,6 +2,8 @@ package net.imglib2.algorithm.localization;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 import net.imglib2.Localizable;
@@ -74,6 +76,54 @@ public class GaussianPeakFitterNDTest {
 	}
 
 	
+	@Test
+	public void testProcessBatch() {
+
+		final int nx = 8;
+		final int ny = 6;
+		final int spacing = 20;
+		final double sigma = 2;
+
+		long[] dimensions = new long[] { nx * spacing, ny * spacing };
+		ArrayImg<UnsignedByteType,ByteArray> img = ArrayImgs.unsignedBytes(dimensions);
+
+		// Spots on a grid, so that they do not overlap
+		final List<Localizable> peaks = new ArrayList<Localizable>();
+		final List<double[]> truth = new ArrayList<double[]>();
+		Random rangen = new Random(2);
+		for (int i = 0; i < nx; i++) {
+			for (int j = 0; j < ny; j++) {
+				double[] params = new double[] { 100 + 10 * rangen.nextGaussian(), 
+						i * spacing + spacing / 2 + rangen.nextDouble(), 
+						j * spacing + spacing / 2 + rangen.nextDouble(), 
+						1 / sigma / sigma, 1 / sigma / sigma };
+				LocalizationUtils.addGaussianSpotToImage(img, params);
+				truth.add(params);
+				peaks.add(new Point(new long[] { (long) params[1], (long) params[2] }));
+			}
+		}
+
+		final GaussianPeakFitterND<UnsignedByteType> fitter = new GaussianPeakFitterND<UnsignedByteType>(img);
+		fitter.setNumThreads(4);
+		final double[] typical_sigma = new double[] { sigma, sigma };
+		final double[] results = fitter.process(peaks, typical_sigma);
+		assertEquals(peaks.size() * 5, results.length);
+
+		for (int k = 0; k < peaks.size(); k++) {
+			// Same as fitting one peak at a time
+			final double[] single = fitter.process(peaks.get(k), typical_sigma);
+			for (int p = 0; p < single.length; p++) {
+				assertEquals(single[p], results[k * 5 + p], 0d);
+			}
+
+			final double[] expected = truth.get(k);
+			assertEq("x", expected[1], results[k * 5 + 1], LOCALIZATION_TOLERANCE_NO_NOISE);
+			assertEq("y", expected[2], results[k * 5 + 2], LOCALIZATION_TOLERANCE_NO_NOISE);
+			assertEq("σx", sigma, 1/Math.sqrt(results[k * 5 + 3]), SIGMA_TOLERANCE_NO_NOISE);
+			assertEq("σy", sigma, 1/Math.sqrt(results[k * 5 + 4]), SIGMA_TOLERANCE_NO_NOISE);
+		}
+	}
+
 	private static final void assertEq(String varName, double expected, double actual, double tolerance) {
 		String str = String.format("Fit value for " + varName + " does not match real value within tolerance. " +
 				"Got %.2f and expected %.2f ± %.2f.", actual, expected, tolerance);
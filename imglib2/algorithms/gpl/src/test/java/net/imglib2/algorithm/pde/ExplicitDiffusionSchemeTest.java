@@ -0,0 +1,127 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+
+package net.imglib2.algorithm.pde;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Test;
+
+/**
+ * Checks that the tiled, multi-threaded diffusion iterations do not depend on
+ * the number of threads, and that iterating with {@link ExplicitDiffusionScheme#process(int)}
+ * is the same as calling {@link ExplicitDiffusionScheme#process()} repeatedly.
+ *
+ * @author ImgLib2 developers
+ */
+public class ExplicitDiffusionSchemeTest
+{
+	static Img< FloatType > createImg()
+	{
+		final Img< FloatType > img = new ArrayImgFactory< FloatType >().create( new long[] { 47, 31 }, new FloatType() );
+		final Random random = new Random( 0 );
+		for ( final FloatType t : img )
+			t.set( random.nextFloat() * 100 );
+		return img;
+	}
+
+	static float[] toArray( final Img< FloatType > img )
+	{
+		final float[] values = new float[ ( int ) img.size() ];
+		final Cursor< FloatType > c = img.cursor();
+		for ( int i = 0; i < values.length; ++i )
+			values[ i ] = c.next().get();
+		return values;
+	}
+
+	static float[] coherenceEnhancingDiffusion( final int numThreads, final int numIterations )
+	{
+		final Img< FloatType > img = createImg();
+		final CoherenceEnhancingDiffusionTensor2D< FloatType > tensor = new CoherenceEnhancingDiffusionTensor2D< FloatType >( img );
+		tensor.setNumThreads( numThreads );
+		tensor.process();
+		final StandardDiffusionScheme2D< FloatType > scheme = new StandardDiffusionScheme2D< FloatType >( img, tensor.getResult() );
+		scheme.setNumThreads( numThreads );
+		for ( int i = 0; i < numIterations; ++i )
+		{
+			tensor.process();
+			scheme.setDiffusionTensor( tensor.getResult() );
+			assertTrue( scheme.process() );
+		}
+		return toArray( img );
+	}
+
+	static float[] peronaMalik( final int numThreads, final int numIterations, final boolean batch )
+	{
+		final Img< FloatType > img = createImg();
+		final PeronaMalikAnisotropicDiffusion< FloatType > diffusion = new PeronaMalikAnisotropicDiffusion< FloatType >( img, 0.1, 20 );
+		diffusion.setNumThreads( numThreads );
+		if ( batch )
+			assertTrue( diffusion.process( numIterations ) );
+		else
+			for ( int i = 0; i < numIterations; ++i )
+				assertTrue( diffusion.process() );
+		return toArray( img );
+	}
+
+	@Test
+	public void testCoherenceEnhancingDiffusionThreads()
+	{
+		final float[] expected = coherenceEnhancingDiffusion( 1, 5 );
+		assertArrayEquals( expected, coherenceEnhancingDiffusion( 3, 5 ), 0 );
+		assertFalse( Arrays.equals( expected, toArray( createImg() ) ) );
+	}
+
+	@Test
+	public void testPeronaMalikIterations()
+	{
+		final float[] expected = peronaMalik( 1, 10, false );
+		assertArrayEquals( expected, peronaMalik( 1, 10, true ), 0 );
+		assertArrayEquals( expected, peronaMalik( 4, 10, true ), 0 );
+		assertFalse( Arrays.equals( expected, toArray( createImg() ) ) );
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.imglib2.display.ARGBScreenImage;
+import net.imglib2.display.ChannelARGBConverter;
+import net.imglib2.display.CompositeXYProjector;
+import net.imglib2.display.CompositeXYRandomAccessibleProjector;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.ByteArray;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of {@link CompositeXYProjector} and
+ * {@link CompositeXYRandomAccessibleProjector} in frames per second,
+ * compositing the four channels of an RGBA image into a 2048x2048
+ * {@link ARGBScreenImage} with a varying number of threads.
+ *
+ * @author ImgLib2 developers
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class CompositeXYProjectorBenchmark
+{
+	public static final int WIDTH = 2048;
+
+	public static final int HEIGHT = 2048;
+
+	@Param( { "1", "2", "4", "8" } )
+	public int numThreads;
+
+	public CompositeXYProjector< UnsignedByteType > projector;
+
+	public CompositeXYRandomAccessibleProjector< UnsignedByteType > randomAccessibleProjector;
+
+	@Setup
+	public void setup()
+	{
+		final ArrayImg< UnsignedByteType, ByteArray > img = ArrayImgs.unsignedBytes( WIDTH, HEIGHT, 4 );
+		final Random random = new Random( 0 );
+		for ( final UnsignedByteType t : img )
+			t.set( random.nextInt( 256 ) );
+
+		projector = new CompositeXYProjector< UnsignedByteType >( img, new ARGBScreenImage( WIDTH, HEIGHT ), ChannelARGBConverter.converterListRGBA, 2 );
+		projector.setComposite( true );
+		projector.setNumThreads( numThreads );
+
+		randomAccessibleProjector = new CompositeXYRandomAccessibleProjector< UnsignedByteType >( img, new ARGBScreenImage( WIDTH, HEIGHT ), ChannelARGBConverter.converterListRGBA, 2 );
+		randomAccessibleProjector.setComposite( true );
+		randomAccessibleProjector.setNumThreads( numThreads );
+	}
+
+	@Benchmark
+	public void compositeXYProjector()
+	{
+		projector.map();
+	}
+
+	@Benchmark
+	public void compositeXYRandomAccessibleProjector()
+	{
+		randomAccessibleProjector.map();
+	}
+}
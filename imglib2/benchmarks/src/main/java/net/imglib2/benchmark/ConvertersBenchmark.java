@@ -0,0 +1,103 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converters;
+import net.imglib2.display.RealDoubleConverter;
+import net.imglib2.type.numeric.real.DoubleType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures access to images converted to {@link DoubleType} by
+ * {@link Converters}.
+ *
+ * @author ImgLib2 developers
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ConvertersBenchmark
+{
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	@Benchmark
+	public double convertedCursor( final ImgState state )
+	{
+		final IterableInterval< DoubleType > converted = Converters.convert( ( IterableInterval ) state.img, new RealDoubleConverter(), new DoubleType() );
+		double sum = 0;
+		final Cursor< DoubleType > c = converted.cursor();
+		while ( c.hasNext() )
+			sum += c.next().get();
+		return sum;
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	@Benchmark
+	public double convertedRandomAccess( final ImgState state )
+	{
+		final RandomAccessibleInterval< DoubleType > converted = Converters.convert( ( RandomAccessibleInterval ) state.img, new RealDoubleConverter(), new DoubleType() );
+		final long[] dimensions = ImgState.DIMENSIONS;
+		final long[] position = new long[ dimensions.length ];
+		final RandomAccess< DoubleType > a = converted.randomAccess();
+		double sum = 0;
+		for ( position[ 2 ] = 0; position[ 2 ] < dimensions[ 2 ]; ++position[ 2 ] )
+			for ( position[ 1 ] = 0; position[ 1 ] < dimensions[ 1 ]; ++position[ 1 ] )
+			{
+				a.setPosition( position );
+				for ( long x = 0; x < dimensions[ 0 ]; ++x )
+				{
+					sum += a.get().get();
+					a.fwd( 0 );
+				}
+			}
+		return sum;
+	}
+}
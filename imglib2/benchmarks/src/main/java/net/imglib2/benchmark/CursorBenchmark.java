@@ -0,0 +1,113 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.imglib2.Cursor;
+import net.imglib2.type.numeric.RealType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures iteration over all pixels with {@link Cursor Cursors}.
+ *
+ * @author ImgLib2 developers
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class CursorBenchmark
+{
+	@Benchmark
+	public double cursor( final ImgState state )
+	{
+		double sum = 0;
+		final Cursor< ? extends RealType< ? > > c = state.img.cursor();
+		while ( c.hasNext() )
+			sum += c.next().getRealDouble();
+		return sum;
+	}
+
+	@Benchmark
+	public double localizingCursor( final ImgState state )
+	{
+		double sum = 0;
+		final Cursor< ? extends RealType< ? > > c = state.img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			sum += c.next().getRealDouble();
+			sum += c.getLongPosition( 0 );
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double cursorLocalize( final ImgState state )
+	{
+		final long[] position = new long[ state.img.numDimensions() ];
+		double sum = 0;
+		final Cursor< ? extends RealType< ? > > c = state.img.cursor();
+		while ( c.hasNext() )
+		{
+			sum += c.next().getRealDouble();
+			c.localize( position );
+			sum += position[ 0 ];
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double cursorWrite( final ImgState state )
+	{
+		final Cursor< ? extends RealType< ? > > c = state.img.cursor();
+		while ( c.hasNext() )
+		{
+			final RealType< ? > t = c.next();
+			t.setReal( t.getRealDouble() );
+		}
+		return state.img.firstElement().getRealDouble();
+	}
+}
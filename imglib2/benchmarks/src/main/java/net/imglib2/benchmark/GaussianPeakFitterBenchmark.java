@@ -0,0 +1,137 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+
+package net.imglib2.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.imglib2.Localizable;
+import net.imglib2.Point;
+import net.imglib2.algorithm.localization.GaussianPeakFitterND;
+import net.imglib2.algorithm.localization.LocalizationUtils;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of {@link GaussianPeakFitterND} in fits per second,
+ * fitting a batch of peaks with a varying number of threads, and fitting the
+ * same peaks one at a time.
+ *
+ * @author ImgLib2 developers
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class GaussianPeakFitterBenchmark
+{
+	/**
+	 * Number of peaks per batch, i.e., fits per benchmark invocation.
+	 */
+	public static final int NUM_PEAKS = 1024;
+
+	public static final int SPACING = 16;
+
+	public static final double SIGMA = 2;
+
+	@Param( { "1", "2", "4", "8" } )
+	public int numThreads;
+
+	public GaussianPeakFitterND< UnsignedShortType > fitter;
+
+	public List< Localizable > peaks;
+
+	public double[] typicalSigma;
+
+	@Setup
+	public void setup()
+	{
+		final int n = ( int ) Math.ceil( Math.sqrt( NUM_PEAKS ) );
+		final ArrayImg< UnsignedShortType, ShortArray > img = ArrayImgs.unsignedShorts( n * SPACING, n * SPACING );
+
+		final Random random = new Random( 0 );
+		peaks = new ArrayList< Localizable >( NUM_PEAKS );
+		for ( int i = 0; i < NUM_PEAKS; ++i )
+		{
+			final double x = ( i % n ) * SPACING + SPACING / 2 + random.nextDouble();
+			final double y = ( i / n ) * SPACING + SPACING / 2 + random.nextDouble();
+			LocalizationUtils.addGaussianSpotToImage( img, new double[] { 1000 + 100 * random.nextGaussian(), x, y, 1 / SIGMA / SIGMA, 1 / SIGMA / SIGMA } );
+			peaks.add( new Point( new long[] { ( long ) x, ( long ) y } ) );
+		}
+
+		fitter = new GaussianPeakFitterND< UnsignedShortType >( img );
+		fitter.setNumThreads( numThreads );
+		typicalSigma = new double[] { SIGMA, SIGMA };
+	}
+
+	@Benchmark
+	@OperationsPerInvocation( NUM_PEAKS )
+	public double[] fitBatch()
+	{
+		return fitter.process( peaks, typicalSigma );
+	}
+
+	@Benchmark
+	@OperationsPerInvocation( NUM_PEAKS )
+	public double fitOneByOne()
+	{
+		double sum = 0;
+		for ( final Localizable peak : peaks )
+			sum += fitter.process( peak, typicalSigma )[ 1 ];
+		return sum;
+	}
+}
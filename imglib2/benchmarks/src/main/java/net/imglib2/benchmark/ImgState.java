@@ -0,0 +1,154 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.benchmark;
+
+import java.util.Random;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.list.ListImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.img.sparse.NtreeImgFactory;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark state holding an {@link Img} of every combination of container
+ * and pixel type. The image is filled with random values once per trial.
+ *
+ * @author ImgLib2 developers
+ */
+@State( Scope.Thread )
+public class ImgState
+{
+	/**
+	 * Dimensions of the benchmarked images.
+	 */
+	public static final long[] DIMENSIONS = new long[] { 64, 64, 64 };
+
+	@Param( { "array", "planar", "cell", "ntree", "list" } )
+	public String container;
+
+	@Param( { "bit", "byte", "short", "int", "long", "float", "double" } )
+	public String type;
+
+	public Img< ? extends RealType< ? > > img;
+
+	@Setup
+	public void setup()
+	{
+		img = create( container, type, DIMENSIONS );
+	}
+
+	/**
+	 * Create an {@link Img} filled with random values.
+	 *
+	 * @param container
+	 *            one of "array", "planar", "cell", "ntree", "list".
+	 * @param type
+	 *            one of "bit", "byte", "short", "int", "long", "float",
+	 *            "double".
+	 * @param dimensions
+	 *            dimensions of the image.
+	 */
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	public static Img< ? extends RealType< ? > > create( final String container, final String type, final long[] dimensions )
+	{
+		final ImgFactory factory = createFactory( container );
+		final Img< ? extends RealType< ? > > img = factory.create( dimensions, createType( type ) );
+		fillRandom( img );
+		return img;
+	}
+
+	protected static void fillRandom( final Img< ? extends RealType< ? > > img )
+	{
+		final RealType< ? > type = img.firstElement();
+		final double min = Math.max( type.getMinValue(), -1000 );
+		final double max = Math.min( type.getMaxValue(), 1000 );
+		final Random random = new Random( 0 );
+		for ( final RealType< ? > t : img )
+			t.setReal( min + random.nextDouble() * ( max - min ) );
+	}
+
+	protected static < T extends NativeType< T > > ImgFactory< T > createFactory( final String container )
+	{
+		if ( container.equals( "array" ) )
+			return new ArrayImgFactory< T >();
+		else if ( container.equals( "planar" ) )
+			return new PlanarImgFactory< T >();
+		else if ( container.equals( "cell" ) )
+			return new CellImgFactory< T >( 32 );
+		else if ( container.equals( "ntree" ) )
+			return new NtreeImgFactory< T >();
+		else if ( container.equals( "list" ) )
+			return new ListImgFactory< T >();
+		throw new IllegalArgumentException( "unknown container: " + container );
+	}
+
+	protected static NativeType< ? > createType( final String type )
+	{
+		if ( type.equals( "bit" ) )
+			return new BitType();
+		else if ( type.equals( "byte" ) )
+			return new ByteType();
+		else if ( type.equals( "short" ) )
+			return new ShortType();
+		else if ( type.equals( "int" ) )
+			return new IntType();
+		else if ( type.equals( "long" ) )
+			return new LongType();
+		else if ( type.equals( "float" ) )
+			return new FloatType();
+		else if ( type.equals( "double" ) )
+			return new DoubleType();
+		throw new IllegalArgumentException( "unknown type: " + type );
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.type.numeric.RealType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures visiting all pixels with a {@link RandomAccess}, either by setting
+ * the position of every pixel or by moving along lines.
+ *
+ * @author ImgLib2 developers
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class RandomAccessBenchmark
+{
+	@Benchmark
+	public double setPosition( final ImgState state )
+	{
+		final long[] dimensions = ImgState.DIMENSIONS;
+		final RandomAccess< ? extends RealType< ? > > a = state.img.randomAccess();
+		double sum = 0;
+		for ( long z = 0; z < dimensions[ 2 ]; ++z )
+		{
+			a.setPosition( z, 2 );
+			for ( long y = 0; y < dimensions[ 1 ]; ++y )
+			{
+				a.setPosition( y, 1 );
+				for ( long x = 0; x < dimensions[ 0 ]; ++x )
+				{
+					a.setPosition( x, 0 );
+					sum += a.get().getRealDouble();
+				}
+			}
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double setPositionArray( final ImgState state )
+	{
+		final long[] dimensions = ImgState.DIMENSIONS;
+		final long[] position = new long[ dimensions.length ];
+		final RandomAccess< ? extends RealType< ? > > a = state.img.randomAccess();
+		double sum = 0;
+		for ( position[ 2 ] = 0; position[ 2 ] < dimensions[ 2 ]; ++position[ 2 ] )
+			for ( position[ 1 ] = 0; position[ 1 ] < dimensions[ 1 ]; ++position[ 1 ] )
+				for ( position[ 0 ] = 0; position[ 0 ] < dimensions[ 0 ]; ++position[ 0 ] )
+				{
+					a.setPosition( position );
+					sum += a.get().getRealDouble();
+				}
+		return sum;
+	}
+
+	@Benchmark
+	public double fwd( final ImgState state )
+	{
+		final long[] dimensions = ImgState.DIMENSIONS;
+		final long[] position = new long[ dimensions.length ];
+		final RandomAccess< ? extends RealType< ? > > a = state.img.randomAccess();
+		double sum = 0;
+		for ( position[ 2 ] = 0; position[ 2 ] < dimensions[ 2 ]; ++position[ 2 ] )
+			for ( position[ 1 ] = 0; position[ 1 ] < dimensions[ 1 ]; ++position[ 1 ] )
+			{
+				a.setPosition( position );
+				for ( long x = 0; x < dimensions[ 0 ]; ++x )
+				{
+					sum += a.get().getRealDouble();
+					a.fwd( 0 );
+				}
+			}
+		return sum;
+	}
+}
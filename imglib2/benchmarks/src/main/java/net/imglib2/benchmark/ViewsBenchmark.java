@@ -0,0 +1,122 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.view.Views;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures iteration over stacks of {@link Views}.
+ *
+ * @author ImgLib2 developers
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ViewsBenchmark
+{
+	/**
+	 * The image interval expanded by 4 pixels on all sides.
+	 */
+	protected static Interval expanded( final Interval interval )
+	{
+		final int n = interval.numDimensions();
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			min[ d ] = interval.min( d ) - 4;
+			max[ d ] = interval.max( d ) + 4;
+		}
+		return new FinalInterval( min, max );
+	}
+
+	protected static double sum( final RandomAccessibleInterval< ? extends RealType< ? > > view )
+	{
+		double sum = 0;
+		final Cursor< ? extends RealType< ? > > c = Views.flatIterable( view ).cursor();
+		while ( c.hasNext() )
+			sum += c.next().getRealDouble();
+		return sum;
+	}
+
+	@Benchmark
+	public double interval( final ImgState state )
+	{
+		return sum( Views.interval( state.img, state.img ) );
+	}
+
+	@Benchmark
+	public double extendMirrorSingle( final ImgState state )
+	{
+		return sum( Views.interval( Views.extendMirrorSingle( state.img ), expanded( state.img ) ) );
+	}
+
+	@Benchmark
+	public double extendBorder( final ImgState state )
+	{
+		return sum( Views.interval( Views.extendBorder( state.img ), expanded( state.img ) ) );
+	}
+
+	@Benchmark
+	public double rotate( final ImgState state )
+	{
+		return sum( Views.rotate( state.img, 0, 1 ) );
+	}
+
+	@Benchmark
+	public double extendRotateInterval( final ImgState state )
+	{
+		return sum( Views.rotate( Views.interval( Views.extendMirrorSingle( state.img ), expanded( state.img ) ), 0, 2 ) );
+	}
+}
@@ -37,7 +37,9 @@
 
 package net.imglib2;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * A subset of an {@link IterableInterval} defined by the index of its first
@@ -64,7 +66,7 @@ final public class IterableIntervalSubset< T > extends AbstractWrappedInterval<
 				this.cursor = sourceInterval.cursor();
 
 			index = cursor.index;
-			cursor.jumpFwd( index + 1 );
+			this.cursor.jumpFwd( index + 1 );
 		}
 
 		IISCursor( final boolean localizing )
@@ -248,6 +250,57 @@ final public class IterableIntervalSubset< T > extends AbstractWrappedInterval<
 		lastIndex = firstIndex + this.size - 1;
 	}
 
+	/**
+	 * Split an {@link IterableInterval} into at most <em>numParts</em>
+	 * {@link IterableIntervalSubset IterableIntervalSubsets} of approximately
+	 * equal size. The first index of each part is a multiple of
+	 * <em>blockSize</em>, such that parts can be aligned with lines, planes,
+	 * or other storage units of the source.
+	 *
+	 * @param interval
+	 *            the {@link IterableInterval} to split.
+	 * @param numParts
+	 *            maximum number of parts.
+	 * @param blockSize
+	 *            parts start at multiples of this number of elements.
+	 * @return list of consecutive parts covering <em>interval</em>.
+	 */
+	public static < T > List< IterableInterval< T > > split( final IterableInterval< T > interval, final int numParts, final long blockSize )
+	{
+		final long size = interval.size();
+		final long numBlocks = ( size + blockSize - 1 ) / blockSize;
+		final int n = ( int ) Math.max( 1, Math.min( numParts, numBlocks ) );
+
+		final long[] firstIndices = new long[ n ];
+		for ( int i = 1; i < n; ++i )
+			firstIndices[ i ] = numBlocks * i / n * blockSize;
+		return split( interval, firstIndices );
+	}
+
+	/**
+	 * Split an {@link IterableInterval} into consecutive
+	 * {@link IterableIntervalSubset IterableIntervalSubsets} starting at the
+	 * given indices.
+	 *
+	 * @param interval
+	 *            the {@link IterableInterval} to split.
+	 * @param firstIndices
+	 *            strictly increasing first indices of the parts, starting with
+	 *            0.
+	 * @return list of consecutive parts covering <em>interval</em>.
+	 */
+	public static < T > List< IterableInterval< T > > split( final IterableInterval< T > interval, final long[] firstIndices )
+	{
+		final int n = firstIndices.length;
+		final ArrayList< IterableInterval< T > > parts = new ArrayList< IterableInterval< T > >( n );
+		for ( int i = 0; i < n; ++i )
+		{
+			final long next = ( i == n - 1 ) ? interval.size() : firstIndices[ i + 1 ];
+			parts.add( new IterableIntervalSubset< T >( interval, firstIndices[ i ], next - firstIndices[ i ] ) );
+		}
+		return parts;
+	}
+
 	@Override
 	final public Cursor< T > cursor()
 	{
@@ -0,0 +1,701 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.collection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.imglib2.EuclideanSpace;
+import net.imglib2.IterableRealInterval;
+import net.imglib2.RealCursor;
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPositionable;
+import net.imglib2.Sampler;
+import net.imglib2.multithreading.SharedThreadPool;
+
+/**
+ * KDTree to access values at RealLocalizable positions, stored in flat
+ * arrays. In contrast to {@link KDTree}, no object is created per node. The
+ * coordinates of all nodes are stored in a single <code>double[]</code> in
+ * structure-of-arrays layout, that is, coordinate <em>d</em> of node
+ * <em>k</em> is at index <em>d * size + k</em>.
+ *
+ * <p>
+ * The tree structure is implicit. The subtree of nodes with indices
+ * <em>[i, j]</em> has its root at <em>k = i + (j - i) / 2</em>, its left
+ * subtree is <em>[i, k - 1]</em> and its right subtree is <em>[k + 1, j]</em>.
+ * The whole tree is <em>[0, size - 1]</em>. Nodes at depth <em>l</em> split
+ * along dimension <em>l mod n</em>. All nodes of the left subtree have
+ * coordinates &lt;= the coordinate of the root in its split dimension, all
+ * nodes of the right subtree have coordinates &gt;= that coordinate.
+ * </p>
+ *
+ * <p>
+ * The tree is built by recursively partitioning the coordinate array around
+ * the median. Disjoint subtrees are built in parallel.
+ * </p>
+ *
+ * @param <T>
+ *            type of values stored in the tree.
+ *
+ * @author ImgLib2 developers
+ */
+public class FlatKDTree< T > implements EuclideanSpace, IterableRealInterval< T >
+{
+	/**
+	 * subtrees with less nodes than this are always built sequentially.
+	 */
+	protected static final int MIN_PARALLEL_SIZE = 1 << 14;
+
+	/**
+	 * the number of dimensions.
+	 */
+	final protected int n;
+
+	/**
+	 * the number of nodes in the tree.
+	 */
+	final protected int size;
+
+	/**
+	 * coordinate d of node k is stored at positions[ d * size + k ].
+	 */
+	final protected double[] positions;
+
+	/**
+	 * the value of node k is values.get( permutation[ k ] ) or
+	 * samplers.get( permutation[ k ] ).get().
+	 */
+	final protected int[] permutation;
+
+	final protected List< T > values;
+
+	final protected List< ? extends Sampler< T > > samplers;
+
+	/**
+	 * minimum of each dimension.
+	 */
+	final protected double[] min;
+
+	/**
+	 * maximum of each dimension.
+	 */
+	final protected double[] max;
+
+	/**
+	 * Construct a FlatKDTree from the elements in the given list, using the
+	 * default number of threads.
+	 *
+	 * <p>
+	 * Note that the constructor can be called with the same list for both
+	 * {@code values == positions} if {@code T extends RealLocalizable}.
+	 * </p>
+	 *
+	 * @param values
+	 *            a list of values
+	 * @param positions
+	 *            a list of positions corresponding to the values
+	 */
+	public < L extends RealLocalizable > FlatKDTree( final List< T > values, final List< L > positions )
+	{
+		this( values, positions, SharedThreadPool.getParallelism() );
+	}
+
+	/**
+	 * Construct a FlatKDTree from the elements in the given list.
+	 *
+	 * @param values
+	 *            a list of values
+	 * @param positions
+	 *            a list of positions corresponding to the values
+	 * @param numThreads
+	 *            the maximum number of threads used for building the tree.
+	 */
+	public < L extends RealLocalizable > FlatKDTree( final List< T > values, final List< L > positions, final int numThreads )
+	{
+		if ( values.size() != positions.size() )
+			throw new IllegalArgumentException( "FlatKDTree(): number of values and positions differ." );
+		if ( positions.isEmpty() )
+			throw new IllegalArgumentException( "FlatKDTree(): no positions given." );
+
+		this.n = positions.get( 0 ).numDimensions();
+		this.size = positions.size();
+		this.positions = allocatePositions( n, size );
+
+		int k = 0;
+		for ( final L position : positions )
+		{
+			if ( position.numDimensions() != n )
+				throw new IllegalArgumentException( "FlatKDTree(): positions have different numbers of dimensions." );
+			for ( int d = 0; d < n; ++d )
+				this.positions[ d * size + k ] = position.getDoublePosition( d );
+			++k;
+		}
+
+		this.values = ( values instanceof java.util.RandomAccess ) ? values : new ArrayList< T >( values );
+		this.samplers = null;
+		this.permutation = identity( size );
+		this.min = new double[ n ];
+		this.max = new double[ n ];
+		computeBounds();
+
+		build( numThreads );
+	}
+
+	/**
+	 * Construct a FlatKDTree from the elements of the given
+	 * {@link IterableRealInterval}, using the default number of threads.
+	 *
+	 * @param interval
+	 *            elements in the tree are obtained by iterating this
+	 */
+	public FlatKDTree( final IterableRealInterval< T > interval )
+	{
+		this( interval, SharedThreadPool.getParallelism() );
+	}
+
+	/**
+	 * Construct a FlatKDTree from the elements of the given
+	 * {@link IterableRealInterval}.
+	 *
+	 * @param interval
+	 *            elements in the tree are obtained by iterating this
+	 * @param numThreads
+	 *            the maximum number of threads used for building the tree.
+	 */
+	public FlatKDTree( final IterableRealInterval< T > interval, final int numThreads )
+	{
+		if ( interval.size() == 0 )
+			throw new IllegalArgumentException( "FlatKDTree(): no elements given." );
+		if ( interval.size() > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "FlatKDTree(): too many elements." );
+
+		this.n = interval.numDimensions();
+		this.size = ( int ) interval.size();
+		this.positions = allocatePositions( n, size );
+
+		final ArrayList< RealCursor< T > > cursors = new ArrayList< RealCursor< T > >( size );
+		final RealCursor< T > cursor = interval.localizingCursor();
+		for ( int k = 0; k < size; ++k )
+		{
+			cursor.fwd();
+			for ( int d = 0; d < n; ++d )
+				positions[ d * size + k ] = cursor.getDoublePosition( d );
+			cursors.add( cursor.copyCursor() );
+		}
+
+		this.values = null;
+		this.samplers = cursors;
+		this.permutation = identity( size );
+		this.min = new double[ n ];
+		this.max = new double[ n ];
+		computeBounds();
+
+		build( numThreads );
+	}
+
+	private static double[] allocatePositions( final int n, final int size )
+	{
+		if ( ( long ) n * size > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "FlatKDTree(): " + size + " points in " + n + " dimensions do not fit into an array." );
+		return new double[ n * size ];
+	}
+
+	private static int[] identity( final int size )
+	{
+		final int[] permutation = new int[ size ];
+		for ( int k = 0; k < size; ++k )
+			permutation[ k ] = k;
+		return permutation;
+	}
+
+	private void computeBounds()
+	{
+		for ( int d = 0; d < n; ++d )
+		{
+			double mi = Double.MAX_VALUE;
+			double ma = -Double.MAX_VALUE;
+			for ( int k = d * size, e = k + size; k < e; ++k )
+			{
+				final double x = positions[ k ];
+				if ( x < mi )
+					mi = x;
+				if ( x > ma )
+					ma = x;
+			}
+			min[ d ] = mi;
+			max[ d ] = ma;
+		}
+	}
+
+	private void build( final int numThreads )
+	{
+		// split into about four subtrees per thread to balance the load
+		int parallelDepth = 0;
+		if ( numThreads > 1 )
+			while ( ( 1 << parallelDepth ) < 4 * numThreads )
+				++parallelDepth;
+		makeSubtree( 0, size - 1, 0, parallelDepth, numThreads );
+	}
+
+	/**
+	 * Construct the subtree of nodes between indices i and j (inclusive). The
+	 * nodes are partitioned around the median element with respect to
+	 * coordinates in the given dimension d. The left and right partitions are
+	 * processed recursively, in parallel if parallelDepth &gt; 0.
+	 *
+	 * @param i
+	 *            start index of the subtree
+	 * @param j
+	 *            end index of the subtree
+	 * @param d
+	 *            dimension along which to split the subtree
+	 * @param parallelDepth
+	 *            number of recursion levels that fork parallel tasks
+	 * @param numThreads
+	 *            the maximum number of threads
+	 */
+	protected void makeSubtree( final int i, final int j, final int d, final int parallelDepth, final int numThreads )
+	{
+		if ( j <= i )
+			return;
+
+		final int k = i + ( j - i ) / 2;
+		kthElement( i, j, k, d );
+
+		final int dChild = ( d + 1 == n ) ? 0 : d + 1;
+		if ( parallelDepth > 0 && j - i >= MIN_PARALLEL_SIZE )
+		{
+			final ArrayList< Runnable > tasks = new ArrayList< Runnable >( 2 );
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					makeSubtree( i, k - 1, dChild, parallelDepth - 1, numThreads );
+				}
+			} );
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					makeSubtree( k + 1, j, dChild, parallelDepth - 1, numThreads );
+				}
+			} );
+			SharedThreadPool.invokeAll( tasks, numThreads );
+		}
+		else
+		{
+			makeSubtree( i, k - 1, dChild, 0, numThreads );
+			makeSubtree( k + 1, j, dChild, 0, numThreads );
+		}
+	}
+
+	/**
+	 * Partially sort the nodes between indices i and j (inclusive) such that
+	 * node k has the coordinate that it would have if the nodes were sorted
+	 * with respect to dimension d, all nodes before k have smaller or equal,
+	 * and all nodes after k have larger or equal coordinates.
+	 *
+	 * Uses quickselect with three-way partitioning, such that many equal
+	 * coordinates do not degrade the running time.
+	 */
+	protected void kthElement( int i, int j, final int k, final int d )
+	{
+		final double[] p = positions;
+		final int o = d * size;
+		while ( j > i )
+		{
+			// median of three pivot
+			final double a = p[ o + i ];
+			final double b = p[ o + i + ( j - i ) / 2 ];
+			final double c = p[ o + j ];
+			final double pivot = ( a < b ) ? ( b < c ? b : ( a < c ? c : a ) ) : ( a < c ? a : ( b < c ? c : b ) );
+
+			// [i, lt) < pivot, [lt, l) == pivot, (gt, j] > pivot
+			int lt = i;
+			int gt = j;
+			int l = i;
+			while ( l <= gt )
+			{
+				final double x = p[ o + l ];
+				if ( x < pivot )
+					swap( lt++, l++ );
+				else if ( x > pivot )
+					swap( l, gt-- );
+				else
+					++l;
+			}
+
+			if ( k < lt )
+				j = lt - 1;
+			else if ( k > gt )
+				i = gt + 1;
+			else
+				return;
+		}
+	}
+
+	private void swap( final int a, final int b )
+	{
+		if ( a == b )
+			return;
+		for ( int o = 0; o < positions.length; o += size )
+		{
+			final double tmp = positions[ o + a ];
+			positions[ o + a ] = positions[ o + b ];
+			positions[ o + b ] = tmp;
+		}
+		final int tmp = permutation[ a ];
+		permutation[ a ] = permutation[ b ];
+		permutation[ b ] = tmp;
+	}
+
+	/**
+	 * Get coordinate d of node k.
+	 */
+	public double getCoordinate( final int k, final int d )
+	{
+		return positions[ d * size + k ];
+	}
+
+	/**
+	 * Get the squared Euclidean distance between node k and the given
+	 * position.
+	 */
+	public double squDistance( final int k, final double[] p )
+	{
+		double sum = 0;
+		for ( int d = 0, o = k; d < n; ++d, o += size )
+		{
+			final double diff = p[ d ] - positions[ o ];
+			sum += diff * diff;
+		}
+		return sum;
+	}
+
+	/**
+	 * Get the value of node k.
+	 */
+	public T getValue( final int k )
+	{
+		return values != null ? values.get( permutation[ k ] ) : samplers.get( permutation[ k ] ).get();
+	}
+
+	/**
+	 * Get the index of node k in the list of values (or in the iteration order
+	 * of the {@link IterableRealInterval}) the tree was built from.
+	 */
+	public int getSourceIndex( final int k )
+	{
+		return permutation[ k ];
+	}
+
+	/**
+	 * Get a {@link Node} that provides position and value of node k.
+	 */
+	public Node getNode( final int k )
+	{
+		return new Node( k );
+	}
+
+	/**
+	 * Provides position and value of a node of the tree.
+	 */
+	public final class Node implements RealLocalizable, Sampler< T >
+	{
+		protected final int k;
+
+		public Node( final int k )
+		{
+			this.k = k;
+		}
+
+		/**
+		 * Get the index of the node in the tree.
+		 */
+		public int getIndex()
+		{
+			return k;
+		}
+
+		@Override
+		public int numDimensions()
+		{
+			return n;
+		}
+
+		@Override
+		public void localize( final float[] position )
+		{
+			for ( int d = 0; d < n; ++d )
+				position[ d ] = ( float ) positions[ d * size + k ];
+		}
+
+		@Override
+		public void localize( final double[] position )
+		{
+			for ( int d = 0; d < n; ++d )
+				position[ d ] = positions[ d * size + k ];
+		}
+
+		@Override
+		public float getFloatPosition( final int d )
+		{
+			return ( float ) positions[ d * size + k ];
+		}
+
+		@Override
+		public double getDoublePosition( final int d )
+		{
+			return positions[ d * size + k ];
+		}
+
+		@Override
+		public T get()
+		{
+			return getValue( k );
+		}
+
+		@Override
+		public Node copy()
+		{
+			return new Node( k );
+		}
+
+		@Override
+		public String toString()
+		{
+			final double[] p = new double[ n ];
+			localize( p );
+			return "node " + k + " " + Arrays.toString( p ) + " | " + get();
+		}
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return n;
+	}
+
+	@Override
+	public double realMin( final int d )
+	{
+		return min[ d ];
+	}
+
+	@Override
+	public void realMin( final double[] m )
+	{
+		for ( int d = 0; d < n; ++d )
+			m[ d ] = min[ d ];
+	}
+
+	@Override
+	public void realMin( final RealPositionable m )
+	{
+		m.setPosition( min );
+	}
+
+	@Override
+	public double realMax( final int d )
+	{
+		return max[ d ];
+	}
+
+	@Override
+	public void realMax( final double[] m )
+	{
+		for ( int d = 0; d < n; ++d )
+			m[ d ] = max[ d ];
+	}
+
+	@Override
+	public void realMax( final RealPositionable m )
+	{
+		m.setPosition( max );
+	}
+
+	@Override
+	public long size()
+	{
+		return size;
+	}
+
+	@Override
+	public Object iterationOrder()
+	{
+		return this; // iteration order is only compatible with ourselves
+	}
+
+	@Override
+	public boolean equalIterationOrder( final IterableRealInterval< ? > f )
+	{
+		return iterationOrder().equals( f.iterationOrder() );
+	}
+
+	/**
+	 * Iterates the nodes in the order of their indices.
+	 */
+	public final class FlatKDTreeCursor implements RealCursor< T >
+	{
+		private int k;
+
+		public FlatKDTreeCursor()
+		{
+			reset();
+		}
+
+		protected FlatKDTreeCursor( final FlatKDTreeCursor c )
+		{
+			this.k = c.k;
+		}
+
+		@Override
+		public void localize( final float[] position )
+		{
+			for ( int d = 0; d < n; ++d )
+				position[ d ] = ( float ) positions[ d * size + k ];
+		}
+
+		@Override
+		public void localize( final double[] position )
+		{
+			for ( int d = 0; d < n; ++d )
+				position[ d ] = positions[ d * size + k ];
+		}
+
+		@Override
+		public float getFloatPosition( final int d )
+		{
+			return ( float ) positions[ d * size + k ];
+		}
+
+		@Override
+		public double getDoublePosition( final int d )
+		{
+			return positions[ d * size + k ];
+		}
+
+		@Override
+		public int numDimensions()
+		{
+			return n;
+		}
+
+		@Override
+		public T get()
+		{
+			return getValue( k );
+		}
+
+		@Override
+		public FlatKDTreeCursor copy()
+		{
+			return new FlatKDTreeCursor( this );
+		}
+
+		@Override
+		public FlatKDTreeCursor copyCursor()
+		{
+			return copy();
+		}
+
+		@Override
+		public void jumpFwd( final long steps )
+		{
+			k += steps;
+		}
+
+		@Override
+		public void fwd()
+		{
+			++k;
+		}
+
+		@Override
+		public void reset()
+		{
+			k = -1;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return k < size - 1;
+		}
+
+		@Override
+		public T next()
+		{
+			fwd();
+			return get();
+		}
+
+		@Override
+		public void remove()
+		{
+			// NB: no action.
+		}
+	}
+
+	@Override
+	public FlatKDTreeCursor iterator()
+	{
+		return new FlatKDTreeCursor();
+	}
+
+	@Override
+	public FlatKDTreeCursor cursor()
+	{
+		return new FlatKDTreeCursor();
+	}
+
+	@Override
+	public FlatKDTreeCursor localizingCursor()
+	{
+		return new FlatKDTreeCursor();
+	}
+
+	@Override
+	public T firstElement()
+	{
+		return getValue( 0 );
+	}
+}
@@ -39,9 +39,20 @@ package net.imglib2.display;
 import net.imglib2.Point;
 import net.imglib2.RandomAccessible;
 import net.imglib2.converter.Converter;
+import net.imglib2.multithreading.SharedThreadPool;
 
 /**
- * TODO
+ * Base class for projectors that map an XY plane of the source to a 2D
+ * target.
+ *
+ * <p>
+ * The target is split into bands of rows which are rendered in parallel on the
+ * {@link SharedThreadPool}. Every band uses its own {@link net.imglib2.RandomAccess}es,
+ * but the {@link Converter}s are shared by all bands and must therefore be
+ * safe to use from several threads at once, i.e., must not modify their own
+ * state in {@link Converter#convert(Object, Object)}. Use
+ * {@link #setNumThreads(int) setNumThreads(1)} for converters that are not.
+ * </p>
  *
  * @author Stephan Saalfeld
  * @author Tobias Pietzsch
@@ -53,6 +64,16 @@ abstract public class AbstractXYProjector< A, B > extends Point implements Proje
 	final long[] min;
 	final long[] max;
 
+	/**
+	 * Targets with fewer pixels than this per band are not split further.
+	 */
+	protected static final long minBandSize = 16 * 1024;
+
+	/**
+	 * Maximum number of bands rendered in parallel.
+	 */
+	protected int numThreads;
+
 	public AbstractXYProjector( final RandomAccessible< A > source, final Converter< A, B > converter )
 	{
 		super( Math.max( 2, source.numDimensions() ) );
@@ -64,5 +85,46 @@ abstract public class AbstractXYProjector< A, B > extends Point implements Proje
 		// even if the source is one-dimensional
 		min = new long[ n ];
 		max = new long[ n ];
+
+		setNumThreads();
+	}
+
+	/**
+	 * Render with the default number of threads
+	 * {@link SharedThreadPool#getParallelism()}.
+	 */
+	public void setNumThreads()
+	{
+		this.numThreads = SharedThreadPool.getParallelism();
+	}
+
+	/**
+	 * Set the maximum number of bands of the target rendered in parallel.
+	 */
+	public void setNumThreads( final int numThreads )
+	{
+		this.numThreads = Math.max( 1, numThreads );
+	}
+
+	public int getNumThreads()
+	{
+		return numThreads;
+	}
+
+	/**
+	 * Get the number of bands of rows into which a target is split. This is a
+	 * few bands per thread to balance the load, but not less than
+	 * {@link #minBandSize} pixels and at least one row per band.
+	 *
+	 * @param numRows
+	 *            height of the target.
+	 * @param numPixels
+	 *            number of pixels of the target.
+	 */
+	protected int numBands( final long numRows, final long numPixels )
+	{
+		if ( numThreads == 1 )
+			return 1;
+		return ( int ) Math.max( 1, Math.min( Math.min( numRows, 4L * numThreads ), numPixels / minBandSize ) );
 	}
 }
@@ -44,6 +44,7 @@ import net.imglib2.IterableInterval;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.converter.Converter;
+import net.imglib2.multithreading.SharedThreadPool;
 import net.imglib2.type.numeric.ARGBType;
 
 /**
@@ -148,70 +149,45 @@ public class CompositeXYProjector< A > extends XYProjector< A, ARGBType >
 		max[ 0 ] = target.max( 0 );
 		max[ 1 ] = target.max( 1 );
 
+		final int size;
 		if ( dimIndex < 0 )
 		{
 			// there is only converter[0]
 			// use it to map the current position
-			final RandomAccess< A > sourceRandomAccess = source.randomAccess( new FinalInterval( min, max ) );
-			sourceRandomAccess.setPosition( min );
-			mapSingle( sourceRandomAccess, converters.get( 0 ) );
-			return;
+			currentConverters[ 0 ] = converters.get( 0 );
+			size = 1;
 		}
-
-		final int size = updateCurrentArrays();
-
-		min[ dimIndex ] = max[ dimIndex ] = currentPositions[ 0 ];
-		for ( int i = 1; i < size; ++i )
-			if ( currentPositions[ i ] < min[ dimIndex ] )
-				min[ dimIndex ] = currentPositions[ i ];
-			else if ( currentPositions[ i ] > max[ dimIndex ] )
-				max[ dimIndex ] = currentPositions[ i ];
-		final RandomAccess< A > sourceRandomAccess = source.randomAccess( new FinalInterval( min, max ) );
-		sourceRandomAccess.setPosition( min );
-
-		if ( size == 1 )
+		else
 		{
-			// there is only one active converter: converter[0]
-			// use it to map the slice at currentPositions[0]
-			mapSingle( sourceRandomAccess, currentConverters[ 0 ] );
-			return;
+			size = updateCurrentArrays();
+
+			min[ dimIndex ] = max[ dimIndex ] = currentPositions[ 0 ];
+			for ( int i = 1; i < size; ++i )
+				if ( currentPositions[ i ] < min[ dimIndex ] )
+					min[ dimIndex ] = currentPositions[ i ];
+				else if ( currentPositions[ i ] > max[ dimIndex ] )
+					max[ dimIndex ] = currentPositions[ i ];
 		}
+		final FinalInterval sourceInterval = new FinalInterval( min, max );
 
-		final Cursor< ARGBType > targetCursor = target.localizingCursor();
-		final ARGBType bi = new ARGBType();
-
-		while ( targetCursor.hasNext() )
-		{
-			targetCursor.fwd();
-			sourceRandomAccess.setPosition( targetCursor.getLongPosition( 0 ), 0 );
-			sourceRandomAccess.setPosition( targetCursor.getLongPosition( 1 ), 1 );
-			int aSum = 0, rSum = 0, gSum = 0, bSum = 0;
-			for ( int i = 0; i < size; i++ )
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >();
+		for ( final IterableInterval< ARGBType > band : splitTarget() )
+			tasks.add( new Runnable()
 			{
-				sourceRandomAccess.setPosition( currentPositions[ i ], dimIndex );
-				currentConverters[ i ].convert( sourceRandomAccess.get(), bi );
-
-				// accumulate converted result
-				final int value = bi.get();
-				final int a = ARGBType.alpha( value );
-				final int r = ARGBType.red( value );
-				final int g = ARGBType.green( value );
-				final int b = ARGBType.blue( value );
-				aSum += a;
-				rSum += r;
-				gSum += g;
-				bSum += b;
-			}
-			if ( aSum > 255 )
-				aSum = 255;
-			if ( rSum > 255 )
-				rSum = 255;
-			if ( gSum > 255 )
-				gSum = 255;
-			if ( bSum > 255 )
-				bSum = 255;
-			targetCursor.get().set( ARGBType.rgba( rSum, gSum, bSum, aSum ) );
-		}
+				@Override
+				public void run()
+				{
+					final RandomAccess< A > sourceRandomAccess = source.randomAccess( sourceInterval );
+					sourceRandomAccess.setPosition( min );
+					if ( size == 1 )
+						// there is only one active converter: converter[0]
+						// use it to map the slice at currentPositions[0]
+						mapSingle( sourceRandomAccess, currentConverters[ 0 ], band );
+					else
+						mapComposite( sourceRandomAccess, size, band );
+				}
+			} );
+		SharedThreadPool.invokeAll( tasks, numThreads );
 	}
 
 	// -- Helper methods --
@@ -258,9 +234,52 @@ public class CompositeXYProjector< A > extends XYProjector< A, ARGBType >
 		return currentSize;
 	}
 
-	protected void mapSingle( final RandomAccess< A > sourceRandomAccess, final Converter< A, ARGBType > converter )
+	/**
+	 * Map one band of the target, summing the converted values of the
+	 * <em>size</em> active positions.
+	 */
+	protected void mapComposite( final RandomAccess< A > sourceRandomAccess, final int size, final IterableInterval< ARGBType > band )
+	{
+		final Cursor< ARGBType > targetCursor = band.localizingCursor();
+		final ARGBType bi = new ARGBType();
+
+		while ( targetCursor.hasNext() )
+		{
+			targetCursor.fwd();
+			sourceRandomAccess.setPosition( targetCursor.getLongPosition( 0 ), 0 );
+			sourceRandomAccess.setPosition( targetCursor.getLongPosition( 1 ), 1 );
+			int aSum = 0, rSum = 0, gSum = 0, bSum = 0;
+			for ( int i = 0; i < size; i++ )
+			{
+				sourceRandomAccess.setPosition( currentPositions[ i ], dimIndex );
+				currentConverters[ i ].convert( sourceRandomAccess.get(), bi );
+
+				// accumulate converted result
+				final int value = bi.get();
+				final int a = ARGBType.alpha( value );
+				final int r = ARGBType.red( value );
+				final int g = ARGBType.green( value );
+				final int b = ARGBType.blue( value );
+				aSum += a;
+				rSum += r;
+				gSum += g;
+				bSum += b;
+			}
+			if ( aSum > 255 )
+				aSum = 255;
+			if ( rSum > 255 )
+				rSum = 255;
+			if ( gSum > 255 )
+				gSum = 255;
+			if ( bSum > 255 )
+				bSum = 255;
+			targetCursor.get().set( ARGBType.rgba( rSum, gSum, bSum, aSum ) );
+		}
+	}
+
+	protected void mapSingle( final RandomAccess< A > sourceRandomAccess, final Converter< A, ARGBType > converter, final IterableInterval< ARGBType > band )
 	{
-		final Cursor< ARGBType > targetCursor = target.localizingCursor();
+		final Cursor< ARGBType > targetCursor = band.localizingCursor();
 		while ( targetCursor.hasNext() )
 		{
 			targetCursor.fwd();
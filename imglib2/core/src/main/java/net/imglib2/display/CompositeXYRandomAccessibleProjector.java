@@ -35,6 +35,7 @@ import net.imglib2.FinalInterval;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.converter.Converter;
+import net.imglib2.multithreading.SharedThreadPool;
 import net.imglib2.type.numeric.ARGBType;
 
 /**
@@ -137,79 +138,52 @@ public class CompositeXYRandomAccessibleProjector< A > extends AbstractXYProject
 		max[ 0 ] = target.max( 0 );
 		max[ 1 ] = target.max( 1 );
 
+		final int size;
 		if ( dimIndex < 0 )
 		{
 			// there is only converter[0]
 			// use it to map the current position
-			final RandomAccess< A > sourceRandomAccess = source.randomAccess( new FinalInterval( min, max ) );
-			sourceRandomAccess.setPosition( min );
-			mapSingle( sourceRandomAccess, converters.get( 0 ) );
-			return;
+			currentConverters[ 0 ] = converters.get( 0 );
+			size = 1;
 		}
-
-		final int size = updateCurrentArrays();
-
-		min[ dimIndex ] = max[ dimIndex ] = currentPositions[ 0 ];
-		for ( int i = 1; i < size; ++i )
-			if ( currentPositions[ i ] < min[ dimIndex ] )
-				min[ dimIndex ] = currentPositions[ i ];
-			else if ( currentPositions[ i ] > max[ dimIndex ] )
-				max[ dimIndex ] = currentPositions[ i ];
-		final RandomAccess< A > sourceRandomAccess = source.randomAccess( new FinalInterval( min, max ) );
-		sourceRandomAccess.setPosition( min );
-
-		if ( size == 1 )
+		else
 		{
-			// there is only one active converter: converter[0]
-			// use it to map the slice at currentPositions[0]
-			sourceRandomAccess.setPosition( currentPositions[ 0 ], dimIndex );
-			mapSingle( sourceRandomAccess, currentConverters[ 0 ] );
-			return;
+			size = updateCurrentArrays();
+
+			min[ dimIndex ] = max[ dimIndex ] = currentPositions[ 0 ];
+			for ( int i = 1; i < size; ++i )
+				if ( currentPositions[ i ] < min[ dimIndex ] )
+					min[ dimIndex ] = currentPositions[ i ];
+				else if ( currentPositions[ i ] > max[ dimIndex ] )
+					max[ dimIndex ] = currentPositions[ i ];
 		}
+		final FinalInterval sourceInterval = new FinalInterval( min, max );
 
-		final ARGBType bi = new ARGBType();
-
-		final RandomAccess< ARGBType > targetRandomAccess = target.randomAccess();
-
-		targetRandomAccess.setPosition( min[ 1 ], 1 );
-		while (	targetRandomAccess.getLongPosition( 1 ) <= max[ 1 ] )
+		final long height = target.dimension( 1 );
+		final int numBands = numBands( height, height * target.dimension( 0 ) );
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >();
+		for ( int t = 0; t < numBands; ++t )
 		{
-			sourceRandomAccess.setPosition( min[ 0 ], 0 );
-			targetRandomAccess.setPosition( min[ 0 ], 0 );
-			while (	targetRandomAccess.getLongPosition( 0 ) <= max[ 0 ] )
+			final long minY = min[ 1 ] + height * t / numBands;
+			final long maxY = min[ 1 ] + height * ( t + 1 ) / numBands - 1;
+			tasks.add( new Runnable()
 			{
-				int aSum = 0, rSum = 0, gSum = 0, bSum = 0;
-				for ( int i = 0; i < size; i++ )
+				@Override
+				public void run()
 				{
-					sourceRandomAccess.setPosition( currentPositions[ i ], dimIndex );
-					currentConverters[ i ].convert( sourceRandomAccess.get(), bi );
-
-					// accumulate converted result
-					final int value = bi.get();
-					final int a = ARGBType.alpha( value );
-					final int r = ARGBType.red( value );
-					final int g = ARGBType.green( value );
-					final int b = ARGBType.blue( value );
-					aSum += a;
-					rSum += r;
-					gSum += g;
-					bSum += b;
+					final RandomAccess< A > sourceRandomAccess = source.randomAccess( sourceInterval );
+					sourceRandomAccess.setPosition( min );
+					sourceRandomAccess.setPosition( minY, 1 );
+					if ( size == 1 )
+						// there is only one active converter: converter[0]
+						// use it to map the slice at currentPositions[0]
+						mapSingle( sourceRandomAccess, currentConverters[ 0 ], minY, maxY );
+					else
+						mapComposite( sourceRandomAccess, size, minY, maxY );
 				}
-				if ( aSum > 255 )
-					aSum = 255;
-				if ( rSum > 255 )
-					rSum = 255;
-				if ( gSum > 255 )
-					gSum = 255;
-				if ( bSum > 255 )
-					bSum = 255;
-				targetRandomAccess.get().set( ARGBType.rgba( rSum, gSum, bSum, aSum ) );
-				sourceRandomAccess.fwd( 0 );
-				targetRandomAccess.fwd( 0 );
-			}
-			sourceRandomAccess.fwd( 1 );
-			targetRandomAccess.fwd( 1 );
+			} );
 		}
+		SharedThreadPool.invokeAll( tasks, numThreads );
 	}
 
 	// -- Helper methods --
@@ -256,11 +230,66 @@ public class CompositeXYRandomAccessibleProjector< A > extends AbstractXYProject
 		return currentSize;
 	}
 
-	protected void mapSingle( final RandomAccess< A > sourceRandomAccess, final Converter< A, ARGBType > converter )
+	/**
+	 * Map the rows <em>minY</em> to <em>maxY</em> of the target, summing the
+	 * converted values of the <em>size</em> active positions.
+	 */
+	protected void mapComposite( final RandomAccess< A > sourceRandomAccess, final int size, final long minY, final long maxY )
+	{
+		final ARGBType bi = new ARGBType();
+
+		final RandomAccess< ARGBType > targetRandomAccess = target.randomAccess();
+
+		targetRandomAccess.setPosition( minY, 1 );
+		while (	targetRandomAccess.getLongPosition( 1 ) <= maxY )
+		{
+			sourceRandomAccess.setPosition( min[ 0 ], 0 );
+			targetRandomAccess.setPosition( min[ 0 ], 0 );
+			while (	targetRandomAccess.getLongPosition( 0 ) <= max[ 0 ] )
+			{
+				int aSum = 0, rSum = 0, gSum = 0, bSum = 0;
+				for ( int i = 0; i < size; i++ )
+				{
+					sourceRandomAccess.setPosition( currentPositions[ i ], dimIndex );
+					currentConverters[ i ].convert( sourceRandomAccess.get(), bi );
+
+					// accumulate converted result
+					final int value = bi.get();
+					final int a = ARGBType.alpha( value );
+					final int r = ARGBType.red( value );
+					final int g = ARGBType.green( value );
+					final int b = ARGBType.blue( value );
+					aSum += a;
+					rSum += r;
+					gSum += g;
+					bSum += b;
+				}
+				if ( aSum > 255 )
+					aSum = 255;
+				if ( rSum > 255 )
+					rSum = 255;
+				if ( gSum > 255 )
+					gSum = 255;
+				if ( bSum > 255 )
+					bSum = 255;
+				targetRandomAccess.get().set( ARGBType.rgba( rSum, gSum, bSum, aSum ) );
+				sourceRandomAccess.fwd( 0 );
+				targetRandomAccess.fwd( 0 );
+			}
+			sourceRandomAccess.fwd( 1 );
+			targetRandomAccess.fwd( 1 );
+		}
+	}
+
+	/**
+	 * Map the rows <em>minY</em> to <em>maxY</em> of the target using a
+	 * single converter.
+	 */
+	protected void mapSingle( final RandomAccess< A > sourceRandomAccess, final Converter< A, ARGBType > converter, final long minY, final long maxY )
 	{
 		final RandomAccess< ARGBType > targetRandomAccess = target.randomAccess();
-		targetRandomAccess.setPosition( min[ 1 ], 1 );
-		while (	targetRandomAccess.getLongPosition( 1 ) <= max[ 1 ] )
+		targetRandomAccess.setPosition( minY, 1 );
+		while (	targetRandomAccess.getLongPosition( 1 ) <= maxY )
 		{
 			sourceRandomAccess.setPosition( min[ 0 ], 0 );
 			targetRandomAccess.setPosition( min[ 0 ], 0 );
@@ -36,12 +36,19 @@
 
 package net.imglib2.display;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import net.imglib2.Cursor;
 import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
 import net.imglib2.IterableInterval;
+import net.imglib2.IterableIntervalSubset;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessible;
 import net.imglib2.converter.Converter;
+import net.imglib2.multithreading.SharedThreadPool;
 
 /**
  * 
@@ -73,7 +80,39 @@ public class XYProjector< A, B > extends AbstractXYProjector< A, B >
 		max[ 1 ] = target.max( 1 );
 		final FinalInterval sourceInterval = new FinalInterval( min, max );
 
-		final Cursor< B > targetCursor = target.localizingCursor();
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >();
+		for ( final IterableInterval< B > band : splitTarget() )
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					map( band, sourceInterval );
+				}
+			} );
+		SharedThreadPool.invokeAll( tasks, numThreads );
+	}
+
+	/**
+	 * Split the {@link #target} into bands that can be rendered in parallel.
+	 * For targets in flat iteration order, e.g., {@link ARGBScreenImage}, the
+	 * bands consist of whole rows.
+	 */
+	protected List< IterableInterval< B > > splitTarget()
+	{
+		final long width = target.dimension( 0 );
+		final int numBands = numBands( target.size() / width, target.size() );
+		if ( numBands == 1 )
+			return Collections.singletonList( target );
+		return IterableIntervalSubset.split( target, numBands, width );
+	}
+
+	/**
+	 * Map the pixels of one band of the target.
+	 */
+	protected void map( final IterableInterval< B > band, final Interval sourceInterval )
+	{
+		final Cursor< B > targetCursor = band.localizingCursor();
 		final RandomAccess< A > sourceRandomAccess = source.randomAccess( sourceInterval );
 		sourceRandomAccess.setPosition( position );
 		if ( numDimensions > 1 )
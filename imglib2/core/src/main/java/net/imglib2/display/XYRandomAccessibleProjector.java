@@ -36,11 +36,15 @@
 
 package net.imglib2.display;
 
+import java.util.ArrayList;
+
 import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessible;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.converter.Converter;
+import net.imglib2.multithreading.SharedThreadPool;
 
 /**
  * 
@@ -71,17 +75,42 @@ public class XYRandomAccessibleProjector< A, B > extends AbstractXYProjector< A,
 		max[ 1 ] = target.max( 1 );
 		final FinalInterval sourceInterval = new FinalInterval( min, max );
 
+		final long height = target.dimension( 1 );
+		final int numBands = numBands( height, height * target.dimension( 0 ) );
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >();
+		for ( int t = 0; t < numBands; ++t )
+		{
+			final long minY = min[ 1 ] + height * t / numBands;
+			final long maxY = min[ 1 ] + height * ( t + 1 ) / numBands - 1;
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					map( sourceInterval, minY, maxY );
+				}
+			} );
+		}
+		SharedThreadPool.invokeAll( tasks, numThreads );
+	}
+
+	/**
+	 * Map the rows <em>minY</em> to <em>maxY</em> of the target.
+	 */
+	protected void map( final Interval sourceInterval, final long minY, final long maxY )
+	{
 		final long cr = -target.dimension( 0 );
 
 		final RandomAccess< B > targetRandomAccess = target.randomAccess( target );
 		final RandomAccess< A > sourceRandomAccess = source.randomAccess( sourceInterval );
 
 		final long width = target.dimension( 0 );
-		final long height = target.dimension( 1 );
+		final long height = maxY - minY + 1;
 
 		sourceRandomAccess.setPosition( min );
+		sourceRandomAccess.setPosition( minY, 1 );
 		targetRandomAccess.setPosition( min[ 0 ], 0 );
-		targetRandomAccess.setPosition( min[ 1 ], 1 );
+		targetRandomAccess.setPosition( minY, 1 );
 		for ( long y = 0; y < height; ++y )
 		{
 			for ( long x = 0; x < width; ++x )
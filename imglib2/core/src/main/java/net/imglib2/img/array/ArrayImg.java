@@ -36,8 +36,13 @@
 
 package net.imglib2.img.array;
 
+import java.util.List;
+
 import net.imglib2.FlatIterationOrder;
 import net.imglib2.Interval;
+import net.imglib2.IterableInterval;
+import net.imglib2.IterableIntervalSubset;
+import net.imglib2.SplittableIterableInterval;
 import net.imglib2.img.AbstractNativeImg;
 import net.imglib2.img.Img;
 import net.imglib2.type.NativeType;
@@ -57,7 +62,7 @@ import net.imglib2.util.IntervalIndexer;
  * @author Stephan Saalfeld
  * @author Stephan Saalfeld <saalfeld@mpi-cbg.de>
  */
-public class ArrayImg< T extends NativeType< T >, A > extends AbstractNativeImg< T, A >
+public class ArrayImg< T extends NativeType< T >, A > extends AbstractNativeImg< T, A > implements SplittableIterableInterval< T >
 {
 	final int[] steps, dim;
 
@@ -109,6 +114,16 @@ public class ArrayImg< T extends NativeType< T >, A > extends AbstractNativeImg<
 		return new FlatIterationOrder( this );
 	}
 
+	/**
+	 * Split into parts of consecutive array elements. Cursors on the parts
+	 * jump to their first element in constant time.
+	 */
+	@Override
+	public List< IterableInterval< T > > split( final int numParts )
+	{
+		return IterableIntervalSubset.split( this, numParts, 1 );
+	}
+
 	@Override
 	public ArrayImgFactory<T> factory() { return new ArrayImgFactory<T>(); }
 
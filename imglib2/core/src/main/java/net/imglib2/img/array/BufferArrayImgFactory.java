@@ -0,0 +1,198 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.img.array;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.NativeImgFactory;
+import net.imglib2.img.basictypeaccess.nio.BitBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.ByteBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.CharBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.ShortBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.IntBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.LongBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.FloatBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.DoubleBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.ByteBufferSource;
+import net.imglib2.type.NativeType;
+
+/**
+ * Factory for {@link ArrayImg ArrayImgs} that store their data in
+ * {@link java.nio.Buffer NIO buffers} instead of Java arrays. The buffer is
+ * either a new direct buffer, a region of an existing {@link ByteBuffer}, or
+ * a region of a file that is mapped into memory. In all cases the data is
+ * kept outside of the Java heap. Mapping a raw file gives zero-copy access to
+ * its content, which may be shared with other processes.
+ *
+ * Note that {@link ArrayImg#copy()} and {@link ArrayImg#factory()} create
+ * images on the Java heap.
+ *
+ * @author ImgLib2 developers
+ */
+public class BufferArrayImgFactory< T extends NativeType< T > > extends NativeImgFactory< T >
+{
+	protected final ByteBufferSource source;
+
+	/**
+	 * Create images on new direct buffers in native byte order.
+	 */
+	public BufferArrayImgFactory()
+	{
+		this( new ByteBufferSource() );
+	}
+
+	/**
+	 * Create images on an existing buffer. The image data starts at the
+	 * beginning of the buffer.
+	 *
+	 * @param buffer
+	 *            the buffer, must be large enough for the image.
+	 */
+	public BufferArrayImgFactory( final ByteBuffer buffer )
+	{
+		this( new ByteBufferSource( buffer ) );
+	}
+
+	/**
+	 * Create images on a memory-mapped file. Every image created by this
+	 * factory maps the same region of the file.
+	 *
+	 * @param file
+	 *            the raw file.
+	 * @param offset
+	 *            position of the image data in the file, e.g., to skip a
+	 *            header.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether modifications are written to the file.
+	 */
+	public BufferArrayImgFactory( final File file, final long offset, final ByteOrder order, final boolean writable )
+	{
+		this( new ByteBufferSource( file, offset, order, writable ) );
+	}
+
+	public BufferArrayImgFactory( final ByteBufferSource source )
+	{
+		this.source = source;
+	}
+
+	@Override
+	public ArrayImg< T, ? > create( final long[] dim, final T type )
+	{
+		return ( ArrayImg< T, ? > ) type.createSuitableNativeImg( this, dim );
+	}
+
+	@Override
+	public ArrayImg< T, BitBufferAccess > createBitInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		final int numEntities = ArrayImgFactory.numEntitiesRangeCheck( dimensions, entitiesPerPixel );
+
+		return new ArrayImg< T, BitBufferAccess >( new BitBufferAccess( source.get( 0, 4l * BitBufferAccess.numInts( numEntities ) ).asIntBuffer() ), dimensions, entitiesPerPixel );
+	}
+
+	@Override
+	public ArrayImg< T, ByteBufferAccess > createByteInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		final int numEntities = ArrayImgFactory.numEntitiesRangeCheck( dimensions, entitiesPerPixel );
+
+		return new ArrayImg< T, ByteBufferAccess >( new ByteBufferAccess( source.get( 0, numEntities ) ), dimensions, entitiesPerPixel );
+	}
+
+	@Override
+	public ArrayImg< T, CharBufferAccess > createCharInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		final int numEntities = ArrayImgFactory.numEntitiesRangeCheck( dimensions, entitiesPerPixel );
+
+		return new ArrayImg< T, CharBufferAccess >( new CharBufferAccess( source.get( 0, 2l * numEntities ).asCharBuffer() ), dimensions, entitiesPerPixel );
+	}
+
+	@Override
+	public ArrayImg< T, ShortBufferAccess > createShortInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		final int numEntities = ArrayImgFactory.numEntitiesRangeCheck( dimensions, entitiesPerPixel );
+
+		return new ArrayImg< T, ShortBufferAccess >( new ShortBufferAccess( source.get( 0, 2l * numEntities ).asShortBuffer() ), dimensions, entitiesPerPixel );
+	}
+
+	@Override
+	public ArrayImg< T, IntBufferAccess > createIntInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		final int numEntities = ArrayImgFactory.numEntitiesRangeCheck( dimensions, entitiesPerPixel );
+
+		return new ArrayImg< T, IntBufferAccess >( new IntBufferAccess( source.get( 0, 4l * numEntities ).asIntBuffer() ), dimensions, entitiesPerPixel );
+	}
+
+	@Override
+	public ArrayImg< T, LongBufferAccess > createLongInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		final int numEntities = ArrayImgFactory.numEntitiesRangeCheck( dimensions, entitiesPerPixel );
+
+		return new ArrayImg< T, LongBufferAccess >( new LongBufferAccess( source.get( 0, 8l * numEntities ).asLongBuffer() ), dimensions, entitiesPerPixel );
+	}
+
+	@Override
+	public ArrayImg< T, FloatBufferAccess > createFloatInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		final int numEntities = ArrayImgFactory.numEntitiesRangeCheck( dimensions, entitiesPerPixel );
+
+		return new ArrayImg< T, FloatBufferAccess >( new FloatBufferAccess( source.get( 0, 4l * numEntities ).asFloatBuffer() ), dimensions, entitiesPerPixel );
+	}
+
+	@Override
+	public ArrayImg< T, DoubleBufferAccess > createDoubleInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		final int numEntities = ArrayImgFactory.numEntitiesRangeCheck( dimensions, entitiesPerPixel );
+
+		return new ArrayImg< T, DoubleBufferAccess >( new DoubleBufferAccess( source.get( 0, 8l * numEntities ).asDoubleBuffer() ), dimensions, entitiesPerPixel );
+	}
+
+	/**
+	 * Images of other types are created on new direct buffers.
+	 */
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	@Override
+	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
+	{
+		if ( NativeType.class.isInstance( type ) ) return new BufferArrayImgFactory();
+		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.img.basictypeaccess.nio;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Provides the {@link ByteBuffer ByteBuffers} for the data of an image.
+ * Regions are either mapped from a file, taken from an existing
+ * {@link ByteBuffer}, or allocated as new direct buffers.
+ *
+ * @author ImgLib2 developers
+ */
+public class ByteBufferSource
+{
+	protected final File file;
+
+	protected final long fileOffset;
+
+	protected final ByteOrder order;
+
+	protected final boolean writable;
+
+	protected final ByteBuffer buffer;
+
+	protected ByteBufferSource( final File file, final long fileOffset, final ByteOrder order, final boolean writable, final ByteBuffer buffer )
+	{
+		this.file = file;
+		this.fileOffset = fileOffset;
+		this.order = order;
+		this.writable = writable;
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Source that allocates new direct buffers in native byte order.
+	 */
+	public ByteBufferSource()
+	{
+		this( null, 0, ByteOrder.nativeOrder(), true, null );
+	}
+
+	/**
+	 * Source that provides regions of an existing buffer.
+	 *
+	 * @param buffer
+	 *            the buffer, regions have the same byte order.
+	 */
+	public ByteBufferSource( final ByteBuffer buffer )
+	{
+		this( null, 0, buffer.order(), !buffer.isReadOnly(), buffer );
+	}
+
+	/**
+	 * Source that maps regions of a file into memory.
+	 *
+	 * @param file
+	 *            the file.
+	 * @param fileOffset
+	 *            position of the first region in the file, e.g., to skip a
+	 *            header.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether modifications are written to the file.
+	 */
+	public ByteBufferSource( final File file, final long fileOffset, final ByteOrder order, final boolean writable )
+	{
+		this( file, fileOffset, order, writable, null );
+	}
+
+	/**
+	 * Get the region [<em>offset</em>, <em>offset</em> +
+	 * <em>numBytes</em>).
+	 *
+	 * @param offset
+	 *            position of the region in bytes, relative to the start of
+	 *            the source.
+	 * @param numBytes
+	 *            size of the region.
+	 */
+	public ByteBuffer get( final long offset, final long numBytes )
+	{
+		if ( file != null )
+		{
+			try
+			{
+				return ByteBuffers.map( file, fileOffset + offset, numBytes, order, writable );
+			}
+			catch ( final IOException e )
+			{
+				throw new RuntimeException( "Could not map " + numBytes + " bytes at " + ( fileOffset + offset ) + " of " + file, e );
+			}
+		}
+		else if ( buffer != null )
+			return ByteBuffers.slice( buffer, offset, numBytes );
+		else
+			return ByteBuffers.allocateDirect( numBytes );
+	}
+}
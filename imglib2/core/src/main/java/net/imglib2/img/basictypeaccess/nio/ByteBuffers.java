@@ -0,0 +1,128 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.img.basictypeaccess.nio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Utility methods to create {@link ByteBuffer ByteBuffers} for the buffer
+ * accesses in this package.
+ *
+ * @author ImgLib2 developers
+ */
+final public class ByteBuffers
+{
+	private ByteBuffers()
+	{}
+
+	private static int checkSize( final long numBytes )
+	{
+		if ( numBytes > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "Buffer too big: " + numBytes + " > " + Integer.MAX_VALUE + " bytes." );
+		return ( int ) numBytes;
+	}
+
+	/**
+	 * Allocate a direct {@link ByteBuffer} in native byte order.
+	 *
+	 * @param numBytes
+	 *            size of the buffer.
+	 */
+	public static ByteBuffer allocateDirect( final long numBytes )
+	{
+		return ByteBuffer.allocateDirect( checkSize( numBytes ) ).order( ByteOrder.nativeOrder() );
+	}
+
+	/**
+	 * Map a region of a file into memory. The file is extended if it is
+	 * writable and shorter than the mapped region. The mapping remains valid
+	 * until the buffer is garbage collected.
+	 *
+	 * @param file
+	 *            the file to map.
+	 * @param offset
+	 *            position of the region in the file in bytes.
+	 * @param numBytes
+	 *            size of the region.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether modifications of the buffer are written to the file.
+	 * @throws IOException
+	 */
+	public static MappedByteBuffer map( final File file, final long offset, final long numBytes, final ByteOrder order, final boolean writable ) throws IOException
+	{
+		final RandomAccessFile raf = new RandomAccessFile( file, writable ? "rw" : "r" );
+		try
+		{
+			final MappedByteBuffer buffer = raf.getChannel().map( writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, offset, checkSize( numBytes ) );
+			buffer.order( order );
+			return buffer;
+		}
+		finally
+		{
+			raf.close();
+		}
+	}
+
+	/**
+	 * Get a view on a region of a {@link ByteBuffer}, with the byte order of
+	 * the original buffer.
+	 *
+	 * @param buffer
+	 *            the buffer.
+	 * @param offset
+	 *            position of the region in bytes.
+	 * @param numBytes
+	 *            size of the region.
+	 */
+	public static ByteBuffer slice( final ByteBuffer buffer, final long offset, final long numBytes )
+	{
+		if ( offset + numBytes > buffer.capacity() )
+			throw new IllegalArgumentException( "Region [" + offset + ", " + ( offset + numBytes ) + ") exceeds buffer capacity " + buffer.capacity() + "." );
+		final ByteBuffer duplicate = buffer.duplicate();
+		duplicate.limit( ( int ) ( offset + numBytes ) );
+		duplicate.position( ( int ) offset );
+		return duplicate.slice().order( buffer.order() );
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+
+/**
+ * A cell of a {@link CellImg} backed by {@link CachedCells}. The data is
+ * provided by a {@link CellLoader} when the cell is first requested and may be
+ * written back when the cell is evicted from the {@link CellCache}.
+ *
+ * Samplers write to the data array directly, so modifications cannot be
+ * observed. Instead, a writable cell remembers a checksum of its data as it
+ * was loaded or last saved, and is dirty if the checksum of its current data
+ * differs.
+ *
+ * @author ImgLib2 developers
+ */
+public final class CachedCell< A extends ArrayDataAccess< A > > extends AbstractCell< A >
+{
+	private final A data;
+
+	private final long index;
+
+	private final boolean writable;
+
+	/**
+	 * Checksum of the data when it was loaded or last saved.
+	 */
+	private long savedChecksum;
+
+	public CachedCell( final long index, final int[] dimensions, final long[] min, final A data, final boolean writable )
+	{
+		this( index, dimensions, min, data, writable, writable ? CellCache.checksum( data ) : 0 );
+	}
+
+	CachedCell( final long index, final int[] dimensions, final long[] min, final A data, final boolean writable, final long savedChecksum )
+	{
+		super( dimensions, min );
+		this.index = index;
+		this.data = data;
+		this.writable = writable;
+		this.savedChecksum = savedChecksum;
+	}
+
+	/**
+	 * Get the basic type array that stores this cells pixels.
+	 */
+	@Override
+	public A getData()
+	{
+		return data;
+	}
+
+	/**
+	 * @return flat index of this cell in the cell grid.
+	 */
+	public long getIndex()
+	{
+		return index;
+	}
+
+	/**
+	 * @return whether this cell is writable and was modified since it was
+	 *         last saved.
+	 */
+	public synchronized boolean isDirty()
+	{
+		return writable && CellCache.checksum( data ) != savedChecksum;
+	}
+
+	long getSavedChecksum()
+	{
+		return savedChecksum;
+	}
+
+	boolean isWritable()
+	{
+		return writable;
+	}
+
+	/**
+	 * Save this cell through the given {@link CellLoader} if it is dirty.
+	 */
+	synchronized void saveIfDirty( final CellLoader< A > loader )
+	{
+		savedChecksum = saveIfModified( loader, index, min, dimensions, data, savedChecksum );
+	}
+
+	/**
+	 * Save the data of a cell through the given {@link CellLoader} if its
+	 * checksum differs from the saved checksum.
+	 *
+	 * @return the checksum of the saved data.
+	 */
+	static < A extends ArrayDataAccess< A > > long saveIfModified( final CellLoader< A > loader, final long index, final long[] min, final int[] dimensions, final A data, final long savedChecksum )
+	{
+		final long checksum = CellCache.checksum( data );
+		if ( checksum != savedChecksum )
+			loader.save( index, min, dimensions, data );
+		return checksum;
+	}
+
+	/**
+	 * @return the number of bytes occupied by the data of this cell.
+	 */
+	long sizeInBytes()
+	{
+		return CellCache.sizeInBytes( data );
+	}
+}
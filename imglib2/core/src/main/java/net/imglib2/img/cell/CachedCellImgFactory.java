@@ -0,0 +1,212 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.NativeImgFactory;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.basictypeaccess.array.BitArray;
+import net.imglib2.img.basictypeaccess.array.ByteArray;
+import net.imglib2.img.basictypeaccess.array.CharArray;
+import net.imglib2.img.basictypeaccess.array.DoubleArray;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.img.basictypeaccess.array.LongArray;
+import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.type.NativeType;
+
+/**
+ * Factory for creating disk-backed {@link CellImg CellImgs}. The cells are
+ * stored by a {@link DirectoryCellLoader}, loaded lazily, and held in a
+ * {@link CellCache} of bounded size.
+ *
+ * A factory is bound to its directory. Every image created by the factory
+ * gets its own subdirectory: the <em>i</em>-th image is stored in the
+ * subdirectory <em>i</em>. Cell files that already exist in the subdirectory
+ * are loaded, so a new factory on the same directory re-opens previously
+ * saved images when they are created again in the same order, with the same
+ * dimensions, type, and cell dimensions. Factories obtained by
+ * {@link #imgFactory(Object)} continue the numbering of this factory.
+ * {@link CellImg#copy()} creates an in-memory copy. Use
+ * {@link CachedCells#flush()} (via {@link CellImg#getCells()}) to make sure
+ * that all modifications are written to disk.
+ *
+ * @author ImgLib2 developers
+ */
+public class CachedCellImgFactory< T extends NativeType< T > > extends NativeImgFactory< T >
+{
+	protected final File directory;
+
+	protected final long maxBytes;
+
+	protected final boolean compress;
+
+	protected final int[] defaultCellDimensions;
+
+	/**
+	 * Number of images created by this factory and the factories sharing its
+	 * directory.
+	 */
+	protected final AtomicInteger numImgs;
+
+	/**
+	 * @param directory
+	 *            directory in which the cell files are stored.
+	 * @param maxBytes
+	 *            maximum number of bytes of cell data to keep in memory.
+	 * @param compress
+	 *            whether cell files are gzip-compressed.
+	 * @param cellDimensions
+	 *            dimensions of a standard cell. If there are less cell
+	 *            dimensions than image dimensions, the last cell dimension is
+	 *            used for the remaining dimensions.
+	 */
+	public CachedCellImgFactory( final File directory, final long maxBytes, final boolean compress, final int... cellDimensions )
+	{
+		this( directory, maxBytes, compress, new AtomicInteger(), cellDimensions );
+	}
+
+	protected CachedCellImgFactory( final File directory, final long maxBytes, final boolean compress, final AtomicInteger numImgs, final int... cellDimensions )
+	{
+		if ( cellDimensions == null || cellDimensions.length == 0 )
+			throw new IllegalArgumentException( "CachedCellImgFactory(): no cell dimensions given." );
+		for ( int i = 0; i < cellDimensions.length; ++i )
+			if ( cellDimensions[ i ] <= 0 )
+				throw new IllegalArgumentException( "CachedCellImgFactory(): cell size in dimension " + i + " is <= 0." );
+
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		this.compress = compress;
+		this.defaultCellDimensions = cellDimensions.clone();
+		this.numImgs = numImgs;
+	}
+
+	/**
+	 * Get the directory in which the next image created by this factory is
+	 * stored.
+	 */
+	protected File nextImgDirectory()
+	{
+		final File imgDirectory = new File( directory, Integer.toString( numImgs.getAndIncrement() ) );
+		if ( !imgDirectory.isDirectory() && !imgDirectory.mkdirs() )
+			throw new RuntimeException( "Could not create directory " + imgDirectory );
+		return imgDirectory;
+	}
+
+	protected int[] getCellDimensions( final long[] dimensions )
+	{
+		final int[] cellDimensions = new int[ dimensions.length ];
+		for ( int d = 0; d < dimensions.length; ++d )
+			cellDimensions[ d ] = defaultCellDimensions[ Math.min( d, defaultCellDimensions.length - 1 ) ];
+		return cellDimensions;
+	}
+
+	protected < A extends ArrayDataAccess< A > > CellImg< T, A, CachedCell< A > > createInstance( final long[] dimensions, final int entitiesPerPixel, final A creator )
+	{
+		final int[] cellDimensions = getCellDimensions( dimensions );
+		final DirectoryCellLoader< A > loader = new DirectoryCellLoader< A >( nextImgDirectory(), creator, entitiesPerPixel, compress );
+		final CachedCells< A > cells = new CachedCells< A >( loader, maxBytes, true, entitiesPerPixel, dimensions, cellDimensions );
+		return new CellImg< T, A, CachedCell< A > >( new CellImgFactory< T >( cellDimensions ), cells );
+	}
+
+	@Override
+	public CellImg< T, ?, ? > create( final long[] dim, final T type )
+	{
+		return ( CellImg< T, ?, ? > ) type.createSuitableNativeImg( this, dim );
+	}
+
+	@Override
+	public CellImg< T, BitArray, CachedCell< BitArray > > createBitInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		return createInstance( dimensions, entitiesPerPixel, new BitArray( 1 ) );
+	}
+
+	@Override
+	public CellImg< T, ByteArray, CachedCell< ByteArray > > createByteInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		return createInstance( dimensions, entitiesPerPixel, new ByteArray( 1 ) );
+	}
+
+	@Override
+	public CellImg< T, CharArray, CachedCell< CharArray > > createCharInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		return createInstance( dimensions, entitiesPerPixel, new CharArray( 1 ) );
+	}
+
+	@Override
+	public CellImg< T, ShortArray, CachedCell< ShortArray > > createShortInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		return createInstance( dimensions, entitiesPerPixel, new ShortArray( 1 ) );
+	}
+
+	@Override
+	public CellImg< T, IntArray, CachedCell< IntArray > > createIntInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		return createInstance( dimensions, entitiesPerPixel, new IntArray( 1 ) );
+	}
+
+	@Override
+	public CellImg< T, LongArray, CachedCell< LongArray > > createLongInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		return createInstance( dimensions, entitiesPerPixel, new LongArray( 1 ) );
+	}
+
+	@Override
+	public CellImg< T, FloatArray, CachedCell< FloatArray > > createFloatInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		return createInstance( dimensions, entitiesPerPixel, new FloatArray( 1 ) );
+	}
+
+	@Override
+	public CellImg< T, DoubleArray, CachedCell< DoubleArray > > createDoubleInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		return createInstance( dimensions, entitiesPerPixel, new DoubleArray( 1 ) );
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	@Override
+	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
+	{
+		if ( NativeType.class.isInstance( type ) )
+			return new CachedCellImgFactory( directory, maxBytes, compress, numImgs, defaultCellDimensions );
+		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
+	}
+}
@@ -0,0 +1,335 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import net.imglib2.AbstractCursor;
+import net.imglib2.Cursor;
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.util.IntervalIndexer;
+
+/**
+ * Implementation of {@link Cells} that creates {@link CachedCell}s on demand
+ * from a {@link CellLoader} and keeps only a bounded number of them in memory
+ * in a {@link CellCache}. This allows {@link CellImg}s that are much larger
+ * than the available memory. The standard {@link CellCursor} and
+ * {@link CellRandomAccess} work on these cells unchanged.
+ *
+ * @author ImgLib2 developers
+ */
+public class CachedCells< A extends ArrayDataAccess< A > > implements Cells< A, CachedCell< A > >
+{
+	protected final int entitiesPerPixel;
+
+	protected final int n;
+
+	protected final long[] dimensions;
+
+	protected final int[] cellDimensions;
+
+	protected final long[] numCells;
+
+	protected final int[] borderSize;
+
+	protected final long numCellsTotal;
+
+	protected final CellCache< A > cache;
+
+	/**
+	 * @param cache
+	 *            the cache from which cells are requested.
+	 * @param entitiesPerPixel
+	 *            number of basic type entities per pixel.
+	 * @param dimensions
+	 *            dimensions of the image.
+	 * @param cellDimensions
+	 *            dimensions of a standard cell.
+	 */
+	public CachedCells( final CellCache< A > cache, final int entitiesPerPixel, final long[] dimensions, final int[] cellDimensions )
+	{
+		this.cache = cache;
+		this.entitiesPerPixel = entitiesPerPixel;
+		this.n = dimensions.length;
+		this.dimensions = dimensions.clone();
+		this.cellDimensions = cellDimensions.clone();
+
+		numCells = new long[ n ];
+		borderSize = new int[ n ];
+
+		long total = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			numCells[ d ] = ( dimensions[ d ] - 1 ) / cellDimensions[ d ] + 1;
+			borderSize[ d ] = ( int ) ( dimensions[ d ] - ( numCells[ d ] - 1 ) * cellDimensions[ d ] );
+			total *= numCells[ d ];
+		}
+		numCellsTotal = total;
+	}
+
+	/**
+	 * @param loader
+	 *            creates cell data on demand and stores modified cells.
+	 * @param maxBytes
+	 *            maximum number of bytes of cell data to keep in memory.
+	 * @param writeBack
+	 *            whether dirty cells are saved through the loader on eviction.
+	 * @param entitiesPerPixel
+	 *            number of basic type entities per pixel.
+	 * @param dimensions
+	 *            dimensions of the image.
+	 * @param cellDimensions
+	 *            dimensions of a standard cell.
+	 */
+	public CachedCells( final CellLoader< A > loader, final long maxBytes, final boolean writeBack, final int entitiesPerPixel, final long[] dimensions, final int[] cellDimensions )
+	{
+		this( new CellCache< A >( loader, maxBytes, writeBack ), entitiesPerPixel, dimensions, cellDimensions );
+	}
+
+	/**
+	 * @return the {@link CellCache} holding the cells.
+	 */
+	public CellCache< A > getCache()
+	{
+		return cache;
+	}
+
+	/**
+	 * Write back all dirty cells.
+	 */
+	public void flush()
+	{
+		cache.flush();
+	}
+
+	/**
+	 * Get the cell at the given position in the cell grid.
+	 */
+	protected CachedCell< A > getCell( final long index, final long[] cellGridPosition )
+	{
+		final long[] cellMin = new long[ n ];
+		final int[] cellDims = new int[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			cellDims[ d ] = ( ( cellGridPosition[ d ] + 1 == numCells[ d ] ) ? borderSize[ d ] : cellDimensions[ d ] );
+			cellMin[ d ] = cellGridPosition[ d ] * cellDimensions[ d ];
+		}
+		return cache.get( index, cellMin, cellDims );
+	}
+
+	@Override
+	public RandomAccess< CachedCell< A > > randomAccess()
+	{
+		return new CachedCellsRandomAccess();
+	}
+
+	@Override
+	public Cursor< CachedCell< A > > cursor()
+	{
+		return new CachedCellsCursor();
+	}
+
+	@Override
+	public Cursor< CachedCell< A > > localizingCursor()
+	{
+		return new CachedCellsCursor();
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return n;
+	}
+
+	@Override
+	public void dimensions( final long[] s )
+	{
+		for ( int i = 0; i < n; ++i )
+			s[ i ] = dimensions[ i ];
+	}
+
+	@Override
+	public long dimension( final int d )
+	{
+		return dimensions[ d ];
+	}
+
+	@Override
+	public void cellDimensions( final int[] s )
+	{
+		for ( int i = 0; i < n; ++i )
+			s[ i ] = cellDimensions[ i ];
+	}
+
+	@Override
+	public int cellDimension( final int d )
+	{
+		return cellDimensions[ d ];
+	}
+
+	@Override
+	public int getEntitiesPerPixel()
+	{
+		return entitiesPerPixel;
+	}
+
+	/**
+	 * {@link RandomAccess} on the cell grid. {@link CellRandomAccess} only
+	 * calls {@link #get()} when it moves to another cell, so the cell is
+	 * requested from the cache every time.
+	 */
+	protected class CachedCellsRandomAccess extends Point implements RandomAccess< CachedCell< A > >
+	{
+		public CachedCellsRandomAccess()
+		{
+			super( CachedCells.this.n );
+		}
+
+		protected CachedCellsRandomAccess( final CachedCellsRandomAccess randomAccess )
+		{
+			super( randomAccess );
+		}
+
+		@Override
+		public CachedCell< A > get()
+		{
+			return getCell( IntervalIndexer.positionToIndex( position, numCells ), position );
+		}
+
+		@Override
+		public CachedCellsRandomAccess copy()
+		{
+			return new CachedCellsRandomAccess( this );
+		}
+
+		@Override
+		public CachedCellsRandomAccess copyRandomAccess()
+		{
+			return copy();
+		}
+	}
+
+	/**
+	 * {@link Cursor} on the cell grid in flat iteration order. The current
+	 * cell is requested from the cache once and kept until the cursor moves.
+	 */
+	protected class CachedCellsCursor extends AbstractCursor< CachedCell< A > >
+	{
+		protected long index;
+
+		protected final long[] position;
+
+		protected CachedCell< A > cell;
+
+		public CachedCellsCursor()
+		{
+			super( CachedCells.this.n );
+			position = new long[ n ];
+			reset();
+		}
+
+		protected CachedCellsCursor( final CachedCellsCursor cursor )
+		{
+			super( CachedCells.this.n );
+			index = cursor.index;
+			position = cursor.position.clone();
+			cell = cursor.cell;
+		}
+
+		@Override
+		public CachedCell< A > get()
+		{
+			if ( cell == null )
+			{
+				IntervalIndexer.indexToPosition( index, numCells, position );
+				cell = getCell( index, position );
+			}
+			return cell;
+		}
+
+		@Override
+		public void fwd()
+		{
+			++index;
+			cell = null;
+		}
+
+		@Override
+		public void jumpFwd( final long steps )
+		{
+			index += steps;
+			cell = null;
+		}
+
+		@Override
+		public void reset()
+		{
+			index = -1;
+			cell = null;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return index < numCellsTotal - 1;
+		}
+
+		@Override
+		public void localize( final long[] pos )
+		{
+			IntervalIndexer.indexToPosition( index, numCells, pos );
+		}
+
+		@Override
+		public long getLongPosition( final int d )
+		{
+			return IntervalIndexer.indexToPosition( index, numCells, d );
+		}
+
+		@Override
+		public CachedCellsCursor copy()
+		{
+			return new CachedCellsCursor( this );
+		}
+
+		@Override
+		public CachedCellsCursor copyCursor()
+		{
+			return copy();
+		}
+	}
+}
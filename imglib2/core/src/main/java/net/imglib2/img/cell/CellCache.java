@@ -0,0 +1,722 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+
+/**
+ * A bounded least-recently-used cache of {@link CachedCell}s. Cells are
+ * created on demand by a {@link CellLoader}. When the total size of the cached
+ * cells exceeds the byte budget, the least recently used cells are evicted and
+ * written back through the {@link CellLoader} if they are dirty.
+ *
+ * The data of evicted cells may still be referenced by samplers on the
+ * {@link CellImg}. Such data is tracked by weak references, so that requesting
+ * the cell again returns the same data instead of re-loading stale data from
+ * the {@link CellLoader}. Modifications made through such a lingering sampler
+ * after the eviction are persisted by {@link #flush()}, or when the cell is
+ * requested again and evicted once more. Whether a cell was modified is
+ * determined by comparing checksums of its data (see {@link CachedCell}), so
+ * cells that were only read are never written back.
+ *
+ * Cells are loaded without holding the lock of the cache, so other cells can
+ * be accessed concurrently. Concurrent requests for a cell that is being
+ * loaded wait for that load instead of loading the cell again.
+ *
+ * A cache constructed with an {@link ExecutorService} fetches cells
+ * asynchronously. This is meant for read-only tiled sources where loading a
+ * cell is slow, e.g., tiles fetched from a remote server. A request for a cell
+ * that is not cached submits a load to the executor and immediately returns a
+ * placeholder cell whose data is all zero. Further requests for the same cell
+ * return placeholders without submitting another load until the load has
+ * completed. Placeholders are not cached, so the loaded cell is returned as
+ * soon as it is available. {@link LoadListener}s are notified of completed
+ * loads, e.g., to repaint a viewer. A failed load is not cached either; the
+ * cell is loaded again when it is requested after a retry delay that doubles
+ * with every consecutive failure of the cell (see
+ * {@link #setRetryDelay(long, long)}).
+ *
+ * @author ImgLib2 developers
+ */
+public class CellCache< A extends ArrayDataAccess< A > >
+{
+	/**
+	 * Weak reference to the data of an evicted cell. Samplers hold the data,
+	 * not the cell, so the data is reachable as long as it may be modified.
+	 */
+	private static class CellReference< A extends ArrayDataAccess< A > > extends WeakReference< A >
+	{
+		final long index;
+
+		final long[] min;
+
+		final int[] dimensions;
+
+		final boolean writable;
+
+		long savedChecksum;
+
+		public CellReference( final CachedCell< A > cell, final ReferenceQueue< A > queue )
+		{
+			super( cell.getData(), queue );
+			index = cell.getIndex();
+			min = cell.min.clone();
+			dimensions = cell.dimensions.clone();
+			writable = cell.isWritable();
+			savedChecksum = cell.getSavedChecksum();
+		}
+	}
+
+	/**
+	 * Notified when an asynchronous load has put a cell into the cache or has
+	 * failed.
+	 */
+	public interface LoadListener
+	{
+		/**
+		 * Called on the loading thread after the cell with the given index
+		 * was put into the cache.
+		 */
+		public void cellLoaded( long index );
+
+		/**
+		 * Called on the loading thread after the {@link CellLoader} failed to
+		 * load the cell with the given index. Nothing was cached, the cell is
+		 * loaded again when it is requested after the retry delay.
+		 */
+		public void cellFailed( long index, Exception exception );
+	}
+
+	/**
+	 * Consecutive failed loads of a cell.
+	 */
+	private static class Failure
+	{
+		int count = 0;
+
+		long nextRetryTime;
+	}
+
+	protected final CellLoader< A > loader;
+
+	protected final long maxBytes;
+
+	protected final boolean writeBack;
+
+	private final LinkedHashMap< Long, CachedCell< A > > cache;
+
+	private final HashMap< Long, CellReference< A > > evicted;
+
+	private final ReferenceQueue< A > queue;
+
+	private long currentBytes;
+
+	private long numHits;
+
+	private long numMisses;
+
+	private long numEvictions;
+
+	/**
+	 * Executor for asynchronous loads, or null if cells are loaded
+	 * synchronously.
+	 */
+	protected final ExecutorService fetchService;
+
+	/**
+	 * Creates empty arrays for placeholders.
+	 */
+	protected final A placeholderCreator;
+
+	protected final int entitiesPerPixel;
+
+	/**
+	 * Indices of cells for which a load is in progress.
+	 */
+	private final HashSet< Long > pending;
+
+	/**
+	 * Shared (all zero) placeholder arrays by number of entities.
+	 */
+	private final HashMap< Integer, A > placeholders;
+
+	private final CopyOnWriteArrayList< LoadListener > listeners;
+
+	private long numPlaceholders;
+
+	private long numFailures;
+
+	/**
+	 * Failures of cells that have not been loaded successfully since.
+	 */
+	private final HashMap< Long, Failure > failures;
+
+	private long minRetryDelay = 250;
+
+	private long maxRetryDelay = 30000;
+
+	/**
+	 * @param loader
+	 *            creates cell data on demand and stores modified cells.
+	 * @param maxBytes
+	 *            maximum number of bytes of cell data to keep in memory.
+	 * @param writeBack
+	 *            whether dirty cells are saved through the loader on eviction.
+	 *            If false, the cache is read-only and modifications are
+	 *            discarded.
+	 */
+	public CellCache( final CellLoader< A > loader, final long maxBytes, final boolean writeBack )
+	{
+		this( loader, maxBytes, writeBack, null, null, 0 );
+	}
+
+	/**
+	 * Create a read-only cache that loads cells asynchronously.
+	 *
+	 * @param loader
+	 *            creates cell data. It is called on the threads of the
+	 *            fetchService. If it throws a {@link RuntimeException}, the
+	 *            failure is counted and passed to the {@link LoadListener}s,
+	 *            nothing is cached, and the cell is loaded again when it is
+	 *            requested after the retry delay. If it throws an
+	 *            {@link Error}, the cell is loaded again when it is requested
+	 *            next.
+	 * @param maxBytes
+	 *            maximum number of bytes of cell data to keep in memory.
+	 *            Placeholders do not count.
+	 * @param fetchService
+	 *            executor on which cells are loaded. If it rejects a load,
+	 *            {@link #get(long, long[], int[])} throws its exception and
+	 *            the cell is loaded again when it is requested next.
+	 * @param placeholderCreator
+	 *            used to create the empty arrays of placeholder cells, e.g.,
+	 *            <code>new IntArray( 1 )</code>.
+	 * @param entitiesPerPixel
+	 *            number of basic type entities per pixel.
+	 */
+	public CellCache( final CellLoader< A > loader, final long maxBytes, final ExecutorService fetchService, final A placeholderCreator, final int entitiesPerPixel )
+	{
+		this( loader, maxBytes, false, fetchService, placeholderCreator, entitiesPerPixel );
+		if ( fetchService == null || placeholderCreator == null )
+			throw new IllegalArgumentException( "CellCache(): asynchronous loading needs a fetchService and a placeholderCreator." );
+	}
+
+	private CellCache( final CellLoader< A > loader, final long maxBytes, final boolean writeBack, final ExecutorService fetchService, final A placeholderCreator, final int entitiesPerPixel )
+	{
+		this.loader = loader;
+		this.maxBytes = maxBytes;
+		this.writeBack = writeBack;
+		this.fetchService = fetchService;
+		this.placeholderCreator = placeholderCreator;
+		this.entitiesPerPixel = entitiesPerPixel;
+		cache = new LinkedHashMap< Long, CachedCell< A > >( 16, 0.75f, true );
+		evicted = new HashMap< Long, CellReference< A > >();
+		queue = new ReferenceQueue< A >();
+		pending = new HashSet< Long >();
+		placeholders = new HashMap< Integer, A >();
+		failures = new HashMap< Long, Failure >();
+		listeners = new CopyOnWriteArrayList< LoadListener >();
+		currentBytes = 0;
+	}
+
+	/**
+	 * Get the cell with the given index, loading it if it is not cached. If
+	 * the cache loads asynchronously, a placeholder is returned for a cell
+	 * that is not cached yet.
+	 *
+	 * @param index
+	 *            flat index of the cell in the cell grid.
+	 * @param min
+	 *            offset of the cell in image coordinates.
+	 * @param dimensions
+	 *            dimensions of the cell.
+	 */
+	public CachedCell< A > get( final long index, final long[] min, final int[] dimensions )
+	{
+		final Long key = index;
+		synchronized ( this )
+		{
+			boolean interrupted = false;
+			try
+			{
+				while ( true )
+				{
+					final CachedCell< A > cell = getCached( key );
+					if ( cell != null )
+					{
+						++numHits;
+						return cell;
+					}
+					if ( !pending.contains( key ) )
+						break;
+					if ( fetchService != null )
+					{
+						++numPlaceholders;
+						return createPlaceholder( index, min, dimensions );
+					}
+					try
+					{
+						wait();
+					}
+					catch ( final InterruptedException e )
+					{
+						interrupted = true;
+					}
+				}
+			}
+			finally
+			{
+				if ( interrupted )
+					Thread.currentThread().interrupt();
+			}
+
+			if ( fetchService != null )
+			{
+				final Failure failure = failures.get( key );
+				if ( failure != null && System.currentTimeMillis() < failure.nextRetryTime )
+				{
+					++numPlaceholders;
+					return createPlaceholder( index, min, dimensions );
+				}
+			}
+
+			++numMisses;
+			pending.add( key );
+			if ( fetchService != null )
+			{
+				boolean submitted = false;
+				try
+				{
+					fetchService.execute( new Load( index, min.clone(), dimensions.clone() ) );
+					submitted = true;
+				}
+				finally
+				{
+					// e.g. the fetchService was shut down, the next get() retries
+					if ( !submitted )
+						pending.remove( key );
+				}
+				++numPlaceholders;
+				return createPlaceholder( index, min, dimensions );
+			}
+		}
+
+		CachedCell< A > cell = null;
+		try
+		{
+			cell = new CachedCell< A >( index, dimensions, min, loader.load( index, min, dimensions ), writeBack );
+		}
+		finally
+		{
+			synchronized ( this )
+			{
+				pending.remove( key );
+				if ( cell != null )
+					put( key, cell );
+				notifyAll();
+			}
+		}
+		return cell;
+	}
+
+	/**
+	 * Get a cell from the cache, or re-insert an evicted cell whose data is
+	 * still referenced.
+	 *
+	 * @return the cell or null if it is neither cached nor referenced.
+	 */
+	private CachedCell< A > getCached( final Long key )
+	{
+		final CachedCell< A > cell = cache.get( key );
+		if ( cell != null )
+			return cell;
+
+		cleanUp();
+		final CellReference< A > ref = evicted.remove( key );
+		if ( ref == null )
+			return null;
+		final A data = ref.get();
+		if ( data == null )
+			return null;
+		final CachedCell< A > evictedCell = new CachedCell< A >( ref.index, ref.dimensions, ref.min, data, ref.writable, ref.savedChecksum );
+		put( key, evictedCell );
+		return evictedCell;
+	}
+
+	/**
+	 * Add a listener that is notified of completed asynchronous loads.
+	 */
+	public void addLoadListener( final LoadListener listener )
+	{
+		listeners.add( listener );
+	}
+
+	public void removeLoadListener( final LoadListener listener )
+	{
+		listeners.remove( listener );
+	}
+
+	/**
+	 * Set how long a cell whose asynchronous load failed is not loaded again.
+	 * The delay starts at minMillis and doubles with every consecutive failure
+	 * of the cell, up to maxMillis.
+	 */
+	public synchronized void setRetryDelay( final long minMillis, final long maxMillis )
+	{
+		minRetryDelay = minMillis;
+		maxRetryDelay = maxMillis;
+	}
+
+	private void addFailure( final Long key )
+	{
+		Failure failure = failures.get( key );
+		if ( failure == null )
+		{
+			failure = new Failure();
+			failures.put( key, failure );
+		}
+		++failure.count;
+		long delay = minRetryDelay;
+		for ( int i = 1; i < failure.count && delay < maxRetryDelay; ++i )
+			delay *= 2;
+		failure.nextRetryTime = System.currentTimeMillis() + Math.min( delay, maxRetryDelay );
+	}
+
+	/**
+	 * @return whether cells are loaded asynchronously.
+	 */
+	public boolean isAsynchronous()
+	{
+		return fetchService != null;
+	}
+
+	private void put( final Long key, final CachedCell< A > cell )
+	{
+		cache.put( key, cell );
+		currentBytes += cell.sizeInBytes();
+		evict();
+	}
+
+	/**
+	 * Create a placeholder cell. All placeholders of the same size share one
+	 * array, which must not be written.
+	 */
+	private CachedCell< A > createPlaceholder( final long index, final long[] min, final int[] dimensions )
+	{
+		final int numEntities = numEntities( dimensions );
+		A data = placeholders.get( numEntities );
+		if ( data == null )
+		{
+			data = placeholderCreator.createArray( numEntities );
+			placeholders.put( numEntities, data );
+		}
+		return new CachedCell< A >( index, dimensions, min, data, false );
+	}
+
+	private int numEntities( final int[] dimensions )
+	{
+		int numEntities = entitiesPerPixel;
+		for ( int d = 0; d < dimensions.length; ++d )
+			numEntities *= dimensions[ d ];
+		return numEntities;
+	}
+
+	/**
+	 * Asynchronous load of one cell. The {@link CellLoader} is called without
+	 * holding the lock of the cache.
+	 */
+	private class Load implements Runnable
+	{
+		final long index;
+
+		final long[] min;
+
+		final int[] dimensions;
+
+		public Load( final long index, final long[] min, final int[] dimensions )
+		{
+			this.index = index;
+			this.min = min;
+			this.dimensions = dimensions;
+		}
+
+		@Override
+		public void run()
+		{
+			A data = null;
+			RuntimeException exception = null;
+			try
+			{
+				try
+				{
+					data = loader.load( index, min, dimensions );
+				}
+				catch ( final RuntimeException e )
+				{
+					exception = e;
+				}
+			}
+			finally
+			{
+				// if an Error is thrown, nothing is cached and the next get()
+				// retries
+				synchronized ( CellCache.this )
+				{
+					final Long key = index;
+					pending.remove( key );
+					if ( data != null )
+					{
+						failures.remove( key );
+						put( key, new CachedCell< A >( index, dimensions, min, data, false ) );
+					}
+					else if ( exception != null )
+					{
+						++numFailures;
+						addFailure( key );
+					}
+				}
+			}
+
+			if ( data != null )
+				for ( final LoadListener listener : listeners )
+					listener.cellLoaded( index );
+			else
+				for ( final LoadListener listener : listeners )
+					listener.cellFailed( index, exception );
+		}
+	}
+
+	/**
+	 * Write back all dirty cells, including evicted cells that are still
+	 * referenced by samplers.
+	 */
+	public synchronized void flush()
+	{
+		if ( !writeBack )
+			return;
+		for ( final CachedCell< A > cell : cache.values() )
+			cell.saveIfDirty( loader );
+		cleanUp();
+		for ( final CellReference< A > ref : evicted.values() )
+		{
+			final A data = ref.get();
+			if ( data != null )
+				ref.savedChecksum = CachedCell.saveIfModified( loader, ref.index, ref.min, ref.dimensions, data, ref.savedChecksum );
+		}
+	}
+
+	/**
+	 * Write back all dirty cells and remove all cells from the cache.
+	 */
+	public synchronized void clear()
+	{
+		flush();
+		cache.clear();
+		evicted.clear();
+		currentBytes = 0;
+	}
+
+	/**
+	 * @return the number of bytes of cell data currently held by the cache.
+	 */
+	public synchronized long getCurrentBytes()
+	{
+		return currentBytes;
+	}
+
+	/**
+	 * @return the maximum number of bytes of cell data held by the cache.
+	 */
+	public long getMaxBytes()
+	{
+		return maxBytes;
+	}
+
+	/**
+	 * @return the number of requests that did not need to load a cell.
+	 */
+	public synchronized long getNumHits()
+	{
+		return numHits;
+	}
+
+	/**
+	 * @return the number of requests that loaded a cell.
+	 */
+	public synchronized long getNumMisses()
+	{
+		return numMisses;
+	}
+
+	/**
+	 * @return the number of cells that have been evicted from the cache.
+	 */
+	public synchronized long getNumEvictions()
+	{
+		return numEvictions;
+	}
+
+	/**
+	 * @return the number of placeholders returned for cells that were not
+	 *         loaded yet.
+	 */
+	public synchronized long getNumPlaceholders()
+	{
+		return numPlaceholders;
+	}
+
+	/**
+	 * @return the number of asynchronous loads in progress.
+	 */
+	public synchronized int getNumPendingLoads()
+	{
+		return pending.size();
+	}
+
+	/**
+	 * @return the number of asynchronous loads that failed.
+	 */
+	public synchronized long getNumFailures()
+	{
+		return numFailures;
+	}
+
+	/**
+	 * Evict least recently used cells until the cache fits into the byte
+	 * budget. The most recently used cell is never evicted.
+	 */
+	private void evict()
+	{
+		final ArrayList< CachedCell< A > > removed = new ArrayList< CachedCell< A > >();
+		final Iterator< Entry< Long, CachedCell< A > > > it = cache.entrySet().iterator();
+		while ( currentBytes > maxBytes && cache.size() > 1 )
+		{
+			final CachedCell< A > cell = it.next().getValue();
+			it.remove();
+			currentBytes -= cell.sizeInBytes();
+			removed.add( cell );
+		}
+		for ( final CachedCell< A > cell : removed )
+		{
+			++numEvictions;
+			if ( writeBack )
+				cell.saveIfDirty( loader );
+			evicted.put( cell.getIndex(), new CellReference< A >( cell, queue ) );
+		}
+	}
+
+	/**
+	 * Remove references to evicted cells that have been garbage collected.
+	 */
+	@SuppressWarnings( "unchecked" )
+	private void cleanUp()
+	{
+		CellReference< A > ref;
+		while ( ( ref = ( CellReference< A > ) queue.poll() ) != null )
+			if ( evicted.get( ref.index ) == ref )
+				evicted.remove( ref.index );
+	}
+
+	/**
+	 * Compute a 64 bit checksum of the storage array of a basic type access.
+	 */
+	public static long checksum( final ArrayDataAccess< ? > access )
+	{
+		final Object array = access.getCurrentStorageArray();
+		long h = 0xcbf29ce484222325l;
+		if ( array instanceof byte[] )
+			for ( final byte v : ( byte[] ) array )
+				h = ( h ^ v ) * 0x100000001b3l;
+		else if ( array instanceof short[] )
+			for ( final short v : ( short[] ) array )
+				h = ( h ^ v ) * 0x100000001b3l;
+		else if ( array instanceof char[] )
+			for ( final char v : ( char[] ) array )
+				h = ( h ^ v ) * 0x100000001b3l;
+		else if ( array instanceof int[] )
+			for ( final int v : ( int[] ) array )
+				h = ( h ^ v ) * 0x100000001b3l;
+		else if ( array instanceof float[] )
+			for ( final float v : ( float[] ) array )
+				h = ( h ^ Float.floatToRawIntBits( v ) ) * 0x100000001b3l;
+		else if ( array instanceof long[] )
+			for ( final long v : ( long[] ) array )
+				h = ( h ^ v ) * 0x100000001b3l;
+		else if ( array instanceof double[] )
+			for ( final double v : ( double[] ) array )
+				h = ( h ^ Double.doubleToRawLongBits( v ) ) * 0x100000001b3l;
+		else
+			throw new IllegalArgumentException( "Unsupported storage array " + array.getClass().getName() );
+		return h;
+	}
+
+	/**
+	 * Get the number of bytes occupied by the storage array of a basic type
+	 * access.
+	 */
+	public static long sizeInBytes( final ArrayDataAccess< ? > access )
+	{
+		final Object array = access.getCurrentStorageArray();
+		if ( array instanceof byte[] )
+			return ( ( byte[] ) array ).length;
+		else if ( array instanceof short[] )
+			return 2l * ( ( short[] ) array ).length;
+		else if ( array instanceof char[] )
+			return 2l * ( ( char[] ) array ).length;
+		else if ( array instanceof int[] )
+			return 4l * ( ( int[] ) array ).length;
+		else if ( array instanceof float[] )
+			return 4l * ( ( float[] ) array ).length;
+		else if ( array instanceof long[] )
+			return 8l * ( ( long[] ) array ).length;
+		else if ( array instanceof double[] )
+			return 8l * ( ( double[] ) array ).length;
+		else
+			throw new IllegalArgumentException( "Unsupported storage array " + array.getClass().getName() );
+	}
+}
@@ -52,6 +52,13 @@ public class CellCursor< T extends NativeType< T >, A, C extends AbstractCell< A
 
 	protected final Cursor< C > cursorOnCells;
 
+	protected final CellImg< T, A, C > img;
+
+	/**
+	 * Used by {@link #jumpFwd(long)} to skip cells without accessing them.
+	 */
+	protected final long[] cellGridPosition;
+
 	protected int lastIndexInCell;
 
 	/**
@@ -71,6 +78,8 @@ public class CellCursor< T extends NativeType< T >, A, C extends AbstractCell< A
 
 		this.type = cursor.type.duplicateTypeOnSameNativeImg();
 		this.cursorOnCells = cursor.cursorOnCells.copyCursor();
+		this.img = cursor.img;
+		this.cellGridPosition = new long[ n ];
 		isNotLastCell = cursor.isNotLastCell;
 		lastIndexInCell = cursor.lastIndexInCell;
 		index = cursor.index;
@@ -85,6 +94,8 @@ public class CellCursor< T extends NativeType< T >, A, C extends AbstractCell< A
 
 		this.type = container.createLinkedType();
 		this.cursorOnCells = container.cells.cursor();
+		this.img = container;
+		this.cellGridPosition = new long[ n ];
 
 		reset();
 	}
@@ -122,10 +133,20 @@ public class CellCursor< T extends NativeType< T >, A, C extends AbstractCell< A
 	public void jumpFwd( final long steps )
 	{
 		long newIndex = index + steps;
-		while ( newIndex > lastIndexInCell )
+		if ( newIndex > lastIndexInCell )
 		{
+			// skip whole cells by their size, without accessing them
 			newIndex -= lastIndexInCell + 1;
-			cursorOnCells.fwd();
+			cursorOnCells.localize( cellGridPosition );
+			img.nextCellGridPosition( cellGridPosition );
+			long numCells = 1;
+			for ( long s = img.getCellSize( cellGridPosition ); newIndex >= s; s = img.getCellSize( cellGridPosition ) )
+			{
+				newIndex -= s;
+				img.nextCellGridPosition( cellGridPosition );
+				++numCells;
+			}
+			cursorOnCells.jumpFwd( numCells );
 			isNotLastCell = cursorOnCells.hasNext();
 			lastIndexInCell = ( int )( getCell().size() - 1);
 		}
@@ -36,6 +36,11 @@
 
 package net.imglib2.img.cell;
 
+import java.util.List;
+
+import net.imglib2.IterableInterval;
+import net.imglib2.IterableIntervalSubset;
+import net.imglib2.SplittableIterableInterval;
 import net.imglib2.img.AbstractNativeImg;
 import net.imglib2.img.Img;
 import net.imglib2.img.array.ArrayImg;
@@ -54,7 +59,7 @@ import net.imglib2.type.NativeType;
  * @author ImgLib2 developers
  * @author Tobias Pietzsch <tobias.pietzsch@gmail.com>
  */
-final public class CellImg< T extends NativeType< T >, A, C extends AbstractCell< A > > extends AbstractNativeImg< T, A >
+final public class CellImg< T extends NativeType< T >, A, C extends AbstractCell< A > > extends AbstractNativeImg< T, A > implements SplittableIterableInterval< T >
 {
 	final protected CellImgFactory< T > factory;
 
@@ -66,6 +71,16 @@ final public class CellImg< T extends NativeType< T >, A, C extends AbstractCell
 	 */
 	final int[] cellDims;
 
+	/**
+	 * Number of cells in each dimension of the cell grid.
+	 */
+	final long[] numCells;
+
+	/**
+	 * Dimensions of the cells on the max border of the image.
+	 */
+	final int[] borderSize;
+
 	private static long[] getDimensionsFromCells( final Cells< ?, ? > cells )
 	{
 		final long[] dim = new long[ cells.numDimensions() ];
@@ -81,6 +96,14 @@ final public class CellImg< T extends NativeType< T >, A, C extends AbstractCell
 		this.cells = cells;
 		cellDims = new int[ cells.numDimensions() ];
 		cells.cellDimensions( cellDims );
+
+		numCells = new long[ n ];
+		borderSize = new int[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			numCells[ d ] = ( dimension[ d ] - 1 ) / cellDims[ d ] + 1;
+			borderSize[ d ] = ( int ) ( dimension[ d ] - ( numCells[ d ] - 1 ) * cellDims[ d ] );
+		}
 	}
 
 	/**
@@ -116,6 +139,78 @@ final public class CellImg< T extends NativeType< T >, A, C extends AbstractCell
 			cellPos[ d ] = position[ d ] / cellDims[ d ];
 	}
 
+	/**
+	 * Get the number of elements in the cell at the given grid position
+	 * without accessing the cell.
+	 *
+	 * @param cellGridPosition
+	 *            position of the cell in the cell grid.
+	 */
+	long getCellSize( final long[] cellGridPosition )
+	{
+		long size = 1;
+		for ( int d = 0; d < n; ++d )
+			size *= ( cellGridPosition[ d ] + 1 == numCells[ d ] ) ? borderSize[ d ] : cellDims[ d ];
+		return size;
+	}
+
+	/**
+	 * Move a cell grid position to the next cell in the iteration order of
+	 * the cells.
+	 *
+	 * @param cellGridPosition
+	 *            position of a cell in the cell grid.
+	 */
+	void nextCellGridPosition( final long[] cellGridPosition )
+	{
+		for ( int d = 0; d < n; ++d )
+		{
+			if ( ++cellGridPosition[ d ] < numCells[ d ] )
+				return;
+			cellGridPosition[ d ] = 0;
+		}
+	}
+
+	/**
+	 * Split into parts of whole cells if there are at least
+	 * <em>numParts</em> cells. Otherwise, the cells are split into parts of
+	 * consecutive elements.
+	 */
+	@Override
+	public List< IterableInterval< T > > split( final int numParts )
+	{
+		long totalNumCells = 1;
+		for ( int d = 0; d < n; ++d )
+			totalNumCells *= numCells[ d ];
+		if ( totalNumCells < numParts )
+			return IterableIntervalSubset.split( this, numParts, 1 );
+
+		// cut at the first cell boundary after each multiple of size / numParts
+		final long size = size();
+		final long[] firstIndices = new long[ numParts ];
+		final long[] cellGridPosition = new long[ n ];
+		long cellStart = 0;
+		int part = 1;
+		for ( long i = 0; i < totalNumCells && part < numParts; ++i )
+		{
+			cellStart += getCellSize( cellGridPosition );
+			nextCellGridPosition( cellGridPosition );
+			if ( cellStart >= size * part / numParts && cellStart < size )
+				firstIndices[ part++ ] = cellStart;
+		}
+		final long[] parts = new long[ part ];
+		System.arraycopy( firstIndices, 0, parts, 0, part );
+		return IterableIntervalSubset.split( this, parts );
+	}
+
+	/**
+	 * @return the {@link Cells} that store the data of this image.
+	 */
+	public Cells< A, C > getCells()
+	{
+		return cells;
+	}
+
 	@Override
 	public CellCursor< T, A, C > cursor()
 	{
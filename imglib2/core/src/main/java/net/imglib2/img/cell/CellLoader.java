@@ -0,0 +1,80 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+
+/**
+ * Creates the data of {@link CachedCell}s on demand and (optionally) stores
+ * modified data back. A {@link CellLoader} is the pluggable storage backend of
+ * {@link CachedCells}, e.g., a directory of raw or compressed blocks (see
+ * {@link DirectoryCellLoader}).
+ *
+ * Implementations must be thread-safe, because {@link CachedCells} may load
+ * and save different cells concurrently.
+ *
+ * @author ImgLib2 developers
+ */
+public interface CellLoader< A extends ArrayDataAccess< A > >
+{
+	/**
+	 * Load (or create, if it does not exist yet) the data of a cell.
+	 *
+	 * @param index
+	 *            flat index of the cell in the cell grid.
+	 * @param min
+	 *            offset of the cell in image coordinates.
+	 * @param dimensions
+	 *            dimensions of the cell.
+	 * @return basic type array holding the pixels of the cell.
+	 */
+	public A load( long index, long[] min, int[] dimensions );
+
+	/**
+	 * Store the data of a (modified) cell.
+	 *
+	 * @param index
+	 *            flat index of the cell in the cell grid.
+	 * @param min
+	 *            offset of the cell in image coordinates.
+	 * @param dimensions
+	 *            dimensions of the cell.
+	 * @param data
+	 *            basic type array holding the pixels of the cell.
+	 */
+	public void save( long index, long[] min, int[] dimensions, A data );
+}
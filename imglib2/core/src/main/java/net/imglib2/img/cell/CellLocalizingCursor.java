@@ -52,6 +52,13 @@ public class CellLocalizingCursor< T extends NativeType< T >, A, C extends Abstr
 
 	protected final Cursor< C > cursorOnCells;
 
+	protected final CellImg< T, A, C > img;
+
+	/**
+	 * Used by {@link #jumpFwd(long)} to skip cells without accessing them.
+	 */
+	protected final long[] cellGridPosition;
+
 	protected int lastIndexInCell;
 
 	protected long[] currentCellMin;
@@ -75,6 +82,8 @@ public class CellLocalizingCursor< T extends NativeType< T >, A, C extends Abstr
 
 		this.type = cursor.type.duplicateTypeOnSameNativeImg();
 		this.cursorOnCells = cursor.cursorOnCells.copyCursor();
+		this.img = cursor.img;
+		this.cellGridPosition = new long[ n ];
 		this.currentCellMin = cursor.currentCellMin;
 		this.currentCellMax = cursor.currentCellMax;
 
@@ -94,6 +103,8 @@ public class CellLocalizingCursor< T extends NativeType< T >, A, C extends Abstr
 
 		this.type = container.createLinkedType();
 		this.cursorOnCells = container.cells.cursor();
+		this.img = container;
+		this.cellGridPosition = new long[ n ];
 		this.currentCellMin = null;
 		this.currentCellMax = null;
 
@@ -134,10 +145,20 @@ public class CellLocalizingCursor< T extends NativeType< T >, A, C extends Abstr
 	public void jumpFwd( final long steps )
 	{
 		long newIndex = index + steps;
-		while ( newIndex > lastIndexInCell )
+		if ( newIndex > lastIndexInCell )
 		{
+			// skip whole cells by their size, without accessing them
 			newIndex -= lastIndexInCell + 1;
-			cursorOnCells.fwd();
+			cursorOnCells.localize( cellGridPosition );
+			img.nextCellGridPosition( cellGridPosition );
+			long numCells = 1;
+			for ( long s = img.getCellSize( cellGridPosition ); newIndex >= s; s = img.getCellSize( cellGridPosition ) )
+			{
+				newIndex -= s;
+				img.nextCellGridPosition( cellGridPosition );
+				++numCells;
+			}
+			cursorOnCells.jumpFwd( numCells );
 			isNotLastCell = cursorOnCells.hasNext();
 			lastIndexInCell = ( int ) ( getCell().size() - 1 );
 		}
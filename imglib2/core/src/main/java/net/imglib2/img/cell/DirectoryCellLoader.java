@@ -0,0 +1,214 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+
+/**
+ * {@link CellLoader} that stores each cell as a block of raw (optionally
+ * gzip-compressed) big-endian data in a directory. The block of the cell with
+ * flat grid index <em>i</em> is stored in the file <em>i</em>.raw (or
+ * <em>i</em>.raw.gz if compressed). Cells for which no file exists are created
+ * empty.
+ *
+ * @author ImgLib2 developers
+ */
+public class DirectoryCellLoader< A extends ArrayDataAccess< A > > implements CellLoader< A >
+{
+	protected final File directory;
+
+	protected final A creator;
+
+	protected final int entitiesPerPixel;
+
+	protected final boolean compress;
+
+	/**
+	 * @param directory
+	 *            directory containing the cell files.
+	 * @param creator
+	 *            used to create basic type arrays for the cells.
+	 * @param entitiesPerPixel
+	 *            number of basic type entities per pixel.
+	 * @param compress
+	 *            whether cell files are gzip-compressed.
+	 */
+	public DirectoryCellLoader( final File directory, final A creator, final int entitiesPerPixel, final boolean compress )
+	{
+		this.directory = directory;
+		this.creator = creator;
+		this.entitiesPerPixel = entitiesPerPixel;
+		this.compress = compress;
+	}
+
+	/**
+	 * @return the file that stores the cell with the given flat grid index.
+	 */
+	public File getFile( final long index )
+	{
+		return new File( directory, index + ( compress ? ".raw.gz" : ".raw" ) );
+	}
+
+	@Override
+	public A load( final long index, final long[] min, final int[] dimensions )
+	{
+		int numEntities = entitiesPerPixel;
+		for ( int d = 0; d < dimensions.length; ++d )
+			numEntities *= dimensions[ d ];
+		final A data = creator.createArray( numEntities );
+
+		final File file = getFile( index );
+		if ( !file.exists() )
+			return data;
+
+		final byte[] bytes = new byte[ ( int ) CellCache.sizeInBytes( data ) ];
+		try
+		{
+			final DataInputStream in = new DataInputStream( openInput( file ) );
+			try
+			{
+				in.readFully( bytes );
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch ( final IOException e )
+		{
+			throw new RuntimeException( "Could not read cell " + index + " from " + file, e );
+		}
+		copy( ByteBuffer.wrap( bytes ), data.getCurrentStorageArray() );
+		return data;
+	}
+
+	@Override
+	public void save( final long index, final long[] min, final int[] dimensions, final A data )
+	{
+		final ByteBuffer buffer = ByteBuffer.allocate( ( int ) CellCache.sizeInBytes( data ) );
+		copy( data.getCurrentStorageArray(), buffer );
+
+		final File file = getFile( index );
+		try
+		{
+			final OutputStream out = openOutput( file );
+			try
+			{
+				out.write( buffer.array() );
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+		catch ( final IOException e )
+		{
+			throw new RuntimeException( "Could not write cell " + index + " to " + file, e );
+		}
+	}
+
+	protected InputStream openInput( final File file ) throws IOException
+	{
+		final InputStream in = new BufferedInputStream( new FileInputStream( file ) );
+		return compress ? new GZIPInputStream( in ) : in;
+	}
+
+	protected OutputStream openOutput( final File file ) throws IOException
+	{
+		final OutputStream out = new BufferedOutputStream( new FileOutputStream( file ) );
+		return compress ? new GZIPOutputStream( out ) : out;
+	}
+
+	/**
+	 * Copy the content of a {@link ByteBuffer} into a primitive storage array.
+	 */
+	protected static void copy( final ByteBuffer buffer, final Object array )
+	{
+		if ( array instanceof byte[] )
+			buffer.get( ( byte[] ) array );
+		else if ( array instanceof short[] )
+			buffer.asShortBuffer().get( ( short[] ) array );
+		else if ( array instanceof char[] )
+			buffer.asCharBuffer().get( ( char[] ) array );
+		else if ( array instanceof int[] )
+			buffer.asIntBuffer().get( ( int[] ) array );
+		else if ( array instanceof float[] )
+			buffer.asFloatBuffer().get( ( float[] ) array );
+		else if ( array instanceof long[] )
+			buffer.asLongBuffer().get( ( long[] ) array );
+		else if ( array instanceof double[] )
+			buffer.asDoubleBuffer().get( ( double[] ) array );
+		else
+			throw new IllegalArgumentException( "Unsupported storage array " + array.getClass().getName() );
+	}
+
+	/**
+	 * Copy a primitive storage array into a {@link ByteBuffer}.
+	 */
+	protected static void copy( final Object array, final ByteBuffer buffer )
+	{
+		if ( array instanceof byte[] )
+			buffer.put( ( byte[] ) array );
+		else if ( array instanceof short[] )
+			buffer.asShortBuffer().put( ( short[] ) array );
+		else if ( array instanceof char[] )
+			buffer.asCharBuffer().put( ( char[] ) array );
+		else if ( array instanceof int[] )
+			buffer.asIntBuffer().put( ( int[] ) array );
+		else if ( array instanceof float[] )
+			buffer.asFloatBuffer().put( ( float[] ) array );
+		else if ( array instanceof long[] )
+			buffer.asLongBuffer().put( ( long[] ) array );
+		else if ( array instanceof double[] )
+			buffer.asDoubleBuffer().put( ( double[] ) array );
+		else
+			throw new IllegalArgumentException( "Unsupported storage array " + array.getClass().getName() );
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import java.util.concurrent.ExecutorService;
+
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.NativeImgFactory;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.basictypeaccess.array.BitArray;
+import net.imglib2.img.basictypeaccess.array.ByteArray;
+import net.imglib2.img.basictypeaccess.array.CharArray;
+import net.imglib2.img.basictypeaccess.array.DoubleArray;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.img.basictypeaccess.array.LongArray;
+import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.type.NativeType;
+
+/**
+ * Factory for creating read-only {@link CellImg CellImgs} over a tiled source,
+ * e.g., a tile server or a directory of image tiles. Each tile is a cell that
+ * is fetched asynchronously by a {@link CellLoader} and held in a
+ * {@link CellCache} of bounded size. Until a tile has arrived, it reads as
+ * zero (see {@link CellCache}). Listeners for arriving tiles can be added to
+ * the cache, which is obtained by
+ * <code>((CachedCells&lt;?&gt;) img.getCells()).getCache()</code>.
+ *
+ * The {@link CellLoader} must create the basic type arrays that back the pixel
+ * type of the image, e.g., {@link IntArray} for
+ * {@link net.imglib2.type.numeric.ARGBType}. Its
+ * {@link CellLoader#save(long, long[], int[], ArrayDataAccess) save} method is
+ * never called.
+ *
+ * @author ImgLib2 developers
+ */
+public class TiledCellImgFactory< T extends NativeType< T > > extends NativeImgFactory< T >
+{
+	protected final CellLoader< ? > loader;
+
+	protected final long maxBytes;
+
+	protected final ExecutorService fetchService;
+
+	protected final int[] defaultTileDimensions;
+
+	/**
+	 * @param loader
+	 *            fetches the tiles.
+	 * @param maxBytes
+	 *            maximum number of bytes of tile data to keep in memory.
+	 * @param fetchService
+	 *            executor on which tiles are fetched. Its number of threads
+	 *            is the number of concurrent requests to the source.
+	 * @param tileDimensions
+	 *            dimensions of a standard tile. If there are less tile
+	 *            dimensions than image dimensions, the last tile dimension is
+	 *            used for the remaining dimensions.
+	 */
+	public TiledCellImgFactory( final CellLoader< ? > loader, final long maxBytes, final ExecutorService fetchService, final int... tileDimensions )
+	{
+		if ( tileDimensions == null || tileDimensions.length == 0 )
+			throw new IllegalArgumentException( "TiledCellImgFactory(): no tile dimensions given." );
+		for ( int i = 0; i < tileDimensions.length; ++i )
+			if ( tileDimensions[ i ] <= 0 )
+				throw new IllegalArgumentException( "TiledCellImgFactory(): tile size in dimension " + i + " is <= 0." );
+
+		this.loader = loader;
+		this.maxBytes = maxBytes;
+		this.fetchService = fetchService;
+		this.defaultTileDimensions = tileDimensions.clone();
+	}
+
+	protected int[] getTileDimensions( final long[] dimensions )
+	{
+		final int[] tileDimensions = new int[ dimensions.length ];
+		for ( int d = 0; d < dimensions.length; ++d )
+			tileDimensions[ d ] = defaultTileDimensions[ Math.min( d, defaultTileDimensions.length - 1 ) ];
+		return tileDimensions;
+	}
+
+	@SuppressWarnings( "unchecked" )
+	protected < A extends ArrayDataAccess< A > > CellImg< T, A, CachedCell< A > > createInstance( final long[] dimensions, final int entitiesPerPixel, final A creator )
+	{
+		final int[] tileDimensions = getTileDimensions( dimensions );
+		final CellCache< A > cache = new CellCache< A >( ( CellLoader< A > ) loader, maxBytes, fetchService, creator, entitiesPerPixel );
+		final CachedCells< A > cells = new CachedCells< A >( cache, entitiesPerPixel, dimensions, tileDimensions );
+		return new CellImg< T, A, CachedCell< A > >( new CellImgFactory< T >( tileDimensions ), cells );
+	}
+
+	@Override
+	public CellImg< T, ?, ? > create( final long[] dim, final T type )
+	{
+		return ( CellImg< T, ?, ? > ) type.createSuitableNativeImg( this, dim );
+	}
+
+	@Override
+	public CellImg< T, BitArray, CachedCell< BitArray > > createBitInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		return createInstance( dimensions, entitiesPerPixel, new BitArray( 1 ) );
+	}
+
+	@Override
+	public CellImg< T, ByteArray, CachedCell< ByteArray > > createByteInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		return createInstance( dimensions, entitiesPerPixel, new ByteArray( 1 ) );
+	}
+
+	@Override
+	public CellImg< T, CharArray, CachedCell< CharArray > > createCharInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		return createInstance( dimensions, entitiesPerPixel, new CharArray( 1 ) );
+	}
+
+	@Override
+	public CellImg< T, ShortArray, CachedCell< ShortArray > > createShortInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		return createInstance( dimensions, entitiesPerPixel, new ShortArray( 1 ) );
+	}
+
+	@Override
+	public CellImg< T, IntArray, CachedCell< IntArray > > createIntInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		return createInstance( dimensions, entitiesPerPixel, new IntArray( 1 ) );
+	}
+
+	@Override
+	public CellImg< T, LongArray, CachedCell< LongArray > > createLongInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		return createInstance( dimensions, entitiesPerPixel, new LongArray( 1 ) );
+	}
+
+	@Override
+	public CellImg< T, FloatArray, CachedCell< FloatArray > > createFloatInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		return createInstance( dimensions, entitiesPerPixel, new FloatArray( 1 ) );
+	}
+
+	@Override
+	public CellImg< T, DoubleArray, CachedCell< DoubleArray > > createDoubleInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		return createInstance( dimensions, entitiesPerPixel, new DoubleArray( 1 ) );
+	}
+
+	/**
+	 * Images of other types cannot be fetched from the same tiles, so the
+	 * returned factory creates in-memory {@link CellImg CellImgs} with the
+	 * same tile dimensions.
+	 */
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	@Override
+	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
+	{
+		if ( NativeType.class.isInstance( type ) )
+			return new CellImgFactory( defaultTileDimensions );
+		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
+	}
+}
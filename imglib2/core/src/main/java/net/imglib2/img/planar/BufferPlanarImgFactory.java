@@ -0,0 +1,231 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.img.planar;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.NativeImgFactory;
+import net.imglib2.img.basictypeaccess.nio.BitBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.ByteBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.CharBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.ShortBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.IntBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.LongBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.FloatBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.DoubleBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.ByteBufferSource;
+import net.imglib2.type.NativeType;
+
+/**
+ * Factory for {@link PlanarImg PlanarImgs} that store their planes in
+ * {@link java.nio.Buffer NIO buffers} instead of Java arrays. The planes are
+ * either new direct buffers, consecutive regions of an existing
+ * {@link ByteBuffer}, or consecutive regions of a file that are mapped into
+ * memory. Each plane is mapped separately, so the file may be larger than
+ * 2GB as long as each plane is smaller.
+ *
+ * Note that {@link PlanarImg#copy()} and {@link PlanarImg#factory()}
+ * create images on the Java heap.
+ *
+ * @author ImgLib2 developers
+ */
+public class BufferPlanarImgFactory< T extends NativeType< T > > extends NativeImgFactory< T >
+{
+	protected final ByteBufferSource source;
+
+	/**
+	 * Create images on new direct buffers in native byte order.
+	 */
+	public BufferPlanarImgFactory()
+	{
+		this( new ByteBufferSource() );
+	}
+
+	/**
+	 * Create images on an existing buffer. The planes are stored
+	 * consecutively, starting at the beginning of the buffer.
+	 *
+	 * @param buffer
+	 *            the buffer, must be large enough for the image.
+	 */
+	public BufferPlanarImgFactory( final ByteBuffer buffer )
+	{
+		this( new ByteBufferSource( buffer ) );
+	}
+
+	/**
+	 * Create images on a memory-mapped file. The planes are stored
+	 * consecutively in the file. Every image created by this factory maps
+	 * the same region of the file.
+	 *
+	 * @param file
+	 *            the raw file.
+	 * @param offset
+	 *            position of the first plane in the file, e.g., to skip a
+	 *            header.
+	 * @param order
+	 *            byte order of the data in the file.
+	 * @param writable
+	 *            whether modifications are written to the file.
+	 */
+	public BufferPlanarImgFactory( final File file, final long offset, final ByteOrder order, final boolean writable )
+	{
+		this( new ByteBufferSource( file, offset, order, writable ) );
+	}
+
+	public BufferPlanarImgFactory( final ByteBufferSource source )
+	{
+		this.source = source;
+	}
+
+	/**
+	 * @return the number of basic type entities in one plane.
+	 */
+	protected static int entitiesPerPlane( final long[] dimensions, final int entitiesPerPixel )
+	{
+		return ( int ) ( ( ( dimensions.length > 1 ) ? dimensions[ 1 ] : 1 ) * dimensions[ 0 ] * entitiesPerPixel );
+	}
+
+	@Override
+	public PlanarImg< T, ? > create( final long[] dim, final T type )
+	{
+		return ( PlanarImg< T, ? > ) type.createSuitableNativeImg( this, dim );
+	}
+
+	@Override
+	public PlanarImg< T, BitBufferAccess > createBitInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		final PlanarImg< T, BitBufferAccess > img = new PlanarImg< T, BitBufferAccess >( dimensions, entitiesPerPixel );
+		final int numEntities = entitiesPerPlane( dimensions, entitiesPerPixel );
+		final long numBytes = 4l * BitBufferAccess.numInts( numEntities );
+		for ( int i = 0; i < img.numSlices(); ++i )
+			img.setPlane( i, new BitBufferAccess( source.get( i * numBytes, numBytes ).asIntBuffer() ) );
+		return img;
+	}
+
+	@Override
+	public PlanarImg< T, ByteBufferAccess > createByteInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		final PlanarImg< T, ByteBufferAccess > img = new PlanarImg< T, ByteBufferAccess >( dimensions, entitiesPerPixel );
+		final int numEntities = entitiesPerPlane( dimensions, entitiesPerPixel );
+		final long numBytes = numEntities;
+		for ( int i = 0; i < img.numSlices(); ++i )
+			img.setPlane( i, new ByteBufferAccess( source.get( i * numBytes, numBytes ) ) );
+		return img;
+	}
+
+	@Override
+	public PlanarImg< T, CharBufferAccess > createCharInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		final PlanarImg< T, CharBufferAccess > img = new PlanarImg< T, CharBufferAccess >( dimensions, entitiesPerPixel );
+		final int numEntities = entitiesPerPlane( dimensions, entitiesPerPixel );
+		final long numBytes = 2l * numEntities;
+		for ( int i = 0; i < img.numSlices(); ++i )
+			img.setPlane( i, new CharBufferAccess( source.get( i * numBytes, numBytes ).asCharBuffer() ) );
+		return img;
+	}
+
+	@Override
+	public PlanarImg< T, ShortBufferAccess > createShortInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		final PlanarImg< T, ShortBufferAccess > img = new PlanarImg< T, ShortBufferAccess >( dimensions, entitiesPerPixel );
+		final int numEntities = entitiesPerPlane( dimensions, entitiesPerPixel );
+		final long numBytes = 2l * numEntities;
+		for ( int i = 0; i < img.numSlices(); ++i )
+			img.setPlane( i, new ShortBufferAccess( source.get( i * numBytes, numBytes ).asShortBuffer() ) );
+		return img;
+	}
+
+	@Override
+	public PlanarImg< T, IntBufferAccess > createIntInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		final PlanarImg< T, IntBufferAccess > img = new PlanarImg< T, IntBufferAccess >( dimensions, entitiesPerPixel );
+		final int numEntities = entitiesPerPlane( dimensions, entitiesPerPixel );
+		final long numBytes = 4l * numEntities;
+		for ( int i = 0; i < img.numSlices(); ++i )
+			img.setPlane( i, new IntBufferAccess( source.get( i * numBytes, numBytes ).asIntBuffer() ) );
+		return img;
+	}
+
+	@Override
+	public PlanarImg< T, LongBufferAccess > createLongInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		final PlanarImg< T, LongBufferAccess > img = new PlanarImg< T, LongBufferAccess >( dimensions, entitiesPerPixel );
+		final int numEntities = entitiesPerPlane( dimensions, entitiesPerPixel );
+		final long numBytes = 8l * numEntities;
+		for ( int i = 0; i < img.numSlices(); ++i )
+			img.setPlane( i, new LongBufferAccess( source.get( i * numBytes, numBytes ).asLongBuffer() ) );
+		return img;
+	}
+
+	@Override
+	public PlanarImg< T, FloatBufferAccess > createFloatInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		final PlanarImg< T, FloatBufferAccess > img = new PlanarImg< T, FloatBufferAccess >( dimensions, entitiesPerPixel );
+		final int numEntities = entitiesPerPlane( dimensions, entitiesPerPixel );
+		final long numBytes = 4l * numEntities;
+		for ( int i = 0; i < img.numSlices(); ++i )
+			img.setPlane( i, new FloatBufferAccess( source.get( i * numBytes, numBytes ).asFloatBuffer() ) );
+		return img;
+	}
+
+	@Override
+	public PlanarImg< T, DoubleBufferAccess > createDoubleInstance( final long[] dimensions, final int entitiesPerPixel )
+	{
+		final PlanarImg< T, DoubleBufferAccess > img = new PlanarImg< T, DoubleBufferAccess >( dimensions, entitiesPerPixel );
+		final int numEntities = entitiesPerPlane( dimensions, entitiesPerPixel );
+		final long numBytes = 8l * numEntities;
+		for ( int i = 0; i < img.numSlices(); ++i )
+			img.setPlane( i, new DoubleBufferAccess( source.get( i * numBytes, numBytes ).asDoubleBuffer() ) );
+		return img;
+	}
+
+	/**
+	 * Images of other types are created on new direct buffers.
+	 */
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	@Override
+	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
+	{
+		if ( NativeType.class.isInstance( type ) ) return new BufferPlanarImgFactory();
+		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
+	}
+}
@@ -37,8 +37,12 @@
 package net.imglib2.img.planar;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import net.imglib2.FlatIterationOrder;
+import net.imglib2.IterableInterval;
+import net.imglib2.IterableIntervalSubset;
+import net.imglib2.SplittableIterableInterval;
 import net.imglib2.img.AbstractNativeImg;
 import net.imglib2.img.NativeImg;
 import net.imglib2.img.basictypeaccess.PlanarAccess;
@@ -69,7 +73,7 @@ import net.imglib2.type.NativeType;
  * @author Johannes Schindelin
  * @author Tobias Pietzsch
  */
-public class PlanarImg< T extends NativeType< T >, A extends ArrayDataAccess<A> > extends AbstractNativeImg< T, A > implements PlanarAccess< A >
+public class PlanarImg< T extends NativeType< T >, A extends ArrayDataAccess<A> > extends AbstractNativeImg< T, A > implements PlanarAccess< A >, SplittableIterableInterval< T >
 {
 	final protected int numSlices;
 
@@ -261,6 +265,19 @@ public class PlanarImg< T extends NativeType< T >, A extends ArrayDataAccess<A>
 		return new FlatIterationOrder( this );
 	}
 
+	/**
+	 * Split into parts of whole planes if there are at least
+	 * <em>numParts</em> planes. Otherwise, the planes are split into parts of
+	 * consecutive elements.
+	 */
+	@Override
+	public List< IterableInterval< T > > split( final int numParts )
+	{
+		if ( numSlices >= numParts )
+			return IterableIntervalSubset.split( this, numParts, size() / numSlices );
+		return IterableIntervalSubset.split( this, numParts, 1 );
+	}
+
 	@Override
 	public A getPlane( final int no ) { return mirror.get( no ); }
 
@@ -59,6 +59,22 @@ final public class Interpolant< T, F extends EuclideanSpace > implements RealRan
 		this.factory = factory;
 	}
 	
+	/**
+	 * @return the source that is interpolated.
+	 */
+	public F getSource()
+	{
+		return source;
+	}
+
+	/**
+	 * @return the factory that creates the interpolators.
+	 */
+	public InterpolatorFactory< T, F > getInterpolatorFactory()
+	{
+		return factory;
+	}
+
 	@Override
 	public int numDimensions()
 	{
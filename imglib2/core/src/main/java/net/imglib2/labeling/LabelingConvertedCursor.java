@@ -36,6 +36,8 @@
 
 package net.imglib2.labeling;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import net.imglib2.Cursor;
 import net.imglib2.converter.AbstractConvertedCursor;
 import net.imglib2.type.numeric.IntegerType;
@@ -44,7 +46,7 @@ public final class LabelingConvertedCursor< I extends IntegerType< I >, T extend
 {
 	final protected LabelingType< T > type;
 
-	public LabelingConvertedCursor( final Cursor< I > source, final long[] generation, final LabelingMapping< T > mapping )
+	public LabelingConvertedCursor( final Cursor< I > source, final AtomicLong generation, final LabelingMapping< T > mapping )
 	{
 		super( source );
 		type = new LabelingType< T >( source.get(), mapping, generation );
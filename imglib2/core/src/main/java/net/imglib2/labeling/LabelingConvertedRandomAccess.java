@@ -36,6 +36,8 @@
 
 package net.imglib2.labeling;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import net.imglib2.RandomAccess;
 import net.imglib2.converter.AbstractConvertedRandomAccess;
 import net.imglib2.type.numeric.IntegerType;
@@ -44,7 +46,7 @@ public final class LabelingConvertedRandomAccess< I extends IntegerType< I >, T
 {
 	final protected LabelingType< T > type;
 
-	public LabelingConvertedRandomAccess( final RandomAccess< I > source, final long[] generation, final LabelingMapping< T > mapping )
+	public LabelingConvertedRandomAccess( final RandomAccess< I > source, final AtomicLong generation, final LabelingMapping< T > mapping )
 	{
 		super( source );
 		type = new LabelingType< T >( source.get(), mapping, generation );
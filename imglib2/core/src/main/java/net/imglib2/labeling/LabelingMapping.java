@@ -41,12 +41,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.imglib2.type.numeric.IntegerType;
 
@@ -63,6 +62,10 @@ import net.imglib2.type.numeric.IntegerType;
  * caller first interns { "Foo", "Bar" } and then requests the mapping of the
  * returned object.
  * 
+ * The mapping is thread-safe. Known labelings are looked up without locking,
+ * only adding a new labeling is synchronized. Labelings that consist of a
+ * single label can be interned by the label itself, without creating a list.
+ * 
  * @param <T> TODO
  * 
  * @author Lee Kamentsky
@@ -265,9 +268,23 @@ public class LabelingMapping< T extends Comparable< T >>
 		}
 	}
 
-	protected Map< List< T >, InternedList< T >> internedLists = new HashMap< List< T >, InternedList< T >>();
+	protected final ConcurrentHashMap< List< T >, InternedList< T >> internedLists = new ConcurrentHashMap< List< T >, InternedList< T >>();
+
+	/**
+	 * Canonical lists of single labels, keyed by the label, so that they can
+	 * be looked up without creating and hashing a list.
+	 */
+	protected final ConcurrentHashMap< T, InternedList< T >> singleLabelLists = new ConcurrentHashMap< T, InternedList< T >>();
+
+	/**
+	 * Canonical lists by index. Entries are only added while holding the lock
+	 * on this mapping, and are published by the subsequent write of
+	 * {@link #numLists}.
+	 */
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	private InternedList< T >[] listsByIndex = new InternedList[ 16 ];
 
-	protected List< InternedList< T >> listsByIndex = new ArrayList< InternedList< T >>();
+	private volatile int numLists = 0;
 
 	public List< T > emptyList()
 	{
@@ -275,45 +292,79 @@ public class LabelingMapping< T extends Comparable< T >>
 	}
 
 	/**
-	 * Return the canonical list for the given list
+	 * Return the canonical list for the given list. Lists that are already
+	 * known are looked up without locking.
 	 */
-	public synchronized List< T > intern( final List< T > src )
+	public List< T > intern( final List< T > src )
 	{
 		return internImpl( src );
 	}
 
-	private InternedList< T > internImpl( List< T > src )
+	/**
+	 * Return the canonical list that contains only the given label. This does
+	 * not create a list if the label is already known.
+	 */
+	public List< T > intern( final T label )
 	{
+		return internImpl( label );
+	}
 
-		InternedList< T > interned;
-
+	private InternedList< T > internImpl( List< T > src )
+	{
 		if ( src instanceof InternedList )
 		{
-			interned = ( InternedList< T > ) src;
+			final InternedList< T > interned = ( InternedList< T > ) src;
 			if ( interned.owner == this ) { return interned; }
 		}
+		if ( src.size() == 1 )
+			return internImpl( src.get( 0 ) );
 		if ( src.size() != 0 )
 		{
 			final List< T > copy = new ArrayList< T >( src );
 			Collections.sort( copy );
 			src = copy;
 		}
+		final InternedList< T > interned = internedLists.get( src );
+		return interned != null ? interned : add( src );
+	}
 
-		interned = internedLists.get( src );
-
+	private InternedList< T > internImpl( final T label )
+	{
+		InternedList< T > interned = singleLabelLists.get( label );
 		if ( interned == null )
 		{
-			final int intIndex = listsByIndex.size();
-
-			if ( intIndex > maxNumLabels )
-				throw new AssertionError( String.format( "Too many labels (or types of multiply-labeled pixels): %d maximum", intIndex ) );
-
-			interned = new InternedList< T >( src, intIndex, this );
-			listsByIndex.add( interned );
-			internedLists.put( src, interned );
-
+			final List< T > src = new ArrayList< T >( 1 );
+			src.add( label );
+			interned = internedLists.get( src );
+			if ( interned == null )
+				interned = add( src );
+			singleLabelLists.putIfAbsent( label, interned );
 		}
+		return interned;
+	}
 
+	/**
+	 * Add a new canonical list unless another thread did so in the meantime.
+	 * 
+	 * @param src
+	 *            a sorted list that is not modified afterwards.
+	 */
+	private synchronized InternedList< T > add( final List< T > src )
+	{
+		InternedList< T > interned = internedLists.get( src );
+		if ( interned != null )
+			return interned;
+
+		final int intIndex = numLists;
+		if ( intIndex > maxNumLabels )
+			throw new AssertionError( String.format( "Too many labels (or types of multiply-labeled pixels): %d maximum", intIndex ) );
+
+		interned = new InternedList< T >( src, intIndex, this );
+		if ( intIndex == listsByIndex.length )
+			listsByIndex = Arrays.copyOf( listsByIndex, 2 * intIndex );
+		listsByIndex[ intIndex ] = interned;
+		numLists = intIndex + 1;
+		internedLists.put( src, interned );
 		return interned;
 	}
 
@@ -324,8 +375,16 @@ public class LabelingMapping< T extends Comparable< T >>
 
 	public int indexOf( final List< T > key )
 	{
-		final InternedList< T > interned = internImpl( key );
-		return interned.index;
+		return internImpl( key ).index;
+	}
+
+	/**
+	 * Return the index of the canonical list that contains only the given
+	 * label.
+	 */
+	public int indexOf( final T label )
+	{
+		return internImpl( label ).index;
 	}
 
 	public int indexOf( final T[] key )
@@ -335,7 +394,9 @@ public class LabelingMapping< T extends Comparable< T >>
 
 	public final List< T > listAtIndex( final int index )
 	{
-		return listsByIndex.get( index );
+		if ( index >= numLists )
+			throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + numLists );
+		return listsByIndex[ index ];
 	}
 
 	/**
@@ -343,7 +404,7 @@ public class LabelingMapping< T extends Comparable< T >>
 	 */
 	public int numLists()
 	{
-		return listsByIndex.size();
+		return numLists;
 	}
 
 	/**
@@ -354,9 +415,10 @@ public class LabelingMapping< T extends Comparable< T >>
 	public List< T > getLabels()
 	{
 		final HashSet< T > result = new HashSet< T >();
-		for ( final InternedList< T > instance : listsByIndex )
+		final int n = numLists;
+		for ( int i = 0; i < n; ++i )
 		{
-			for ( final T label : instance )
+			for ( final T label : listsByIndex[ i ] )
 			{
 				result.add( label );
 			}
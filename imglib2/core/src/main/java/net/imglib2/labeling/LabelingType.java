@@ -39,6 +39,7 @@ package net.imglib2.labeling;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import net.imglib2.type.Type;
 import net.imglib2.type.numeric.IntegerType;
@@ -56,7 +57,7 @@ import net.imglib2.type.numeric.integer.IntType;
  */
 public class LabelingType< T extends Comparable< T >> implements Type< LabelingType< T >>
 {
-	final protected long[] generation;
+	final protected AtomicLong generation;
 
 	protected final LabelingMapping< T > mapping;
 
@@ -72,7 +73,7 @@ public class LabelingType< T extends Comparable< T >> implements Type< LabelingT
 	 * @param generation
 	 *            Generation of the type
 	 */
-	protected LabelingType( final IntegerType< ? > type, final LabelingMapping< T > mapping, final long[] generation )
+	protected LabelingType( final IntegerType< ? > type, final LabelingMapping< T > mapping, final AtomicLong generation )
 	{
 		this.type = type;
 		this.mapping = mapping;
@@ -84,7 +85,7 @@ public class LabelingType< T extends Comparable< T >> implements Type< LabelingT
 	{
 		this.type = type;
 		this.mapping = mapping;
-		generation = new long[ 1 ];
+		generation = new AtomicLong();
 	}
 
 	// this is the constructor if you want it to be a variable
@@ -92,7 +93,7 @@ public class LabelingType< T extends Comparable< T >> implements Type< LabelingT
 	{
 
 		mapping = new LabelingMapping< T >( new IntType() );
-		generation = new long[ 1 ];
+		generation = new AtomicLong();
 
 		this.type = new IntType();
 		setLabeling( value );
@@ -128,10 +129,7 @@ public class LabelingType< T extends Comparable< T >> implements Type< LabelingT
 	public void setLabeling( final List< T > labeling )
 	{
 		this.type.setInteger( mapping.indexOf( labeling ) );
-		synchronized ( generation )
-		{
-			generation[ 0 ]++;
-		}
+		modified();
 	}
 
 	public void setLabeling( final T[] labeling )
@@ -147,9 +145,8 @@ public class LabelingType< T extends Comparable< T >> implements Type< LabelingT
 	 */
 	public void setLabel( final T label )
 	{
-		final List< T > labeling = new ArrayList< T >( 1 );
-		labeling.add( label );
-		setLabeling( labeling );
+		this.type.setInteger( mapping.indexOf( label ) );
+		modified();
 	}
 
 	/**
@@ -172,9 +169,7 @@ public class LabelingType< T extends Comparable< T >> implements Type< LabelingT
 	 */
 	public List< T > intern( final T label )
 	{
-		final List< T > labeling = new ArrayList< T >( 1 );
-		labeling.add( label );
-		return intern( labeling );
+		return mapping.intern( label );
 	}
 
 	// @Override
@@ -223,11 +218,30 @@ public class LabelingType< T extends Comparable< T >> implements Type< LabelingT
 	 * cache is invalid. The strategy is to save the generation number at the
 	 * time of cacheing and invalidate the cache if the number doesn't match.
 	 * 
+	 * To keep concurrent writers from contending for the counter, a
+	 * modification only marks the generation as modified by making it odd.
+	 * Only the next call of this method increments it again to an even
+	 * number, so the generation changes at most once between two calls.
+	 * 
 	 * @return the generation of the underlying storage
 	 */
 	long getGeneration()
 	{
-		return generation[ 0 ];
+		final long g = generation.get();
+		if ( ( g & 1 ) == 0 )
+			return g;
+		generation.compareAndSet( g, g + 1 );
+		return generation.get() & ~1l;
+	}
+
+	/**
+	 * Mark the underlying storage as modified.
+	 */
+	protected void modified()
+	{
+		final long g = generation.get();
+		if ( ( g & 1 ) == 0 )
+			generation.compareAndSet( g, g + 1 );
 	}
 
 	public LabelingMapping< T > getMapping()
@@ -38,6 +38,7 @@ package net.imglib2.labeling;
 
 
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
 
 import net.imglib2.Cursor;
 import net.imglib2.Interval;
@@ -58,7 +59,7 @@ import net.imglib2.type.numeric.IntegerType;
 public class NativeImgLabeling< T extends Comparable< T >, I extends IntegerType< I >> extends AbstractNativeLabeling< T >
 {
 
-	protected final long[] generation;
+	protected final AtomicLong generation;
 
 	protected final Img< I > img;
 
@@ -66,7 +67,7 @@ public class NativeImgLabeling< T extends Comparable< T >, I extends IntegerType
 	{
 		super( dimensions( img ), new DefaultROIStrategyFactory< T >(), new LabelingMapping< T >( img.firstElement().createVariable() ) );
 		this.img = img;
-		this.generation = new long[ 1 ];
+		this.generation = new AtomicLong();
 	}
 
 	private static long[] dimensions( final Interval i )
@@ -91,7 +92,7 @@ public class NativeImgLabeling< T extends Comparable< T >, I extends IntegerType
 	{
 		super( dimensions( img ), strategyFactory, new LabelingMapping< T >( img.firstElement().createVariable() ) );
 		this.img = img;
-		this.generation = new long[ 1 ];
+		this.generation = new AtomicLong();
 	}
 
 	@Override
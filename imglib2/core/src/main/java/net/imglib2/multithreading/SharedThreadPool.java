@@ -0,0 +1,279 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.multithreading;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A library-wide {@link ExecutorService} used to run parallel tasks, instead
+ * of starting new {@link Thread Threads} for every call.
+ *
+ * <p>
+ * {@link #invokeAll(List, int, ExecutorService)} runs a list of tasks with a
+ * given maximum parallelism. The calling thread takes part in the computation
+ * and executes all tasks that have not been picked up by a worker of the
+ * executor. Nested parallel calls (tasks that call {@link #invokeAll(List)}
+ * themselves) therefore never wait for idle workers, do not deadlock, and do
+ * not oversubscribe the machine: if all workers are busy, the nested tasks are
+ * simply run by the calling thread.
+ * </p>
+ *
+ * <p>
+ * The default executor is a fixed pool of daemon threads, one per available
+ * processor. Applications may inject their own executor with
+ * {@link #setExecutorService(ExecutorService)}.
+ * </p>
+ *
+ * @author ImgLib2 developers
+ */
+public class SharedThreadPool
+{
+	private static ExecutorService executorService = null;
+
+	private static int parallelism = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Get the shared {@link ExecutorService}. If none was set, a fixed pool of
+	 * daemon threads with one thread per available processor is created.
+	 */
+	public static synchronized ExecutorService getExecutorService()
+	{
+		if ( executorService == null )
+			executorService = createDefaultExecutorService( Runtime.getRuntime().availableProcessors() );
+		return executorService;
+	}
+
+	/**
+	 * Set the shared {@link ExecutorService} that is used by all parallel
+	 * algorithms that do not get an explicit executor. The previous executor
+	 * is not shut down.
+	 */
+	public static synchronized void setExecutorService( final ExecutorService executorService )
+	{
+		SharedThreadPool.executorService = executorService;
+	}
+
+	/**
+	 * Get the default number of parallel tasks, e.g., the default number of
+	 * threads of {@link SimpleMultiThreading#newThreads()}.
+	 */
+	public static int getParallelism()
+	{
+		return parallelism;
+	}
+
+	/**
+	 * Set the default number of parallel tasks.
+	 */
+	public static void setParallelism( final int parallelism )
+	{
+		SharedThreadPool.parallelism = Math.max( 1, parallelism );
+	}
+
+	/**
+	 * Create a fixed pool of daemon threads.
+	 */
+	public static ExecutorService createDefaultExecutorService( final int numThreads )
+	{
+		final ThreadFactory threadFactory = new ThreadFactory()
+		{
+			private final AtomicInteger threadNumber = new AtomicInteger( 1 );
+
+			@Override
+			public Thread newThread( final Runnable r )
+			{
+				final Thread thread = new Thread( r, "imglib2-worker-" + threadNumber.getAndIncrement() );
+				thread.setDaemon( true );
+				thread.setPriority( Thread.NORM_PRIORITY );
+				return thread;
+			}
+		};
+		return new ThreadPoolExecutor( numThreads, numThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue< Runnable >(), threadFactory );
+	}
+
+	/**
+	 * Run all tasks on the shared {@link ExecutorService} with the default
+	 * parallelism and wait until they are finished.
+	 */
+	public static void invokeAll( final List< ? extends Runnable > tasks )
+	{
+		invokeAll( tasks, getParallelism(), getExecutorService() );
+	}
+
+	/**
+	 * Run all tasks on the shared {@link ExecutorService} and wait until they
+	 * are finished. At most <em>maxParallelism</em> tasks run at the same time.
+	 */
+	public static void invokeAll( final List< ? extends Runnable > tasks, final int maxParallelism )
+	{
+		invokeAll( tasks, maxParallelism, getExecutorService() );
+	}
+
+	/**
+	 * Run all tasks on the given {@link ExecutorService} and wait until they
+	 * are finished. At most <em>maxParallelism</em> tasks run at the same time,
+	 * one of them in the calling thread.
+	 *
+	 * @throws RuntimeException
+	 *             if a task throws an exception, it is rethrown (wrapped if it
+	 *             is checked) after all tasks are finished.
+	 */
+	public static void invokeAll( final List< ? extends Runnable > tasks, final int maxParallelism, final ExecutorService executor )
+	{
+		final int numTasks = tasks.size();
+		final int numRunners = Math.max( 1, Math.min( maxParallelism, numTasks ) );
+		if ( numRunners == 1 )
+		{
+			for ( final Runnable task : tasks )
+				task.run();
+			return;
+		}
+
+		final AtomicInteger nextTask = new AtomicInteger( 0 );
+		final AtomicReference< Throwable > failure = new AtomicReference< Throwable >();
+		final CountDownLatch finished = new CountDownLatch( numRunners - 1 );
+
+		final ArrayList< TaskRunner > helpers = new ArrayList< TaskRunner >( numRunners - 1 );
+		for ( int i = 0; i < numRunners - 1; ++i )
+		{
+			final TaskRunner helper = new TaskRunner( tasks, nextTask, failure, finished );
+			helpers.add( helper );
+			try
+			{
+				executor.execute( helper );
+			}
+			catch ( final RejectedExecutionException e )
+			{
+				// the helper is claimed by the calling thread below
+			}
+		}
+
+		new TaskRunner( tasks, nextTask, failure, null ).run();
+
+		// helpers that did not start yet have nothing left to do
+		for ( final TaskRunner helper : helpers )
+			if ( helper.claim() )
+				finished.countDown();
+
+		try
+		{
+			finished.await();
+		}
+		catch ( final InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException( e );
+		}
+
+		final Throwable t = failure.get();
+		if ( t instanceof RuntimeException )
+			throw ( RuntimeException ) t;
+		else if ( t instanceof Error )
+			throw ( Error ) t;
+		else if ( t != null )
+			throw new RuntimeException( t );
+	}
+
+	/**
+	 * Executes tasks from a shared list until none are left. A
+	 * {@link TaskRunner} runs at most once, either by a worker thread or, if
+	 * it is claimed before that, not at all.
+	 */
+	private static class TaskRunner implements Runnable
+	{
+		private final List< ? extends Runnable > tasks;
+
+		private final AtomicInteger nextTask;
+
+		private final AtomicReference< Throwable > failure;
+
+		private final CountDownLatch finished;
+
+		private final AtomicBoolean started;
+
+		public TaskRunner( final List< ? extends Runnable > tasks, final AtomicInteger nextTask, final AtomicReference< Throwable > failure, final CountDownLatch finished )
+		{
+			this.tasks = tasks;
+			this.nextTask = nextTask;
+			this.failure = failure;
+			this.finished = finished;
+			this.started = new AtomicBoolean( false );
+		}
+
+		boolean claim()
+		{
+			return started.compareAndSet( false, true );
+		}
+
+		@Override
+		public void run()
+		{
+			if ( !claim() )
+				return;
+			try
+			{
+				for ( int i = nextTask.getAndIncrement(); i < tasks.size(); i = nextTask.getAndIncrement() )
+				{
+					try
+					{
+						tasks.get( i ).run();
+					}
+					catch ( final Throwable t )
+					{
+						failure.compareAndSet( null, t );
+					}
+				}
+			}
+			finally
+			{
+				if ( finished != null )
+					finished.countDown();
+			}
+		}
+	}
+}
@@ -37,8 +37,14 @@
 
 package net.imglib2.multithreading;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Vector;
 
+import net.imglib2.IterableInterval;
+import net.imglib2.IterableIntervalSubset;
+import net.imglib2.SplittableIterableInterval;
+
 /**
  * TODO
  *
@@ -95,6 +101,27 @@ public class SimpleMultiThreading
         return chunks;
 	}
 
+	/**
+	 * Split an {@link IterableInterval} into at most <em>numParts</em> parts
+	 * that can be iterated independently by several threads. If the
+	 * {@link IterableInterval} is a {@link SplittableIterableInterval}, the
+	 * parts are aligned with its storage. Otherwise it is split into
+	 * {@link IterableIntervalSubset IterableIntervalSubsets} of consecutive
+	 * elements.
+	 *
+	 * @param interval
+	 *            the {@link IterableInterval} to split.
+	 * @param numParts
+	 *            maximum number of parts.
+	 * @return list of parts which, concatenated, iterate <em>interval</em>.
+	 */
+	public static < T > List< IterableInterval< T > > split( final IterableInterval< T > interval, final int numParts )
+	{
+		if ( interval instanceof SplittableIterableInterval )
+			return ( ( SplittableIterableInterval< T > ) interval ).split( numParts );
+		return IterableIntervalSubset.split( interval, numParts, 1 );
+	}
+
 	public static void startTask(Runnable run)
 	{
 		Thread[] threads = newThreads();
@@ -123,7 +150,7 @@ public class SimpleMultiThreading
 
 	public static Thread[] newThreads()
 	{
-	  int nthread = Runtime.getRuntime().availableProcessors();
+	  int nthread = SharedThreadPool.getParallelism();
 	  return new Thread[nthread];
 	}
 
@@ -132,28 +159,14 @@ public class SimpleMultiThreading
 	  return new Thread[numThreads];
 	}
 
+	/**
+	 * Run the given threads and wait until they are finished. The threads are
+	 * not started; instead their {@link Thread#run()} methods are executed as
+	 * tasks on the {@link SharedThreadPool}.
+	 */
 	public static void startAndJoin(Thread[] threads)
 	{
-		if ( 1 == threads.length )
-		{
-			threads[0].run();
-			return;
-		}
-		
-		for (int ithread = 0; ithread < threads.length; ++ithread)
-		{
-			threads[ithread].setPriority(Thread.NORM_PRIORITY);
-			threads[ithread].start();
-		}
-
-		try
-		{
-			for (int ithread = 0; ithread < threads.length; ++ithread)
-				threads[ithread].join();
-		} catch (InterruptedException ie)
-		{
-			throw new RuntimeException(ie);
-		}
+		SharedThreadPool.invokeAll( Arrays.asList( threads ), threads.length );
 	}
 
 	public static void start(Thread[] threads)
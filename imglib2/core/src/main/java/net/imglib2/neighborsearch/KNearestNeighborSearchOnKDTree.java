@@ -39,11 +39,13 @@ package net.imglib2.neighborsearch;
 
 import net.imglib2.RealLocalizable;
 import net.imglib2.Sampler;
+import net.imglib2.collection.FlatKDTree;
 import net.imglib2.collection.KDTree;
 import net.imglib2.collection.KDTreeNode;
 
 /**
- * Implementation of {@link KNearestNeighborSearch} search for kd-trees.
+ * Implementation of {@link KNearestNeighborSearch} search for kd-trees. Works
+ * on a {@link KDTree} or a {@link FlatKDTree}.
  * 
  * @author Tobias Pietzsch
  */
@@ -51,17 +53,21 @@ public class KNearestNeighborSearchOnKDTree< T > implements KNearestNeighborSear
 {
 	protected KDTree< T > tree;
 	
+	protected final FlatKDTree< T > flatTree;
+	
 	protected final int n;
 	protected final double[] pos;
 
 	protected final int k;
 	protected KDTreeNode< T >[] bestPoints;
+	protected int[] bestIndices;
 	protected double[] bestSquDistances;
 
 	@SuppressWarnings( "unchecked" )
 	public KNearestNeighborSearchOnKDTree( KDTree< T > tree, final int k )
 	{
 		this.tree = tree;
+		this.flatTree = null;
 		this.n = tree.numDimensions();
 		this.pos = new double[ n ];
 		this.k = k;
@@ -71,6 +77,19 @@ public class KNearestNeighborSearchOnKDTree< T > implements KNearestNeighborSear
 			bestSquDistances[ i ] = Double.MAX_VALUE;
 	}
 	
+	public KNearestNeighborSearchOnKDTree( final FlatKDTree< T > tree, final int k )
+	{
+		this.tree = null;
+		this.flatTree = tree;
+		this.n = tree.numDimensions();
+		this.pos = new double[ n ];
+		this.k = k;
+		this.bestIndices = new int[ k ];
+		this.bestSquDistances = new double[ k ];
+		for ( int i = 0; i < k; ++i )
+			bestSquDistances[ i ] = Double.MAX_VALUE;
+	}
+	
 	@Override
 	public int numDimensions()
 	{
@@ -86,7 +105,10 @@ public class KNearestNeighborSearchOnKDTree< T > implements KNearestNeighborSear
 		reference.localize( pos );
 		for ( int i = 0; i < k; ++i )
 			bestSquDistances[ i ] = Double.MAX_VALUE;
-		searchNode( tree.getRoot() );
+		if ( flatTree == null )
+			searchNode( tree.getRoot() );
+		else
+			searchNode( 0, ( int ) flatTree.size() - 1, 0 );
 	}
 
 	protected void searchNode( KDTreeNode< T > current )
@@ -120,16 +142,65 @@ public class KNearestNeighborSearchOnKDTree< T > implements KNearestNeighborSear
 			searchNode( awayChild );
 	}
 
+	/**
+	 * Search the subtree of nodes i to j (inclusive) of the {@link FlatKDTree}
+	 * which splits along dimension d.
+	 */
+	protected void searchNode( final int i, final int j, final int d )
+	{
+		final int current = i + ( j - i ) / 2;
+
+		// consider the current node
+		final double squDistance = flatTree.squDistance( current, pos );
+		if ( squDistance < bestSquDistances[ k - 1 ] )
+		{
+			int l = k - 1;
+			for ( int m = l - 1; l > 0 && squDistance < bestSquDistances[ m ]; --l, --m )
+			{
+				bestSquDistances[ l ] = bestSquDistances[ m ];
+				bestIndices[ l ] = bestIndices[ m ];
+			}
+			bestSquDistances[ l ] = squDistance;
+			bestIndices[ l ] = current;
+		}
+
+		final double axisDiff = pos[ d ] - flatTree.getCoordinate( current, d );
+		final double axisSquDistance = axisDiff * axisDiff;
+		final boolean leftIsNearBranch = axisDiff < 0;
+		final int dChild = ( d + 1 == n ) ? 0 : d + 1;
+
+		// search the near branch
+		if ( leftIsNearBranch )
+		{
+			if ( current > i )
+				searchNode( i, current - 1, dChild );
+		}
+		else if ( current < j )
+			searchNode( current + 1, j, dChild );
+
+		// search the away branch - maybe
+		if ( axisSquDistance <= bestSquDistances[ k - 1 ] )
+		{
+			if ( leftIsNearBranch )
+			{
+				if ( current < j )
+					searchNode( current + 1, j, dChild );
+			}
+			else if ( current > i )
+				searchNode( i, current - 1, dChild );
+		}
+	}
+
 	@Override
 	public Sampler< T > getSampler( int i )
 	{
-		return bestPoints[ i ];
+		return flatTree == null ? bestPoints[ i ] : flatTree.getNode( bestIndices[ i ] );
 	}
 
 	@Override
 	public RealLocalizable getPosition( int i )
 	{
-		return bestPoints[ i ];
+		return flatTree == null ? bestPoints[ i ] : flatTree.getNode( bestIndices[ i ] );
 	}
 
 	@Override
@@ -174,11 +245,14 @@ public class KNearestNeighborSearchOnKDTree< T > implements KNearestNeighborSear
 	@Override
 	public KNearestNeighborSearchOnKDTree< T > copy()
 	{
-		final KNearestNeighborSearchOnKDTree< T > copy = new KNearestNeighborSearchOnKDTree< T >( tree, k );
+		final KNearestNeighborSearchOnKDTree< T > copy = flatTree == null ? new KNearestNeighborSearchOnKDTree< T >( tree, k ) : new KNearestNeighborSearchOnKDTree< T >( flatTree, k );
 		System.arraycopy( pos, 0, copy.pos, 0, pos.length );
 		for ( int i = 0; i < k; ++i )
 		{
-			copy.bestPoints[ i ] = bestPoints[ i ];
+			if ( flatTree == null )
+				copy.bestPoints[ i ] = bestPoints[ i ];
+			else
+				copy.bestIndices[ i ] = bestIndices[ i ];
 			copy.bestSquDistances[ i ] = bestSquDistances[ i ];
 		}
 		return copy;
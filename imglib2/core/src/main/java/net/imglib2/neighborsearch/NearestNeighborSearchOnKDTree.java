@@ -38,11 +38,13 @@ package net.imglib2.neighborsearch;
 
 import net.imglib2.RealLocalizable;
 import net.imglib2.Sampler;
+import net.imglib2.collection.FlatKDTree;
 import net.imglib2.collection.KDTree;
 import net.imglib2.collection.KDTreeNode;
 
 /**
- * Implementation of {@link NearestNeighborSearch} search for kd-trees.
+ * Implementation of {@link NearestNeighborSearch} search for kd-trees. Works
+ * on a {@link KDTree} or a {@link FlatKDTree}.
  * 
  *
  * @author Tobias Pietzsch
@@ -51,10 +53,13 @@ public class NearestNeighborSearchOnKDTree< T > implements NearestNeighborSearch
 {
 	protected KDTree< T > tree;
 	
+	protected final FlatKDTree< T > flatTree;
+	
 	protected final int n;
 	protected final double[] pos;
 
 	protected KDTreeNode< T > bestPoint;
+	protected int bestIndex;
 	protected double bestSquDistance;
 	
 	public NearestNeighborSearchOnKDTree( KDTree< T > tree )
@@ -62,6 +67,15 @@ public class NearestNeighborSearchOnKDTree< T > implements NearestNeighborSearch
 		n = tree.numDimensions();
 		pos = new double[ n ];
 		this.tree = tree;
+		this.flatTree = null;
+	}
+	
+	public NearestNeighborSearchOnKDTree( final FlatKDTree< T > tree )
+	{
+		n = tree.numDimensions();
+		pos = new double[ n ];
+		this.tree = null;
+		this.flatTree = tree;
 	}
 	
 	@Override
@@ -75,7 +89,10 @@ public class NearestNeighborSearchOnKDTree< T > implements NearestNeighborSearch
 	{
 		p.localize( pos );
 		bestSquDistance = Double.MAX_VALUE;
-		searchNode( tree.getRoot() );
+		if ( flatTree == null )
+			searchNode( tree.getRoot() );
+		else
+			searchNode( 0, ( int ) flatTree.size() - 1, 0 );
 	}
 	
 	protected void searchNode( KDTreeNode< T > current )
@@ -103,16 +120,59 @@ public class NearestNeighborSearchOnKDTree< T > implements NearestNeighborSearch
 			searchNode( awayChild );
 	}
 
+	/**
+	 * Search the subtree of nodes i to j (inclusive) of the {@link FlatKDTree}
+	 * which splits along dimension d.
+	 */
+	protected void searchNode( final int i, final int j, final int d )
+	{
+		final int current = i + ( j - i ) / 2;
+
+		// consider the current node
+		final double distance = flatTree.squDistance( current, pos );
+		if ( distance < bestSquDistance )
+		{
+			bestSquDistance = distance;
+			bestIndex = current;
+		}
+
+		final double axisDiff = pos[ d ] - flatTree.getCoordinate( current, d );
+		final double axisSquDistance = axisDiff * axisDiff;
+		final boolean leftIsNearBranch = axisDiff < 0;
+		final int dChild = ( d + 1 == n ) ? 0 : d + 1;
+
+		// search the near branch
+		if ( leftIsNearBranch )
+		{
+			if ( current > i )
+				searchNode( i, current - 1, dChild );
+		}
+		else if ( current < j )
+			searchNode( current + 1, j, dChild );
+
+		// search the away branch - maybe
+		if ( axisSquDistance <= bestSquDistance )
+		{
+			if ( leftIsNearBranch )
+			{
+				if ( current < j )
+					searchNode( current + 1, j, dChild );
+			}
+			else if ( current > i )
+				searchNode( i, current - 1, dChild );
+		}
+	}
+
 	@Override
 	public Sampler< T > getSampler()
 	{
-		return bestPoint;
+		return flatTree == null ? bestPoint : flatTree.getNode( bestIndex );
 	}
 
 	@Override
 	public RealLocalizable getPosition()
 	{
-		return bestPoint;
+		return flatTree == null ? bestPoint : flatTree.getNode( bestIndex );
 	}
 
 	@Override
@@ -130,9 +190,10 @@ public class NearestNeighborSearchOnKDTree< T > implements NearestNeighborSearch
 	@Override
 	public NearestNeighborSearchOnKDTree< T > copy()
 	{
-		final NearestNeighborSearchOnKDTree< T > copy = new NearestNeighborSearchOnKDTree< T >( tree );
+		final NearestNeighborSearchOnKDTree< T > copy = flatTree == null ? new NearestNeighborSearchOnKDTree< T >( tree ) : new NearestNeighborSearchOnKDTree< T >( flatTree );
 		System.arraycopy( pos, 0, copy.pos, 0, pos.length );
 		copy.bestPoint = bestPoint;
+		copy.bestIndex = bestIndex;
 		copy.bestSquDistance = bestSquDistance;
 		return copy;
 	}
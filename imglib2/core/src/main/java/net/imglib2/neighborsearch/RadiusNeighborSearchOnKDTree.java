@@ -38,17 +38,20 @@
 package net.imglib2.neighborsearch;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 
 import net.imglib2.RealLocalizable;
 import net.imglib2.Sampler;
+import net.imglib2.collection.FlatKDTree;
 import net.imglib2.collection.KDTree;
 import net.imglib2.collection.KDTreeNode;
 import net.imglib2.util.ValuePair;
 
 /**
- * Implementation of {@link RadiusNeighborSearch} search for kd-trees.
+ * Implementation of {@link RadiusNeighborSearch} search for kd-trees. Works on
+ * a {@link KDTree} or a {@link FlatKDTree}.
  * 
  * @author Tobias Pietzsch
  */
@@ -56,25 +59,56 @@ public class RadiusNeighborSearchOnKDTree< T > implements RadiusNeighborSearch<
 {
 	protected KDTree< T > tree;
 
+	protected final FlatKDTree< T > flatTree;
+
 	protected final int n;
 
 	protected final double[] pos;
 
 	protected ArrayList< ValuePair< KDTreeNode< T >, Double > > resultPoints;
 
+	/**
+	 * node indices and squared distances of the results of a search on the
+	 * {@link FlatKDTree}.
+	 */
+	protected int[] resultIndices;
+
+	protected double[] resultSquDistances;
+
+	protected int numResults;
+
 	public RadiusNeighborSearchOnKDTree( KDTree< T > tree )
 	{
 		this.tree = tree;
+		this.flatTree = null;
 		this.n = tree.numDimensions();
 		this.pos = new double[ n ];
 		this.resultPoints = new ArrayList< ValuePair< KDTreeNode< T >, Double > >();
 	}
+
+	public RadiusNeighborSearchOnKDTree( final FlatKDTree< T > tree )
+	{
+		this.tree = null;
+		this.flatTree = tree;
+		this.n = tree.numDimensions();
+		this.pos = new double[ n ];
+		this.resultIndices = new int[ 16 ];
+		this.resultSquDistances = new double[ 16 ];
+	}
 	
 	@Override
 	public void search( final RealLocalizable reference, final double radius, final boolean sortResults )
 	{
 		assert radius >= 0;
 		reference.localize( pos );
+		if ( flatTree != null )
+		{
+			numResults = 0;
+			searchNode( 0, ( int ) flatTree.size() - 1, 0, radius * radius );
+			if ( sortResults )
+				sortResults( 0, numResults - 1 );
+			return;
+		}
 		resultPoints.clear();
 		searchNode( tree.getRoot(), radius * radius );
 		if ( sortResults )
@@ -117,33 +151,125 @@ public class RadiusNeighborSearchOnKDTree< T > implements RadiusNeighborSearch<
 			searchNode( awayChild, squRadius );
 	}
 
+	/**
+	 * Search the subtree of nodes i to j (inclusive) of the {@link FlatKDTree}
+	 * which splits along dimension d.
+	 */
+	protected void searchNode( final int i, final int j, final int d, final double squRadius )
+	{
+		final int current = i + ( j - i ) / 2;
+
+		// consider the current node
+		final double squDistance = flatTree.squDistance( current, pos );
+		if ( squDistance <= squRadius )
+		{
+			if ( numResults == resultIndices.length )
+			{
+				resultIndices = Arrays.copyOf( resultIndices, 2 * numResults );
+				resultSquDistances = Arrays.copyOf( resultSquDistances, 2 * numResults );
+			}
+			resultIndices[ numResults ] = current;
+			resultSquDistances[ numResults ] = squDistance;
+			++numResults;
+		}
+
+		final double axisDiff = pos[ d ] - flatTree.getCoordinate( current, d );
+		final double axisSquDistance = axisDiff * axisDiff;
+		final boolean leftIsNearBranch = axisDiff < 0;
+		final int dChild = ( d + 1 == n ) ? 0 : d + 1;
+
+		// search the near branch
+		if ( leftIsNearBranch )
+		{
+			if ( current > i )
+				searchNode( i, current - 1, dChild, squRadius );
+		}
+		else if ( current < j )
+			searchNode( current + 1, j, dChild, squRadius );
+
+		// search the away branch - maybe
+		if ( axisSquDistance <= squRadius )
+		{
+			if ( leftIsNearBranch )
+			{
+				if ( current < j )
+					searchNode( current + 1, j, dChild, squRadius );
+			}
+			else if ( current > i )
+				searchNode( i, current - 1, dChild, squRadius );
+		}
+	}
+
+	/**
+	 * Sort the results i to j (inclusive) of a search on the
+	 * {@link FlatKDTree} by increasing distance.
+	 */
+	protected void sortResults( int i, int j )
+	{
+		while ( j > i )
+		{
+			final double pivot = resultSquDistances[ i + ( j - i ) / 2 ];
+			int l = i;
+			int r = j;
+			while ( l <= r )
+			{
+				while ( resultSquDistances[ l ] < pivot )
+					++l;
+				while ( resultSquDistances[ r ] > pivot )
+					--r;
+				if ( l <= r )
+				{
+					final double tmpDistance = resultSquDistances[ l ];
+					resultSquDistances[ l ] = resultSquDistances[ r ];
+					resultSquDistances[ r ] = tmpDistance;
+					final int tmpIndex = resultIndices[ l ];
+					resultIndices[ l ] = resultIndices[ r ];
+					resultIndices[ r ] = tmpIndex;
+					++l;
+					--r;
+				}
+			}
+			// recurse into the smaller part, loop on the larger one
+			if ( r - i < j - l )
+			{
+				sortResults( i, r );
+				i = l;
+			}
+			else
+			{
+				sortResults( l, j );
+				j = r;
+			}
+		}
+	}
+
 	@Override
 	public int numNeighbors()
 	{
-		return resultPoints.size();
+		return flatTree == null ? resultPoints.size() : numResults;
 	}
 
 	@Override
 	public Sampler< T > getSampler( int i )
 	{
-		return resultPoints.get( i ).a;
+		return flatTree == null ? resultPoints.get( i ).a : flatTree.getNode( resultIndices[ i ] );
 	}
 
 	@Override
 	public RealLocalizable getPosition( int i )
 	{
-		return resultPoints.get( i ).a;
+		return flatTree == null ? resultPoints.get( i ).a : flatTree.getNode( resultIndices[ i ] );
 	}
 
 	@Override
 	public double getSquareDistance( int i )
 	{
-		return resultPoints.get( i ).b;
+		return flatTree == null ? resultPoints.get( i ).b : resultSquDistances[ i ];
 	}
 
 	@Override
 	public double getDistance( int i )
 	{
-		return Math.sqrt( resultPoints.get( i ).b );
+		return Math.sqrt( getSquareDistance( i ) );
 	}
 }
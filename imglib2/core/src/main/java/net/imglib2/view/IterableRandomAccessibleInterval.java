@@ -37,15 +37,18 @@
 package net.imglib2.view;
 
 import java.util.Iterator;
+import java.util.List;
 
 import net.imglib2.AbstractWrappedInterval;
 import net.imglib2.Cursor;
 import net.imglib2.FlatIterationOrder;
 import net.imglib2.Interval;
 import net.imglib2.IterableInterval;
+import net.imglib2.IterableIntervalSubset;
 import net.imglib2.IterableRealInterval;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.SplittableIterableInterval;
 
 /**
  * Generates {@link Cursor Cursors} that iterate a
@@ -55,7 +58,7 @@ import net.imglib2.RandomAccessibleInterval;
  * @author Stephan Saalfeld
  * @author Stephan Saalfeld <saalfeld@mpi-cbg.de>
  */
-public class IterableRandomAccessibleInterval< T > extends AbstractWrappedInterval< RandomAccessibleInterval< T > > implements IterableInterval< T >, RandomAccessibleInterval< T >
+public class IterableRandomAccessibleInterval< T > extends AbstractWrappedInterval< RandomAccessibleInterval< T > > implements SplittableIterableInterval< T >, RandomAccessibleInterval< T >
 {
 	final long size;
 
@@ -100,6 +103,20 @@ public class IterableRandomAccessibleInterval< T > extends AbstractWrappedInterv
 		return iterationOrder().equals( f.iterationOrder() );
 	}
 
+	/**
+	 * Split into parts of whole lines if there are at least
+	 * <em>numParts</em> lines. Otherwise, the lines are split into parts of
+	 * consecutive elements.
+	 */
+	@Override
+	public List< IterableInterval< T > > split( final int numParts )
+	{
+		final long lineSize = sourceInterval.dimension( 0 );
+		if ( size / lineSize >= numParts )
+			return IterableIntervalSubset.split( this, numParts, lineSize );
+		return IterableIntervalSubset.split( this, numParts, 1 );
+	}
+
 	@Override
 	public Iterator< T > iterator()
 	{
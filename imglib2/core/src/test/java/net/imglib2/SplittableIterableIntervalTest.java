@@ -0,0 +1,176 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.list.ListImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.multithreading.SimpleMultiThreading;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link SplittableIterableInterval} implementations and
+ * {@link SimpleMultiThreading#split(IterableInterval, int)}.
+ *
+ * @author ImgLib2 developers
+ */
+public class SplittableIterableIntervalTest
+{
+	final static private long[][] sizes =
+		new long[][]{
+			{ 127 },
+			{ 135, 111 },
+			{  15,  13, 33 },
+			{  12,  43,  9, 10 }
+		};
+
+	final static private int[] numParts = new int[] { 1, 2, 3, 7, 16, 1000 };
+
+	final static private Img< LongType > createFilled( final ImgFactory< LongType > factory, final long[] size )
+	{
+		final Img< LongType > img = factory.create( size, new LongType() );
+		long a = 0;
+		for ( final LongType t : img )
+			t.set( a++ );
+		return img;
+	}
+
+	/**
+	 * Check that the parts iterate the elements of the source in order, and
+	 * that localizing cursors of the parts report the same positions as a
+	 * localizing cursor on the source.
+	 */
+	final static private void testSplit( final IterableInterval< LongType > iterable, final int n )
+	{
+		final List< IterableInterval< LongType > > parts = SimpleMultiThreading.split( iterable, n );
+		assertTrue( parts.size() >= 1 );
+		assertTrue( parts.size() <= n );
+
+		final Cursor< LongType > reference = iterable.localizingCursor();
+		final long[] expected = new long[ iterable.numDimensions() ];
+		final long[] actual = new long[ iterable.numDimensions() ];
+		long total = 0;
+		for ( final IterableInterval< LongType > part : parts )
+		{
+			total += part.size();
+			final Cursor< LongType > c = part.localizingCursor();
+			while ( c.hasNext() )
+			{
+				assertEquals( reference.next().get(), c.next().get() );
+				reference.localize( expected );
+				c.localize( actual );
+				assertArrayEquals( expected, actual );
+			}
+		}
+		assertEquals( iterable.size(), total );
+		assertFalse( reference.hasNext() );
+	}
+
+	final static private void testFactory( final ImgFactory< LongType > factory )
+	{
+		for ( final long[] size : sizes )
+		{
+			final Img< LongType > img = createFilled( factory, size );
+			for ( final int n : numParts )
+			{
+				testSplit( img, n );
+				testSplit( Views.iterable( Views.interval( img, img ) ), n );
+			}
+		}
+	}
+
+	@Test
+	public void testArrayImg()
+	{
+		testFactory( new ArrayImgFactory< LongType >() );
+	}
+
+	@Test
+	public void testPlanarImg()
+	{
+		testFactory( new PlanarImgFactory< LongType >() );
+	}
+
+	@Test
+	public void testCellImg()
+	{
+		testFactory( new CellImgFactory< LongType >( 5 ) );
+	}
+
+	@Test
+	public void testListImg()
+	{
+		testFactory( new ListImgFactory< LongType >() );
+	}
+
+	@Test
+	public void testCellCursorJumpFwd()
+	{
+		final Img< LongType > img = createFilled( new CellImgFactory< LongType >( new int[] { 4, 3, 5 } ), new long[] { 15, 13, 33 } );
+		final long[] steps = new long[] { 1, 5, 12, 61, 300, 2, 1000 };
+		final long[] expected = new long[ img.numDimensions() ];
+		final long[] actual = new long[ img.numDimensions() ];
+		for ( int i = 0; i < 2; ++i )
+		{
+			final Cursor< LongType > reference = img.localizingCursor();
+			final Cursor< LongType > c = ( i == 0 ) ? img.cursor() : img.localizingCursor();
+			for ( final long s : steps )
+			{
+				for ( long j = 0; j < s; ++j )
+					reference.fwd();
+				c.jumpFwd( s );
+				assertEquals( reference.get().get(), c.get().get() );
+				reference.localize( expected );
+				c.localize( actual );
+				assertArrayEquals( expected, actual );
+			}
+		}
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.display;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Random;
+
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+
+import org.junit.Test;
+
+/**
+ * Checks that {@link XYProjector}, {@link XYRandomAccessibleProjector},
+ * {@link CompositeXYProjector}, and {@link CompositeXYRandomAccessibleProjector}
+ * render the same image with one and with several threads.
+ *
+ * @author ImgLib2 developers
+ */
+public class XYProjectorTest
+{
+	final int width = 512;
+
+	final int height = 384;
+
+	final int numChannels = 4;
+
+	final int[] values;
+
+	final ArrayImg< UnsignedByteType, ? > source;
+
+	public XYProjectorTest()
+	{
+		source = new ArrayImgFactory< UnsignedByteType >().create( new long[] { width, height, numChannels }, new UnsignedByteType() );
+		values = new int[ width * height * numChannels ];
+		final Random random = new Random( 0 );
+		int i = 0;
+		for ( final UnsignedByteType t : source )
+		{
+			values[ i ] = random.nextInt( 256 );
+			t.set( values[ i++ ] );
+		}
+	}
+
+	int value( final int x, final int y, final int c )
+	{
+		return values[ ( c * height + y ) * width + x ];
+	}
+
+	int[] expectedGrey( final int c )
+	{
+		final int[] expected = new int[ width * height ];
+		for ( int y = 0; y < height; ++y )
+			for ( int x = 0; x < width; ++x )
+			{
+				final int v = value( x, y, c );
+				expected[ y * width + x ] = ARGBType.rgba( v, v, v, 255 );
+			}
+		return expected;
+	}
+
+	int[] expectedComposite()
+	{
+		final int[] expected = new int[ width * height ];
+		for ( int y = 0; y < height; ++y )
+			for ( int x = 0; x < width; ++x )
+				expected[ y * width + x ] = ARGBType.rgba( value( x, y, 0 ), value( x, y, 1 ), value( x, y, 2 ), value( x, y, 3 ) );
+		return expected;
+	}
+
+	@Test
+	public void testXYProjector()
+	{
+		for ( final int numThreads : new int[] { 1, 4 } )
+		{
+			final int[] pixels = new int[ width * height ];
+			final XYProjector< UnsignedByteType, ARGBType > projector = new XYProjector< UnsignedByteType, ARGBType >( source, new ARGBScreenImage( width, height, pixels ), new RealARGBConverter< UnsignedByteType >( 0, 255 ) );
+			projector.setNumThreads( numThreads );
+			projector.setPosition( 2, 2 );
+			projector.map();
+			assertArrayEquals( expectedGrey( 2 ), pixels );
+		}
+	}
+
+	@Test
+	public void testXYRandomAccessibleProjector()
+	{
+		for ( final int numThreads : new int[] { 1, 4 } )
+		{
+			final int[] pixels = new int[ width * height ];
+			final XYRandomAccessibleProjector< UnsignedByteType, ARGBType > projector = new XYRandomAccessibleProjector< UnsignedByteType, ARGBType >( source, new ARGBScreenImage( width, height, pixels ), new RealARGBConverter< UnsignedByteType >( 0, 255 ) );
+			projector.setNumThreads( numThreads );
+			projector.setPosition( 1, 2 );
+			projector.map();
+			assertArrayEquals( expectedGrey( 1 ), pixels );
+		}
+	}
+
+	@Test
+	public void testCompositeXYProjector()
+	{
+		for ( final int numThreads : new int[] { 1, 4 } )
+		{
+			final int[] pixels = new int[ width * height ];
+			final CompositeXYProjector< UnsignedByteType > projector = new CompositeXYProjector< UnsignedByteType >( source, new ARGBScreenImage( width, height, pixels ), ChannelARGBConverter.converterListRGBA, 2 );
+			projector.setNumThreads( numThreads );
+			projector.setComposite( true );
+			projector.map();
+			assertArrayEquals( expectedComposite(), pixels );
+		}
+	}
+
+	@Test
+	public void testCompositeXYRandomAccessibleProjector()
+	{
+		for ( final int numThreads : new int[] { 1, 4 } )
+		{
+			final int[] pixels = new int[ width * height ];
+			final CompositeXYRandomAccessibleProjector< UnsignedByteType > projector = new CompositeXYRandomAccessibleProjector< UnsignedByteType >( source, new ARGBScreenImage( width, height, pixels ), ChannelARGBConverter.converterListRGBA, 2 );
+			projector.setNumThreads( numThreads );
+			projector.setComposite( true );
+			projector.map();
+			assertArrayEquals( expectedComposite(), pixels );
+		}
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.img.basictypeaccess.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.array.BufferArrayImgFactory;
+import net.imglib2.img.planar.BufferPlanarImgFactory;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the buffer accesses and {@link BufferArrayImgFactory},
+ * {@link BufferPlanarImgFactory}.
+ *
+ * @author ImgLib2 developers
+ */
+public class BufferAccessTest
+{
+	final static private long[] dimensions = new long[] { 13, 7, 5 };
+
+	final static private int numPixels = 13 * 7 * 5;
+
+	private File file;
+
+	@Before
+	public void createFile() throws IOException
+	{
+		file = File.createTempFile( "bufferaccess", ".raw" );
+		final DataOutputStream out = new DataOutputStream( new FileOutputStream( file ) );
+		out.write( new byte[ 16 ] );
+		for ( int i = 0; i < numPixels; ++i )
+			out.writeFloat( i );
+		out.close();
+	}
+
+	@After
+	public void deleteFile()
+	{
+		file.delete();
+	}
+
+	private static < T extends RealType< T > > void testWriteAndRead( final ImgFactory< T > factory, final T type )
+	{
+		final Img< T > img = factory.create( dimensions, type );
+		int i = 0;
+		for ( final T t : img )
+			t.setReal( i++ % 2 );
+		i = 0;
+		for ( final T t : img )
+			assertEquals( i++ % 2, t.getRealDouble(), 0 );
+	}
+
+	@Test
+	public void testDirectArrayImg()
+	{
+		testWriteAndRead( new BufferArrayImgFactory< BitType >(), new BitType() );
+		testWriteAndRead( new BufferArrayImgFactory< ByteType >(), new ByteType() );
+		testWriteAndRead( new BufferArrayImgFactory< UnsignedShortType >(), new UnsignedShortType() );
+		testWriteAndRead( new BufferArrayImgFactory< LongType >(), new LongType() );
+		testWriteAndRead( new BufferArrayImgFactory< FloatType >(), new FloatType() );
+		testWriteAndRead( new BufferArrayImgFactory< DoubleType >(), new DoubleType() );
+	}
+
+	@Test
+	public void testDirectPlanarImg()
+	{
+		testWriteAndRead( new BufferPlanarImgFactory< BitType >(), new BitType() );
+		testWriteAndRead( new BufferPlanarImgFactory< ByteType >(), new ByteType() );
+		testWriteAndRead( new BufferPlanarImgFactory< UnsignedShortType >(), new UnsignedShortType() );
+		testWriteAndRead( new BufferPlanarImgFactory< LongType >(), new LongType() );
+		testWriteAndRead( new BufferPlanarImgFactory< FloatType >(), new FloatType() );
+		testWriteAndRead( new BufferPlanarImgFactory< DoubleType >(), new DoubleType() );
+	}
+
+	@Test
+	public void testExistingBuffer()
+	{
+		final ByteBuffer buffer = ByteBuffer.allocate( 4 * numPixels ).order( ByteOrder.LITTLE_ENDIAN );
+		final Img< FloatType > img = new BufferArrayImgFactory< FloatType >( buffer ).create( dimensions, new FloatType() );
+		img.firstElement().set( 1.5f );
+		assertEquals( 1.5f, buffer.getFloat( 0 ), 0 );
+	}
+
+	private void testMappedFile( final ImgFactory< FloatType > factory ) throws IOException
+	{
+		final Img< FloatType > img = factory.create( dimensions, new FloatType() );
+		final Cursor< FloatType > c = img.cursor();
+		for ( int i = 0; i < numPixels; ++i )
+		{
+			final FloatType t = c.next();
+			assertEquals( i, t.get(), 0 );
+			t.set( -i );
+		}
+		assertFalse( c.hasNext() );
+
+		final DataInputStream in = new DataInputStream( new FileInputStream( file ) );
+		in.skipBytes( 16 );
+		for ( int i = 0; i < numPixels; ++i )
+			assertEquals( -i, in.readFloat(), 0 );
+		in.close();
+	}
+
+	@Test
+	public void testMappedArrayImg() throws IOException
+	{
+		testMappedFile( new BufferArrayImgFactory< FloatType >( file, 16, ByteOrder.BIG_ENDIAN, true ) );
+	}
+
+	@Test
+	public void testMappedPlanarImg() throws IOException
+	{
+		testMappedFile( new BufferPlanarImgFactory< FloatType >( file, 16, ByteOrder.BIG_ENDIAN, true ) );
+	}
+
+	@Test
+	public void testReadOnlyMapping()
+	{
+		final Img< FloatType > img = new BufferArrayImgFactory< FloatType >( file, 16, ByteOrder.BIG_ENDIAN, false ).create( dimensions, new FloatType() );
+		assertEquals( 0, img.firstElement().get(), 0 );
+		boolean thrown = false;
+		try
+		{
+			img.firstElement().set( 1 );
+		}
+		catch ( final ReadOnlyBufferException e )
+		{
+			thrown = true;
+		}
+		assertTrue( thrown );
+	}
+}
@@ -0,0 +1,305 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.util.IntervalIndexer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CachedCells} and {@link CachedCellImgFactory}.
+ *
+ * @author ImgLib2 developers
+ */
+public class CachedCellsTest
+{
+	long[] dimensions;
+
+	int numValues;
+
+	int[] intData;
+
+	File directory;
+
+	@Before
+	public void createSourceData() throws IOException
+	{
+		dimensions = new long[] { 48, 17, 102 };
+
+		numValues = 1;
+		for ( int d = 0; d < dimensions.length; ++d )
+			numValues *= dimensions[ d ];
+
+		intData = new int[ numValues ];
+		final Random random = new Random( 0 );
+		for ( int i = 0; i < numValues; ++i )
+			intData[ i ] = random.nextInt();
+
+		directory = File.createTempFile( "cachedcells", "" );
+		directory.delete();
+		directory.mkdir();
+	}
+
+	@After
+	public void deleteDirectory()
+	{
+		delete( directory );
+	}
+
+	static void delete( final File file )
+	{
+		if ( file.isDirectory() )
+			for ( final File child : file.listFiles() )
+				delete( child );
+		file.delete();
+	}
+
+	static int countFiles( final File file )
+	{
+		if ( !file.isDirectory() )
+			return 1;
+		int count = 0;
+		for ( final File child : file.listFiles() )
+			count += countFiles( child );
+		return count;
+	}
+
+	void fill( final Img< IntType > img )
+	{
+		final long[] pos = new long[ dimensions.length ];
+		final Cursor< IntType > c = img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( pos );
+			c.get().set( intData[ ( int ) IntervalIndexer.positionToIndex( pos, dimensions ) ] );
+		}
+	}
+
+	int[] getImgAsInts( final Img< IntType > img )
+	{
+		final RandomAccess< IntType > a = img.randomAccess();
+		final int[] data = new int[ numValues ];
+		final long[] pos = new long[ dimensions.length ];
+		for ( int i = 0; i < numValues; ++i )
+		{
+			IntervalIndexer.indexToPosition( i, dimensions, pos );
+			a.setPosition( pos );
+			data[ i ] = a.get().get();
+		}
+		return data;
+	}
+
+	@Test
+	public void testWriteAndReadWithEviction()
+	{
+		// room for about ten 10x10x10 int cells
+		final long maxBytes = 10 * 4000;
+		final CellImg< IntType, ?, ? > img = new CachedCellImgFactory< IntType >( directory, maxBytes, false, 10 ).create( dimensions, new IntType() );
+		fill( img );
+		assertArrayEquals( intData, getImgAsInts( img ) );
+
+		final CellCache< ? > cache = ( ( CachedCells< ? > ) img.getCells() ).getCache();
+		assertTrue( cache.getNumEvictions() > 0 );
+		assertTrue( cache.getCurrentBytes() <= maxBytes );
+	}
+
+	@Test
+	public void testReopen()
+	{
+		final CachedCellImgFactory< IntType > factory = new CachedCellImgFactory< IntType >( directory, 10 * 4000, true, 10, 7, 4 );
+		final CellImg< IntType, ?, ? > img = factory.create( dimensions, new IntType() );
+		fill( img );
+		( ( CachedCells< ? > ) img.getCells() ).flush();
+
+		final CachedCellImgFactory< IntType > reopenFactory = new CachedCellImgFactory< IntType >( directory, 10 * 4000, true, 10, 7, 4 );
+		final CellImg< IntType, ?, ? > reopened = reopenFactory.create( dimensions, new IntType() );
+		assertArrayEquals( intData, getImgAsInts( reopened ) );
+	}
+
+	@Test
+	public void testImgsOfOneFactoryAreIndependent()
+	{
+		final CachedCellImgFactory< IntType > factory = new CachedCellImgFactory< IntType >( directory, 4000, false, 10 );
+		final CellImg< IntType, ?, ? > img = factory.create( dimensions, new IntType() );
+		fill( img );
+		( ( CachedCells< ? > ) img.getCells() ).flush();
+
+		final CellImg< IntType, ?, ? > second = factory.create( dimensions, new IntType() );
+		assertArrayEquals( new int[ numValues ], getImgAsInts( second ) );
+		for ( final IntType t : second )
+			t.set( 1 );
+		( ( CachedCells< ? > ) second.getCells() ).flush();
+
+		assertArrayEquals( intData, getImgAsInts( img ) );
+	}
+
+	/**
+	 * Writes through a sampler that stays in a cell after the cell was
+	 * evicted must be saved by {@link CachedCells#flush()}.
+	 */
+	@Test
+	public void testWriteAfterEviction()
+	{
+		// room for one 10x10x10 int cell
+		final CachedCellImgFactory< IntType > factory = new CachedCellImgFactory< IntType >( directory, 4000, false, 10 );
+		final CellImg< IntType, ?, ? > img = factory.create( dimensions, new IntType() );
+		final CellCache< ? > cache = ( ( CachedCells< ? > ) img.getCells() ).getCache();
+
+		final RandomAccess< IntType > writer = img.randomAccess();
+		writer.setPosition( new long[] { 1, 1, 1 } );
+		writer.get().set( 1 );
+
+		// evict the cell of the writer
+		final RandomAccess< IntType > other = img.randomAccess();
+		other.setPosition( new long[] { 25, 1, 1 } );
+		other.get().get();
+		other.setPosition( new long[] { 35, 1, 1 } );
+		other.get().get();
+		assertTrue( cache.getNumEvictions() > 0 );
+
+		// keep writing to the evicted cell
+		writer.setPosition( 2, 0 );
+		writer.get().set( 2 );
+		( ( CachedCells< ? > ) img.getCells() ).flush();
+		assertEquals( 2, writer.get().get() );
+
+		final CellImg< IntType, ?, ? > reopened = new CachedCellImgFactory< IntType >( directory, 4000, false, 10 ).create( dimensions, new IntType() );
+		final RandomAccess< IntType > reader = reopened.randomAccess();
+		reader.setPosition( new long[] { 1, 1, 1 } );
+		assertEquals( 1, reader.get().get() );
+		reader.setPosition( 2, 0 );
+		assertEquals( 2, reader.get().get() );
+	}
+
+	@Test
+	public void testReadDoesNotWrite()
+	{
+		final CachedCellImgFactory< IntType > factory = new CachedCellImgFactory< IntType >( directory, 4000, false, 10 );
+		final CellImg< IntType, ?, ? > img = factory.create( dimensions, new IntType() );
+		long sum = 0;
+		for ( final IntType t : img )
+			sum += t.get();
+		( ( CachedCells< ? > ) img.getCells() ).flush();
+		assertEquals( 0, sum );
+		assertTrue( ( ( CachedCells< ? > ) img.getCells() ).getCache().getNumEvictions() > 0 );
+		assertEquals( 0, countFiles( directory ) );
+	}
+
+	/**
+	 * Concurrent requests for the same cell load it only once.
+	 */
+	@Test
+	public void testConcurrentLoads() throws InterruptedException
+	{
+		final int[] cellDimensions = new int[] { 10, 10, 10 };
+		final int numCells = 5 * 2 * 11;
+		final AtomicIntegerArray numLoads = new AtomicIntegerArray( numCells );
+		final CellLoader< IntArray > loader = new CellLoader< IntArray >()
+		{
+			@Override
+			public IntArray load( final long index, final long[] min, final int[] dims )
+			{
+				numLoads.incrementAndGet( ( int ) index );
+				try
+				{
+					Thread.sleep( 1 );
+				}
+				catch ( final InterruptedException e )
+				{
+					Thread.currentThread().interrupt();
+				}
+				return new IntArray( dims[ 0 ] * dims[ 1 ] * dims[ 2 ] );
+			}
+
+			@Override
+			public void save( final long index, final long[] min, final int[] dims, final IntArray data )
+			{}
+		};
+		final CachedCells< IntArray > cells = new CachedCells< IntArray >( loader, 1000 * 4000, false, 1, dimensions, cellDimensions );
+		final CellImg< IntType, IntArray, CachedCell< IntArray > > img = new CellImg< IntType, IntArray, CachedCell< IntArray > >( new CellImgFactory< IntType >( cellDimensions ), cells );
+		img.setLinkedType( new IntType( img ) );
+
+		final ArrayList< Thread > threads = new ArrayList< Thread >();
+		for ( int t = 0; t < 4; ++t )
+			threads.add( new Thread()
+			{
+				@Override
+				public void run()
+				{
+					getImgAsInts( img );
+				}
+			} );
+		for ( final Thread thread : threads )
+			thread.start();
+		for ( final Thread thread : threads )
+			thread.join();
+
+		for ( int i = 0; i < numCells; ++i )
+			assertEquals( 1, numLoads.get( i ) );
+		assertEquals( numCells, cells.getCache().getNumMisses() );
+	}
+
+	@Test
+	public void testReadOnlyCacheDoesNotWrite()
+	{
+		final DirectoryCellLoader< IntArray > loader = new DirectoryCellLoader< IntArray >( directory, new IntArray( 1 ), 1, false );
+		final CachedCells< IntArray > cells = new CachedCells< IntArray >( loader, 4000, false, 1, dimensions, new int[] { 10, 10, 10 } );
+		final CellImg< IntType, IntArray, CachedCell< IntArray > > img = new CellImg< IntType, IntArray, CachedCell< IntArray > >( new CellImgFactory< IntType >( 10 ), cells );
+		img.setLinkedType( new IntType( img ) );
+		fill( img );
+		cells.flush();
+		assertEquals( 0, countFiles( directory ) );
+	}
+}
@@ -0,0 +1,481 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.type.numeric.integer.IntType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link TiledCellImgFactory} and the asynchronous mode of
+ * {@link CellCache}.
+ *
+ * @author ImgLib2 developers
+ */
+public class TiledCellImgFactoryTest
+{
+	final long[] dimensions = new long[] { 40, 30 };
+
+	final int tileSize = 10;
+
+	final int numTiles = 12;
+
+	ExecutorService fetchService;
+
+	/**
+	 * Stand-in for a remote tile server. Loads block until released and are
+	 * counted per tile. The first load of the failing tile fails, as for a
+	 * transient network error.
+	 */
+	static class TileServer implements CellLoader< IntArray >
+	{
+		final CountDownLatch release;
+
+		final AtomicIntegerArray numLoads;
+
+		final long failingTile;
+
+		public TileServer( final int numTiles, final boolean blocked, final long failingTile )
+		{
+			release = new CountDownLatch( blocked ? 1 : 0 );
+			numLoads = new AtomicIntegerArray( numTiles );
+			this.failingTile = failingTile;
+		}
+
+		@Override
+		public IntArray load( final long index, final long[] min, final int[] dimensions )
+		{
+			numLoads.incrementAndGet( ( int ) index );
+			try
+			{
+				release.await();
+			}
+			catch ( final InterruptedException e )
+			{
+				Thread.currentThread().interrupt();
+			}
+			if ( index == failingTile && numLoads.get( ( int ) index ) == 1 )
+				throw new RuntimeException( "tile " + index + " not found" );
+			final int[] data = new int[ dimensions[ 0 ] * dimensions[ 1 ] ];
+			for ( int y = 0; y < dimensions[ 1 ]; ++y )
+				for ( int x = 0; x < dimensions[ 0 ]; ++x )
+					data[ y * dimensions[ 0 ] + x ] = value( min[ 0 ] + x, min[ 1 ] + y );
+			return new IntArray( data );
+		}
+
+		@Override
+		public void save( final long index, final long[] min, final int[] dimensions, final IntArray data )
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * Executes on a thread pool, but rejects the first tasks and swallows
+	 * {@link Error}s thrown by tasks (counting them), so that they do not
+	 * reach the default uncaught exception handler.
+	 */
+	static class FlakyFetchService extends AbstractExecutorService
+	{
+		final ExecutorService delegate;
+
+		final AtomicInteger numRejections;
+
+		final AtomicInteger numErrors = new AtomicInteger();
+
+		public FlakyFetchService( final ExecutorService delegate, final int numRejections )
+		{
+			this.delegate = delegate;
+			this.numRejections = new AtomicInteger( numRejections );
+		}
+
+		@Override
+		public void execute( final Runnable command )
+		{
+			if ( numRejections.getAndDecrement() > 0 )
+				throw new RejectedExecutionException();
+			delegate.execute( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						command.run();
+					}
+					catch ( final Error e )
+					{
+						numErrors.incrementAndGet();
+					}
+				}
+			} );
+		}
+
+		@Override
+		public void shutdown()
+		{
+			delegate.shutdown();
+		}
+
+		@Override
+		public List< Runnable > shutdownNow()
+		{
+			return delegate.shutdownNow();
+		}
+
+		@Override
+		public boolean isShutdown()
+		{
+			return delegate.isShutdown();
+		}
+
+		@Override
+		public boolean isTerminated()
+		{
+			return delegate.isTerminated();
+		}
+
+		@Override
+		public boolean awaitTermination( final long timeout, final TimeUnit unit ) throws InterruptedException
+		{
+			return delegate.awaitTermination( timeout, unit );
+		}
+	}
+
+	static int value( final long x, final long y )
+	{
+		return ( int ) ( 1 + x + 1000 * y );
+	}
+
+	@Before
+	public void createFetchService()
+	{
+		fetchService = Executors.newFixedThreadPool( 3 );
+	}
+
+	@After
+	public void shutdownFetchService()
+	{
+		fetchService.shutdownNow();
+	}
+
+	CellImg< IntType, ?, ? > create( final TileServer server, final long maxBytes )
+	{
+		return new TiledCellImgFactory< IntType >( server, maxBytes, fetchService, tileSize ).create( dimensions, new IntType() );
+	}
+
+	static CellCache< ? > getCache( final CellImg< IntType, ?, ? > img )
+	{
+		return ( ( CachedCells< ? > ) img.getCells() ).getCache();
+	}
+
+	static void waitForLoads( final CellCache< ? > cache ) throws InterruptedException
+	{
+		final long timeout = System.currentTimeMillis() + 10000;
+		while ( cache.getNumPendingLoads() > 0 && System.currentTimeMillis() < timeout )
+			Thread.sleep( 1 );
+		assertEquals( 0, cache.getNumPendingLoads() );
+	}
+
+	/**
+	 * @return the number of pixels in the tile at (tx, ty) that have the
+	 *         expected value.
+	 */
+	static int countLoaded( final CellImg< IntType, ?, ? > img, final int tx, final int ty, final int tileSize )
+	{
+		final RandomAccess< IntType > a = img.randomAccess();
+		final long[] position = new long[ 2 ];
+		int count = 0;
+		for ( int y = ty * tileSize; y < ( ty + 1 ) * tileSize; ++y )
+			for ( int x = tx * tileSize; x < ( tx + 1 ) * tileSize; ++x )
+			{
+				position[ 0 ] = x;
+				position[ 1 ] = y;
+				a.setPosition( position );
+				if ( a.get().get() == value( x, y ) )
+					++count;
+			}
+		return count;
+	}
+
+	@Test
+	public void testPlaceholdersAndDeduplication() throws InterruptedException
+	{
+		final TileServer server = new TileServer( numTiles, true, -1 );
+		final CellImg< IntType, ?, ? > img = create( server, 1000000 );
+		final CellCache< ? > cache = getCache( img );
+
+		final CountDownLatch loaded = new CountDownLatch( numTiles );
+		cache.addLoadListener( new CellCache.LoadListener()
+		{
+			@Override
+			public void cellLoaded( final long index )
+			{
+				loaded.countDown();
+			}
+
+			@Override
+			public void cellFailed( final long index, final Exception exception )
+			{}
+		} );
+
+		// request every pixel from several threads while all loads are blocked
+		final ArrayList< Thread > threads = new ArrayList< Thread >();
+		final int[] numNonZero = new int[ 1 ];
+		for ( int t = 0; t < 4; ++t )
+			threads.add( new Thread()
+			{
+				@Override
+				public void run()
+				{
+					final RandomAccess< IntType > a = img.randomAccess();
+					for ( int y = 0; y < dimensions[ 1 ]; ++y )
+						for ( int x = 0; x < dimensions[ 0 ]; ++x )
+						{
+							a.setPosition( x, 0 );
+							a.setPosition( y, 1 );
+							if ( a.get().get() != 0 )
+								synchronized ( numNonZero )
+								{
+									++numNonZero[ 0 ];
+								}
+						}
+				}
+			} );
+		for ( final Thread thread : threads )
+			thread.start();
+		for ( final Thread thread : threads )
+			thread.join();
+
+		assertEquals( 0, numNonZero[ 0 ] );
+		assertEquals( numTiles, cache.getNumPendingLoads() );
+		assertEquals( numTiles, cache.getNumMisses() );
+		assertTrue( cache.getNumPlaceholders() > numTiles );
+
+		server.release.countDown();
+		assertTrue( loaded.await( 10, TimeUnit.SECONDS ) );
+		waitForLoads( cache );
+
+		for ( int ty = 0; ty < 3; ++ty )
+			for ( int tx = 0; tx < 4; ++tx )
+				assertEquals( tileSize * tileSize, countLoaded( img, tx, ty, tileSize ) );
+		for ( int i = 0; i < numTiles; ++i )
+			assertEquals( 1, server.numLoads.get( i ) );
+		assertEquals( numTiles, cache.getNumMisses() );
+		assertEquals( 0, cache.getNumEvictions() );
+	}
+
+	@Test
+	public void testEviction() throws InterruptedException
+	{
+		// room for two 10x10 int tiles
+		final long maxBytes = 2 * 400;
+		final TileServer server = new TileServer( numTiles, false, -1 );
+		final CellImg< IntType, ?, ? > img = create( server, maxBytes );
+		final CellCache< ? > cache = getCache( img );
+
+		for ( int ty = 0; ty < 3; ++ty )
+			for ( int tx = 0; tx < 4; ++tx )
+			{
+				countLoaded( img, tx, ty, tileSize );
+				waitForLoads( cache );
+				assertEquals( tileSize * tileSize, countLoaded( img, tx, ty, tileSize ) );
+			}
+
+		assertEquals( numTiles - 2, cache.getNumEvictions() );
+		assertTrue( cache.getCurrentBytes() <= maxBytes );
+	}
+
+	/**
+	 * Request the pixel at (x, y) once.
+	 */
+	static int request( final CellImg< IntType, ?, ? > img, final long x, final long y )
+	{
+		final RandomAccess< IntType > a = img.randomAccess();
+		a.setPosition( new long[] { x, y } );
+		return a.get().get();
+	}
+
+	@Test
+	public void testFailedLoadIsRetried() throws InterruptedException
+	{
+		final TileServer server = new TileServer( numTiles, false, 5 );
+		final CellImg< IntType, ?, ? > img = create( server, 1000000 );
+		final CellCache< ? > cache = getCache( img );
+		cache.setRetryDelay( 0, 0 );
+		final CountDownLatch loaded = new CountDownLatch( 1 );
+		final CountDownLatch failed = new CountDownLatch( 1 );
+		final long[] failedIndex = new long[] { -1 };
+		final Exception[] failure = new Exception[ 1 ];
+		cache.addLoadListener( new CellCache.LoadListener()
+		{
+			@Override
+			public void cellLoaded( final long index )
+			{
+				if ( index == 5 )
+					loaded.countDown();
+			}
+
+			@Override
+			public void cellFailed( final long index, final Exception exception )
+			{
+				failedIndex[ 0 ] = index;
+				failure[ 0 ] = exception;
+				failed.countDown();
+			}
+		} );
+
+		// tile 5 is at (1, 1), its first load fails and nothing is cached
+		assertEquals( 0, request( img, 15, 15 ) );
+		assertTrue( failed.await( 10, TimeUnit.SECONDS ) );
+		waitForLoads( cache );
+		assertEquals( 5, failedIndex[ 0 ] );
+		assertTrue( failure[ 0 ].getMessage().contains( "not found" ) );
+		assertEquals( 1, cache.getNumFailures() );
+		assertEquals( 1, server.numLoads.get( 5 ) );
+		assertEquals( 1, loaded.getCount() );
+
+		// the next request loads it again
+		request( img, 15, 15 );
+		assertTrue( loaded.await( 10, TimeUnit.SECONDS ) );
+		waitForLoads( cache );
+		assertEquals( tileSize * tileSize, countLoaded( img, 1, 1, tileSize ) );
+		assertEquals( 2, server.numLoads.get( 5 ) );
+		assertEquals( 1, cache.getNumFailures() );
+	}
+
+	@Test
+	public void testRetryDelay() throws InterruptedException
+	{
+		final TileServer server = new TileServer( numTiles, false, 5 );
+		final CellImg< IntType, ?, ? > img = create( server, 1000000 );
+		final CellCache< ? > cache = getCache( img );
+		cache.setRetryDelay( 60000, 60000 );
+
+		request( img, 15, 15 );
+		waitForLoads( cache );
+		assertEquals( 1, cache.getNumFailures() );
+
+		// within the retry delay, placeholders are returned without loading
+		assertEquals( 0, countLoaded( img, 1, 1, tileSize ) );
+		assertEquals( 0, cache.getNumPendingLoads() );
+		assertEquals( 1, server.numLoads.get( 5 ) );
+
+		// other tiles are not affected
+		countLoaded( img, 2, 1, tileSize );
+		waitForLoads( cache );
+		assertEquals( tileSize * tileSize, countLoaded( img, 2, 1, tileSize ) );
+	}
+
+	@Test
+	public void testRejectedLoad() throws InterruptedException
+	{
+		fetchService.shutdown();
+		fetchService = new FlakyFetchService( Executors.newFixedThreadPool( 3 ), 1 );
+		final TileServer server = new TileServer( numTiles, false, -1 );
+		final CellImg< IntType, ?, ? > img = create( server, 1000000 );
+		final CellCache< ? > cache = getCache( img );
+
+		try
+		{
+			countLoaded( img, 0, 0, tileSize );
+			fail( "the rejected load should be reported" );
+		}
+		catch ( final RejectedExecutionException e )
+		{}
+		assertEquals( 0, cache.getNumPendingLoads() );
+
+		// the tile is not stuck as pending, the next request loads it
+		countLoaded( img, 0, 0, tileSize );
+		waitForLoads( cache );
+		assertEquals( tileSize * tileSize, countLoaded( img, 0, 0, tileSize ) );
+		assertEquals( 1, server.numLoads.get( 0 ) );
+	}
+
+	@Test
+	public void testErrorInLoad() throws InterruptedException
+	{
+		fetchService.shutdown();
+		final FlakyFetchService flaky = new FlakyFetchService( Executors.newFixedThreadPool( 3 ), 0 );
+		fetchService = flaky;
+		final TileServer server = new TileServer( numTiles, false, -1 )
+		{
+			@Override
+			public IntArray load( final long index, final long[] min, final int[] dimensions )
+			{
+				if ( index == 5 && numLoads.get( 5 ) == 0 )
+				{
+					numLoads.incrementAndGet( 5 );
+					throw new Error( "tile 5 lost" );
+				}
+				return super.load( index, min, dimensions );
+			}
+		};
+		final CellImg< IntType, ?, ? > img = create( server, 1000000 );
+		final CellCache< ? > cache = getCache( img );
+
+		countLoaded( img, 1, 1, tileSize );
+		waitForLoads( cache );
+		assertEquals( 1, flaky.numErrors.get() );
+		assertEquals( 0, cache.getNumFailures() );
+
+		// nothing was cached for tile 5, so it is loaded again
+		countLoaded( img, 1, 1, tileSize );
+		waitForLoads( cache );
+		assertEquals( tileSize * tileSize, countLoaded( img, 1, 1, tileSize ) );
+		assertEquals( 2, server.numLoads.get( 5 ) );
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.multithreading;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link SharedThreadPool}.
+ *
+ * @author ImgLib2 developers
+ */
+public class SharedThreadPoolTest
+{
+	@Test
+	public void testAllTasksRun()
+	{
+		final AtomicInteger count = new AtomicInteger( 0 );
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >();
+		for ( int i = 0; i < 100; ++i )
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					count.incrementAndGet();
+				}
+			} );
+		SharedThreadPool.invokeAll( tasks, 4 );
+		assertEquals( 100, count.get() );
+	}
+
+	@Test
+	public void testMaxParallelism()
+	{
+		final AtomicInteger running = new AtomicInteger( 0 );
+		final AtomicInteger maxRunning = new AtomicInteger( 0 );
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >();
+		for ( int i = 0; i < 20; ++i )
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					final int r = running.incrementAndGet();
+					synchronized ( maxRunning )
+					{
+						maxRunning.set( Math.max( maxRunning.get(), r ) );
+					}
+					SimpleMultiThreading.threadWait( 5 );
+					running.decrementAndGet();
+				}
+			} );
+		SharedThreadPool.invokeAll( tasks, 2 );
+		assertTrue( maxRunning.get() <= 2 );
+	}
+
+	@Test
+	public void testNestedCallsOnSmallPoolDoNotDeadlock()
+	{
+		final ExecutorService executor = SharedThreadPool.createDefaultExecutorService( 2 );
+		final AtomicInteger count = new AtomicInteger( 0 );
+		final ArrayList< Runnable > outer = new ArrayList< Runnable >();
+		for ( int i = 0; i < 8; ++i )
+			outer.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					final ArrayList< Runnable > inner = new ArrayList< Runnable >();
+					for ( int j = 0; j < 8; ++j )
+						inner.add( new Runnable()
+						{
+							@Override
+							public void run()
+							{
+								count.incrementAndGet();
+							}
+						} );
+					SharedThreadPool.invokeAll( inner, 8, executor );
+				}
+			} );
+		SharedThreadPool.invokeAll( outer, 8, executor );
+		executor.shutdown();
+		assertEquals( 64, count.get() );
+	}
+
+	@Test( expected = IllegalStateException.class )
+	public void testExceptionIsRethrown()
+	{
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >();
+		for ( int i = 0; i < 4; ++i )
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					throw new IllegalStateException();
+				}
+			} );
+		SharedThreadPool.invokeAll( tasks, 4 );
+	}
+}
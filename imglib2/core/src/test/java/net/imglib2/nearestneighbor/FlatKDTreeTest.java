@@ -0,0 +1,241 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.nearestneighbor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import net.imglib2.RealCursor;
+import net.imglib2.RealPoint;
+import net.imglib2.collection.FlatKDTree;
+import net.imglib2.collection.RealPointSampleList;
+import net.imglib2.neighborsearch.KNearestNeighborSearchOnKDTree;
+import net.imglib2.neighborsearch.NearestNeighborSearchOnKDTree;
+import net.imglib2.neighborsearch.RadiusNeighborSearchOnKDTree;
+import net.imglib2.type.numeric.integer.IntType;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link FlatKDTree} and the kd-tree searches on it.
+ *
+ * @author ImgLib2 developers
+ */
+public class FlatKDTreeTest
+{
+	final int n = 3;
+
+	final Random rnd = new Random( 435435435 );
+
+	ArrayList< RealPoint > createPoints( final int numPoints, final boolean onGrid )
+	{
+		final ArrayList< RealPoint > points = new ArrayList< RealPoint >();
+		final double[] p = new double[ n ];
+		for ( int i = 0; i < numPoints; ++i )
+		{
+			for ( int d = 0; d < n; ++d )
+				p[ d ] = onGrid ? rnd.nextInt( 8 ) : rnd.nextDouble() * 100;
+			points.add( new RealPoint( p ) );
+		}
+		return points;
+	}
+
+	RealPoint createQuery()
+	{
+		final double[] p = new double[ n ];
+		for ( int d = 0; d < n; ++d )
+			p[ d ] = rnd.nextDouble() * 150 - 25;
+		return new RealPoint( p );
+	}
+
+	static double squDistance( final RealPoint a, final RealPoint b )
+	{
+		double sum = 0;
+		for ( int d = 0; d < a.numDimensions(); ++d )
+		{
+			final double diff = a.getDoublePosition( d ) - b.getDoublePosition( d );
+			sum += diff * diff;
+		}
+		return sum;
+	}
+
+	static double[] sortedSquDistances( final ArrayList< RealPoint > points, final RealPoint query )
+	{
+		final double[] distances = new double[ points.size() ];
+		for ( int i = 0; i < distances.length; ++i )
+			distances[ i ] = squDistance( points.get( i ), query );
+		Arrays.sort( distances );
+		return distances;
+	}
+
+	/**
+	 * Checks that every subtree satisfies the kd-tree invariant.
+	 */
+	static < T > void assertValidTree( final FlatKDTree< T > tree, final int i, final int j, final int d )
+	{
+		if ( j < i )
+			return;
+		final int k = i + ( j - i ) / 2;
+		final double split = tree.getCoordinate( k, d );
+		for ( int l = i; l < k; ++l )
+			assertTrue( tree.getCoordinate( l, d ) <= split );
+		for ( int l = k + 1; l <= j; ++l )
+			assertTrue( tree.getCoordinate( l, d ) >= split );
+		final int dChild = ( d + 1 == tree.numDimensions() ) ? 0 : d + 1;
+		assertValidTree( tree, i, k - 1, dChild );
+		assertValidTree( tree, k + 1, j, dChild );
+	}
+
+	@Test
+	public void testParallelBuild()
+	{
+		for ( final boolean onGrid : new boolean[] { false, true } )
+		{
+			final ArrayList< RealPoint > points = createPoints( 100000, onGrid );
+			final FlatKDTree< RealPoint > sequential = new FlatKDTree< RealPoint >( points, points, 1 );
+			final FlatKDTree< RealPoint > parallel = new FlatKDTree< RealPoint >( points, points, 4 );
+			assertEquals( points.size(), parallel.size() );
+			assertValidTree( parallel, 0, points.size() - 1, 0 );
+			for ( int k = 0; k < points.size(); ++k )
+				assertEquals( sequential.getSourceIndex( k ), parallel.getSourceIndex( k ) );
+		}
+	}
+
+	@Test
+	public void testValuesFollowPositions()
+	{
+		final ArrayList< RealPoint > points = createPoints( 1000, true );
+		final ArrayList< Integer > values = new ArrayList< Integer >();
+		for ( int i = 0; i < points.size(); ++i )
+			values.add( i );
+		final FlatKDTree< Integer > tree = new FlatKDTree< Integer >( values, points );
+
+		final double[] expected = new double[ n ];
+		final double[] actual = new double[ n ];
+		final RealCursor< Integer > cursor = tree.cursor();
+		int count = 0;
+		while ( cursor.hasNext() )
+		{
+			final int value = cursor.next();
+			points.get( value ).localize( expected );
+			cursor.localize( actual );
+			assertArrayEquals( expected, actual, 0 );
+			++count;
+		}
+		assertEquals( points.size(), count );
+	}
+
+	@Test
+	public void testNearestNeighbor()
+	{
+		final ArrayList< RealPoint > points = createPoints( 10000, false );
+		final NearestNeighborSearchOnKDTree< RealPoint > search = new NearestNeighborSearchOnKDTree< RealPoint >( new FlatKDTree< RealPoint >( points, points ) );
+		for ( int t = 0; t < 500; ++t )
+		{
+			final RealPoint query = createQuery();
+			search.search( query );
+			final double expected = sortedSquDistances( points, query )[ 0 ];
+			assertEquals( expected, search.getSquareDistance(), 0 );
+			assertEquals( expected, squDistance( search.getSampler().get(), query ), 0 );
+		}
+	}
+
+	@Test
+	public void testKNearestNeighbor()
+	{
+		final int k = 7;
+		final ArrayList< RealPoint > points = createPoints( 10000, true );
+		final KNearestNeighborSearchOnKDTree< RealPoint > search = new KNearestNeighborSearchOnKDTree< RealPoint >( new FlatKDTree< RealPoint >( points, points ), k );
+		for ( int t = 0; t < 200; ++t )
+		{
+			final RealPoint query = createQuery();
+			search.search( query );
+			final double[] expected = sortedSquDistances( points, query );
+			for ( int i = 0; i < k; ++i )
+			{
+				assertEquals( expected[ i ], search.getSquareDistance( i ), 0 );
+				assertEquals( expected[ i ], squDistance( search.getSampler( i ).get(), query ), 0 );
+			}
+		}
+	}
+
+	@Test
+	public void testRadiusNeighbor()
+	{
+		final ArrayList< RealPoint > points = createPoints( 10000, false );
+		final RadiusNeighborSearchOnKDTree< RealPoint > search = new RadiusNeighborSearchOnKDTree< RealPoint >( new FlatKDTree< RealPoint >( points, points ) );
+		for ( int t = 0; t < 200; ++t )
+		{
+			final RealPoint query = createQuery();
+			final double radius = rnd.nextDouble() * 20;
+			search.search( query, radius, true );
+			final double[] expected = sortedSquDistances( points, query );
+			int numExpected = 0;
+			while ( numExpected < expected.length && expected[ numExpected ] <= radius * radius )
+				++numExpected;
+			assertEquals( numExpected, search.numNeighbors() );
+			for ( int i = 0; i < numExpected; ++i )
+			{
+				assertEquals( expected[ i ], search.getSquareDistance( i ), 0 );
+				assertEquals( expected[ i ], squDistance( search.getSampler( i ).get(), query ), 0 );
+			}
+		}
+	}
+
+	@Test
+	public void testIterableRealInterval()
+	{
+		final ArrayList< RealPoint > points = createPoints( 1000, false );
+		final RealPointSampleList< IntType > list = new RealPointSampleList< IntType >( n );
+		for ( int i = 0; i < points.size(); ++i )
+			list.add( points.get( i ), new IntType( i ) );
+
+		final NearestNeighborSearchOnKDTree< IntType > search = new NearestNeighborSearchOnKDTree< IntType >( new FlatKDTree< IntType >( list ) );
+		for ( int t = 0; t < 100; ++t )
+		{
+			final RealPoint query = createQuery();
+			search.search( query );
+			final RealPoint nearest = points.get( search.getSampler().get().get() );
+			assertEquals( sortedSquDistances( points, query )[ 0 ], squDistance( nearest, query ), 0 );
+		}
+	}
+}
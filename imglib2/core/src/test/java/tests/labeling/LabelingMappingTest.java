@@ -0,0 +1,136 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package tests.labeling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import net.imglib2.labeling.LabelingMapping;
+import net.imglib2.type.numeric.integer.IntType;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LabelingMapping}.
+ *
+ * @author ImgLib2 developers
+ */
+public class LabelingMappingTest
+{
+	@Test
+	public void testSingleLabel()
+	{
+		final LabelingMapping< Integer > mapping = new LabelingMapping< Integer >( new IntType() );
+		final List< Integer > interned = mapping.intern( 5 );
+		assertEquals( Arrays.asList( 5 ), interned );
+		assertSame( interned, mapping.intern( Arrays.asList( 5 ) ) );
+		assertSame( interned, mapping.intern( new ArrayList< Integer >( interned ) ) );
+		assertEquals( mapping.indexOf( 5 ), mapping.indexOf( Arrays.asList( 5 ) ) );
+		assertSame( interned, mapping.listAtIndex( mapping.indexOf( 5 ) ) );
+	}
+
+	@Test
+	public void testMultipleLabels()
+	{
+		final LabelingMapping< Integer > mapping = new LabelingMapping< Integer >( new IntType() );
+		final List< Integer > interned = mapping.intern( Arrays.asList( 3, 1, 2 ) );
+		assertEquals( Arrays.asList( 1, 2, 3 ), interned );
+		assertSame( interned, mapping.intern( Arrays.asList( 2, 3, 1 ) ) );
+		assertTrue( mapping.indexOf( Arrays.asList( 1, 2, 3 ) ) != mapping.indexOf( 1 ) );
+		assertTrue( mapping.emptyList().isEmpty() );
+		assertEquals( 0, mapping.indexOf( new ArrayList< Integer >() ) );
+	}
+
+	@Test
+	public void testConcurrentIntern() throws InterruptedException
+	{
+		final LabelingMapping< Integer > mapping = new LabelingMapping< Integer >( new IntType() );
+		final int numThreads = 8;
+		final int numLabels = 1000;
+		final int[][] indices = new int[ numThreads ][ numLabels ];
+		final CountDownLatch start = new CountDownLatch( 1 );
+		final ArrayList< Thread > threads = new ArrayList< Thread >();
+		for ( int t = 0; t < numThreads; t++ )
+		{
+			final int thread = t;
+			threads.add( new Thread()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						start.await();
+					}
+					catch ( final InterruptedException e )
+					{
+						return;
+					}
+					for ( int i = 0; i < numLabels; i++ )
+					{
+						// interleave single label and list lookups
+						final int label = ( i * ( thread + 1 ) ) % numLabels;
+						indices[ thread ][ label ] = thread % 2 == 0 ? mapping.indexOf( label ) : mapping.indexOf( Arrays.asList( label ) );
+					}
+				}
+			} );
+		}
+		for ( final Thread thread : threads )
+			thread.start();
+		start.countDown();
+		for ( final Thread thread : threads )
+			thread.join();
+
+		// the empty list and one list per label
+		assertEquals( numLabels + 1, mapping.numLists() );
+		for ( int i = 0; i < numLabels; i++ )
+		{
+			final int index = mapping.indexOf( i );
+			assertEquals( Arrays.asList( i ), mapping.listAtIndex( index ) );
+			// labels that were not visited by a thread have index 0
+			for ( int t = 0; t < numThreads; t++ )
+				if ( indices[ t ][ i ] != 0 )
+					assertEquals( index, indices[ t ][ i ] );
+		}
+	}
+}
@@ -3,6 +3,7 @@ package interactive;
 import interactive.catmaid.CATMAIDRandomAccessibleInterval;
 import net.imglib2.RandomAccessible;
 import net.imglib2.converter.TypeIdentity;
+import net.imglib2.img.cell.CellCache;
 import net.imglib2.io.ImgIOException;
 import net.imglib2.realtransform.AffineTransform3D;
 import net.imglib2.type.numeric.ARGBType;
@@ -27,7 +28,7 @@ public class InteractiveCATMAIDRotationExample
 
 		final LogoPainter logo = new LogoPainter();
 		final RandomAccessible< ARGBType > extended = Views.extendValue( map, new ARGBType( 0xff006600 ) );
-		new InteractiveViewer3D< ARGBType >( w, h, extended, map, initial, new TypeIdentity< ARGBType >() )
+		final InteractiveViewer3D< ARGBType > viewer = new InteractiveViewer3D< ARGBType >( w, h, extended, map, initial, new TypeIdentity< ARGBType >() )
 		{
 			@Override
 			public void drawScreenImage()
@@ -36,6 +37,22 @@ public class InteractiveCATMAIDRotationExample
 				logo.paint( screenImage );
 			}
 		};
+
+		// repaint whenever a tile has arrived
+		map.getCache().addLoadListener( new CellCache.LoadListener()
+		{
+			@Override
+			public void cellLoaded( final long index )
+			{
+				viewer.requestRepaint();
+			}
+
+			@Override
+			public void cellFailed( final long index, final Exception exception )
+			{
+				// the tile stays black and is fetched again by a later repaint
+			}
+		} );
 	}
 
 }
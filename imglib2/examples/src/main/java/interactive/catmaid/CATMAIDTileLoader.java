@@ -0,0 +1,80 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package interactive.catmaid;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.PixelGrabber;
+import java.io.IOException;
+import java.net.URL;
+
+import javax.imageio.ImageIO;
+
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.img.cell.CellLoader;
+
+/**
+ * Fetches the JPEG tiles of a CATMAID image stack from a tile server. A tile
+ * is a cell of size 256x256x1 at <code>baseUrl + z/r_c_0.jpg</code> with row
+ * <em>r</em> and column <em>c</em>. A tile that cannot be read fails with a
+ * {@link RuntimeException}, which the cell cache records as a failed load.
+ *
+ * @author Stephan Saalfeld <saalfeld@mpi-cbg.de>
+ */
+public class CATMAIDTileLoader implements CellLoader< IntArray >
+{
+	final static public int TILE_SIZE = 256;
+
+	final protected String baseUrl;
+
+	public CATMAIDTileLoader( final String baseUrl )
+	{
+		this.baseUrl = baseUrl;
+	}
+
+	@Override
+	public IntArray load( final long index, final long[] min, final int[] dimensions )
+	{
+		final long c = min[ 0 ] / TILE_SIZE;
+		final long r = min[ 1 ] / TILE_SIZE;
+		final long z = min[ 2 ];
+		final int w = dimensions[ 0 ];
+		final int h = dimensions[ 1 ];
+		final String urlString = new StringBuffer( baseUrl ).append( z ).append( "/" ).append( r ).append( "_" ).append( c ).append( "_0.jpg" ).toString();
+		final int[] pixels = new int[ w * h ];
+		try
+		{
+			final BufferedImage image = ImageIO.read( new URL( urlString ) );
+			final PixelGrabber pg = new PixelGrabber( image, 0, 0, w, h, pixels, 0, w );
+			pg.grabPixels();
+		}
+		catch ( final IOException e )
+		{
+			throw new RuntimeException( "failed loading r=" + r + " c=" + c + " url(" + urlString + ")", e );
+		}
+		catch ( final InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+		}
+		return new IntArray( pixels );
+	}
+
+	@Override
+	public void save( final long index, final long[] min, final int[] dimensions, final IntArray data )
+	{
+		throw new UnsupportedOperationException( "CATMAID tiles are read-only." );
+	}
+}
@@ -40,6 +40,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import loci.common.services.DependencyException;
 import loci.common.services.ServiceException;
@@ -70,6 +71,7 @@ import net.imglib2.img.planar.PlanarImg;
 import net.imglib2.img.planar.PlanarImgFactory;
 import net.imglib2.meta.Axes;
 import net.imglib2.meta.AxisType;
+import net.imglib2.multithreading.SharedThreadPool;
 import net.imglib2.type.NativeType;
 import net.imglib2.type.Type;
 import net.imglib2.type.numeric.RealType;
@@ -95,6 +97,8 @@ public class ImgOpener implements StatusReporter {
 	private final List<StatusListener> listeners =
 		new ArrayList<StatusListener>();
 
+	private int numThreads = 1;
+
 	// -- static methods --
 	
 	/**
@@ -318,7 +322,7 @@ public class ImgOpener implements StatusReporter {
 			final IFormatReader r = initializeReader(id, computeMinMax);
 			final T type = ImgIOUtils.makeType(r.getPixelType());
 			final ImgFactory<T> imgFactoryT = imgFactory.imgFactory(type);
-			return openImg(r, imgFactoryT, type, computeMinMax);
+			return openImg(r, imgFactoryT, type, computeMinMax, numThreads);
 		}
 		catch (final FormatException e) {
 			throw new ImgIOException(e);
@@ -366,7 +370,7 @@ public class ImgOpener implements StatusReporter {
 	{
 		try {
 			final IFormatReader r = initializeReader(id, computeMinMax);
-			return openImg(r, imgFactory, type, computeMinMax);
+			return openImg(r, imgFactory, type, computeMinMax, numThreads);
 		}
 		catch (final FormatException e) {
 			throw new ImgIOException(e);
@@ -415,6 +419,22 @@ public class ImgOpener implements StatusReporter {
 	public <T extends RealType<T> & NativeType<T>> ImgPlus<T> openImg(
 		final IFormatReader r, final ImgFactory<T> imgFactory, final T type,
 		final boolean computeMinMax) throws ImgIOException
+	{
+		// the planes of a reader set up by the caller (series, wrappers,
+		// options) cannot be reproduced by additional readers
+		return openImg(r, imgFactory, type, computeMinMax, 1);
+	}
+
+	/**
+	 * Reads in an {@link ImgPlus} from the given initialized
+	 * {@link IFormatReader}, decoding planes with the given number of threads.
+	 * Additional threads use readers created by
+	 * {@link #createReader(String, boolean)}, so this must only be used with
+	 * readers created the same way.
+	 */
+	private <T extends RealType<T> & NativeType<T>> ImgPlus<T> openImg(
+		final IFormatReader r, final ImgFactory<T> imgFactory, final T type,
+		final boolean computeMinMax, final int threads) throws ImgIOException
 	{
 		// create image and read metadata
 		final long[] dimLengths = getDimLengths(r);
@@ -426,7 +446,7 @@ public class ImgOpener implements StatusReporter {
 		final String id = r.getCurrentFile();
 		final int planeCount = r.getImageCount();
 		try {
-			readPlanes(r, type, imgPlus, computeMinMax);
+			readPlanes(r, type, imgPlus, computeMinMax, threads);
 		}
 		catch (final FormatException e) {
 			throw new ImgIOException(e);
@@ -443,6 +463,31 @@ public class ImgOpener implements StatusReporter {
 		return imgPlus;
 	}
 
+	/**
+	 * Sets the number of threads used for reading planes. If more than one
+	 * thread is used, {@link #openImg} opens additional readers on the same
+	 * source (using {@link #createReader(String, boolean)}) and decodes planes
+	 * concurrently. This applies only when the source is given by its id; an
+	 * {@link IFormatReader} passed to {@link #openImg} is always read by a
+	 * single thread. The default is a single thread.
+	 */
+	public void setNumThreads(final int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	/**
+	 * Sets the number of threads used for reading planes to the default
+	 * parallelism of {@link SharedThreadPool}.
+	 */
+	public void setNumThreads() {
+		setNumThreads(SharedThreadPool.getParallelism());
+	}
+
+	/** Gets the number of threads used for reading planes. */
+	public int getNumThreads() {
+		return numThreads;
+	}
+
 	// -- StatusReporter methods --
 
 	/** Adds a listener to those informed when progress occurs. */
@@ -719,8 +764,8 @@ public class ImgOpener implements StatusReporter {
 	 * specified {@link Img}.
 	 */
 	private <T extends RealType<T>> void readPlanes(final IFormatReader r,
-		final T type, final ImgPlus<T> imgPlus, final boolean computeMinMax)
-		throws FormatException, IOException
+		final T type, final ImgPlus<T> imgPlus, final boolean computeMinMax,
+		final int threads) throws FormatException, IOException
 	{
 		// TODO - create better container types; either:
 		// 1) an array container type using one byte array per plane
@@ -748,23 +793,139 @@ public class ImgOpener implements StatusReporter {
 		final boolean isPlanar = planarAccess != null && compatibleTypes;
 		imgPlus.initializeColorTables(planeCount);
 
-		byte[] plane = null;
-		for (int no = 0; no < planeCount; no++) {
-			notifyListeners(new StatusEvent(no, planeCount, "Reading plane " +
-				(no + 1) + "/" + planeCount));
-			if (plane == null) plane = r.openBytes(no);
-			else r.openBytes(no, plane);
-			if (isPlanar) populatePlane(r, no, plane, planarAccess);
-			else populatePlane(r, no, plane, imgPlus);
-
-			// store color table
-			final byte[][] lut8 = r.get8BitLookupTable();
+		final IFormatReader[] readers =
+			new IFormatReader[Math.max(1, Math.min(threads, planeCount))];
+		readers[0] = r;
+		try {
+			if (readers.length > 1) {
+				readPlanesParallel(readers, computeMinMax, isPlanar, planarAccess,
+					imgPlus);
+			}
+			else {
+				byte[] plane = null;
+				for (int no = 0; no < planeCount; no++) {
+					notifyListeners(new StatusEvent(no, planeCount, "Reading plane " +
+						(no + 1) + "/" + planeCount));
+					plane = readPlane(r, no, plane, isPlanar, planarAccess, imgPlus);
+				}
+			}
+			if (computeMinMax) populateMinMax(readers, imgPlus);
+		}
+		finally {
+			// close the additional readers; the given reader is closed below
+			for (int i = 1; i < readers.length; i++)
+				if (readers[i] != null) readers[i].close();
+		}
+		r.close();
+	}
+
+	/**
+	 * Reads planes concurrently, using one thread for each of the given readers.
+	 * The first reader is the initialized reader passed to {@link #openImg}, the
+	 * others are created here for the same source, set to the same series, and
+	 * stored in the array. Planes are handed out to the threads one at a time.
+	 */
+	private <T extends RealType<T>> void readPlanesParallel(
+		final IFormatReader[] readers, final boolean computeMinMax,
+		final boolean isPlanar, final PlanarAccess<?> planarAccess,
+		final ImgPlus<T> imgPlus) throws FormatException, IOException
+	{
+		final String id = readers[0].getCurrentFile();
+		final int planeCount = readers[0].getImageCount();
+		final AtomicInteger nextPlane = new AtomicInteger(0);
+		final AtomicInteger planesRead = new AtomicInteger(0);
+
+		final List<Runnable> tasks = new ArrayList<Runnable>(readers.length);
+		for (int i = 0; i < readers.length; i++) {
+			final int readerIndex = i;
+			tasks.add(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						IFormatReader reader = readers[readerIndex];
+						if (reader == null) {
+							reader = createReader(id, computeMinMax);
+							readers[readerIndex] = reader;
+							reader.setSeries(readers[0].getSeries());
+							checkCompatible(readers[0], reader);
+						}
+						byte[] plane = null;
+						for (int no = nextPlane.getAndIncrement(); no < planeCount; no =
+							nextPlane.getAndIncrement())
+						{
+							plane =
+								readPlane(reader, no, plane, isPlanar, planarAccess, imgPlus);
+							final int done = planesRead.incrementAndGet();
+							notifyListeners(new StatusEvent(done, planeCount, "Read plane " +
+								done + "/" + planeCount));
+						}
+					}
+					catch (final FormatException e) {
+						throw new RuntimeException(e);
+					}
+					catch (final IOException e) {
+						throw new RuntimeException(e);
+					}
+				}
+			});
+		}
+
+		try {
+			SharedThreadPool.invokeAll(tasks, readers.length);
+		}
+		catch (final RuntimeException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof FormatException) throw (FormatException) cause;
+			if (cause instanceof IOException) throw (IOException) cause;
+			throw e;
+		}
+	}
+
+	/**
+	 * Checks that an additional reader decodes the same planes as the reader
+	 * passed to {@link #openImg}.
+	 */
+	private void checkCompatible(final IFormatReader r,
+		final IFormatReader other) throws FormatException
+	{
+		if (other.getImageCount() != r.getImageCount() ||
+			other.getSizeX() != r.getSizeX() || other.getSizeY() != r.getSizeY() ||
+			other.getPixelType() != r.getPixelType() ||
+			other.getRGBChannelCount() != r.getRGBChannelCount() ||
+			other.isInterleaved() != r.isInterleaved() ||
+			other.isLittleEndian() != r.isLittleEndian())
+		{
+			throw new FormatException("Reader for " + r.getCurrentFile() +
+				" series " + r.getSeries() + " does not match the initial reader");
+		}
+	}
+
+	/**
+	 * Reads one plane and stores its pixels and color table in the
+	 * {@link ImgPlus}.
+	 * 
+	 * @param plane a buffer for the plane bytes, or null to allocate one.
+	 * @return the buffer containing the plane bytes, for reuse.
+	 */
+	private <T extends RealType<T>> byte[] readPlane(final IFormatReader r,
+		final int no, byte[] plane, final boolean isPlanar,
+		final PlanarAccess<?> planarAccess, final ImgPlus<T> imgPlus)
+		throws FormatException, IOException
+	{
+		if (plane == null) plane = r.openBytes(no);
+		else r.openBytes(no, plane);
+		if (isPlanar) populatePlane(r, no, plane, planarAccess);
+		else populatePlane(r, no, plane, imgPlus);
+
+		// store color table
+		final byte[][] lut8 = r.get8BitLookupTable();
+		final short[][] lut16 = r.get16BitLookupTable();
+		synchronized (imgPlus) {
 			if (lut8 != null) imgPlus.setColorTable(new ColorTable8(lut8), no);
-			final short[][] lut16 = r.get16BitLookupTable();
 			if (lut16 != null) imgPlus.setColorTable(new ColorTable16(lut16), no);
 		}
-		if (computeMinMax) populateMinMax(r, imgPlus);
-		r.close();
+		return plane;
 	}
 
 	/** Populates plane by reference using {@link PlanarAccess} interface. */
@@ -829,18 +990,34 @@ public class ImgOpener implements StatusReporter {
 		}
 	}
 
-	private void populateMinMax(final IFormatReader r, final ImgPlus<?> imgPlus)
-		throws FormatException, IOException
+	/**
+	 * Populates the channel minima and maxima from the {@link MinMaxCalculator}s
+	 * of the given readers, each of which has seen a subset of the planes.
+	 */
+	private void populateMinMax(final IFormatReader[] readers,
+		final ImgPlus<?> imgPlus) throws FormatException, IOException
 	{
-		final int sizeC = r.getSizeC();
-		final ReaderWrapper rw = (ReaderWrapper) r;
-		final MinMaxCalculator minMaxCalc =
-			(MinMaxCalculator) rw.unwrap(MinMaxCalculator.class, null);
+		final int sizeC = readers[0].getSizeC();
+		final MinMaxCalculator[] minMaxCalcs =
+			new MinMaxCalculator[readers.length];
+		for (int i = 0; i < readers.length; i++) {
+			final ReaderWrapper rw = (ReaderWrapper) readers[i];
+			minMaxCalcs[i] =
+				(MinMaxCalculator) rw.unwrap(MinMaxCalculator.class, null);
+		}
 		for (int c = 0; c < sizeC; c++) {
-			final Double min = minMaxCalc.getChannelKnownMinimum(c);
-			final Double max = minMaxCalc.getChannelKnownMaximum(c);
-			imgPlus.setChannelMinimum(c, min == null ? Double.NaN : min);
-			imgPlus.setChannelMaximum(c, max == null ? Double.NaN : max);
+			double min = Double.NaN;
+			double max = Double.NaN;
+			for (final MinMaxCalculator minMaxCalc : minMaxCalcs) {
+				final Double readerMin = minMaxCalc.getChannelKnownMinimum(c);
+				final Double readerMax = minMaxCalc.getChannelKnownMaximum(c);
+				if (readerMin != null && (Double.isNaN(min) || readerMin < min)) min =
+					readerMin;
+				if (readerMax != null && (Double.isNaN(max) || readerMax > max)) max =
+					readerMax;
+			}
+			imgPlus.setChannelMinimum(c, min);
+			imgPlus.setChannelMaximum(c, max);
 		}
 	}
 
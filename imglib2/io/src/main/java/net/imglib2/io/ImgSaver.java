@@ -38,8 +38,19 @@ package net.imglib2.io;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import loci.common.services.DependencyException;
 import loci.common.services.ServiceFactory;
@@ -59,6 +70,7 @@ import net.imglib2.img.basictypeaccess.PlanarAccess;
 import net.imglib2.img.planar.PlanarImg;
 import net.imglib2.meta.Axes;
 import net.imglib2.meta.AxisType;
+import net.imglib2.multithreading.SharedThreadPool;
 import net.imglib2.type.NativeType;
 import net.imglib2.type.numeric.RealType;
 import ome.scifio.common.DataTools;
@@ -81,6 +93,10 @@ public class ImgSaver implements StatusReporter {
 
 	private final OMEXMLService omexmlService;
 
+	private int numThreads = 1;
+
+	private ExecutorService asyncExecutor = null;
+
 	// -- Constructor --
 
 	public ImgSaver() {
@@ -220,6 +236,68 @@ public class ImgSaver implements StatusReporter {
 		saveImg(w, img, true);
 	}
 
+	/**
+	 * Saves the image on a background thread. Asynchronous saves of an
+	 * {@link ImgSaver} are performed one after another, in the order in which
+	 * they were requested.
+	 * 
+	 * @return a {@link Future} which completes when the image is written. Its
+	 *         get() method throws an ExecutionException wrapping the
+	 *         {@link ImgIOException} or {@link IncompatibleTypeException} if
+	 *         saving failed.
+	 */
+	public <T extends RealType<T> & NativeType<T>> Future<Void> saveImgAsync(
+		final String id, final Img<T> img)
+	{
+		return saveImgAsync(id, ImgPlus.wrap(img));
+	}
+
+	/**
+	 * Saves the image on a background thread. Asynchronous saves of an
+	 * {@link ImgSaver} are performed one after another, in the order in which
+	 * they were requested.
+	 * 
+	 * @return a {@link Future} which completes when the image is written. Its
+	 *         get() method throws an ExecutionException wrapping the
+	 *         {@link ImgIOException} or {@link IncompatibleTypeException} if
+	 *         saving failed.
+	 */
+	public <T extends RealType<T> & NativeType<T>> Future<Void> saveImgAsync(
+		final String id, final ImgPlus<T> img)
+	{
+		return getAsyncExecutor().submit(new Callable<Void>() {
+
+			@Override
+			public Void call() throws Exception {
+				saveImg(id, img);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Sets the number of threads used for saving. If more than one thread is
+	 * used, planes are converted to bytes on the {@link SharedThreadPool} while
+	 * the calling thread passes the converted planes to the writer, in order.
+	 * The default is a single thread.
+	 */
+	public void setNumThreads(final int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	/**
+	 * Sets the number of threads used for saving to the default parallelism of
+	 * {@link SharedThreadPool}.
+	 */
+	public void setNumThreads() {
+		setNumThreads(SharedThreadPool.getParallelism());
+	}
+
+	/** Gets the number of threads used for saving. */
+	public int getNumThreads() {
+		return numThreads;
+	}
+
 	// -- Utility methods --
 
 	/**
@@ -508,77 +586,166 @@ public class ImgSaver implements StatusReporter {
 			final Class<?> arrayType =
 				planarImg.getPlane(0).getCurrentStorageArray().getClass();
 
-			byte[] plane = null;
-
-			// if we know this image will pass to SCIFIO to be saved,
-			// then delete the old file if it exists
-			if (arrayType == int[].class || arrayType == byte[].class ||
+			if (!(arrayType == int[].class || arrayType == byte[].class ||
 				arrayType == short[].class || arrayType == long[].class ||
-				arrayType == double[].class || arrayType == float[].class)
+				arrayType == double[].class || arrayType == float[].class))
 			{
-				final File f = new File(img.getSource());
-				if (f.exists()) {
-					f.delete();
-					w = initializeWriter(img.getSource(), img);
-					populateMeta(w, img);
+				throw new IncompatibleTypeException(new ImgLibException(),
+					"PlanarImgs of type " + planarImg.getPlane(0).getClass() +
+						" not supported.");
+			}
+
+			// we know this image will pass to SCIFIO to be saved,
+			// so delete the old file if it exists
+			final File f = new File(img.getSource());
+			if (f.exists()) {
+				f.delete();
+				w = initializeWriter(img.getSource(), img);
+				populateMeta(w, img);
+			}
+
+			if (numThreads > 1 && planeCount > 1) {
+				writePlanesPipelined(w, planarImg, planeCount);
+			}
+			else {
+				// iterate over each plane
+				for (int planeIndex = 0; planeIndex < planeCount; planeIndex++) {
+					notifyListeners(new StatusEvent(planeIndex, planeCount,
+						"Saving plane " + (planeIndex + 1) + "/" + planeCount));
+
+					final Object curPlane =
+						planarImg.getPlane(planeIndex).getCurrentStorageArray();
+					saveBytes(w, planeIndex, toBytes(curPlane));
 				}
 			}
+		}
 
-			// iterate over each plane
+		try {
+			w.close();
+		}
+		catch (final IOException e) {
+			throw new ImgIOException(e);
+		}
+	}
+
+	/**
+	 * Writes the planes of the {@link PlanarImg} in order from the calling
+	 * thread, while the following planes are converted to bytes on the
+	 * {@link SharedThreadPool}. At most 2 * numThreads converted planes are
+	 * held in memory.
+	 */
+	private void writePlanesPipelined(final IFormatWriter w,
+		final PlanarImg<?, ?> planarImg, final int planeCount)
+		throws ImgIOException
+	{
+		final ExecutorService executor = SharedThreadPool.getExecutorService();
+		final int window = 2 * numThreads;
+		final ArrayDeque<FutureTask<byte[]>> converted =
+			new ArrayDeque<FutureTask<byte[]>>(window);
+		int nextPlane = 0;
+		try {
 			for (int planeIndex = 0; planeIndex < planeCount; planeIndex++) {
+				// keep the workers busy with the next planes
+				for (; nextPlane < planeCount && nextPlane < planeIndex + window; nextPlane++)
+				{
+					final Object curPlane =
+						planarImg.getPlane(nextPlane).getCurrentStorageArray();
+					final FutureTask<byte[]> task =
+						new FutureTask<byte[]>(new Callable<byte[]>() {
+
+							@Override
+							public byte[] call() {
+								return toBytes(curPlane);
+							}
+						});
+					converted.add(task);
+					try {
+						executor.execute(task);
+					}
+					catch (final RejectedExecutionException e) {
+						// the task is run by this thread below
+					}
+				}
+
 				notifyListeners(new StatusEvent(planeIndex, planeCount,
 					"Saving plane " + (planeIndex + 1) + "/" + planeCount));
 
-				final Object curPlane =
-					planarImg.getPlane(planeIndex).getCurrentStorageArray();
-
-				// Convert current plane if necessary
-				if (arrayType == int[].class) {
-					plane = DataTools.intsToBytes((int[]) curPlane, false);
-				}
-				else if (arrayType == byte[].class) {
-					plane = (byte[]) curPlane;
-				}
-				else if (arrayType == short[].class) {
-					plane = DataTools.shortsToBytes((short[]) curPlane, false);
-				}
-				else if (arrayType == long[].class) {
-					plane = DataTools.longsToBytes((long[]) curPlane, false);
-				}
-				else if (arrayType == double[].class) {
-					plane = DataTools.doublesToBytes((double[]) curPlane, false);
-				}
-				else if (arrayType == float[].class) {
-					plane = DataTools.floatsToBytes((float[]) curPlane, false);
-				}
-				else {
-					throw new IncompatibleTypeException(new ImgLibException(),
-						"PlanarImgs of type " + planarImg.getPlane(0).getClass() +
-							" not supported.");
-				}
-
-				// save bytes
+				// convert in this thread if no worker has started the task yet
+				final FutureTask<byte[]> task = converted.poll();
+				task.run();
+				final byte[] plane;
 				try {
-					w.saveBytes(planeIndex, plane);
+					plane = task.get();
 				}
-				catch (final FormatException e) {
+				catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
 					throw new ImgIOException(e);
 				}
-				catch (final IOException e) {
-					throw new ImgIOException(e);
+				catch (final ExecutionException e) {
+					throw new ImgIOException(e.getCause());
 				}
+				saveBytes(w, planeIndex, plane);
 			}
+		}
+		finally {
+			for (final FutureTask<byte[]> task : converted)
+				task.cancel(false);
+		}
+	}
 
+	/** Converts a plane to big-endian bytes, as required by the writer. */
+	private static byte[] toBytes(final Object curPlane) {
+		if (curPlane instanceof int[]) {
+			return DataTools.intsToBytes((int[]) curPlane, false);
 		}
+		else if (curPlane instanceof short[]) {
+			return DataTools.shortsToBytes((short[]) curPlane, false);
+		}
+		else if (curPlane instanceof long[]) {
+			return DataTools.longsToBytes((long[]) curPlane, false);
+		}
+		else if (curPlane instanceof double[]) {
+			return DataTools.doublesToBytes((double[]) curPlane, false);
+		}
+		else if (curPlane instanceof float[]) {
+			return DataTools.floatsToBytes((float[]) curPlane, false);
+		}
+		return (byte[]) curPlane;
+	}
 
+	private static void saveBytes(final IFormatWriter w, final int planeIndex,
+		final byte[] plane) throws ImgIOException
+	{
 		try {
-			w.close();
+			w.saveBytes(planeIndex, plane);
+		}
+		catch (final FormatException e) {
+			throw new ImgIOException(e);
 		}
 		catch (final IOException e) {
 			throw new ImgIOException(e);
 		}
 	}
 
+	private synchronized ExecutorService getAsyncExecutor() {
+		if (asyncExecutor == null) {
+			final ThreadPoolExecutor executor =
+				new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+						@Override
+						public Thread newThread(final Runnable r) {
+							final Thread thread = new Thread(r, "imglib2-img-saver");
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+			executor.allowCoreThreadTimeOut(true);
+			asyncExecutor = executor;
+		}
+		return asyncExecutor;
+	}
+
 	/**
 	 * Creates a new {@link IFormatWriter} with an unpopulated MetadataStore and
 	 * sets its id to the provided String.
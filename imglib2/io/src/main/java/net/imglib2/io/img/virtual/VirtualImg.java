@@ -42,7 +42,6 @@ import loci.formats.FormatException;
 import loci.formats.FormatTools;
 import loci.formats.IFormatReader;
 import net.imglib2.img.AbstractImg;
-import net.imglib2.img.Img;
 import net.imglib2.img.ImgFactory;
 import net.imglib2.io.ImgIOException;
 import net.imglib2.io.ImgOpener;
@@ -61,6 +60,11 @@ import net.imglib2.type.numeric.real.FloatType;
  * This class supports the ability to open an image and only load data into
  * memory one plane at a time. Data is read only in the sense that though in
  * memory values can be changed the data is never written to disk.
+ * <p>
+ * Decoded planes are kept in a {@link VirtualPlaneCache} of bounded size that
+ * is shared by all accessors of the image and its copies. Planes ahead of the
+ * current one are prefetched on a background thread.
+ * </p>
  * 
  * @author Barry DeZonia
  */
@@ -72,24 +76,32 @@ public class VirtualImg<T extends NativeType<T> & RealType<T>> extends
 	private final IFormatReader reader;
 	private final T type;
 	private final boolean bytesOnly;
+	private final VirtualPlaneCache planeCache;
 
-	// TODO
-	// The reader gets shared among all copy()'s and randomAccess()'s and
-	// cursor()'s, etc. so there might be threading issues. Unless we enforce
-	// that only one user of the reader can be defined. Maybe reader is
-	// already thread safe. Investigate.
+	// NB - The reader gets shared among all copy()'s and randomAccess()'s and
+	// cursor()'s, etc. All planes are read through the shared VirtualPlaneCache
+	// which synchronizes on the reader.
 
 	// Note - this constructor is clumsy and error prone. so we're making it
 	// private and only invoking (always correctly) through the create() method.
 
 	private VirtualImg(final long[] dims, final IFormatReader reader,
-		final T type, final boolean bytesOnly)
+		final T type, final boolean bytesOnly, final long maxCacheBytes,
+		final int numPrefetchPlanes)
+	{
+		this(dims, reader, type, bytesOnly, new VirtualPlaneCache(reader,
+			bytesOnly, numPlanes(dims), maxCacheBytes, numPrefetchPlanes));
+	}
+
+	private VirtualImg(final long[] dims, final IFormatReader reader,
+		final T type, final boolean bytesOnly, final VirtualPlaneCache planeCache)
 	{
 		super(dims);
 		this.dims = dims.clone();
 		this.reader = reader;
 		this.type = type.copy();
 		this.bytesOnly = bytesOnly;
+		this.planeCache = planeCache;
 		checkDimensions();
 	}
 
@@ -107,6 +119,30 @@ public class VirtualImg<T extends NativeType<T> & RealType<T>> extends
 	 */
 	public static VirtualImg<? extends RealType<?>> create(final String fileName,
 		final boolean bytesOnly) throws ImgIOException
+	{
+		return create(fileName, bytesOnly, VirtualPlaneCache.DEFAULT_MAX_BYTES,
+			VirtualPlaneCache.DEFAULT_PREFETCH_PLANES);
+	}
+
+	/**
+	 * Factory method for creating VirtualImgs from file names
+	 * 
+	 * @param fileName - name of the file that contains data of interest
+	 * @param bytesOnly - a boolean that delineates whether data is to be accessed
+	 *          a byte at a time or in the actual backing primitive type one at a
+	 *          time.
+	 * @param maxCacheBytes - the maximum total size in bytes of the decoded
+	 *          planes that are kept in memory. The most recently used plane is
+	 *          always kept.
+	 * @param numPrefetchPlanes - the number of planes to read ahead on a
+	 *          background thread when the planes are traversed in order. 0
+	 *          disables prefetching.
+	 * @return a VirtualImg that gives read only access to data a plane at a time
+	 * @throws ImgIOException
+	 */
+	public static VirtualImg<? extends RealType<?>> create(final String fileName,
+		final boolean bytesOnly, final long maxCacheBytes,
+		final int numPrefetchPlanes) throws ImgIOException
 	{
 		IFormatReader rdr = null;
 		try {
@@ -123,10 +159,12 @@ public class VirtualImg<T extends NativeType<T> & RealType<T>> extends
 
 		if (bytesOnly) {
 			dimensions[0] *= FormatTools.getBytesPerPixel(rdr.getPixelType());
-			return byteTypedVirtualImg(dimensions, rdr);
+			return byteTypedVirtualImg(dimensions, rdr, maxCacheBytes,
+				numPrefetchPlanes);
 		}
 
-		return correctlyTypedVirtualImg(dimensions, rdr);
+		return correctlyTypedVirtualImg(dimensions, rdr, maxCacheBytes,
+			numPrefetchPlanes);
 	}
 
 	@Override
@@ -157,8 +195,8 @@ public class VirtualImg<T extends NativeType<T> & RealType<T>> extends
 	}
 
 	@Override
-	public Img<T> copy() {
-		return new VirtualImg<T>(dims, reader, type, bytesOnly);
+	public VirtualImg<T> copy() {
+		return new VirtualImg<T>(dims, reader, type, bytesOnly, planeCache);
 	}
 
 	public T getType() {
@@ -173,6 +211,14 @@ public class VirtualImg<T extends NativeType<T> & RealType<T>> extends
 		return bytesOnly;
 	}
 
+	/**
+	 * Get the cache of decoded planes, which is shared by all accessors and
+	 * copies of this image.
+	 */
+	public VirtualPlaneCache getPlaneCache() {
+		return planeCache;
+	}
+
 	// -- private helpers --
 
 	private void checkDimensions() {
@@ -183,55 +229,66 @@ public class VirtualImg<T extends NativeType<T> & RealType<T>> extends
 		// mess with dim0. And we setup dims ourself so we know they are correct.
 	}
 
+	private static int numPlanes(final long[] dimensions) {
+		long numPlanes = 1;
+		for (int i = 2; i < dimensions.length; i++)
+			numPlanes *= dimensions[i];
+		return (int) numPlanes;
+	}
+
 	private static VirtualImg<? extends RealType<?>> byteTypedVirtualImg(
-		final long[] dimensions, final IFormatReader rdr)
+		final long[] dimensions, final IFormatReader rdr, final long maxBytes,
+		final int prefetch)
 	{
 		return new VirtualImg<UnsignedByteType>(dimensions, rdr,
-			new UnsignedByteType(), true);
+			new UnsignedByteType(), true, maxBytes, prefetch);
 	}
 
 	private static VirtualImg<? extends RealType<?>> correctlyTypedVirtualImg(
-		final long[] dimensions, final IFormatReader rdr)
+		final long[] dimensions, final IFormatReader rdr, final long maxBytes,
+		final int prefetch)
 	{
 		switch (rdr.getPixelType()) {
 
 			case FormatTools.UINT8:
 
 				return new VirtualImg<UnsignedByteType>(dimensions, rdr,
-					new UnsignedByteType(), false);
+					new UnsignedByteType(), false, maxBytes, prefetch);
 
 			case FormatTools.INT8:
 
-				return new VirtualImg<ByteType>(dimensions, rdr, new ByteType(), false);
+				return new VirtualImg<ByteType>(dimensions, rdr,
+					new ByteType(), false, maxBytes, prefetch);
 
 			case FormatTools.UINT16:
 
 				return new VirtualImg<UnsignedShortType>(dimensions, rdr,
-					new UnsignedShortType(), false);
+					new UnsignedShortType(), false, maxBytes, prefetch);
 
 			case FormatTools.INT16:
 
-				return new VirtualImg<ShortType>(dimensions, rdr, new ShortType(),
-					false);
+				return new VirtualImg<ShortType>(dimensions, rdr,
+					new ShortType(), false, maxBytes, prefetch);
 
 			case FormatTools.UINT32:
 
 				return new VirtualImg<UnsignedIntType>(dimensions, rdr,
-					new UnsignedIntType(), false);
+					new UnsignedIntType(), false, maxBytes, prefetch);
 
 			case FormatTools.INT32:
 
-				return new VirtualImg<IntType>(dimensions, rdr, new IntType(), false);
+				return new VirtualImg<IntType>(dimensions, rdr,
+					new IntType(), false, maxBytes, prefetch);
 
 			case FormatTools.FLOAT:
 
-				return new VirtualImg<FloatType>(dimensions, rdr, new FloatType(),
-					false);
+				return new VirtualImg<FloatType>(dimensions, rdr,
+					new FloatType(), false, maxBytes, prefetch);
 
 			case FormatTools.DOUBLE:
 
-				return new VirtualImg<DoubleType>(dimensions, rdr, new DoubleType(),
-					false);
+				return new VirtualImg<DoubleType>(dimensions, rdr,
+					new DoubleType(), false, maxBytes, prefetch);
 
 				// TODO - add LONG case here when supported by Bio-Formats
 
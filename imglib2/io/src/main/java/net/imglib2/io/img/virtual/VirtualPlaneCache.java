@@ -0,0 +1,309 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.io.img.virtual;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import loci.formats.FormatTools;
+import loci.formats.IFormatReader;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.io.ImgIOUtils;
+import ome.scifio.common.DataTools;
+
+/**
+ * This class holds the decoded planes of a {@link VirtualImg}. It is shared by
+ * all accessors of the image (and its copies), so a plane is read from the
+ * IFormatReader only once while it stays in the cache, no matter how many
+ * {@link VirtualRandomAccess}es or {@link VirtualCursor}s use it.
+ * <p>
+ * Planes are kept in least-recently-used order and evicted when their total
+ * size exceeds a given number of bytes. The most recently used plane is never
+ * evicted. When an accessor steps from one plane to the next (or previous)
+ * one, the following planes in that direction are read on a background
+ * thread.
+ * </p>
+ * <p>
+ * Changes to values of a plane are visible to all accessors while the plane
+ * is cached. They are lost when the plane is evicted.
+ * </p>
+ *
+ * @author ImgLib2 developers
+ */
+public class VirtualPlaneCache {
+
+	/** Default maximum size of the cached planes: 64 MB. */
+	public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+	/** Default number of planes read ahead. */
+	public static final int DEFAULT_PREFETCH_PLANES = 2;
+
+	// -- instance variables --
+
+	private final IFormatReader reader;
+	private final boolean bytesOnly;
+	private final int numPlanes;
+	private final long maxBytes;
+	private final int numPrefetchPlanes;
+
+	/** cached planes in least-recently-used order */
+	private final LinkedHashMap<Integer, Plane> planes =
+		new LinkedHashMap<Integer, Plane>(16, 0.75f, true);
+
+	/** planes that are being read, on demand or by the prefetcher */
+	private final HashMap<Integer, FutureTask<Plane>> pending =
+		new HashMap<Integer, FutureTask<Plane>>();
+
+	private long currentBytes = 0;
+	private long planeBytes = 0;
+	private long numReads = 0;
+	private ThreadPoolExecutor prefetcher = null;
+
+	private static class Plane {
+
+		final ArrayDataAccess<?> data;
+		final long bytes;
+
+		Plane(final ArrayDataAccess<?> data, final long bytes) {
+			this.data = data;
+			this.bytes = bytes;
+		}
+	}
+
+	// -- constructor --
+
+	/**
+	 * Create a cache for the planes of an IFormatReader.
+	 *
+	 * @param reader - the reader to load planes from. All reads from the cache
+	 *          are synchronized on the reader.
+	 * @param bytesOnly - a flag which defines whether planes are passed around as
+	 *          byte[]'s only or as other primitive array types (int[]'s, etc.).
+	 * @param numPlanes - the number of planes of the image.
+	 * @param maxBytes - the maximum total size of cached planes in bytes.
+	 * @param numPrefetchPlanes - the number of planes to read ahead in the
+	 *          direction in which the planes are traversed. 0 disables
+	 *          prefetching.
+	 */
+	public VirtualPlaneCache(final IFormatReader reader,
+		final boolean bytesOnly, final int numPlanes, final long maxBytes,
+		final int numPrefetchPlanes)
+	{
+		this.reader = reader;
+		this.bytesOnly = bytesOnly;
+		this.numPlanes = numPlanes;
+		this.maxBytes = maxBytes;
+		this.numPrefetchPlanes = numPrefetchPlanes;
+	}
+
+	// -- public interface --
+
+	/**
+	 * Get the plane with the given index. It is read from the IFormatReader if it
+	 * is not cached. If the plane is currently being read by another thread, wait
+	 * for it instead of reading it again.
+	 */
+	public ArrayDataAccess<?> getPlane(final int planeNum) {
+		final FutureTask<Plane> task;
+		synchronized (this) {
+			final Plane plane = planes.get(planeNum);
+			if (plane != null) return plane.data;
+			task = pendingTask(planeNum);
+		}
+		// runs the task in this thread unless it was already started
+		task.run();
+		try {
+			return task.get().data;
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalArgumentException("cannot load plane " + planeNum, e);
+		}
+		catch (final ExecutionException e) {
+			throw new IllegalArgumentException("cannot load plane " + planeNum, e
+				.getCause());
+		}
+	}
+
+	/**
+	 * Read the planes following the given plane in the given direction in the
+	 * background, unless they are already cached.
+	 *
+	 * @param planeNum - the index of the plane that was accessed.
+	 * @param direction - +1 to read the planes after planeNum, -1 to read the
+	 *          planes before planeNum.
+	 */
+	public void prefetch(final int planeNum, final int direction) {
+		final int n = numPlanesToPrefetch();
+		for (int i = 1; i <= n; i++) {
+			final int p = planeNum + i * direction;
+			if (p < 0 || p >= numPlanes) return;
+			synchronized (this) {
+				if (planes.containsKey(p) || pending.containsKey(p)) continue;
+				getPrefetcher().execute(pendingTask(p));
+			}
+		}
+	}
+
+	/** Remove all planes from the cache. */
+	public synchronized void clear() {
+		planes.clear();
+		currentBytes = 0;
+	}
+
+	/** Get the total size in bytes of the currently cached planes. */
+	public synchronized long getCurrentBytes() {
+		return currentBytes;
+	}
+
+	/** Get the number of planes that were read from the IFormatReader. */
+	public synchronized long getNumReads() {
+		return numReads;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public int getNumPrefetchPlanes() {
+		return numPrefetchPlanes;
+	}
+
+	// -- private helpers --
+
+	/**
+	 * Get the task that reads the given plane, creating it if necessary. Must be
+	 * called while holding the lock on this cache.
+	 */
+	private FutureTask<Plane> pendingTask(final int planeNum) {
+		FutureTask<Plane> task = pending.get(planeNum);
+		if (task == null) {
+			task = new FutureTask<Plane>(new Callable<Plane>() {
+
+				@Override
+				public Plane call() throws Exception {
+					try {
+						final Plane plane = readPlane(planeNum);
+						synchronized (VirtualPlaneCache.this) {
+							insert(planeNum, plane);
+						}
+						return plane;
+					}
+					finally {
+						synchronized (VirtualPlaneCache.this) {
+							pending.remove(planeNum);
+						}
+					}
+				}
+			});
+			pending.put(planeNum, task);
+		}
+		return task;
+	}
+
+	private Plane readPlane(final int planeNum) throws Exception {
+		final byte[] planeBytes;
+		synchronized (reader) {
+			planeBytes = reader.openBytes(planeNum);
+		}
+		final Object primitivePlane =
+			bytesOnly ? planeBytes : typeConvert(planeBytes);
+		return new Plane(ImgIOUtils.makeArray(primitivePlane), planeBytes.length);
+	}
+
+	private void insert(final int planeNum, final Plane plane) {
+		++numReads;
+		planeBytes = plane.bytes;
+		final Plane old = planes.put(planeNum, plane);
+		if (old != null) currentBytes -= old.bytes;
+		currentBytes += plane.bytes;
+
+		// evict least recently used planes, but keep the new one
+		final Iterator<Map.Entry<Integer, Plane>> it = planes.entrySet().iterator();
+		while (currentBytes > maxBytes && planes.size() > 1) {
+			final Plane evicted = it.next().getValue();
+			it.remove();
+			currentBytes -= evicted.bytes;
+		}
+	}
+
+	/**
+	 * Prefetch no more planes than fit into the cache together with the plane
+	 * that is currently accessed.
+	 */
+	private synchronized int numPlanesToPrefetch() {
+		if (numPrefetchPlanes <= 0 || planeBytes <= 0) return 0;
+		return (int) Math.min(numPrefetchPlanes, maxBytes / planeBytes - 1);
+	}
+
+	private ThreadPoolExecutor getPrefetcher() {
+		if (prefetcher == null) {
+			prefetcher =
+				new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+						@Override
+						public Thread newThread(final Runnable r) {
+							final Thread thread = new Thread(r, "imglib2-virtual-prefetch");
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+			prefetcher.allowCoreThreadTimeOut(true);
+		}
+		return prefetcher;
+	}
+
+	private Object typeConvert(final byte[] bytes) {
+		final int pixelType = reader.getPixelType();
+		final int bytesPerPix = FormatTools.getBytesPerPixel(pixelType);
+		final boolean floating = FormatTools.isFloatingPoint(pixelType);
+
+		return DataTools.makeDataArray(bytes, bytesPerPix, floating, reader
+			.isLittleEndian());
+	}
+
+}
@@ -36,17 +36,17 @@
 
 package net.imglib2.io.img.virtual;
 
-import loci.formats.FormatTools;
 import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
 import net.imglib2.img.planar.PlanarImg;
-import net.imglib2.io.ImgIOUtils;
-import ome.scifio.common.DataTools;
 
 /**
  * This class is responsible for loading one plane of data from an image using
  * an IFormatReader. The loading is done in a virtual fashion with planes loaded
  * when a desired position has not been loaded. The data is loaded into a
- * PlanarImg provided at construction time.
+ * PlanarImg provided at construction time. Planes are obtained from the
+ * {@link VirtualPlaneCache} of the image, which is shared by all loaders of
+ * the image. Stepping to the next (or previous) plane prefetches the following
+ * planes in that direction.
  * 
  * @author Barry DeZonia
  */
@@ -54,11 +54,11 @@ public class VirtualPlaneLoader {
 
 	// -- instance variables --
 
-	private final VirtualImg<?> virtImage;
+	private final VirtualPlaneCache planeCache;
 	private final PlanarImg<?, ? extends ArrayDataAccess<?>> planeImg;
 	private final long[] planeDims;
 	private final long[] planePosLoaded;
-	private final boolean bytesOnly;
+	private int planeNumLoaded = -1;
 
 	// -- constructor --
 
@@ -70,18 +70,20 @@ public class VirtualPlaneLoader {
 	 * @param planeImg - the PlanarImg to load planes into
 	 * @param bytesOnly - a flag which defines whether planes passed around as
 	 *          byte[]'s only or as other primitive array types (int[]'s, etc.).
+	 *          Must match {@link VirtualImg#isByteOnly()}.
 	 */
 	public VirtualPlaneLoader(final VirtualImg<?> image,
 		final PlanarImg<?, ? extends ArrayDataAccess<?>> planeImg,
 		final boolean bytesOnly)
 	{
-		this.virtImage = image;
+		if (bytesOnly != image.isByteOnly()) throw new IllegalArgumentException(
+			"bytesOnly does not match the VirtualImg");
+		this.planeCache = image.getPlaneCache();
 		this.planeImg = planeImg;
 		this.planeDims = new long[image.numDimensions() - 2];
 		for (int i = 0; i < planeDims.length; i++)
 			this.planeDims[i] = image.dimension(i + 2);
 		this.planePosLoaded = new long[planeDims.length];
-		this.bytesOnly = bytesOnly;
 		loadPlane(new long[image.numDimensions()]);
 	}
 
@@ -100,30 +102,21 @@ public class VirtualPlaneLoader {
 	}
 
 	/**
-	 * Always loads the plane that contains the data of the given position.
+	 * Always loads the plane that contains the data of the given position. The
+	 * plane is only read from the VirtualImg if it is not cached.
 	 */
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	public void loadPlane(final long[] pos) {
 		for (int i = 0; i < planePosLoaded.length; i++)
 			planePosLoaded[i] = pos[i + 2];
 		final int planeNum = planeIndex(planeDims, planePosLoaded);
-		byte[] planeBytes = null;
-		try {
-			planeBytes = virtImage.getReader().openBytes(planeNum);
-		}
-		catch (final Exception e) {
-			throw new IllegalArgumentException("cannot load plane " + planeNum);
-		}
-		Object primitivePlane;
-		if (bytesOnly) {
-			primitivePlane = planeBytes;
-		}
-		else { // want type from encoded bytes
-			primitivePlane = typeConvert(planeBytes);
-		}
-		final ArrayDataAccess<?> wrappedPlane =
-			ImgIOUtils.makeArray(primitivePlane);
+		final ArrayDataAccess<?> wrappedPlane = planeCache.getPlane(planeNum);
 		((PlanarImg) planeImg).setPlane(0, wrappedPlane);
+
+		final int step = planeNum - planeNumLoaded;
+		if (planeNumLoaded >= 0 && (step == 1 || step == -1)) planeCache.prefetch(
+			planeNum, step);
+		planeNumLoaded = planeNum;
 	}
 
 	// -- private helpers --
@@ -148,13 +141,4 @@ public class VirtualPlaneLoader {
 		return index;
 	}
 
-	private Object typeConvert(final byte[] bytes) {
-		final int pixelType = virtImage.getReader().getPixelType();
-		final int bytesPerPix = FormatTools.getBytesPerPixel(pixelType);
-		final boolean floating = FormatTools.isFloatingPoint(pixelType);
-
-		return DataTools.makeDataArray(bytes, bytesPerPix, floating, virtImage
-			.getReader().isLittleEndian());
-	}
-
 }
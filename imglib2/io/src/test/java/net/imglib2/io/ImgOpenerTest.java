@@ -0,0 +1,91 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.imglib2.img.ImgPlus;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import ome.scifio.common.StatusEvent;
+import ome.scifio.common.StatusListener;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ImgOpener}.
+ *
+ * @author ImgLib2 developers
+ */
+public class ImgOpenerTest {
+
+	@Test
+	public void testParallelPlanar() throws Exception {
+		final ImgOpener opener = new ImgOpener();
+		opener.setNumThreads(3);
+		final AtomicInteger planesRead = new AtomicInteger();
+		opener.addStatusListener(new StatusListener() {
+
+			@Override
+			public void statusUpdated(final StatusEvent e) {
+				if (e.getStatusMessage().startsWith("Read plane")) planesRead
+					.incrementAndGet();
+			}
+		});
+		final ImgPlus<UnsignedShortType> img =
+			opener.openImg(TestImage.ID,
+				new PlanarImgFactory<UnsignedShortType>(), new UnsignedShortType());
+		assertEquals(10, planesRead.get());
+		TestImage.assertTestImage(img);
+	}
+
+	@Test
+	public void testParallelCell() throws Exception {
+		final ImgOpener opener = new ImgOpener();
+		opener.setNumThreads(4);
+		final ImgPlus<UnsignedShortType> img =
+			opener.openImg(TestImage.ID,
+				new CellImgFactory<UnsignedShortType>(7), new UnsignedShortType(), true);
+		TestImage.assertTestImage(img);
+		assertEquals(0, img.getChannelMinimum(0), 0);
+		assertEquals(TestImage.value(19, 29, 9), img.getChannelMaximum(0), 0);
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.io;
+
+import static org.junit.Assert.assertEquals;
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.ImgPlus;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+
+/**
+ * The 20x30x10 test image shared by the I/O tests, which has the value
+ * x + 2y + 3z at (x, y, z).
+ *
+ * @author ImgLib2 developers
+ */
+final class TestImage {
+
+	/** The file name of the test image. */
+	public static final String ID = TestImage.class.getResource(
+		"img/virtual/TestImage.tif").getFile();
+
+	private TestImage() {
+		// utility class
+	}
+
+	/** Gets the expected value of the test image at (x, y, z). */
+	public static long value(final long x, final long y, final long z) {
+		return x + 2 * y + 3 * z;
+	}
+
+	/**
+	 * Checks the dimensions of the given image and its values, both by
+	 * iterating and by random access.
+	 */
+	public static void assertTestImage(final ImgPlus<UnsignedShortType> img) {
+		assertEquals(3, img.numDimensions());
+		assertEquals(20, img.dimension(0));
+		assertEquals(30, img.dimension(1));
+		assertEquals(10, img.dimension(2));
+		final Cursor<UnsignedShortType> c = img.localizingCursor();
+		final RandomAccess<UnsignedShortType> a = img.randomAccess();
+		while (c.hasNext()) {
+			c.fwd();
+			a.setPosition(c);
+			final long expected =
+				value(c.getLongPosition(0), c.getLongPosition(1), c
+					.getLongPosition(2));
+			assertEquals(expected, c.get().get());
+			assertEquals(expected, a.get().get());
+		}
+	}
+
+}
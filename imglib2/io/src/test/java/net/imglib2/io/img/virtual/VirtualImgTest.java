@@ -144,4 +144,50 @@ public class VirtualImgTest {
 		assertNotNull(accessor.getCurrentPlane());
 	}
 
+	@Test
+	public void testPlaneCache() {
+
+		// open image with room for three 20x30 planes of 16-bit data
+
+		VirtualImg<?> image = null;
+		try {
+			final URL fileURL = getClass().getResource("TestImage.tif");
+			image = VirtualImg.create(fileURL.getFile(), false, 3 * 20 * 30 * 2, 1);
+		}
+		catch (final Exception e) {
+			throw new IllegalArgumentException(e.getMessage());
+		}
+		assertNotNull(image);
+		final VirtualPlaneCache cache = image.getPlaneCache();
+
+		// alternating between two planes with two accessors reads each plane once
+
+		final VirtualRandomAccess<? extends RealType<?>> a1 = image.randomAccess();
+		final VirtualRandomAccess<? extends RealType<?>> a2 =
+			image.copy().randomAccess();
+		final long[] pos = new long[3];
+		for (int i = 0; i < 20; i++) {
+			pos[0] = i;
+			pos[1] = 2 * i;
+			pos[2] = (i % 2 == 0) ? 0 : 9;
+			a1.setPosition(pos);
+			assertEquals(i + 4 * i + 3 * pos[2], a1.get().getRealDouble(), 0);
+			pos[2] = 9 - pos[2];
+			a2.setPosition(pos);
+			assertEquals(i + 4 * i + 3 * pos[2], a2.get().getRealDouble(), 0);
+		}
+		assertEquals(2, cache.getNumReads());
+
+		// scanning all planes keeps the cache bounded
+
+		final VirtualCursor<? extends RealType<?>> cursor = image.cursor();
+		while (cursor.hasNext()) {
+			cursor.fwd();
+			cursor.localize(pos);
+			assertEquals(pos[0] + 2 * pos[1] + 3 * pos[2], cursor.get()
+				.getRealDouble(), 0);
+		}
+		assertTrue(cache.getCurrentBytes() <= cache.getMaxBytes());
+	}
+
 }
@@ -36,12 +36,20 @@
 
 package net.imglib2.ops.operation.iterableinterval.unary;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
+import net.imglib2.IterableInterval;
+import net.imglib2.multithreading.SharedThreadPool;
+import net.imglib2.multithreading.SimpleMultiThreading;
 import net.imglib2.ops.operation.UnaryOutputOperation;
 import net.imglib2.type.numeric.RealType;
 
 /**
+ * Computes the histogram of the values. Large {@link IterableInterval}s are
+ * split into parts that are counted by several threads into partial
+ * histograms, which are then merged.
  * 
  * @author Felix Schoenenberger (University of Konstanz)
  *
@@ -50,16 +58,27 @@ import net.imglib2.type.numeric.RealType;
 public final class MakeHistogram< T extends RealType< T >> implements UnaryOutputOperation< Iterable< T >, OpsHistogram >
 {
 
+	// smaller inputs are counted by a single thread
+	private static final long MIN_PARALLEL_SIZE = 1 << 16;
+
 	int m_numBins = 0;
 
+	int m_numThreads;
+
 	public MakeHistogram()
 	{
 		this( -1 );
 	}
 
 	public MakeHistogram( int numBins )
+	{
+		this( numBins, SharedThreadPool.getParallelism() );
+	}
+
+	public MakeHistogram( int numBins, int numThreads )
 	{
 		m_numBins = numBins;
+		m_numThreads = Math.max( 1, numThreads );
 	}
 
 	@Override
@@ -69,18 +88,53 @@ public final class MakeHistogram< T extends RealType< T >> implements UnaryOutpu
 	}
 
 	@Override
-	public final OpsHistogram compute( Iterable< T > op, OpsHistogram r )
+	public final OpsHistogram compute( Iterable< T > op, final OpsHistogram r )
 	{
-		final Iterator< T > it = op.iterator();
 		r.clear();
-		while ( it.hasNext() )
+
+		if ( m_numThreads > 1 && op instanceof IterableInterval && ( ( IterableInterval< T > ) op ).size() >= MIN_PARALLEL_SIZE )
 		{
-			r.incByValue( it.next().getRealDouble() );
+			final List< IterableInterval< T > > parts = SimpleMultiThreading.split( ( IterableInterval< T > ) op, m_numThreads );
+			final OpsHistogram[] partials = new OpsHistogram[ parts.size() ];
+			final ArrayList< Runnable > tasks = new ArrayList< Runnable >( parts.size() );
+
+			for ( int i = 0; i < parts.size(); i++ )
+			{
+				final int part = i;
+				tasks.add( new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						partials[ part ] = new OpsHistogram( r.numBins(), r.min(), r.max() );
+						count( parts.get( part ).iterator(), partials[ part ] );
+					}
+				} );
+			}
+
+			SharedThreadPool.invokeAll( tasks, m_numThreads );
+
+			for ( final OpsHistogram partial : partials )
+			{
+				r.add( partial );
+			}
+		}
+		else
+		{
+			count( op.iterator(), r );
 		}
 
 		return r;
 	}
 
+	private static < T extends RealType< T >> void count( final Iterator< T > it, final OpsHistogram r )
+	{
+		while ( it.hasNext() )
+		{
+			r.incByValue( it.next().getRealDouble() );
+		}
+	}
+
 	@Override
 	public OpsHistogram compute( Iterable< T > op )
 	{
@@ -90,6 +144,6 @@ public final class MakeHistogram< T extends RealType< T >> implements UnaryOutpu
 	@Override
 	public UnaryOutputOperation< Iterable< T >, OpsHistogram > copy()
 	{
-		return new MakeHistogram< T >( m_numBins );
+		return new MakeHistogram< T >( m_numBins, m_numThreads );
 	}
 }
@@ -130,6 +130,31 @@ public final class OpsHistogram
 		inc( valueToBin( v ) );
 	}
 
+	public final void dec( final int i )
+	{
+		--m_hist[ i ];
+	}
+
+	public final void decByValue( final double v )
+	{
+		dec( valueToBin( v ) );
+	}
+
+	/**
+	 * Adds the counts of another histogram with the same bins, e.g. a partial
+	 * histogram computed by another thread.
+	 */
+	public final void add( final OpsHistogram other )
+	{
+		if ( other.m_bins != m_bins || other.m_min != m_min || other.m_max != m_max )
+			throw new IllegalArgumentException( "Cannot merge histograms with different bins." );
+
+		for ( int i = 0; i < m_hist.length; i++ )
+		{
+			m_hist[ i ] += other.m_hist[ i ];
+		}
+	}
+
 	public final int valueToBin( final double v )
 	{
 		return ( int ) ( ( v - m_min ) * m_scale );
@@ -0,0 +1,114 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.ops.operation.iterableinterval.unary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+
+import org.junit.Test;
+
+/**
+ * Checks that {@link MakeHistogram} counts the same histogram with several
+ * threads as with one, and the counting and merging of {@link OpsHistogram}.
+ * 
+ * @author ImgLib2 developers
+ */
+public class MakeHistogramTest
+{
+
+	@Test
+	public void testParallelEqualsSingleThreaded()
+	{
+		// large enough to be split into parts, with cells that do not divide it
+		final Img< UnsignedByteType > img = new CellImgFactory< UnsignedByteType >( 37 ).create( new long[] { 301, 257 }, new UnsignedByteType() );
+		final Random random = new Random( 0 );
+		for ( final UnsignedByteType t : img )
+			t.set( random.nextInt( 256 ) );
+
+		final OpsHistogram expected = new MakeHistogram< UnsignedByteType >( 256, 1 ).compute( img );
+		int total = 0;
+		for ( final int count : expected.hist() )
+			total += count;
+		assertEquals( img.size(), total );
+
+		for ( final int numThreads : new int[] { 2, 3, 8 } )
+		{
+			final MakeHistogram< UnsignedByteType > op = new MakeHistogram< UnsignedByteType >( 256, numThreads );
+			assertArrayEquals( expected.hist(), op.compute( img ).hist() );
+
+			// computing into a used histogram clears it first
+			final OpsHistogram r = op.createEmptyOutput( img );
+			op.compute( img, r );
+			assertArrayEquals( expected.hist(), op.compute( img, r ).hist() );
+		}
+	}
+
+	@Test
+	public void testAddAndDec()
+	{
+		final OpsHistogram a = new OpsHistogram( 4, 0, 3 );
+		a.incByValue( 0 );
+		a.incByValue( 2 );
+		a.incByValue( 2 );
+		a.inc( 3 );
+
+		final OpsHistogram b = new OpsHistogram( 4, 0, 3 );
+		b.incByValue( 1 );
+		b.incByValue( 2 );
+
+		a.add( b );
+		assertArrayEquals( new int[] { 1, 1, 3, 1 }, a.hist() );
+		assertArrayEquals( new int[] { 0, 1, 1, 0 }, b.hist() );
+
+		a.dec( 0 );
+		a.decByValue( 2 );
+		assertArrayEquals( new int[] { 0, 1, 2, 1 }, a.hist() );
+		assertEquals( 2, a.getByValue( 2 ) );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testAddDifferentBins()
+	{
+		new OpsHistogram( 4, 0, 3 ).add( new OpsHistogram( 5, 0, 3 ) );
+	}
+}
@@ -39,7 +39,6 @@ package net.imglib2.realtransform;
 import net.imglib2.Interval;
 import net.imglib2.Localizable;
 import net.imglib2.RealInterval;
-import net.imglib2.RealLocalizable;
 import net.imglib2.RealRandomAccess;
 import net.imglib2.RealRandomAccessible;
 
@@ -57,33 +56,57 @@ public class AffineRandomAccessible< T, R extends AffineGet > extends RealTransf
 	 * {@link RealRandomAccessible} at coordinates transformed by a
 	 * {@link RealTransform}.
 	 *
+	 * Relative moves are applied incrementally: {@link #fwd(int)} adds the
+	 * step vector of the dimension to the target position, without
+	 * transforming the position again. The step vectors are read from the
+	 * transform whenever the access is positioned absolutely, so changes of
+	 * the transform take effect at the next absolute positioning.
 	 */
 	public class AffineRandomAccess extends RealTransformRandomAccessible< T, R >.RealTransformRandomAccess
 	{
 		final double[] move = new double[ n ];
+
+		/**
+		 * For every source dimension, the step in target coordinates.
+		 */
+		final protected double[][] steps = new double[ n ][ n ];
 		
 		protected AffineRandomAccess()
 		{
 			super();
+			applyTransform();
 		}
 
 		protected AffineRandomAccess( final AffineRandomAccess a )
 		{
 			super( a );
+			for ( int d = 0; d < n; ++d )
+				System.arraycopy( a.steps[ d ], 0, steps[ d ], 0, n );
+		}
+
+		/**
+		 * Read the step vectors from the transform and set the target
+		 * position to the transformed position.
+		 */
+		protected void applyTransform()
+		{
+			for ( int d = 0; d < n; ++d )
+				transform.d( d ).localize( steps[ d ] );
+			apply();
 		}
 
 		protected void scaleMove( final double distance, final int d )
 		{
-			final RealLocalizable dd = transform.d( d );
+			final double[] dd = steps[ d ];
 			for ( int ddd = 0; ddd < n; ++ddd )
-				move[ ddd ] = distance * dd.getDoublePosition( ddd );
+				move[ ddd ] = distance * dd[ ddd ];
 		}
 		
 		@Override
 		public void fwd( final int d )
 		{
 			super.fwd( d );
-			targetAccess.move( transform.d( d ) );
+			targetAccess.move( steps[ d ] );
 		}
 
 		@Override
@@ -112,35 +135,35 @@ public class AffineRandomAccessible< T, R extends AffineGet > extends RealTransf
 		public void move( final Localizable localizable )
 		{
 			super.move( localizable );
-			apply();
+			applyTransform();
 		}
 
 		@Override
 		public void move( final int[] distance )
 		{
 			super.move( distance );
-			apply();
+			applyTransform();
 		}
 
 		@Override
 		public void move( final long[] distance )
 		{
 			super.move( distance );
-			apply();
+			applyTransform();
 		}
 
 		@Override
 		public void setPosition( final int[] pos )
 		{
 			super.setPosition( pos );
-			apply();
+			applyTransform();
 		}
 
 		@Override
 		public void setPosition( final long[] pos )
 		{
 			super.setPosition( pos );
-			apply();
+			applyTransform();
 		}
 
 		@Override
@@ -160,7 +183,7 @@ public class AffineRandomAccessible< T, R extends AffineGet > extends RealTransf
 		public void setPosition( final Localizable localizable )
 		{
 			localizable.localize( position );
-			apply();
+			applyTransform();
 		}
 
 		@Override
@@ -0,0 +1,369 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.realtransform;
+
+import java.util.ArrayList;
+
+import net.imglib2.EuclideanSpace;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealRandomAccess;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.interpolation.Interpolant;
+import net.imglib2.interpolation.InterpolatorFactory;
+import net.imglib2.interpolation.randomaccess.NLinearInterpolatorFactory;
+import net.imglib2.interpolation.randomaccess.NearestNeighborInterpolatorFactory;
+import net.imglib2.multithreading.SharedThreadPool;
+import net.imglib2.position.transform.Floor;
+import net.imglib2.position.transform.Round;
+import net.imglib2.type.Type;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * Resample a {@link RealRandomAccessible} transformed by an {@link AffineGet}
+ * into a {@link RandomAccessibleInterval}. The result is the same as copying
+ * {@link RealViews#affine(RealRandomAccessible, AffineGet)} into the target
+ * (except for n-linear interpolation of integer types, see below), but the
+ * target is written line by line along dimension 0, in blocks that are
+ * processed in parallel. Along a line, the source position is advanced by
+ * adding the precomputed step vector.
+ *
+ * For an {@link Interpolant} with nearest neighbor interpolation, and for an
+ * {@link Interpolant} with n-linear interpolation of a 3D {@link RealType}
+ * source, the interpolator is bypassed and the pixels of the interpolated
+ * {@link RandomAccessible} are read directly. The n-linear fast path computes
+ * the weighted sum in double precision and rounds only the result to the
+ * target type. The n-linear interpolator instead computes in the pixel type,
+ * which for integer types rounds each of the eight weighted samples, so its
+ * result may be off by several units. The fast path gives the exact
+ * interpolation in that case; for floating point types both agree up to
+ * floating point rounding.
+ *
+ * @author ImgLib2 developers
+ */
+public class AffineResampler
+{
+	/**
+	 * Resample using the threads of the {@link SharedThreadPool}.
+	 *
+	 * @param source
+	 *            the source.
+	 * @param affine
+	 *            transformation from source to target coordinates.
+	 * @param target
+	 *            the target, every pixel of which is written.
+	 */
+	public static < T extends Type< T > > void resample( final RealRandomAccessible< T > source, final AffineGet affine, final RandomAccessibleInterval< T > target )
+	{
+		resample( source, affine, target, SharedThreadPool.getParallelism() );
+	}
+
+	/**
+	 * @param source
+	 *            the source.
+	 * @param affine
+	 *            transformation from source to target coordinates.
+	 * @param target
+	 *            the target, every pixel of which is written.
+	 * @param numThreads
+	 *            how many threads to use for the resampling.
+	 */
+	public static < T extends Type< T > > void resample( final RealRandomAccessible< T > source, final AffineGet affine, final RandomAccessibleInterval< T > target, final int numThreads )
+	{
+		final int n = target.numDimensions();
+		if ( source.numDimensions() != n || affine.numSourceDimensions() != n || affine.numTargetDimensions() != n )
+			throw new IllegalArgumentException( "AffineResampler.resample(): source, affine, and target must have the same number of dimensions." );
+
+		// target to source: position = matrix * x + translation
+		final AffineGet inverse = affine.inverseAffine();
+		final double[][] matrix = new double[ n ][ n + 1 ];
+		for ( int r = 0; r < n; ++r )
+			for ( int c = 0; c <= n; ++c )
+				matrix[ r ][ c ] = inverse.get( r, c );
+		final double[] step = new double[ n ];
+		for ( int r = 0; r < n; ++r )
+			step[ r ] = matrix[ r ][ 0 ];
+
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		target.min( min );
+		target.max( max );
+
+		// split the outermost dimension into blocks
+		final int splitDimension = n - 1;
+		final long extent = max[ splitDimension ] - min[ splitDimension ] + 1;
+		final int numBlocks = splitDimension == 0 ? 1 : ( int ) Math.min( extent, 4l * numThreads );
+
+		final ArrayList< Runnable > tasks = new ArrayList< Runnable >( numBlocks );
+		for ( int b = 0; b < numBlocks; ++b )
+		{
+			final long[] blockMin = min.clone();
+			final long[] blockMax = max.clone();
+			if ( numBlocks > 1 )
+			{
+				blockMin[ splitDimension ] = min[ splitDimension ] + extent * b / numBlocks;
+				blockMax[ splitDimension ] = min[ splitDimension ] + extent * ( b + 1 ) / numBlocks - 1;
+			}
+			tasks.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					resampleBlock( source, matrix, step, target, blockMin, blockMax );
+				}
+			} );
+		}
+		SharedThreadPool.invokeAll( tasks, numThreads );
+	}
+
+	private static < T extends Type< T > > void resampleBlock( final RealRandomAccessible< T > source, final double[][] matrix, final double[] step, final RandomAccessibleInterval< T > target, final long[] min, final long[] max )
+	{
+		final int n = min.length;
+		final RandomAccess< T > targetAccess = target.randomAccess();
+		final LineSampler< T > sampler = createLineSampler( source, step, targetAccess );
+
+		final long lineLength = max[ 0 ] - min[ 0 ] + 1;
+		final long[] lineStart = min.clone();
+		final double[] sourceStart = new double[ n ];
+		while ( true )
+		{
+			for ( int r = 0; r < n; ++r )
+			{
+				double s = matrix[ r ][ n ];
+				for ( int c = 0; c < n; ++c )
+					s += matrix[ r ][ c ] * lineStart[ c ];
+				sourceStart[ r ] = s;
+			}
+			targetAccess.setPosition( lineStart );
+			sampler.sampleLine( sourceStart, lineLength );
+
+			// next line
+			int d = 1;
+			for ( ; d < n; ++d )
+			{
+				if ( ++lineStart[ d ] <= max[ d ] )
+					break;
+				lineStart[ d ] = min[ d ];
+			}
+			if ( d >= n )
+				break;
+		}
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	private static < T extends Type< T > > LineSampler< T > createLineSampler( final RealRandomAccessible< T > source, final double[] step, final RandomAccess< T > targetAccess )
+	{
+		if ( source instanceof Interpolant )
+		{
+			final Interpolant< T, ? > interpolant = ( Interpolant< T, ? > ) source;
+			final EuclideanSpace interpolated = interpolant.getSource();
+			final InterpolatorFactory< T, ? > factory = interpolant.getInterpolatorFactory();
+			if ( interpolated instanceof RandomAccessible )
+			{
+				final RandomAccessible< T > pixels = ( RandomAccessible< T > ) interpolated;
+				if ( factory instanceof NearestNeighborInterpolatorFactory )
+					return new NearestNeighborLineSampler< T >( pixels, step, targetAccess );
+				if ( factory instanceof NLinearInterpolatorFactory && pixels.numDimensions() == 3 && targetAccess.get() instanceof RealType )
+					return new NLinear3DLineSampler( pixels, step, targetAccess );
+			}
+		}
+		return new InterpolatorLineSampler< T >( source, step, targetAccess );
+	}
+
+	/**
+	 * Writes one line of the target, starting at the current position of the
+	 * target access.
+	 */
+	private static interface LineSampler< T >
+	{
+		public void sampleLine( double[] sourceStart, long length );
+	}
+
+	private static class InterpolatorLineSampler< T extends Type< T > > implements LineSampler< T >
+	{
+		final RealRandomAccess< T > sourceAccess;
+
+		final double[] step;
+
+		final RandomAccess< T > targetAccess;
+
+		public InterpolatorLineSampler( final RealRandomAccessible< T > source, final double[] step, final RandomAccess< T > targetAccess )
+		{
+			this.sourceAccess = source.realRandomAccess();
+			this.step = step;
+			this.targetAccess = targetAccess;
+		}
+
+		@Override
+		public void sampleLine( final double[] sourceStart, final long length )
+		{
+			sourceAccess.setPosition( sourceStart );
+			for ( long x = 0; x < length; ++x )
+			{
+				targetAccess.get().set( sourceAccess.get() );
+				sourceAccess.move( step );
+				targetAccess.fwd( 0 );
+			}
+		}
+	}
+
+	private static class NearestNeighborLineSampler< T extends Type< T > > implements LineSampler< T >
+	{
+		final RandomAccess< T > sourceAccess;
+
+		final double[] step;
+
+		final RandomAccess< T > targetAccess;
+
+		final double[] position;
+
+		final long[] discrete;
+
+		public NearestNeighborLineSampler( final RandomAccessible< T > source, final double[] step, final RandomAccess< T > targetAccess )
+		{
+			this.sourceAccess = source.randomAccess();
+			this.step = step;
+			this.targetAccess = targetAccess;
+			position = new double[ step.length ];
+			discrete = new long[ step.length ];
+		}
+
+		@Override
+		public void sampleLine( final double[] sourceStart, final long length )
+		{
+			final int n = position.length;
+			for ( int d = 0; d < n; ++d )
+			{
+				position[ d ] = sourceStart[ d ];
+				discrete[ d ] = Round.round( position[ d ] );
+			}
+			sourceAccess.setPosition( discrete );
+			for ( long x = 0; x < length; ++x )
+			{
+				targetAccess.get().set( sourceAccess.get() );
+				targetAccess.fwd( 0 );
+				for ( int d = 0; d < n; ++d )
+				{
+					position[ d ] += step[ d ];
+					final long p = Round.round( position[ d ] );
+					if ( p != discrete[ d ] )
+					{
+						discrete[ d ] = p;
+						sourceAccess.setPosition( p, d );
+					}
+				}
+			}
+		}
+	}
+
+	private static class NLinear3DLineSampler< S extends RealType< S >, T extends RealType< T > > implements LineSampler< T >
+	{
+		final RandomAccess< S > sourceAccess;
+
+		final double[] step;
+
+		final RandomAccess< T > targetAccess;
+
+		final double[] position = new double[ 3 ];
+
+		final long[] discrete = new long[ 3 ];
+
+		public NLinear3DLineSampler( final RandomAccessible< S > source, final double[] step, final RandomAccess< T > targetAccess )
+		{
+			this.sourceAccess = source.randomAccess();
+			this.step = step;
+			this.targetAccess = targetAccess;
+		}
+
+		@Override
+		public void sampleLine( final double[] sourceStart, final long length )
+		{
+			for ( int d = 0; d < 3; ++d )
+			{
+				position[ d ] = sourceStart[ d ];
+				discrete[ d ] = Floor.floor( position[ d ] );
+			}
+			sourceAccess.setPosition( discrete );
+			final RandomAccess< S > a = sourceAccess;
+			for ( long x = 0; x < length; ++x )
+			{
+				final double w0 = position[ 0 ] - discrete[ 0 ];
+				final double w1 = position[ 1 ] - discrete[ 1 ];
+				final double w2 = position[ 2 ] - discrete[ 2 ];
+
+				// same visiting order as NLinearInterpolator3D
+				final double v000 = a.get().getRealDouble();
+				a.fwd( 0 );
+				final double v100 = a.get().getRealDouble();
+				a.fwd( 1 );
+				final double v110 = a.get().getRealDouble();
+				a.bck( 0 );
+				final double v010 = a.get().getRealDouble();
+				a.fwd( 2 );
+				final double v011 = a.get().getRealDouble();
+				a.fwd( 0 );
+				final double v111 = a.get().getRealDouble();
+				a.bck( 1 );
+				final double v101 = a.get().getRealDouble();
+				a.bck( 0 );
+				final double v001 = a.get().getRealDouble();
+				a.bck( 2 );
+
+				final double v00 = v000 + w0 * ( v100 - v000 );
+				final double v10 = v010 + w0 * ( v110 - v010 );
+				final double v01 = v001 + w0 * ( v101 - v001 );
+				final double v11 = v011 + w0 * ( v111 - v011 );
+				final double v0 = v00 + w1 * ( v10 - v00 );
+				final double v1 = v01 + w1 * ( v11 - v01 );
+				targetAccess.get().setReal( v0 + w2 * ( v1 - v0 ) );
+				targetAccess.fwd( 0 );
+
+				for ( int d = 0; d < 3; ++d )
+				{
+					position[ d ] += step[ d ];
+					final long p = Floor.floor( position[ d ] );
+					if ( p != discrete[ d ] )
+					{
+						a.move( p - discrete[ d ], d );
+						discrete[ d ] = p;
+					}
+				}
+			}
+		}
+	}
+}
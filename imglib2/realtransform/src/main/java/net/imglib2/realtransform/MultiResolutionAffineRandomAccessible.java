@@ -0,0 +1,121 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.realtransform;
+
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.interpolation.Interpolant;
+import net.imglib2.interpolation.InterpolatorFactory;
+import net.imglib2.outofbounds.OutOfBoundsFactory;
+import net.imglib2.view.Views;
+
+/**
+ * A {@link MultiResolutionRandomAccessible} seen through an affine
+ * transformation. Every {@link RandomAccess} samples the
+ * {@link MultiResolutionRandomAccessible#getBestLevel(AffineGet) best level}
+ * for the state of the transformation at the time it is created, so changing
+ * the transformation (e.g. zooming out in a viewer) takes effect for the next
+ * {@link #randomAccess()}.
+ *
+ * @author ImgLib2 developers
+ */
+public class MultiResolutionAffineRandomAccessible< T > implements RandomAccessible< T >
+{
+	final protected MultiResolutionRandomAccessible< T > source;
+
+	final protected InterpolatorFactory< T, RandomAccessible< T > > interpolatorFactory;
+
+	final protected OutOfBoundsFactory< T, ? super RandomAccessibleInterval< T > > outOfBoundsFactory;
+
+	/**
+	 * Transformation from level 0 of {@link #source} to this.
+	 */
+	final protected AffineGet sourceToTarget;
+
+	/**
+	 * @param source
+	 *            the multi-resolution image.
+	 * @param interpolatorFactory
+	 *            interpolation within a level.
+	 * @param outOfBoundsFactory
+	 *            how levels are extended beyond their interval.
+	 * @param sourceToTarget
+	 *            transformation from level 0 of source to this, which is
+	 *            evaluated whenever a {@link RandomAccess} is created.
+	 */
+	public MultiResolutionAffineRandomAccessible( final MultiResolutionRandomAccessible< T > source, final InterpolatorFactory< T, RandomAccessible< T > > interpolatorFactory, final OutOfBoundsFactory< T, ? super RandomAccessibleInterval< T > > outOfBoundsFactory, final AffineGet sourceToTarget )
+	{
+		this.source = source;
+		this.interpolatorFactory = interpolatorFactory;
+		this.outOfBoundsFactory = outOfBoundsFactory;
+		this.sourceToTarget = sourceToTarget;
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return sourceToTarget.numTargetDimensions();
+	}
+
+	/**
+	 * Get the level that a {@link RandomAccess} created now would sample.
+	 */
+	public int getCurrentLevel()
+	{
+		return source.getBestLevel( sourceToTarget );
+	}
+
+	@Override
+	public RandomAccess< T > randomAccess()
+	{
+		final int level = getCurrentLevel();
+		final AffineTransform levelToTarget = new AffineTransform( source.numDimensions() );
+		levelToTarget.set( sourceToTarget );
+		levelToTarget.concatenate( source.getLevelTransform( level ) );
+		final RandomAccessible< T > extended = Views.extend( source.getLevel( level ), outOfBoundsFactory );
+		final Interpolant< T, RandomAccessible< T > > interpolant = new Interpolant< T, RandomAccessible< T > >( extended, interpolatorFactory );
+		return new AffineRandomAccessible< T, AffineGet >( interpolant, levelToTarget.inverse() ).randomAccess();
+	}
+
+	@Override
+	public RandomAccess< T > randomAccess( final Interval interval )
+	{
+		return randomAccess();
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.realtransform;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.EuclideanSpace;
+import net.imglib2.RandomAccessibleInterval;
+
+/**
+ * An image available at several resolutions. Level 0 is the full resolution,
+ * every following level is downsampled from it by (usually increasing)
+ * factors.
+ *
+ * <p>
+ * Level pixel x corresponds to the full resolution block [f*x, f*x+f-1]
+ * (relative to the minima of the level and the full resolution image), that
+ * is, its center lies at f*x+(f-1)/2. This is how
+ * <code>net.imglib2.algorithm.pyramid.Pyramid</code> computes its levels.
+ * </p>
+ *
+ * <p>
+ * Consumers that sample the image through an affine transform use
+ * {@link #getBestLevel(AffineGet)} to choose the coarsest level that does not
+ * lose resolution on the target, and {@link #getLevelTransform(int)} to map
+ * that level to full resolution coordinates, see
+ * {@link RealViews#affine(MultiResolutionRandomAccessible, net.imglib2.interpolation.InterpolatorFactory, net.imglib2.outofbounds.OutOfBoundsFactory, AffineGet)}.
+ * </p>
+ *
+ * @author ImgLib2 developers
+ */
+public class MultiResolutionRandomAccessible< T > implements EuclideanSpace
+{
+	final protected int n;
+
+	final protected List< RandomAccessibleInterval< T > > levels;
+
+	/**
+	 * Downsampling factors of each level relative to level 0.
+	 */
+	final protected double[][] factors;
+
+	/**
+	 * Transformations from each level to level 0.
+	 */
+	final protected AffineTransform[] levelTransforms;
+
+	/**
+	 * @param levels
+	 *            the image at every resolution, starting with the full
+	 *            resolution.
+	 * @param factors
+	 *            downsampling factors of every level relative to level 0 in
+	 *            every dimension, factors[0] should be all 1.
+	 */
+	public MultiResolutionRandomAccessible( final List< ? extends RandomAccessibleInterval< T > > levels, final double[][] factors )
+	{
+		if ( levels.isEmpty() )
+			throw new IllegalArgumentException( "need at least one level" );
+		if ( factors.length != levels.size() )
+			throw new IllegalArgumentException( "Expected " + levels.size() + " downsampling factors but got " + factors.length );
+
+		this.levels = new ArrayList< RandomAccessibleInterval< T > >( levels );
+		n = this.levels.get( 0 ).numDimensions();
+		this.factors = new double[ factors.length ][];
+		levelTransforms = new AffineTransform[ factors.length ];
+		final RandomAccessibleInterval< T > full = this.levels.get( 0 );
+		for ( int l = 0; l < factors.length; ++l )
+		{
+			this.factors[ l ] = factors[ l ].clone();
+			final RandomAccessibleInterval< T > level = this.levels.get( l );
+			final AffineTransform t = new AffineTransform( n );
+			for ( int d = 0; d < n; ++d )
+			{
+				final double f = factors[ l ][ d ];
+				t.set( f, d, d );
+				t.set( full.min( d ) - f * level.min( d ) + 0.5 * ( f - 1 ), d, n );
+			}
+			levelTransforms[ l ] = t;
+		}
+	}
+
+	/**
+	 * Create a {@link MultiResolutionRandomAccessible} from a full resolution
+	 * image and levels that are each downsampled by factors from the previous
+	 * one, as created by <code>Pyramid.build()</code>.
+	 */
+	public static < T > MultiResolutionRandomAccessible< T > create( final RandomAccessibleInterval< T > full, final List< ? extends RandomAccessibleInterval< T > > downsampled, final int[] factors )
+	{
+		final int n = full.numDimensions();
+		final ArrayList< RandomAccessibleInterval< T > > levels = new ArrayList< RandomAccessibleInterval< T > >();
+		levels.add( full );
+		levels.addAll( downsampled );
+		final double[][] levelFactors = new double[ levels.size() ][ n ];
+		for ( int l = 0; l < levels.size(); ++l )
+			for ( int d = 0; d < n; ++d )
+				levelFactors[ l ][ d ] = Math.pow( factors[ d ], l );
+		return new MultiResolutionRandomAccessible< T >( levels, levelFactors );
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return n;
+	}
+
+	public int numLevels()
+	{
+		return levels.size();
+	}
+
+	public RandomAccessibleInterval< T > getLevel( final int level )
+	{
+		return levels.get( level );
+	}
+
+	/**
+	 * Get the downsampling factors of level relative to level 0.
+	 */
+	public double[] getDownsamplingFactors( final int level )
+	{
+		return factors[ level ].clone();
+	}
+
+	/**
+	 * Get the transformation from coordinates of level to coordinates of level
+	 * 0. The returned transform must not be modified.
+	 */
+	public AffineGet getLevelTransform( final int level )
+	{
+		return levelTransforms[ level ];
+	}
+
+	/**
+	 * Get the coarsest level whose pixels are at most one target pixel apart
+	 * when level 0 is mapped to the target by sourceToTarget. Only the first
+	 * two target dimensions are considered, i.e., the screen plane of a
+	 * viewer. If no level fits, level 0 is returned.
+	 *
+	 * @param sourceToTarget
+	 *            transformation from level 0 to the target.
+	 */
+	public int getBestLevel( final AffineGet sourceToTarget )
+	{
+		final int numTargetDimensions = Math.min( 2, sourceToTarget.numTargetDimensions() );
+		for ( int l = levels.size() - 1; l > 0; --l )
+		{
+			double maxStep = 0;
+			for ( int d = 0; d < n; ++d )
+			{
+				double step = 0;
+				for ( int r = 0; r < numTargetDimensions; ++r )
+				{
+					final double a = sourceToTarget.get( r, d ) * factors[ l ][ d ];
+					step += a * a;
+				}
+				maxStep = Math.max( maxStep, step );
+			}
+			if ( maxStep <= 1.0 )
+				return l;
+		}
+		return 0;
+	}
+}
@@ -37,7 +37,10 @@
 package net.imglib2.realtransform;
 
 import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.RealRandomAccessible;
+import net.imglib2.interpolation.InterpolatorFactory;
+import net.imglib2.outofbounds.OutOfBoundsFactory;
 
 /**
  * Convenience factory methods for {@link RealRandomAccessible} transformed in
@@ -139,6 +142,29 @@ public class RealViews
 		return new AffineRandomAccessible< T, AffineGet >( source, affine.inverseAffine() );
 	}
 	
+	/**
+	 * See a {@link MultiResolutionRandomAccessible} as a
+	 * {@link RandomAccessible} transformed by an {@link AffineGet}.  The
+	 * {@link AffineGet} maps level 0 of the source and is interpreted as in
+	 * {@link #affine(RealRandomAccessible, AffineGet)}.  Each
+	 * {@link net.imglib2.RandomAccess} of the view samples the coarsest level
+	 * that does not lose resolution for the state of the {@link AffineGet} at
+	 * the time the {@link net.imglib2.RandomAccess} is created.  That way,
+	 * zooming out by changing the {@link AffineGet} reads less data.
+	 * 
+	 * @param source the {@link MultiResolutionRandomAccessible} to be transformed
+	 * @param interpolatorFactory interpolation within a level
+	 * @param outOfBoundsFactory extension of the levels beyond their interval
+	 * @param transform the {@link AffineGet} transforming level 0 of source
+	 * 
+	 * @return {@link MultiResolutionAffineRandomAccessible} representing the
+	 *   transformed source 
+	 */
+	public static < T > MultiResolutionAffineRandomAccessible< T > affine( final MultiResolutionRandomAccessible< T > source, final InterpolatorFactory< T, RandomAccessible< T > > interpolatorFactory, final OutOfBoundsFactory< T, ? super RandomAccessibleInterval< T > > outOfBoundsFactory, final AffineGet affine )
+	{
+		return new MultiResolutionAffineRandomAccessible< T >( source, interpolatorFactory, outOfBoundsFactory, affine );
+	}
+	
 	/**
 	 * See a {@link RealRandomAccessible} as transformed by an
 	 * {@link AffineGet} that is expected to be constant and thus can be
@@ -0,0 +1,167 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.realtransform;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.interpolation.randomaccess.NLinearInterpolatorFactory;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Checks that the incremental moves of
+ * {@link AffineRandomAccessible.AffineRandomAccess} reach the same source
+ * position as absolute positioning, also for a copied access.
+ *
+ * @author ImgLib2 developers
+ */
+public class AffineRandomAccessibleTest
+{
+	final AffineRandomAccessible< DoubleType, AffineGet > view;
+
+	public AffineRandomAccessibleTest()
+	{
+		final Img< DoubleType > img = ArrayImgs.doubles( 20, 18, 12 );
+		final Random random = new Random( 1 );
+		for ( final DoubleType t : img )
+			t.set( random.nextDouble() );
+		final AffineTransform3D affine = new AffineTransform3D();
+		affine.set(
+				1.3, 0.4, 0.1, -2.7,
+				-0.35, 1.1, 0.2, 5.3,
+				0.15, -0.25, 0.9, 1.7 );
+		view = RealViews.affine( Views.interpolate( Views.extendBorder( img ), new NLinearInterpolatorFactory< DoubleType >() ), affine );
+	}
+
+	/**
+	 * Compare the state of access a with an access positioned absolutely at
+	 * the same position.
+	 */
+	void assertSameAsAbsolute( final AffineRandomAccessible< DoubleType, AffineGet >.AffineRandomAccess a )
+	{
+		final AffineRandomAccessible< DoubleType, AffineGet >.AffineRandomAccess b = view.randomAccess();
+		b.setPosition( a );
+		for ( int d = 0; d < 3; ++d )
+		{
+			assertEquals( b.getLongPosition( d ), a.getLongPosition( d ) );
+			assertEquals( b.targetAccess.getDoublePosition( d ), a.targetAccess.getDoublePosition( d ), 1e-9 );
+		}
+		assertEquals( b.get().get(), a.get().get(), 1e-9 );
+	}
+
+	/**
+	 * Apply a random relative or single-dimension move.
+	 */
+	static void randomMove( final AffineRandomAccessible< DoubleType, AffineGet >.AffineRandomAccess a, final Random random )
+	{
+		final int d = random.nextInt( 3 );
+		switch ( random.nextInt( 5 ) )
+		{
+		case 0:
+			a.fwd( d );
+			break;
+		case 1:
+			a.bck( d );
+			break;
+		case 2:
+			a.move( ( long ) ( random.nextInt( 11 ) - 5 ), d );
+			break;
+		case 3:
+			a.move( random.nextInt( 11 ) - 5, d );
+			break;
+		default:
+			a.setPosition( ( long ) ( random.nextInt( 30 ) - 5 ), d );
+		}
+	}
+
+	@Test
+	public void testNewAccessIsAtOrigin()
+	{
+		final AffineRandomAccessible< DoubleType, AffineGet >.AffineRandomAccess a = view.randomAccess();
+		assertSameAsAbsolute( a );
+	}
+
+	@Test
+	public void testMovesMatchSetPosition()
+	{
+		final Random random = new Random( 2 );
+		final AffineRandomAccessible< DoubleType, AffineGet >.AffineRandomAccess a = view.randomAccess();
+		a.setPosition( new long[] { 3, -2, 4 } );
+		for ( int i = 0; i < 1000; ++i )
+		{
+			randomMove( a, random );
+			assertSameAsAbsolute( a );
+		}
+
+		a.move( new long[] { 2, 1, -3 } );
+		assertSameAsAbsolute( a );
+		a.move( new int[] { -1, 4, 0 } );
+		assertSameAsAbsolute( a );
+	}
+
+	@Test
+	public void testCopy()
+	{
+		final Random random = new Random( 3 );
+		final AffineRandomAccessible< DoubleType, AffineGet >.AffineRandomAccess a = view.randomAccess();
+		a.setPosition( new long[] { 5, 7, 2 } );
+		a.fwd( 0 );
+		a.bck( 2 );
+
+		final AffineRandomAccessible< DoubleType, AffineGet >.AffineRandomAccess c = a.copy();
+		assertSameAsAbsolute( c );
+		final long[] position = new long[ 3 ];
+		a.localize( position );
+
+		// moving the copy does not affect the original, and the copy keeps
+		// the step vectors of the original
+		for ( int i = 0; i < 200; ++i )
+		{
+			randomMove( c, random );
+			assertSameAsAbsolute( c );
+		}
+		for ( int d = 0; d < 3; ++d )
+			assertEquals( position[ d ], a.getLongPosition( d ) );
+		assertSameAsAbsolute( a );
+	}
+}
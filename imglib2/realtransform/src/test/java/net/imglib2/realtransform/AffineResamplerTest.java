@@ -0,0 +1,201 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.realtransform;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.interpolation.InterpolatorFactory;
+import net.imglib2.interpolation.randomaccess.LanczosInterpolatorFactory;
+import net.imglib2.interpolation.randomaccess.NLinearInterpolatorFactory;
+import net.imglib2.interpolation.randomaccess.NearestNeighborInterpolatorFactory;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Compares {@link AffineResampler#resample(RealRandomAccessible, AffineGet, RandomAccessibleInterval, int)}
+ * to sampling {@link RealViews#affine(RealRandomAccessible, AffineGet)} pixel
+ * by pixel, for the nearest neighbor, the 3D n-linear, and the generic path.
+ *
+ * @author ImgLib2 developers
+ */
+public class AffineResamplerTest
+{
+	static < T extends RealType< T > > void fillRandom( final Iterable< T > img, final Random random, final double max )
+	{
+		for ( final T t : img )
+			t.setReal( random.nextDouble() * max );
+	}
+
+	/**
+	 * Irregular coefficients, so that source positions do not fall on the
+	 * rounding boundaries of nearest neighbor interpolation.
+	 */
+	static AffineTransform2D createAffine2D()
+	{
+		final AffineTransform2D affine = new AffineTransform2D();
+		affine.set( 1.3171, 0.4123, -2.7389, -0.3547, 1.1093, 5.3261 );
+		return affine;
+	}
+
+	static AffineTransform3D createAffine3D()
+	{
+		final AffineTransform3D affine = new AffineTransform3D();
+		affine.set(
+				1.3171, 0.4123, 0.1057, -2.7389,
+				-0.3547, 1.1093, 0.2011, 5.3261,
+				0.1529, -0.2503, 0.9187, 1.7243 );
+		return affine;
+	}
+
+	static < T extends RealType< T > > RealRandomAccessible< T > interpolate( final Img< T > img, final InterpolatorFactory< T, RandomAccessible< T > > factory )
+	{
+		return Views.interpolate( Views.extendBorder( img ), factory );
+	}
+
+	/**
+	 * Resample into a new image covering interval and compare it to
+	 * {@link RealViews#affine(RealRandomAccessible, AffineGet)} pixel by
+	 * pixel, with the given tolerance.
+	 */
+	static < T extends RealType< T > > void assertSameAsRealViews( final RealRandomAccessible< T > source, final AffineGet affine, final FinalInterval interval, final Img< T > target, final int numThreads, final double tolerance )
+	{
+		final RandomAccessibleInterval< T > translatedTarget = Views.translate( target, getMin( interval ) );
+		AffineResampler.resample( source, affine, translatedTarget, numThreads );
+
+		final RandomAccess< T > expected = RealViews.affine( source, affine ).randomAccess();
+		final Cursor< T > c = Views.iterable( translatedTarget ).localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			expected.setPosition( c );
+			assertEquals( expected.get().getRealDouble(), c.get().getRealDouble(), tolerance );
+		}
+	}
+
+	static long[] getMin( final FinalInterval interval )
+	{
+		final long[] min = new long[ interval.numDimensions() ];
+		interval.min( min );
+		return min;
+	}
+
+	@Test
+	public void testNearestNeighbor()
+	{
+		final Img< UnsignedByteType > img = ArrayImgs.unsignedBytes( 40, 30 );
+		fillRandom( img, new Random( 1 ), 255 );
+		final FinalInterval interval = new FinalInterval( new long[] { -5, 3 }, new long[] { 50, 44 } );
+		final Img< UnsignedByteType > target = ArrayImgs.unsignedBytes( 56, 42 );
+		assertSameAsRealViews( interpolate( img, new NearestNeighborInterpolatorFactory< UnsignedByteType >() ), createAffine2D(), interval, target, 3, 0 );
+	}
+
+	@Test
+	public void testNLinear3DFloat()
+	{
+		final Img< FloatType > img = ArrayImgs.floats( 20, 18, 12 );
+		fillRandom( img, new Random( 2 ), 255 );
+		final FinalInterval interval = new FinalInterval( new long[] { -2, 1, 0 }, new long[] { 25, 22, 15 } );
+		final Img< FloatType > target = ArrayImgs.floats( 28, 22, 16 );
+		assertSameAsRealViews( interpolate( img, new NLinearInterpolatorFactory< FloatType >() ), createAffine3D(), interval, target, 3, 1e-3 );
+	}
+
+	/**
+	 * For integer types, the fast path is the exact n-linear interpolation
+	 * (computed on a {@link DoubleType} copy of the source) rounded to the
+	 * pixel type.
+	 */
+	@Test
+	public void testNLinear3DInteger()
+	{
+		final Img< UnsignedByteType > img = ArrayImgs.unsignedBytes( 20, 18, 12 );
+		fillRandom( img, new Random( 3 ), 255 );
+		final Img< DoubleType > doubleImg = ArrayImgs.doubles( 20, 18, 12 );
+		final Cursor< DoubleType > d = doubleImg.cursor();
+		for ( final UnsignedByteType t : img )
+			d.next().set( t.getRealDouble() );
+
+		final AffineTransform3D affine = createAffine3D();
+		final FinalInterval interval = new FinalInterval( new long[] { -2, 1, 0 }, new long[] { 25, 22, 15 } );
+		final Img< UnsignedByteType > target = ArrayImgs.unsignedBytes( 28, 22, 16 );
+		final RandomAccessibleInterval< UnsignedByteType > translatedTarget = Views.translate( target, getMin( interval ) );
+		AffineResampler.resample( interpolate( img, new NLinearInterpolatorFactory< UnsignedByteType >() ), affine, translatedTarget, 2 );
+
+		final RandomAccess< DoubleType > exact = RealViews.affine( interpolate( doubleImg, new NLinearInterpolatorFactory< DoubleType >() ), affine ).randomAccess();
+		final Cursor< UnsignedByteType > c = Views.iterable( translatedTarget ).localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			exact.setPosition( c );
+			assertEquals( exact.get().get(), c.get().getRealDouble(), 0.5 + 1e-6 );
+		}
+	}
+
+	@Test
+	public void testNLinear2DUsesInterpolator()
+	{
+		final Img< UnsignedByteType > img = ArrayImgs.unsignedBytes( 40, 30 );
+		fillRandom( img, new Random( 4 ), 255 );
+		final FinalInterval interval = new FinalInterval( new long[] { -5, 3 }, new long[] { 50, 44 } );
+		final Img< UnsignedByteType > target = ArrayImgs.unsignedBytes( 56, 42 );
+		assertSameAsRealViews( interpolate( img, new NLinearInterpolatorFactory< UnsignedByteType >() ), createAffine2D(), interval, target, 3, 0 );
+	}
+
+	@Test
+	public void testGeneric()
+	{
+		final Img< FloatType > img = ArrayImgs.floats( 40, 30 );
+		fillRandom( img, new Random( 5 ), 255 );
+		final FinalInterval interval = new FinalInterval( new long[] { -5, 3 }, new long[] { 50, 44 } );
+		final Img< FloatType > target = ArrayImgs.floats( 56, 42 );
+		assertSameAsRealViews( interpolate( img, new LanczosInterpolatorFactory< FloatType >() ), createAffine2D(), interval, target, 3, 1e-3 );
+	}
+}
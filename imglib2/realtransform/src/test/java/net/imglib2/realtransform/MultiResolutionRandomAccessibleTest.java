@@ -0,0 +1,260 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2012 Stephan Preibisch, Stephan Saalfeld, Tobias
+ * Pietzsch, Albert Cardona, Barry DeZonia, Curtis Rueden, Lee Kamentsky, Larry
+ * Lindsey, Johannes Schindelin, Christian Dietz, Grant Harris, Jean-Yves
+ * Tinevez, Steffen Jaensch, Mark Longair, Nick Perry, and Jan Funke.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package net.imglib2.realtransform;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.interpolation.randomaccess.NLinearInterpolatorFactory;
+import net.imglib2.outofbounds.OutOfBoundsBorderFactory;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests the level transformations and level choice of
+ * {@link MultiResolutionRandomAccessible} and sampling through
+ * {@link MultiResolutionAffineRandomAccessible}.
+ *
+ * @author ImgLib2 developers
+ */
+public class MultiResolutionRandomAccessibleTest
+{
+	final long[] fullMin = new long[] { 10, -4 };
+
+	final long[] fullDimensions = new long[] { 32, 24 };
+
+	final long[] levelMin = new long[] { 3, 7 };
+
+	/**
+	 * Added to the pixels of level 1 to tell which level was sampled.
+	 */
+	final float levelOffset = 1000;
+
+	/**
+	 * The value of the full resolution image at position x, a linear function
+	 * so that averaging and linear interpolation reproduce it.
+	 */
+	static double value( final double[] x )
+	{
+		return x[ 0 ] + 100 * x[ 1 ];
+	}
+
+	static AffineTransform scale( final double s )
+	{
+		final AffineTransform t = new AffineTransform( 2 );
+		t.set( s, 0, 0 );
+		t.set( s, 1, 1 );
+		return t;
+	}
+
+	/**
+	 * Create the full resolution image and a level downsampled by 2 by
+	 * averaging 2x2 blocks, with non-zero minima.
+	 */
+	MultiResolutionRandomAccessible< FloatType > createSource()
+	{
+		final Img< FloatType > full = ArrayImgs.floats( fullDimensions );
+		final RandomAccessibleInterval< FloatType > translatedFull = Views.translate( full, fullMin );
+		final double[] x = new double[ 2 ];
+		for ( final Cursor< FloatType > c = Views.iterable( translatedFull ).localizingCursor(); c.hasNext(); )
+		{
+			c.fwd();
+			c.localize( x );
+			c.get().setReal( value( x ) );
+		}
+
+		final Img< FloatType > level = ArrayImgs.floats( fullDimensions[ 0 ] / 2, fullDimensions[ 1 ] / 2 );
+		final RandomAccess< FloatType > a = full.randomAccess();
+		for ( final Cursor< FloatType > c = level.localizingCursor(); c.hasNext(); )
+		{
+			c.fwd();
+			double sum = 0;
+			for ( int dy = 0; dy < 2; ++dy )
+				for ( int dx = 0; dx < 2; ++dx )
+				{
+					a.setPosition( 2 * c.getLongPosition( 0 ) + dx, 0 );
+					a.setPosition( 2 * c.getLongPosition( 1 ) + dy, 1 );
+					sum += a.get().getRealDouble();
+				}
+			c.get().setReal( sum / 4 + levelOffset );
+		}
+
+		final ArrayList< RandomAccessibleInterval< FloatType > > levels = new ArrayList< RandomAccessibleInterval< FloatType > >();
+		levels.add( translatedFull );
+		levels.add( Views.translate( level, levelMin ) );
+		return new MultiResolutionRandomAccessible< FloatType >( levels, new double[][] { { 1, 1 }, { 2, 2 } } );
+	}
+
+	@Test
+	public void testLevelTransform()
+	{
+		final MultiResolutionRandomAccessible< FloatType > source = createSource();
+		final double[] levelPosition = new double[ 2 ];
+		final double[] fullPosition = new double[ 2 ];
+
+		// level 0 maps to itself
+		levelPosition[ 0 ] = 12;
+		levelPosition[ 1 ] = -3.5;
+		source.getLevelTransform( 0 ).apply( levelPosition, fullPosition );
+		assertEquals( 12, fullPosition[ 0 ], 1e-10 );
+		assertEquals( -3.5, fullPosition[ 1 ], 1e-10 );
+
+		// level pixel x covers full resolution pixels 2x and 2x+1 (relative
+		// to the minima), so its center is at 2x+0.5
+		for ( long y = 0; y < fullDimensions[ 1 ] / 2; ++y )
+			for ( long x = 0; x < fullDimensions[ 0 ] / 2; ++x )
+			{
+				levelPosition[ 0 ] = levelMin[ 0 ] + x;
+				levelPosition[ 1 ] = levelMin[ 1 ] + y;
+				source.getLevelTransform( 1 ).apply( levelPosition, fullPosition );
+				assertEquals( fullMin[ 0 ] + 2 * x + 0.5, fullPosition[ 0 ], 1e-10 );
+				assertEquals( fullMin[ 1 ] + 2 * y + 0.5, fullPosition[ 1 ], 1e-10 );
+			}
+	}
+
+	@Test
+	public void testLevelTransformMatchesLevelData()
+	{
+		// the value of a level pixel is the value of the full resolution
+		// image at the position the level transform maps it to
+		final MultiResolutionRandomAccessible< FloatType > source = createSource();
+		final RandomAccessibleInterval< FloatType > level = source.getLevel( 1 );
+		final double[] levelPosition = new double[ 2 ];
+		final double[] fullPosition = new double[ 2 ];
+		for ( final Cursor< FloatType > c = Views.iterable( level ).localizingCursor(); c.hasNext(); )
+		{
+			c.fwd();
+			c.localize( levelPosition );
+			source.getLevelTransform( 1 ).apply( levelPosition, fullPosition );
+			assertEquals( value( fullPosition ) + levelOffset, c.get().getRealDouble(), 1e-3 );
+		}
+	}
+
+	@Test
+	public void testBestLevel()
+	{
+		final ArrayList< RandomAccessibleInterval< FloatType > > levels = new ArrayList< RandomAccessibleInterval< FloatType > >();
+		levels.add( ArrayImgs.floats( 64, 64 ) );
+		levels.add( ArrayImgs.floats( 32, 32 ) );
+		levels.add( ArrayImgs.floats( 16, 16 ) );
+		final MultiResolutionRandomAccessible< FloatType > source = new MultiResolutionRandomAccessible< FloatType >( levels, new double[][] { { 1, 1 }, { 2, 2 }, { 4, 4 } } );
+
+		assertEquals( 0, source.getBestLevel( scale( 4 ) ) );
+		assertEquals( 0, source.getBestLevel( scale( 1 ) ) );
+		assertEquals( 0, source.getBestLevel( scale( 0.6 ) ) );
+		assertEquals( 1, source.getBestLevel( scale( 0.5 ) ) );
+		assertEquals( 1, source.getBestLevel( scale( 0.3 ) ) );
+		assertEquals( 2, source.getBestLevel( scale( 0.25 ) ) );
+		assertEquals( 2, source.getBestLevel( scale( 0.01 ) ) );
+
+		// the step between level pixels is measured along the rotated axes
+		final AffineTransform rotated = scale( 1 );
+		final double c = 0.45 * Math.cos( Math.PI / 4 );
+		rotated.set( c, -c, 0, c, c, 0 );
+		assertEquals( 1, source.getBestLevel( rotated ) );
+
+		// anisotropic scaling is limited by the larger step
+		final AffineTransform anisotropic = scale( 0.2 );
+		anisotropic.set( 0.5, 1, 1 );
+		assertEquals( 1, source.getBestLevel( anisotropic ) );
+	}
+
+	@Test
+	public void testBestLevelIgnoresDepth()
+	{
+		final ArrayList< RandomAccessibleInterval< FloatType > > levels = new ArrayList< RandomAccessibleInterval< FloatType > >();
+		levels.add( ArrayImgs.floats( 64, 64, 64 ) );
+		levels.add( ArrayImgs.floats( 32, 32, 32 ) );
+		final MultiResolutionRandomAccessible< FloatType > source = new MultiResolutionRandomAccessible< FloatType >( levels, new double[][] { { 1, 1, 1 }, { 2, 2, 2 } } );
+
+		// only the screen plane (the first two target dimensions) matters
+		final AffineTransform t = new AffineTransform( 3 );
+		t.set( 0.5, 0, 0 );
+		t.set( 0.5, 1, 1 );
+		t.set( 10, 2, 2 );
+		assertEquals( 1, source.getBestLevel( t ) );
+	}
+
+	@Test
+	public void testAffineRandomAccessible()
+	{
+		final MultiResolutionRandomAccessible< FloatType > source = createSource();
+		final AffineTransform sourceToTarget = scale( 1 );
+		final MultiResolutionAffineRandomAccessible< FloatType > target = new MultiResolutionAffineRandomAccessible< FloatType >( source, new NLinearInterpolatorFactory< FloatType >(), new OutOfBoundsBorderFactory< FloatType, RandomAccessibleInterval< FloatType > >(), sourceToTarget );
+
+		final double[] targetPosition = new double[ 2 ];
+		final double[] sourcePosition = new double[ 2 ];
+
+		// at full zoom level 0 is sampled
+		assertEquals( 0, target.getCurrentLevel() );
+		RandomAccess< FloatType > a = target.randomAccess();
+		for ( long y = 0; y < 20; ++y )
+			for ( long x = 12; x < 40; ++x )
+			{
+				a.setPosition( new long[] { x, y } );
+				targetPosition[ 0 ] = x;
+				targetPosition[ 1 ] = y;
+				sourceToTarget.applyInverse( sourcePosition, targetPosition );
+				assertEquals( value( sourcePosition ), a.get().getRealDouble(), 1e-2 );
+			}
+
+		// zooming out by 2 (with a translation) samples level 1 for new
+		// accesses, the image stays in place
+		sourceToTarget.set( 0.5, 0, -3, 0, 0.5, 2 );
+		assertEquals( 1, target.getCurrentLevel() );
+		a = target.randomAccess();
+		for ( long y = 1; y < 12; ++y )
+			for ( long x = 3; x < 18; ++x )
+			{
+				a.setPosition( new long[] { x, y } );
+				targetPosition[ 0 ] = x;
+				targetPosition[ 1 ] = y;
+				sourceToTarget.applyInverse( sourcePosition, targetPosition );
+				final String msg = Arrays.toString( sourcePosition );
+				assertEquals( msg, value( sourcePosition ) + levelOffset, a.get().getRealDouble(), 1e-2 );
+			}
+	}
+}
@@ -3,7 +3,6 @@ package net.imglib2.ui;
 import java.awt.Graphics;
 
 import net.imglib2.display.ARGBScreenImage;
-import net.imglib2.display.XYRandomAccessibleProjector;
 import net.imglib2.realtransform.AffineTransform2D;
 import net.imglib2.type.numeric.ARGBType;
 import net.imglib2.type.numeric.NumericType;
@@ -36,10 +35,24 @@ public abstract class AbstractInteractiveViewer2D< T extends NumericType< T > >
 	final protected AffineTransform2D sourceToScreen = new AffineTransform2D();
 
 	/**
-	 * Currently active projector, used to re-paint the display. It maps the
-	 * {@link #source} data to {@link #screenImage}.
+	 * Renders {@link #screenImage} progressively, from coarse to full
+	 * resolution, using one projector per screen scale.
 	 */
-	protected XYRandomAccessibleProjector< T, ARGBType > projector;
+	final protected MultiResolutionRenderer renderer = new MultiResolutionRenderer();
+
+	/**
+	 * Transformations from {@link #screenImage} to the render image of each
+	 * screen scale of the {@link #renderer}.
+	 */
+	final protected AffineTransform2D[] screenScaleTransforms;
+
+	/**
+	 * Transformations from {@link #source} to the render image of each screen
+	 * scale of the {@link #renderer}. These are concatenations of
+	 * {@link #sourceToScreen} and the respective
+	 * {@link #screenScaleTransforms screen scale transform}.
+	 */
+	final protected AffineTransform2D[] renderTransforms;
 
 	/**
 	 * Window used for displaying the rendered {@link #screenImage}.
@@ -49,6 +62,14 @@ public abstract class AbstractInteractiveViewer2D< T extends NumericType< T > >
 	public AbstractInteractiveViewer2D( final int width, final int height, final AffineTransform2D sourceTransform, final DisplayTypes displayType )
 	{
 		this.sourceTransform = sourceTransform;
+		final int numScreenScales = renderer.numScreenScales();
+		screenScaleTransforms = new AffineTransform2D[ numScreenScales ];
+		renderTransforms = new AffineTransform2D[ numScreenScales ];
+		for ( int i = 0; i < numScreenScales; ++i )
+		{
+			screenScaleTransforms[ i ] = new AffineTransform2D();
+			renderTransforms[ i ] = new AffineTransform2D();
+		}
 		if ( displayType == DisplayTypes.DISPLAY_IMAGEPLUS )
 			display = new ImagePlusInteractiveDisplay2D( width, height, this, this );
 		else
@@ -62,6 +83,15 @@ public abstract class AbstractInteractiveViewer2D< T extends NumericType< T > >
 	public void setSourceTransform( final AffineTransform2D transform )
 	{
 		sourceTransform.set( transform );
+		requestRepaint();
+	}
+
+	/**
+	 * Request a new frame, canceling the rendering in progress.
+	 */
+	public void requestRepaint()
+	{
+		renderer.requestRepaint();
 		display.requestRepaint();
 	}
 
@@ -69,20 +99,51 @@ public abstract class AbstractInteractiveViewer2D< T extends NumericType< T > >
 	public void screenImageChanged( final ARGBScreenImage screenImage )
 	{
 		this.screenImage = screenImage;
-		projector = createProjector();
+		renderer.setScreenImage( screenImage );
+		createProjectors();
 	}
 
-	protected abstract XYRandomAccessibleProjector< T, ARGBType > createProjector();
+	/**
+	 * Create a projector for each screen scale of the {@link #renderer}.
+	 */
+	protected void createProjectors()
+	{
+		for ( int i = 0; i < renderer.numScreenScales(); ++i )
+		{
+			final double[] x = renderer.getScreenScaleTransform( i, 0 );
+			final double[] y = renderer.getScreenScaleTransform( i, 1 );
+			screenScaleTransforms[ i ].set(
+					x[ 0 ], 0, x[ 1 ],
+					0, y[ 0 ], y[ 1 ] );
+			renderer.setProjector( i, createProjector( renderer.getRenderImage( i ), renderTransforms[ i ] ) );
+		}
+	}
+
+	/**
+	 * Create a projector that maps {@link #source} to <em>target</em>.
+	 *
+	 * @param target
+	 *            the render image.
+	 * @param sourceToTarget
+	 *            transformation from {@link #source} to <em>target</em>. It is
+	 *            updated before each rendering, so the projector should use
+	 *            (a view of) it rather than a copy.
+	 */
+	protected abstract InterruptibleProjector< T, ARGBType > createProjector( final ARGBScreenImage target, final AffineTransform2D sourceToTarget );
 
 	@Override
 	public void drawScreenImage()
 	{
+		final int i = renderer.beginRendering();
 		synchronized( viewerTransform )
 		{
 			sourceToScreen.set( viewerTransform );
 		}
 		sourceToScreen.concatenate( sourceTransform );
-		projector.map();
+		renderTransforms[ i ].set( sourceToScreen );
+		renderTransforms[ i ].preConcatenate( screenScaleTransforms[ i ] );
+		if ( renderer.render( i ) )
+			display.requestRepaint();
 	}
 
 	@Override
@@ -95,6 +156,7 @@ public abstract class AbstractInteractiveViewer2D< T extends NumericType< T > >
 		{
 			viewerTransform.set( transform );
 		}
+		renderer.requestRepaint();
 	}
 
 	public AbstractInteractiveDisplay2D getDisplay()
@@ -4,7 +4,6 @@ import java.awt.Graphics;
 
 import net.imglib2.Interval;
 import net.imglib2.display.ARGBScreenImage;
-import net.imglib2.display.XYRandomAccessibleProjector;
 import net.imglib2.realtransform.AffineTransform3D;
 import net.imglib2.type.numeric.ARGBType;
 import net.imglib2.type.numeric.NumericType;
@@ -37,10 +36,24 @@ public abstract class AbstractInteractiveViewer3D< T extends NumericType< T > >
 	final protected AffineTransform3D sourceToScreen = new AffineTransform3D();
 
 	/**
-	 * Currently active projector, used to re-paint the display. It maps the
-	 * {@link #source} data to {@link #screenImage}.
+	 * Renders {@link #screenImage} progressively, from coarse to full
+	 * resolution, using one projector per screen scale.
 	 */
-	protected XYRandomAccessibleProjector< T, ARGBType > projector;
+	final protected MultiResolutionRenderer renderer = new MultiResolutionRenderer();
+
+	/**
+	 * Transformations from {@link #screenImage} to the render image of each
+	 * screen scale of the {@link #renderer}.
+	 */
+	final protected AffineTransform3D[] screenScaleTransforms;
+
+	/**
+	 * Transformations from {@link #source} to the render image of each screen
+	 * scale of the {@link #renderer}. These are concatenations of
+	 * {@link #sourceToScreen} and the respective
+	 * {@link #screenScaleTransforms screen scale transform}.
+	 */
+	final protected AffineTransform3D[] renderTransforms;
 
 	/**
 	 * Window used for displaying the rendered {@link #screenImage}.
@@ -50,6 +63,14 @@ public abstract class AbstractInteractiveViewer3D< T extends NumericType< T > >
 	public AbstractInteractiveViewer3D( final int width, final int height, final Interval sourceInterval, final AffineTransform3D sourceTransform, final DisplayTypes displayType )
 	{
 		this.sourceTransform = sourceTransform;
+		final int numScreenScales = renderer.numScreenScales();
+		screenScaleTransforms = new AffineTransform3D[ numScreenScales ];
+		renderTransforms = new AffineTransform3D[ numScreenScales ];
+		for ( int i = 0; i < numScreenScales; ++i )
+		{
+			screenScaleTransforms[ i ] = new AffineTransform3D();
+			renderTransforms[ i ] = new AffineTransform3D();
+		}
 		if ( displayType == DisplayTypes.DISPLAY_IMAGEPLUS )
 			display = new ImagePlusInteractiveDisplay3D( width, height, sourceInterval, sourceTransform, this, this );
 		else
@@ -59,6 +80,15 @@ public abstract class AbstractInteractiveViewer3D< T extends NumericType< T > >
 	public void setSourceTransform( final AffineTransform3D transform )
 	{
 		sourceTransform.set( transform );
+		requestRepaint();
+	}
+
+	/**
+	 * Request a new frame, canceling the rendering in progress.
+	 */
+	public void requestRepaint()
+	{
+		renderer.requestRepaint();
 		display.requestRepaint();
 	}
 
@@ -66,20 +96,52 @@ public abstract class AbstractInteractiveViewer3D< T extends NumericType< T > >
 	public void screenImageChanged( final ARGBScreenImage screenImage )
 	{
 		this.screenImage = screenImage;
-		projector = createProjector();
+		renderer.setScreenImage( screenImage );
+		createProjectors();
 	}
 
-	protected abstract XYRandomAccessibleProjector< T, ARGBType > createProjector();
+	/**
+	 * Create a projector for each screen scale of the {@link #renderer}.
+	 */
+	protected void createProjectors()
+	{
+		for ( int i = 0; i < renderer.numScreenScales(); ++i )
+		{
+			final double[] x = renderer.getScreenScaleTransform( i, 0 );
+			final double[] y = renderer.getScreenScaleTransform( i, 1 );
+			screenScaleTransforms[ i ].set(
+					x[ 0 ], 0, 0, x[ 1 ],
+					0, y[ 0 ], 0, y[ 1 ],
+					0, 0, 1, 0 );
+			renderer.setProjector( i, createProjector( renderer.getRenderImage( i ), renderTransforms[ i ] ) );
+		}
+	}
+
+	/**
+	 * Create a projector that maps {@link #source} to <em>target</em>.
+	 *
+	 * @param target
+	 *            the render image.
+	 * @param sourceToTarget
+	 *            transformation from {@link #source} to <em>target</em>. It is
+	 *            updated before each rendering, so the projector should use
+	 *            (a view of) it rather than a copy.
+	 */
+	protected abstract InterruptibleProjector< T, ARGBType > createProjector( final ARGBScreenImage target, final AffineTransform3D sourceToTarget );
 
 	@Override
 	public void drawScreenImage()
 	{
+		final int i = renderer.beginRendering();
 		synchronized( viewerTransform )
 		{
 			sourceToScreen.set( viewerTransform );
 		}
 		sourceToScreen.concatenate( sourceTransform );
-		projector.map();
+		renderTransforms[ i ].set( sourceToScreen );
+		renderTransforms[ i ].preConcatenate( screenScaleTransforms[ i ] );
+		if ( renderer.render( i ) )
+			display.requestRepaint();
 	}
 
 	@Override
@@ -92,6 +154,7 @@ public abstract class AbstractInteractiveViewer3D< T extends NumericType< T > >
 		{
 			viewerTransform.set( transform );
 		}
+		renderer.requestRepaint();
 	}
 
 	public AbstractInteractiveDisplay3D getDisplay()
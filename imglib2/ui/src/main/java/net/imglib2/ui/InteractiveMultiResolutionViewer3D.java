@@ -0,0 +1,114 @@
+package net.imglib2.ui;
+
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converter;
+import net.imglib2.display.ARGBScreenImage;
+import net.imglib2.interpolation.InterpolatorFactory;
+import net.imglib2.interpolation.randomaccess.NLinearInterpolatorFactory;
+import net.imglib2.interpolation.randomaccess.NearestNeighborInterpolatorFactory;
+import net.imglib2.outofbounds.OutOfBoundsConstantValueFactory;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.realtransform.MultiResolutionRandomAccessible;
+import net.imglib2.realtransform.RealViews;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.NumericType;
+
+/**
+ * Interactive viewer for a {@link MultiResolutionRandomAccessible}. Every
+ * rendering samples the coarsest resolution level that does not lose detail
+ * at the current zoom (and screen scale of the progressive renderer), so
+ * zoomed out views of large images are rendered from small levels.
+ *
+ * @author ImgLib2 developers
+ */
+public class InteractiveMultiResolutionViewer3D< T extends NumericType< T > > extends AbstractInteractiveViewer3D< T >
+{
+	/**
+	 * The {@link MultiResolutionRandomAccessible} to display
+	 */
+	final protected MultiResolutionRandomAccessible< T > source;
+
+	/**
+	 * Converts {@link #source} type T to ARGBType for display
+	 */
+	final protected Converter< T, ARGBType > converter;
+
+	/**
+	 * Extends all levels of {@link #source} with zero.
+	 */
+	final protected OutOfBoundsConstantValueFactory< T, RandomAccessibleInterval< T > > outOfBoundsFactory;
+
+	public InteractiveMultiResolutionViewer3D( final int width, final int height, final MultiResolutionRandomAccessible< T > source, final Converter< T, ARGBType > converter )
+	{
+		this( width, height, source, new AffineTransform3D(), converter );
+	}
+
+	public InteractiveMultiResolutionViewer3D( final int width, final int height, final MultiResolutionRandomAccessible< T > source, final Converter< T, ARGBType > converter, final DisplayTypes displayType )
+	{
+		this( width, height, source, new AffineTransform3D(), converter, displayType );
+	}
+
+	public InteractiveMultiResolutionViewer3D( final int width, final int height, final MultiResolutionRandomAccessible< T > source, final AffineTransform3D sourceTransform, final Converter< T, ARGBType > converter )
+	{
+		this( width, height, source, sourceTransform, converter, DisplayTypes.DISPLAY_SWING );
+	}
+
+	public InteractiveMultiResolutionViewer3D( final int width, final int height, final MultiResolutionRandomAccessible< T > source, final AffineTransform3D sourceTransform, final Converter< T, ARGBType > converter, final DisplayTypes displayType )
+	{
+		super( width, height, source.getLevel( 0 ), sourceTransform, displayType );
+		this.source = source;
+		this.converter = converter;
+		final T zero = source.getLevel( 0 ).randomAccess().get().createVariable();
+		zero.setZero();
+		outOfBoundsFactory = new OutOfBoundsConstantValueFactory< T, RandomAccessibleInterval< T > >( zero );
+		createProjectors();
+		display.startPainter();
+
+		// add KeyHandler for toggling interpolation
+		display.addHandler( new KeyListener() {
+			@Override
+			public void keyPressed( final KeyEvent e )
+			{
+				if ( e.getKeyCode() == KeyEvent.VK_I )
+					toggleInterpolation();
+			}
+
+			@Override
+			public void keyTyped( final KeyEvent e ) {}
+
+			@Override
+			public void keyReleased( final KeyEvent e ) {}
+		});
+	}
+
+	protected int interpolation = 0;
+
+	protected void toggleInterpolation()
+	{
+		++interpolation;
+		interpolation %= 2;
+		createProjectors();
+		requestRepaint();
+	}
+
+	@Override
+	protected InterruptibleProjector< T, ARGBType > createProjector( final ARGBScreenImage target, final AffineTransform3D sourceToTarget )
+	{
+		final InterpolatorFactory< T, RandomAccessible< T > > interpolatorFactory;
+		switch ( interpolation )
+		{
+		case 0:
+			interpolatorFactory = new NearestNeighborInterpolatorFactory< T >();
+			break;
+		case 1:
+		default:
+			interpolatorFactory = new NLinearInterpolatorFactory< T >();
+			break;
+		}
+		return new InterruptibleProjector< T, ARGBType >( RealViews.affine( source, interpolatorFactory, outOfBoundsFactory, sourceToTarget ), target, converter );
+	}
+}
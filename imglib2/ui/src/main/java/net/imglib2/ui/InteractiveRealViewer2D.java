@@ -3,7 +3,7 @@ package net.imglib2.ui;
 import net.imglib2.RandomAccessible;
 import net.imglib2.RealRandomAccessible;
 import net.imglib2.converter.Converter;
-import net.imglib2.display.XYRandomAccessibleProjector;
+import net.imglib2.display.ARGBScreenImage;
 import net.imglib2.realtransform.AffineGet;
 import net.imglib2.realtransform.AffineRandomAccessible;
 import net.imglib2.realtransform.AffineTransform2D;
@@ -42,7 +42,7 @@ public class InteractiveRealViewer2D< T extends NumericType< T > > extends Abstr
 		super( width, height, sourceTransform, displayType );
 		this.source = source;
 		this.converter = converter;
-		projector = createProjector();
+		createProjectors();
 		display.startPainter();
 	}
 
@@ -52,14 +52,14 @@ public class InteractiveRealViewer2D< T extends NumericType< T > > extends Abstr
 	{
 		++interpolation;
 		interpolation %= 2;
-		projector = createProjector();
-		display.requestRepaint();
+		createProjectors();
+		requestRepaint();
 	}
 
 	@Override
-	protected XYRandomAccessibleProjector< T, ARGBType > createProjector()
+	protected InterruptibleProjector< T, ARGBType > createProjector( final ARGBScreenImage target, final AffineTransform2D sourceToTarget )
 	{
-		final AffineRandomAccessible< T, AffineGet > mapping = new AffineRandomAccessible< T, AffineGet >( source, sourceToScreen.inverse() );
-		return new XYRandomAccessibleProjector< T, ARGBType >( mapping, screenImage, converter );
+		final AffineRandomAccessible< T, AffineGet > mapping = new AffineRandomAccessible< T, AffineGet >( source, sourceToTarget.inverse() );
+		return new InterruptibleProjector< T, ARGBType >( mapping, target, converter );
 	}
 }
@@ -5,7 +5,7 @@ import java.awt.event.KeyListener;
 
 import net.imglib2.RandomAccessible;
 import net.imglib2.converter.Converter;
-import net.imglib2.display.XYRandomAccessibleProjector;
+import net.imglib2.display.ARGBScreenImage;
 import net.imglib2.interpolation.Interpolant;
 import net.imglib2.interpolation.InterpolatorFactory;
 import net.imglib2.interpolation.randomaccess.NLinearInterpolatorFactory;
@@ -48,7 +48,7 @@ public class InteractiveViewer2D< T extends NumericType< T > > extends AbstractI
 		super( width, height, sourceTransform, displayType );
 		this.source = source;
 		this.converter = converter;
-		projector = createProjector();
+		createProjectors();
 		display.startPainter();
 
 		// add KeyHandler for toggling interpolation
@@ -74,12 +74,12 @@ public class InteractiveViewer2D< T extends NumericType< T > > extends AbstractI
 	{
 		++interpolation;
 		interpolation %= 2;
-		projector = createProjector();
-		display.requestRepaint();
+		createProjectors();
+		requestRepaint();
 	}
 
 	@Override
-	protected XYRandomAccessibleProjector< T, ARGBType > createProjector()
+	protected InterruptibleProjector< T, ARGBType > createProjector( final ARGBScreenImage target, final AffineTransform2D sourceToTarget )
 	{
 		final InterpolatorFactory< T, RandomAccessible< T > > interpolatorFactory;
 		switch ( interpolation )
@@ -93,7 +93,7 @@ public class InteractiveViewer2D< T extends NumericType< T > > extends AbstractI
 			break;
 		}
 		final Interpolant< T, RandomAccessible< T > > interpolant = new Interpolant< T, RandomAccessible< T > >( source, interpolatorFactory );
-		final AffineRandomAccessible< T, AffineGet > mapping = new AffineRandomAccessible< T, AffineGet >( interpolant, sourceToScreen.inverse() );
-		return new XYRandomAccessibleProjector< T, ARGBType >( mapping, screenImage, converter );
+		final AffineRandomAccessible< T, AffineGet > mapping = new AffineRandomAccessible< T, AffineGet >( interpolant, sourceToTarget.inverse() );
+		return new InterruptibleProjector< T, ARGBType >( mapping, target, converter );
 	}
 }
@@ -6,7 +6,7 @@ import java.awt.event.KeyListener;
 import net.imglib2.Interval;
 import net.imglib2.RandomAccessible;
 import net.imglib2.converter.Converter;
-import net.imglib2.display.XYRandomAccessibleProjector;
+import net.imglib2.display.ARGBScreenImage;
 import net.imglib2.interpolation.Interpolant;
 import net.imglib2.interpolation.InterpolatorFactory;
 import net.imglib2.interpolation.randomaccess.NLinearInterpolatorFactory;
@@ -49,7 +49,7 @@ public class InteractiveViewer3D< T extends NumericType< T > > extends AbstractI
 		super( width, height, sourceInterval, sourceTransform, displayType );
 		this.source = source;
 		this.converter = converter;
-		projector = createProjector();
+		createProjectors();
 		display.startPainter();
 
 		// add KeyHandler for toggling interpolation
@@ -75,12 +75,12 @@ public class InteractiveViewer3D< T extends NumericType< T > > extends AbstractI
 	{
 		++interpolation;
 		interpolation %= 2;
-		projector = createProjector();
-		display.requestRepaint();
+		createProjectors();
+		requestRepaint();
 	}
 
 	@Override
-	protected XYRandomAccessibleProjector< T, ARGBType > createProjector()
+	protected InterruptibleProjector< T, ARGBType > createProjector( final ARGBScreenImage target, final AffineTransform3D sourceToTarget )
 	{
 		final InterpolatorFactory< T, RandomAccessible< T > > interpolatorFactory;
 		switch ( interpolation )
@@ -94,7 +94,7 @@ public class InteractiveViewer3D< T extends NumericType< T > > extends AbstractI
 			break;
 		}
 		final Interpolant< T, RandomAccessible< T > > interpolant = new Interpolant< T, RandomAccessible< T > >( source, interpolatorFactory );
-		final AffineRandomAccessible< T, AffineGet > mapping = new AffineRandomAccessible< T, AffineGet >( interpolant, sourceToScreen.inverse() );
-		return new XYRandomAccessibleProjector< T, ARGBType >( mapping, screenImage, converter );
+		final AffineRandomAccessible< T, AffineGet > mapping = new AffineRandomAccessible< T, AffineGet >( interpolant, sourceToTarget.inverse() );
+		return new InterruptibleProjector< T, ARGBType >( mapping, target, converter );
 	}
 }
@@ -0,0 +1,57 @@
+package net.imglib2.ui;
+
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converter;
+import net.imglib2.display.XYRandomAccessibleProjector;
+
+/**
+ * An {@link XYRandomAccessibleProjector} that can be canceled while it is
+ * mapping. Every band of the target checks the canceled flag before each row,
+ * so {@link #map()} returns shortly after {@link #cancel()} was called, leaving
+ * the target only partially written.
+ *
+ * @author ImgLib2 developers
+ */
+public class InterruptibleProjector< A, B > extends XYRandomAccessibleProjector< A, B >
+{
+	protected volatile boolean canceled = false;
+
+	public InterruptibleProjector( final RandomAccessible< A > source, final RandomAccessibleInterval< B > target, final Converter< A, B > converter )
+	{
+		super( source, target, converter );
+	}
+
+	/**
+	 * Abort the running (or next) {@link #map()}.
+	 */
+	public void cancel()
+	{
+		canceled = true;
+	}
+
+	/**
+	 * Clear the canceled flag, such that the next {@link #map()} runs to
+	 * completion.
+	 */
+	public void reset()
+	{
+		canceled = false;
+	}
+
+	/**
+	 * @return whether the last {@link #map()} was canceled before it completed.
+	 */
+	public boolean isCanceled()
+	{
+		return canceled;
+	}
+
+	@Override
+	protected void map( final Interval sourceInterval, final long minY, final long maxY )
+	{
+		for ( long y = minY; y <= maxY && !canceled; ++y )
+			super.map( sourceInterval, y, y );
+	}
+}
@@ -0,0 +1,297 @@
+package net.imglib2.ui;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.util.ArrayList;
+
+import net.imglib2.display.ARGBScreenImage;
+import net.imglib2.type.numeric.ARGBType;
+
+/**
+ * Progressive rendering of the {@link ARGBScreenImage screen image} of an
+ * interactive viewer at several screen scales.
+ *
+ * <p>
+ * For every screen scale there is a render image of the scaled size and an
+ * {@link InterruptibleProjector} that maps the source into it. A new frame,
+ * requested by {@link #requestRepaint()}, is first rendered at a coarse scale
+ * and then refined scale by scale until the full resolution is reached. The
+ * finished render image is scaled up into the screen image, such that the
+ * screen image always shows a complete frame.
+ * </p>
+ *
+ * <p>
+ * {@link #requestRepaint()} cancels the rendering in progress, so a new
+ * transform is picked up as soon as possible. The starting scale of a new
+ * frame is the finest scale that is expected to render within
+ * {@link #setTargetRenderNanos(long) the target frame time}, estimated from
+ * the time per pixel of the last completed rendering.
+ * </p>
+ *
+ * <p>
+ * The viewer drives a frame from the painter thread as follows:
+ *
+ * <pre>
+ * final int i = renderer.beginRendering();
+ * // update the transform of the projector for screen scale i
+ * if ( renderer.render( i ) )
+ * 	display.requestRepaint();
+ * </pre>
+ * </p>
+ *
+ * @author ImgLib2 developers
+ */
+public class MultiResolutionRenderer
+{
+	/**
+	 * Screen scales, from full resolution to coarsest.
+	 */
+	final static public double[] DEFAULT_SCREEN_SCALES = new double[] { 1, 0.5, 0.25, 0.125 };
+
+	/**
+	 * Target time for rendering the first scale of a new frame (30 ms).
+	 */
+	final static public long DEFAULT_TARGET_RENDER_NANOS = 30 * 1000000l;
+
+	/**
+	 * Screen scales, from full resolution to coarsest.
+	 */
+	final protected double[] screenScales;
+
+	/**
+	 * One render image for each screen scale.
+	 */
+	final protected ARGBScreenImage[] renderImages;
+
+	/**
+	 * One projector for each screen scale, mapping to the respective
+	 * {@link #renderImages render image}.
+	 */
+	final protected ArrayList< InterruptibleProjector< ?, ARGBType > > projectors;
+
+	/**
+	 * The screen image that shows the last completed rendering.
+	 */
+	protected ARGBScreenImage screenImage;
+
+	/**
+	 * Target time for rendering the first scale of a new frame.
+	 */
+	protected long targetRenderNanos;
+
+	/**
+	 * Render time per pixel of the last completed rendering. Negative if
+	 * nothing was rendered yet.
+	 */
+	protected double renderNanosPerPixel = -1;
+
+	/**
+	 * Index of the screen scale to render next.
+	 */
+	protected int currentScreenScaleIndex;
+
+	/**
+	 * Whether the next rendering starts a new frame.
+	 */
+	protected boolean newFrameRequest = true;
+
+	/**
+	 * The projector that is currently mapping, or null.
+	 */
+	protected InterruptibleProjector< ?, ARGBType > currentProjector = null;
+
+	public MultiResolutionRenderer()
+	{
+		this( DEFAULT_SCREEN_SCALES, DEFAULT_TARGET_RENDER_NANOS );
+	}
+
+	/**
+	 * @param screenScales
+	 *            scale factors from the screen image to the render images,
+	 *            from the finest to the coarsest. The first should be 1.
+	 * @param targetRenderNanos
+	 *            target time for rendering the first scale of a new frame.
+	 */
+	public MultiResolutionRenderer( final double[] screenScales, final long targetRenderNanos )
+	{
+		if ( screenScales.length == 0 )
+			throw new IllegalArgumentException( "need at least one screen scale" );
+		this.screenScales = screenScales.clone();
+		this.targetRenderNanos = targetRenderNanos;
+		renderImages = new ARGBScreenImage[ screenScales.length ];
+		projectors = new ArrayList< InterruptibleProjector< ?, ARGBType > >( screenScales.length );
+		for ( int i = 0; i < screenScales.length; ++i )
+			projectors.add( null );
+		currentScreenScaleIndex = screenScales.length - 1;
+	}
+
+	public int numScreenScales()
+	{
+		return screenScales.length;
+	}
+
+	public long getTargetRenderNanos()
+	{
+		return targetRenderNanos;
+	}
+
+	public synchronized void setTargetRenderNanos( final long targetRenderNanos )
+	{
+		this.targetRenderNanos = targetRenderNanos;
+	}
+
+	/**
+	 * Set the screen image and create the render images for all screen
+	 * scales. The projectors have to be {@link #setProjector(int, InterruptibleProjector) set}
+	 * anew afterwards.
+	 */
+	public synchronized void setScreenImage( final ARGBScreenImage screenImage )
+	{
+		this.screenImage = screenImage;
+		final long w = screenImage.dimension( 0 );
+		final long h = screenImage.dimension( 1 );
+		for ( int i = 0; i < screenScales.length; ++i )
+		{
+			final int sw = ( int ) Math.max( 1, Math.ceil( w * screenScales[ i ] ) );
+			final int sh = ( int ) Math.max( 1, Math.ceil( h * screenScales[ i ] ) );
+			renderImages[ i ] = new ARGBScreenImage( sw, sh );
+		}
+		if ( currentProjector != null )
+			currentProjector.cancel();
+		newFrameRequest = true;
+	}
+
+	/**
+	 * Get the render image for screen scale <em>i</em>. The projector for this
+	 * scale maps to that image.
+	 */
+	public ARGBScreenImage getRenderImage( final int i )
+	{
+		return renderImages[ i ];
+	}
+
+	/**
+	 * Get the transformation from screen image coordinates to coordinates of
+	 * the render image for screen scale <em>i</em> in <em>d</em>, which is 0
+	 * for X and 1 for Y. Pixel centers are mapped to pixel centers, that is,
+	 * x' = scale * x + translation.
+	 *
+	 * @return { scale, translation }
+	 */
+	public double[] getScreenScaleTransform( final int i, final int d )
+	{
+		final double scale = ( double ) renderImages[ i ].dimension( d ) / screenImage.dimension( d );
+		return new double[] { scale, 0.5 * scale - 0.5 };
+	}
+
+	public synchronized void setProjector( final int i, final InterruptibleProjector< ?, ARGBType > projector )
+	{
+		if ( projectors.get( i ) == currentProjector && currentProjector != null )
+			currentProjector.cancel();
+		projectors.set( i, projector );
+		newFrameRequest = true;
+	}
+
+	/**
+	 * Request a new frame. This cancels the rendering in progress; the next
+	 * {@link #beginRendering()} starts again at a coarse scale. The display
+	 * still has to be asked for a repaint.
+	 */
+	public synchronized void requestRepaint()
+	{
+		newFrameRequest = true;
+		if ( currentProjector != null )
+			currentProjector.cancel();
+	}
+
+	/**
+	 * Choose the screen scale to render next and arm its projector. The
+	 * transformation of the projector should be updated after this, such that
+	 * a new frame requested in between is not missed.
+	 *
+	 * @return index of the screen scale to pass to {@link #render(int)}.
+	 */
+	public synchronized int beginRendering()
+	{
+		if ( newFrameRequest )
+		{
+			currentScreenScaleIndex = startScreenScaleIndex();
+			newFrameRequest = false;
+		}
+		currentProjector = projectors.get( currentScreenScaleIndex );
+		currentProjector.reset();
+		return currentScreenScaleIndex;
+	}
+
+	/**
+	 * Render screen scale <em>i</em> and, unless canceled, copy it to the
+	 * screen image.
+	 *
+	 * @return whether a finer screen scale remains to be rendered, i.e.,
+	 *         whether the display should be repainted again.
+	 */
+	public boolean render( final int i )
+	{
+		final InterruptibleProjector< ?, ARGBType > projector = projectors.get( i );
+		final long startTime = System.nanoTime();
+		projector.map();
+		final long renderNanos = System.nanoTime() - startTime;
+
+		synchronized ( this )
+		{
+			if ( currentProjector == projector )
+				currentProjector = null;
+			if ( projector.isCanceled() )
+				return false;
+
+			final ARGBScreenImage renderImage = renderImages[ i ];
+			renderNanosPerPixel = ( double ) renderNanos / ( renderImage.dimension( 0 ) * renderImage.dimension( 1 ) );
+			copyToScreenImage( renderImage );
+
+			if ( i > 0 && !newFrameRequest )
+			{
+				currentScreenScaleIndex = i - 1;
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Get the finest screen scale that is expected to render within
+	 * {@link #targetRenderNanos}, or the coarsest if there is none or nothing
+	 * was rendered yet.
+	 */
+	protected int startScreenScaleIndex()
+	{
+		final int coarsest = screenScales.length - 1;
+		if ( renderNanosPerPixel < 0 )
+			return coarsest;
+		for ( int i = 0; i < coarsest; ++i )
+		{
+			final double numPixels = renderImages[ i ].dimension( 0 ) * renderImages[ i ].dimension( 1 );
+			if ( numPixels * renderNanosPerPixel <= targetRenderNanos )
+				return i;
+		}
+		return coarsest;
+	}
+
+	/**
+	 * Copy the render image to the screen image, scaling it up with
+	 * nearest-neighbor interpolation if it is smaller.
+	 */
+	protected void copyToScreenImage( final ARGBScreenImage renderImage )
+	{
+		final int w = ( int ) screenImage.dimension( 0 );
+		final int h = ( int ) screenImage.dimension( 1 );
+		if ( renderImage.dimension( 0 ) == w && renderImage.dimension( 1 ) == h )
+			System.arraycopy( renderImage.getData(), 0, screenImage.getData(), 0, w * h );
+		else
+		{
+			final Graphics2D g = screenImage.image().createGraphics();
+			g.setRenderingHint( RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR );
+			g.drawImage( renderImage.image(), 0, 0, w, h, null );
+			g.dispose();
+		}
+	}
+}